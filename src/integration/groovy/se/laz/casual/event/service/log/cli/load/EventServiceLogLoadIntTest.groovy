@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.load
+
+import se.laz.casual.event.service.log.cli.Main
+import se.laz.casual.event.service.log.cli.metrics.SourceMetrics
+import se.laz.casual.event.service.log.cli.runner.EventServiceLogRunner
+import se.laz.casual.test.CasualEmbeddedServer
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+import static se.laz.casual.event.service.log.cli.internal.StreamEncoder.toPrintWriter
+
+/**
+ * Pushes load through an embedded event server into a running tool, failing if the tool cannot keep up.
+ * <br/>
+ * Configure the load with system properties, see {@link LoadProfile}, e.g.
+ * {@code ./gradlew intTest --tests '*LoadIntTest' -Dload.rate=50000 -Dload.args="--batch-size=100"}
+ */
+class EventServiceLogLoadIntTest extends Specification
+{
+    /**
+     * Allowance for the granularity of pacing and of measuring, relative to the target rate.
+     */
+    static final double RATE_TOLERANCE = 0.95
+    static final long DRAIN_TIMEOUT_MILLIS = 10000
+
+    CasualEmbeddedServer embeddedServer
+    EventServiceLogRunner runner
+    File directory
+
+    def setup()
+    {
+        embeddedServer = CasualEmbeddedServer.newBuilder()
+                .eventServerEnabled( true )
+                .build(  )
+        embeddedServer.start(  )
+        directory = Files.createTempDirectory( "load" ).toFile(  )
+    }
+
+    def cleanup()
+    {
+        runner?.stop(  )
+        embeddedServer?.shutdown(  )
+        directory?.deleteDir(  )
+    }
+
+    def "Sustain the target rate, #name."()
+    {
+        given:
+        LoadProfile profile = LoadProfile.fromSystemProperties( defaults )
+        runner = startRunner( profile )
+        SourceMetrics source = runner.getSources(  )[0]
+        LoadGenerator generator = new LoadGenerator( embeddedServer, profile )
+        LagMonitor monitor = new LagMonitor( generator, source )
+
+        when:
+        monitor.start(  )
+        generator.run(  )
+        boolean drained = monitor.awaitHandled( Math.max( DRAIN_TIMEOUT_MILLIS, profile.maxLagMillis ) )
+        runner.stop(  )
+        long lost = generator.getEvents(  ) - source.getReceived(  )
+        long written = runner.getMetrics(  ).getWritten(  )
+        println( profile )
+        println( String.format( "Published: %d at %.0f/s, received: %d, handled: %d at %.0f/s, written: %d, lost: %d, lag p50: %.1fms, p99: %.1fms, max: %.1fms.",
+                generator.getEvents(  ), generator.getPublishRate(  ), source.getReceived(  ), monitor.getHandled(  ),
+                monitor.getSustainedRate( generator.startNanos ), written, lost,
+                monitor.getLagMillis( 50 ), monitor.getLagMillis( 99 ), monitor.getLagMillis( 100 ) ) )
+
+        then: "the load was actually generated, otherwise the result says nothing about the tool"
+        generator.getPublishRate(  ) >= profile.getTargetRate(  ) * RATE_TOLERANCE
+
+        and: "the tool kept up"
+        drained
+        lost == 0
+        written == generator.getEvents(  )
+        monitor.getSustainedRate( generator.startNanos ) >= profile.getTargetRate(  ) * RATE_TOLERANCE
+        monitor.getLagMillis( 99 ) <= profile.maxLagMillis
+
+        where:
+        name     | defaults
+        "steady" | [:]
+        "bursts" | [burstSize: 1000]
+    }
+
+    EventServiceLogRunner startRunner( LoadProfile profile )
+    {
+        List<String> args = ["--eventServerUrl=tcp://localhost:" + embeddedServer.getEventServerPort(  ).get(),
+                             "--file=" + new File( directory, "load.log" ),
+                             "--metrics-port=" + freePort(  )]
+        args.addAll( profile.args.tokenize( " " ) )
+        Main params = new Main(  )
+        Main.newCommandLine( params ).parseArgs( args as String[] )
+        EventServiceLogRunner instance = new EventServiceLogRunner( params, toPrintWriter( System.out ) )
+        instance.start(  )
+        instance.waitForConnection(  )
+        return instance
+    }
+
+    /**
+     * Metrics are only kept when served, the written count is what the test needs of them.
+     */
+    static int freePort(  )
+    {
+        return new ServerSocket( 0 ).withCloseable{ it.getLocalPort(  ) }
+    }
+}
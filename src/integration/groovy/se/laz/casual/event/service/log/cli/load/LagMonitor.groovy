@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.load
+
+import se.laz.casual.event.service.log.cli.metrics.SourceMetrics
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Follows the events handled by the tool, measuring the lag of each from being published until handled.
+ * <br/>
+ * Events from an event server are handled in the order published, so once n events are handled the lag of
+ * the nth event is known. The lag is therefore measured to within the polling interval.
+ */
+class LagMonitor
+{
+    static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 )
+
+    private final LoadGenerator generator
+    private final SourceMetrics source
+    private final long[] lagNanos
+    private final Thread thread
+    private volatile int handled
+    private volatile long lastHandledNanos
+
+    LagMonitor( LoadGenerator generator, SourceMetrics source )
+    {
+        this.generator = Objects.requireNonNull( generator, "Generator is null." )
+        this.source = Objects.requireNonNull( source, "Source is null." )
+        this.lagNanos = new long[generator.getEvents(  )]
+        this.thread = new Thread( this::poll, "lag-monitor" )
+        this.thread.setDaemon( true )
+    }
+
+    void start(  )
+    {
+        thread.start(  )
+    }
+
+    /**
+     * @param timeoutMillis max time to wait.
+     * @return true if every event was handled in time.
+     */
+    boolean awaitHandled( long timeoutMillis )
+    {
+        thread.join( timeoutMillis )
+        thread.interrupt(  )
+        thread.join(  )
+        return handled == lagNanos.length
+    }
+
+    private void poll(  )
+    {
+        int done = 0
+        while( done < lagNanos.length && !Thread.currentThread(  ).isInterrupted(  ) )
+        {
+            long now = System.nanoTime(  )
+            int current = (int) Math.min( source.getHandled(  ), lagNanos.length )
+            for( int i = done; i < current; i++ )
+            {
+                lagNanos[i] = now - generator.getPublishedNanos( i )
+            }
+            if( current > done )
+            {
+                done = current
+                lastHandledNanos = now
+                handled = done
+            }
+            LockSupport.parkNanos( POLL_NANOS )
+        }
+    }
+
+    int getHandled(  )
+    {
+        return handled
+    }
+
+    /**
+     * @param startNanos when publishing started.
+     * @return events handled per second, from when publishing started until the last was handled.
+     */
+    double getSustainedRate( long startNanos )
+    {
+        return handled * 1e9d / Math.max( 1L, lastHandledNanos - startNanos )
+    }
+
+    /**
+     * @param percentile of the events handled, e.g. 99.
+     * @return lag in milliseconds.
+     */
+    double getLagMillis( double percentile )
+    {
+        int count = handled
+        if( count == 0 )
+        {
+            return Double.NaN
+        }
+        long[] sorted = Arrays.copyOf( lagNanos, count )
+        Arrays.sort( sorted )
+        int index = (int) Math.min( count - 1, Math.ceil( percentile / 100d * count ) - 1 )
+        return sorted[Math.max( 0, index )] / 1e6d
+    }
+}
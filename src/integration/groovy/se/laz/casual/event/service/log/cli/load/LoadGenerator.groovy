@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.load
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.test.CasualEmbeddedServer
+
+import javax.transaction.xa.Xid
+import java.nio.charset.StandardCharsets
+import java.time.Instant
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Publishes events through an embedded event server at the rate and with the mix of the profile,
+ * recording when each event was published so the lag until the tool handles it can be measured.
+ * <br/>
+ * Events are created up front so that creating them does not limit the rate published at.
+ */
+class LoadGenerator
+{
+    private final CasualEmbeddedServer server
+    private final LoadProfile profile
+    private final Random random
+    private final ServiceCallEvent[] events
+    private final AtomicLongArray publishedNanos
+
+    long startNanos
+    long endNanos
+
+    LoadGenerator( CasualEmbeddedServer server, LoadProfile profile )
+    {
+        this.server = Objects.requireNonNull( server, "Server is null." )
+        this.profile = Objects.requireNonNull( profile, "Profile is null." )
+        this.random = new Random( profile.seed )
+        this.events = new ServiceCallEvent[profile.getEvents(  )]
+        for( int i = 0; i < events.length; i++ )
+        {
+            events[i] = createEvent( i )
+        }
+        this.publishedNanos = new AtomicLongArray( events.length )
+    }
+
+    /**
+     * Publish every event of the profile, returning once the last one is published.
+     */
+    void run(  )
+    {
+        double nanosPerEvent = TimeUnit.SECONDS.toNanos( 1 ) / (double) profile.rate
+        startNanos = System.nanoTime(  )
+        for( int i = 0; i < publishedNanos.length(  ); i++ )
+        {
+            if( i % profile.burstSize == 0 )
+            {
+                awaitNanos( startNanos + (long) ( i * nanosPerEvent ) )
+            }
+            publishedNanos.set( i, System.nanoTime(  ) )
+            server.publishEvent( events[i] )
+        }
+        endNanos = System.nanoTime(  )
+    }
+
+    /**
+     * @param index of the event.
+     * @return when the event was published, 0 if not yet.
+     */
+    long getPublishedNanos( int index )
+    {
+        return publishedNanos.get( index )
+    }
+
+    int getEvents(  )
+    {
+        return publishedNanos.length(  )
+    }
+
+    /**
+     * @return events published per second.
+     */
+    double getPublishRate(  )
+    {
+        return publishedNanos.length(  ) * 1e9d / Math.max( 1L, endNanos - startNanos )
+    }
+
+    private static void awaitNanos( long dueNanos )
+    {
+        long remaining
+        while( ( remaining = dueNanos - System.nanoTime(  ) ) > 0 )
+        {
+            LockSupport.parkNanos( remaining )
+        }
+    }
+
+    private ServiceCallEvent createEvent( int index )
+    {
+        Instant end = Instant.now(  )
+        return ServiceCallEvent.createBuilder(  )
+                .withService( "service" + random.nextInt( profile.services ) )
+                .withParent( "parent" )
+                .withPID( 1234 )
+                .withExecution( new UUID( profile.seed, index ) )
+                .withTransactionId( xid( index ) )
+                .withPending( 0L )
+                .withStart( end.minusNanos( 1000L * random.nextInt( 100000 ) ) )
+                .withEnd( end )
+                .withCode( random.nextDouble(  ) < profile.errorRatio ? ErrorState.TPESVCERR : ErrorState.OK )
+                .withOrder( Order.CONCURRENT )
+                .build(  )
+    }
+
+    private static Xid xid( int index )
+    {
+        byte[] gtrid = String.format( "%016x", index ).getBytes( StandardCharsets.US_ASCII )
+        byte[] bqual = new byte[0]
+        return [getFormatId: { 42 }, getGlobalTransactionId: { gtrid }, getBranchQualifier: { bqual }] as Xid
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.load
+
+/**
+ * Load pushed through the event server, and what the tool must sustain.
+ * <br/>
+ * Every setting can be overridden with a system property prefixed {@code load.}, e.g. {@code -Dload.rate=50000}.
+ */
+class LoadProfile
+{
+    private static final String PREFIX = "load."
+
+    /**
+     * Events published per second.
+     */
+    int rate = 20000
+    long durationMillis = 10000
+    /**
+     * Number of distinct services called.
+     */
+    int services = 100
+    /**
+     * Fraction of calls that fail.
+     */
+    double errorRatio = 0.01
+    /**
+     * Events published back to back, bursts being spaced out to keep to the rate.
+     */
+    int burstSize = 1
+    /**
+     * Events per second the tool must handle, defaults to the rate.
+     */
+    int targetRate = 0
+    /**
+     * Max time from publishing an event until the tool has handled it, for 99% of events.
+     */
+    long maxLagMillis = 1000
+    /**
+     * Command line args of the tool, space separated, e.g. "--batch-size=100 --queue=RING".
+     */
+    String args = ""
+    long seed = 1713184496123L
+
+    /**
+     * @param defaults settings to use unless overridden by a system property.
+     * @return the profile.
+     */
+    static LoadProfile fromSystemProperties( Map<String, Object> defaults = [:] )
+    {
+        LoadProfile profile = new LoadProfile( defaults )
+        profile.properties.keySet(  ).findAll { it != "class" && it != "events" }.each { String name ->
+            String value = System.getProperty( PREFIX + name )
+            if( value != null )
+            {
+                profile.setProperty( name, value.asType( profile.getProperty( name ).getClass(  ) ) )
+            }
+        }
+        return profile
+    }
+
+    int getTargetRate(  )
+    {
+        return targetRate > 0 ? targetRate : rate
+    }
+
+    /**
+     * @return events published in total.
+     */
+    int getEvents(  )
+    {
+        return (int) ( (long) rate * durationMillis / 1000 )
+    }
+
+    @Override
+    String toString(  )
+    {
+        return "LoadProfile{rate=${rate}, durationMillis=${durationMillis}, services=${services}, errorRatio=${errorRatio}, " +
+                "burstSize=${burstSize}, targetRate=${getTargetRate(  )}, maxLagMillis=${maxLagMillis}, args='${args}'}"
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli;
+
+import se.laz.casual.api.flags.ErrorState;
+import se.laz.casual.event.Order;
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import javax.transaction.xa.Xid;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Events and params shared by the benchmarks.
+ */
+public final class BenchmarkSupport
+{
+    /**
+     * Overrides the directory benchmarks write their files to.
+     */
+    public static final String DIRECTORY_PROPERTY = "benchmark.dir";
+
+    private static final File TMPFS = new File( "/dev/shm" );
+
+    private BenchmarkSupport()
+    {
+    }
+
+    /**
+     * Events called by a number of services, as received from an event server.
+     * Service names are {@code service<n>}, so even numbered services match {@code service\d*[02468]}.
+     *
+     * @param count of events.
+     * @param services number of distinct services called.
+     * @return the events.
+     */
+    public static ServiceCallEvent[] events( int count, int services )
+    {
+        ServiceCallEvent[] events = new ServiceCallEvent[count];
+        Instant start = Instant.parse( "2024-04-15T12:34:56.123456Z" );
+        for( int i = 0; i < count; i++ )
+        {
+            events[i] = ServiceCallEvent.createBuilder()
+                    .withService( "service" + ( i % services ) )
+                    .withParent( "parent" )
+                    .withPID( 1234 )
+                    .withExecution( UUID.randomUUID() )
+                    .withTransactionId( xid( i ) )
+                    .withStart( start.plusMillis( i ) )
+                    .withEnd( start.plusMillis( i ).plusNanos( ( i % 100 ) * 1000_000L + 123_000L ) )
+                    .withPending( i % 10 )
+                    .withCode( i % 20 == 0 ? ErrorState.TPESVCERR : ErrorState.OK )
+                    .withOrder( Order.CONCURRENT )
+                    .build();
+        }
+        return events;
+    }
+
+    /**
+     * Parse params exactly as given on the command line.
+     *
+     * @param args command line args, --eventServerUrl is added.
+     * @return the params.
+     */
+    public static Main params( String... args )
+    {
+        String[] all = new String[args.length + 1];
+        all[0] = "--eventServerUrl=tcp://localhost:7774";
+        System.arraycopy( args, 0, all, 1, args.length );
+        Main params = new Main();
+        Main.newCommandLine( params ).parseArgs( all );
+        return params;
+    }
+
+    /**
+     * Create a new directory on tmpfs if available, so benchmarks measure the writer rather than the disk.
+     *
+     * @return the new directory.
+     */
+    public static File createDirectory()
+    {
+        String override = System.getProperty( DIRECTORY_PROPERTY );
+        File parent;
+        if( override != null )
+        {
+            parent = new File( override );
+        }
+        else
+        {
+            parent = TMPFS.isDirectory() && TMPFS.canWrite() ? TMPFS : new File( System.getProperty( "java.io.tmpdir" ) );
+        }
+        try
+        {
+            return Files.createTempDirectory( parent.toPath(), "casual-event-log-benchmark" ).toFile();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to create benchmark directory in: " + parent, e );
+        }
+    }
+
+    /**
+     * @param directory to delete along with its contents.
+     */
+    public static void delete( File directory )
+    {
+        try( Stream<Path> paths = Files.walk( directory.toPath() ) )
+        {
+            paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to delete benchmark directory: " + directory, e );
+        }
+    }
+
+    private static Xid xid( int i )
+    {
+        byte[] gtrid = String.format( "%016x", i ).getBytes( StandardCharsets.US_ASCII );
+        byte[] bqual = String.format( "%08x", i % 4 ).getBytes( StandardCharsets.US_ASCII );
+        return new Xid()
+        {
+            @Override
+            public int getFormatId()
+            {
+                return 42;
+            }
+
+            @Override
+            public byte[] getGlobalTransactionId()
+            {
+                return gtrid;
+            }
+
+            @Override
+            public byte[] getBranchQualifier()
+            {
+                return bqual;
+            }
+        };
+    }
+}
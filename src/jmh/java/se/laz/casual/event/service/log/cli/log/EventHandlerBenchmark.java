@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.BenchmarkSupport;
+import se.laz.casual.event.service.log.cli.Main;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handling a received event, with and without filters, as the runner does for every event.
+ * <br/>
+ * Half of the services, and so of the events, pass each filter. Those that pass are logged in batches to a
+ * file on tmpfs, rotated to keep the file system from filling up.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class EventHandlerBenchmark
+{
+    private static final int EVENTS = 1024;
+    private static final int SERVICES = 64;
+
+    /**
+     * Filter applied to the events.
+     */
+    public enum Filter
+    {
+        NONE,
+        INCLUSIVE( "--filter-inclusive", "service\\d*[02468]" ),
+        EXCLUSIVE( "--filter-exclusive", "service\\d*[13579]" ),
+        EXPRESSION( "--filter", "service =~ 'service\\d*[02468]' && duration < 1s" );
+
+        private final String[] args;
+
+        Filter( String... args )
+        {
+            this.args = args;
+        }
+    }
+
+    @Param( { "NONE", "INCLUSIVE", "EXCLUSIVE", "EXPRESSION" } )
+    public Filter filter;
+
+    @Param( { "0", "4096" } )
+    public int filterCacheSize;
+
+    private ServiceCallEvent[] events;
+    private int next;
+    private File directory;
+    private ServiceLogger logger;
+    private EventHandler handler;
+
+    @Setup
+    public void setup()
+    {
+        events = BenchmarkSupport.events( EVENTS, SERVICES );
+        directory = BenchmarkSupport.createDirectory();
+        List<String> args = new ArrayList<>( Arrays.asList( filter.args ) );
+        args.addAll( List.of( "--file=" + new File( directory, "handler.log" ), "--batch-size=1000",
+                "--flush-interval-ms=0", "--rotate-size=64M", "--rotate-retain=1" ) );
+        Main params = BenchmarkSupport.params( args.toArray( new String[0] ) );
+        logger = ServiceLogger.newBuilder().eventServiceLogParams( params ).build();
+        handler = EventHandler.newBuilder()
+                .serviceLogger( logger )
+                .filterInclusive( params.getLogFilterInclusive().orElse( null ) )
+                .filterExclusive( params.getLogFilterExclusive().orElse( null ) )
+                .filter( params.getLogFilter().orElse( null ) )
+                .filterCacheSize( filterCacheSize )
+                .build();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        logger.close();
+        BenchmarkSupport.delete( directory );
+    }
+
+    @Benchmark
+    public void handle()
+    {
+        handler.handle( events[next] );
+        next = ( next + 1 ) & ( EVENTS - 1 );
+    }
+
+    @Benchmark
+    public boolean accept()
+    {
+        boolean accepted = handler.accept( events[next] );
+        next = ( next + 1 ) & ( EVENTS - 1 );
+        return accepted;
+    }
+}
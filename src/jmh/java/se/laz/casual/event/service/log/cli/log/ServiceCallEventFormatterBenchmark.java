@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.BenchmarkSupport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting a single event, as done for every event logged.
+ * <br/>
+ * {@code format} creates a string per event as the formatter did originally, whereas {@code appendTo} and
+ * {@code encode} append to a reused buffer as the logger does, so should allocate nothing per event.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ServiceCallEventFormatterBenchmark
+{
+    private static final int EVENTS = 1024;
+    private static final int SERVICES = 64;
+
+    private ServiceCallEvent[] events;
+    private int next;
+    private ServiceCallEventFormatter formatter;
+    private LogBuffer buffer;
+
+    /**
+     * Encoder of the log format, binary keeping a dictionary of the services and parents encoded.
+     */
+    @State( Scope.Thread )
+    public static class Encoder
+    {
+        @Param( { "TEXT", "BINARY" } )
+        public EventFormat format;
+
+        private EventEncoder encoder;
+
+        @Setup
+        public void setup()
+        {
+            encoder = format.createEncoder( "|" );
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        events = BenchmarkSupport.events( EVENTS, SERVICES );
+        formatter = new ServiceCallEventFormatter( "|" );
+        buffer = new LogBuffer( 4096 );
+    }
+
+    private ServiceCallEvent nextEvent()
+    {
+        ServiceCallEvent event = events[next];
+        next = ( next + 1 ) & ( EVENTS - 1 );
+        return event;
+    }
+
+    @Benchmark
+    public String format()
+    {
+        return ServiceCallEventFormatter.format( nextEvent(), "|" );
+    }
+
+    @Benchmark
+    public int appendTo()
+    {
+        buffer.reset();
+        formatter.appendTo( nextEvent(), buffer );
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int encode( Encoder encoder )
+    {
+        buffer.reset();
+        encoder.encoder.encode( nextEvent(), buffer );
+        return buffer.size();
+    }
+}
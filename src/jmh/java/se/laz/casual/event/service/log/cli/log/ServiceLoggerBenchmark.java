@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.BenchmarkSupport;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging an event to a file on tmpfs, for each way of writing the file and batch size.
+ * <br/>
+ * The file is rotated to keep the file system from filling up, so the cost of rotating is included.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ServiceLoggerBenchmark
+{
+    private static final int EVENTS = 1024;
+    private static final int SERVICES = 64;
+
+    @Param( { "STREAM", "CHANNEL", "MAPPED" } )
+    public LogOutputType output;
+
+    @Param( { "1", "100", "1000" } )
+    public int batchSize;
+
+    private ServiceCallEvent[] events;
+    private int next;
+    private File directory;
+    private ServiceLogger logger;
+
+    @Setup
+    public void setup()
+    {
+        events = BenchmarkSupport.events( EVENTS, SERVICES );
+        directory = BenchmarkSupport.createDirectory();
+        logger = ServiceLogger.newBuilder()
+                .eventServiceLogParams( BenchmarkSupport.params( "--file=" + new File( directory, "service.log" ),
+                        "--output=" + output, "--batch-size=" + batchSize, "--flush-interval-ms=0",
+                        "--rotate-size=64M", "--rotate-retain=1" ) )
+                .build();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        logger.close();
+        BenchmarkSupport.delete( directory );
+    }
+
+    @Benchmark
+    public void logEvent()
+    {
+        logger.logEvent( events[next] );
+        next = ( next + 1 ) & ( EVENTS - 1 );
+    }
+}
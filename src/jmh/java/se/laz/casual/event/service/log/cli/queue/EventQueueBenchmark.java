@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.BenchmarkSupport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passing events from the thread receiving them to the thread logging them.
+ * <br/>
+ * {@code putTake} puts then takes an event on a single thread, so is the cost of the queue without contention.
+ * {@code handoff} offers on one thread and polls on another, counting the events actually passed as
+ * {@code offered} and {@code polled}. The store only blocks, which could leave a thread waiting forever once
+ * the other stops at the end of an iteration, so it is only measured by {@code putTake}.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class EventQueueBenchmark
+{
+    private static final ServiceCallEvent EVENT = BenchmarkSupport.events( 1, 1 )[0];
+
+    /**
+     * Queue of each type, configured as on the command line.
+     */
+    @State( Scope.Thread )
+    public static class Queue
+    {
+        @Param( { "STORE", "BOUNDED", "RING" } )
+        public EventQueueType queue;
+
+        private EventQueue instance;
+
+        @Setup
+        public void setup()
+        {
+            instance = queue.create( BenchmarkSupport.params( "--queue=" + queue, "--queue-capacity=1024" ) );
+        }
+    }
+
+    /**
+     * Bounded queue shared by the offering and the polling thread, which never wait so the wait strategy is irrelevant.
+     */
+    @State( Scope.Group )
+    public static class Shared
+    {
+        @Param( { "BOUNDED", "RING" } )
+        public EventQueueType boundedQueue;
+
+        private BoundedEventQueue instance;
+
+        @Setup( Level.Iteration )
+        public void setup()
+        {
+            instance = (BoundedEventQueue) boundedQueue.create( BenchmarkSupport.params( "--queue=" + boundedQueue, "--queue-capacity=1024" ) );
+        }
+    }
+
+    /**
+     * Events actually passed, as attempts on a full or empty queue fail.
+     */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.OPERATIONS )
+    public static class Counters
+    {
+        public long offered;
+        public long polled;
+
+        @Setup( Level.Iteration )
+        public void reset()
+        {
+            offered = 0;
+            polled = 0;
+        }
+    }
+
+    @Benchmark
+    public ServiceCallEvent putTake( Queue queue )
+    {
+        queue.instance.put( EVENT );
+        return queue.instance.take();
+    }
+
+    @Benchmark
+    @Group( "handoff" )
+    @GroupThreads( 1 )
+    public void offer( Shared shared, Counters counters )
+    {
+        if( shared.instance.offer( EVENT ) )
+        {
+            counters.offered++;
+        }
+    }
+
+    @Benchmark
+    @Group( "handoff" )
+    @GroupThreads( 1 )
+    public void poll( Shared shared, Counters counters )
+    {
+        if( shared.instance.poll() != null )
+        {
+            counters.polled++;
+        }
+    }
+}
@@ -6,22 +6,39 @@
 
 package se.laz.casual.event.service.log.cli;
 
+import io.quarkus.picocli.runtime.annotations.TopCommand;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
+import se.laz.casual.event.service.log.cli.filter.FilterExpression;
+import se.laz.casual.event.service.log.cli.filter.FilterExpressionConverter;
+import se.laz.casual.event.service.log.cli.internal.DurationConverter;
+import se.laz.casual.event.service.log.cli.internal.SizeConverter;
+import se.laz.casual.event.service.log.cli.log.EventFormat;
+import se.laz.casual.event.service.log.cli.log.LogOutputType;
+import se.laz.casual.event.service.log.cli.queue.EventQueueType;
+import se.laz.casual.event.service.log.cli.queue.OverflowPolicy;
+import se.laz.casual.event.service.log.cli.queue.WaitStrategy;
 import se.laz.casual.event.service.log.cli.runner.EventServiceLogParams;
 import se.laz.casual.event.service.log.cli.runner.EventServiceLogRunner;
+import se.laz.casual.event.service.log.cli.runner.EventSource;
+import se.laz.casual.event.service.log.cli.runner.EventSourceConverter;
+import se.laz.casual.event.service.log.cli.runner.ThreadMode;
 
 import java.io.File;
 import java.net.URI;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 import static se.laz.casual.event.service.log.cli.internal.StreamEncoder.toPrintWriter;
 
+@TopCommand
 @Command(name = "casual-java-event-service-log", mixinStandardHelpOptions = true)
 public class Main implements Callable<Integer>, EventServiceLogParams
 {
@@ -37,13 +54,115 @@ public class Main implements Callable<Integer>, EventServiceLogParams
 
     @Option( names = {"--filter-exclusive"}, description = "only services that do not match the expression are logged" )
     private Pattern logFilterExclusive;
-    @Option( names = {"--eventServerUrl"}, description = "event server from which to retrieve events.", required = true )
-    private URI eventServerUrl;
+    @Option( names = {"--filter"}, description = "only events that match the filter expression are logged, e.g. \"duration > 50ms && code != OK\"", converter = FilterExpressionConverter.class )
+    private FilterExpression logFilter;
+    @Option( names = {"--eventServerUrl"}, description = "event server from which to retrieve events, repeat for several event servers. Name a server with a fragment, e.g. tcp://host:7774#domainA. Comma separate the urls of a cluster to fail over between, e.g. tcp://node1:7774,tcp://node2:7774.", required = true, converter = EventSourceConverter.class )
+    private List<EventSource> eventSources;
+    @Option( names = {"--batch-size"}, description = "max events written to the log in a single write (default: ${DEFAULT-VALUE})", defaultValue = "1" )
+    private int batchSize;
+    @Option( names = {"--flush-interval-ms"}, description = "max time buffered events wait before being written when batching or compressing (default: ${DEFAULT-VALUE})", defaultValue = "1000" )
+    private long flushIntervalMillis;
+    @Option( names = {"--output"}, description = "how the log file is written, one of: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})", defaultValue = "STREAM" )
+    private LogOutputType logOutputType;
+    @Option( names = {"--queue"}, description = "queue between receiving and logging events, one of: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})", defaultValue = "STORE" )
+    private EventQueueType eventQueueType;
+    @Option( names = {"--queue-capacity"}, description = "capacity of a bounded queue, RING rounds up to a power of two (default: ${DEFAULT-VALUE})", defaultValue = "65536" )
+    private int queueCapacity;
+    @Option( names = {"--wait-strategy"}, description = "how to wait on a RING queue, one of: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})", defaultValue = "PARK" )
+    private WaitStrategy waitStrategy;
+    @Option( names = {"--overflow"}, description = "what to do when a bounded queue is full, one of: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})", defaultValue = "BLOCK" )
+    private OverflowPolicy overflowPolicy;
+    @Option( names = {"--spill-file"}, description = "where to spill events with overflow SPILL (default: <file>.spill)" )
+    private File spillFile;
+    @Option( names = {"--worker-threads"}, description = "threads filtering and formatting events, more than 1 enables the parallel pipeline (default: ${DEFAULT-VALUE})", defaultValue = "1" )
+    private int workerThreads;
+    @Option( names = {"--filter-cache-size"}, description = "max service names for which filter decisions are cached, 0 disables caching (default: ${DEFAULT-VALUE})", defaultValue = "4096" )
+    private int filterCacheSize;
+    @Option( names = {"--sample-rate"}, description = "log 1 in rate events per service (default: ${DEFAULT-VALUE})", defaultValue = "1" )
+    private int sampleRate;
+    @Option( names = {"--sample-max-per-second"}, description = "max events logged per service per second, 0 for no limit (default: ${DEFAULT-VALUE})", defaultValue = "0" )
+    private int sampleMaxPerSecond;
+    @Option( names = {"--sample-by-execution"}, description = "apply the sample rate per execution, keeping or dropping all calls within an execution together" )
+    private boolean sampleByExecution;
+    @Option( names = {"--sample-bypass"}, description = "events that match the filter expression are always logged, e.g. \"code != OK || duration > 100ms\"", converter = FilterExpressionConverter.class )
+    private FilterExpression sampleBypass;
+    @Option( names = {"--stats-file"}, description = "where to write per service latency statistics, enables statistics (default with --stats-only: <file>.stats)" )
+    private File statsFile;
+    @Option( names = {"--stats-interval"}, description = "interval between writing statistics, e.g. 1m (default: ${DEFAULT-VALUE})", defaultValue = "1m", converter = DurationConverter.class )
+    private long statsIntervalMillis;
+    @Option( names = {"--stats-only"}, description = "only write statistics, events are not logged" )
+    private boolean statsOnly;
+    @Option( names = {"--format"}, description = "format of the log file, one of: ${COMPLETION-CANDIDATES}, BINARY is not supported with MAPPED output (default: ${DEFAULT-VALUE})", defaultValue = "TEXT" )
+    private EventFormat eventFormat;
+    @Option( names = {"--rotate-size"}, description = "rotate the log file once it reaches the size, e.g. 100M, 0 to not rotate by size (default: ${DEFAULT-VALUE})", defaultValue = "0", converter = SizeConverter.class )
+    private long rotateSize;
+    @Option( names = {"--rotate-interval"}, description = "rotate the log file every interval, aligned to the clock, e.g. 1h, 0 to not rotate by interval (default: ${DEFAULT-VALUE})", defaultValue = "0", converter = DurationConverter.class )
+    private long rotateIntervalMillis;
+    @Option( names = {"--rotate-retain"}, description = "number of rotated log files to keep, 0 to keep all (default: ${DEFAULT-VALUE})", defaultValue = "0" )
+    private int rotateRetain;
+    @Option( names = {"--source-column"}, description = "log the event server each event was received from as an additional last column" )
+    private boolean sourceColumn;
+    @Option( names = {"--reconnect-initial"}, description = "delay before reconnecting once every url of an event server has failed, doubled on each further failure, e.g. 100ms (default: ${DEFAULT-VALUE})", defaultValue = "100ms", converter = DurationConverter.class )
+    private long reconnectInitialMillis;
+    @Option( names = {"--reconnect-max"}, description = "max delay between reconnection attempts, e.g. 30s (default: ${DEFAULT-VALUE})", defaultValue = "30s", converter = DurationConverter.class )
+    private long reconnectMaxMillis;
+    @Option( names = {"--gap-file"}, description = "where to record each period the connection to an event server was lost, with an estimate of the events missed" )
+    private File gapFile;
+    @Option( names = {"--metrics-port"}, description = "port on which to serve metrics of the tool in the Prometheus text format at /metrics, 0 to not serve metrics (default: ${DEFAULT-VALUE})", defaultValue = "0" )
+    private int metricsPort;
+    @Option( names = {"--metrics-host"}, description = "host name or address on which to serve metrics (default: ${DEFAULT-VALUE})", defaultValue = "localhost" )
+    private String metricsHost;
+    @Option( names = {"--thread-mode"}, description = "threads maintaining the connections and taking events from the queues, one of: ${COMPLETION-CANDIDATES}, VIRTUAL requires Java 21 (default: ${DEFAULT-VALUE})", defaultValue = "PLATFORM" )
+    private ThreadMode threadMode;
+    @Option( names = {"--graph-file"}, description = "where to write the service call graph and the slowest call trees, enables call graph" )
+    private File graphFile;
+    @Option( names = {"--graph-interval"}, description = "interval between writing the call graph, e.g. 1m (default: ${DEFAULT-VALUE})", defaultValue = "1m", converter = DurationConverter.class )
+    private long graphIntervalMillis;
+    @Option( names = {"--graph-slowest"}, description = "number of slowest call trees written each interval (default: ${DEFAULT-VALUE})", defaultValue = "10" )
+    private int graphSlowest;
+    @Option( names = {"--execution-timeout"}, description = "time without further calls after which an execution is complete, e.g. 10s (default: ${DEFAULT-VALUE})", defaultValue = "10s", converter = DurationConverter.class )
+    private long executionTimeoutMillis;
+    @Option( names = {"--max-executions"}, description = "max executions grouped into call trees at once, the least recently called is completed early beyond that (default: ${DEFAULT-VALUE})", defaultValue = "100000" )
+    private int maxExecutions;
+    @Option( names = {"--max-calls"}, description = "max calls held by the executions grouped into call trees at once, the least recently called execution is completed early beyond that (default: ${DEFAULT-VALUE})", defaultValue = "1000000" )
+    private int maxCalls;
+    @Option( names = {"--trid-file"}, description = "where to write a summary of the calls within each transaction once idle, enables transaction summaries" )
+    private File tridFile;
+    @Option( names = {"--trid-idle-timeout"}, description = "time without further calls after which a transaction is summarised, e.g. 10s (default: ${DEFAULT-VALUE})", defaultValue = "10s", converter = DurationConverter.class )
+    private long tridIdleTimeoutMillis;
+    @Option( names = {"--max-trids"}, description = "max transactions accumulated at once, the least recently called is summarised early beyond that (default: ${DEFAULT-VALUE})", defaultValue = "100000" )
+    private int maxTrids;
+    @Option( names = {"--top-file"}, description = "where to write the top services over each window by calls, duration, pending and errors, enables top services" )
+    private File topFile;
+    @Option( names = {"--top-n"}, description = "number of services ranked per window and metric (default: ${DEFAULT-VALUE})", defaultValue = "10" )
+    private int topN;
+    @Option( names = {"--top-windows"}, description = "comma separated sliding windows over which services are ranked (default: ${DEFAULT-VALUE})", defaultValue = "1m,5m,1h", split = ",", converter = DurationConverter.class )
+    private List<Long> topWindowsMillis;
+    @Option( names = {"--top-interval"}, description = "interval between writing the top services, e.g. 1m (default: ${DEFAULT-VALUE})", defaultValue = "1m", converter = DurationConverter.class )
+    private long topIntervalMillis;
+    @Option( names = {"--index"}, description = "index the log file by start time in <file>.idx, for the query tool, requires format TEXT and output STREAM or CHANNEL" )
+    private boolean index;
+    @Option( names = {"--index-events"}, description = "max events per block of the index (default: ${DEFAULT-VALUE})", defaultValue = "1000" )
+    private int indexEvents;
+    @Option( names = {"--index-interval"}, description = "max time a block of the index is open for, e.g. 1s (default: ${DEFAULT-VALUE})", defaultValue = "1s", converter = DurationConverter.class )
+    private long indexIntervalMillis;
 
     @Override
     public URI getEventServerUrl( )
     {
-        return this.eventServerUrl;
+        return this.eventSources.get( 0 ).getUrl();
+    }
+
+    @Override
+    public List<EventSource> getEventSources()
+    {
+        return Collections.unmodifiableList( this.eventSources );
+    }
+
+    @Override
+    public boolean isSourceColumn()
+    {
+        return this.sourceColumn;
     }
 
     @Override
@@ -70,6 +189,274 @@ public class Main implements Callable<Integer>, EventServiceLogParams
         return Optional.ofNullable( this.logFilterExclusive );
     }
 
+    @Override
+    public Optional<FilterExpression> getLogFilter()
+    {
+        return Optional.ofNullable( this.logFilter );
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    @Override
+    public long getFlushIntervalMillis()
+    {
+        return this.flushIntervalMillis;
+    }
+
+    @Override
+    public LogOutputType getLogOutputType()
+    {
+        return this.logOutputType;
+    }
+
+    @Override
+    public EventQueueType getEventQueueType()
+    {
+        return this.eventQueueType;
+    }
+
+    @Override
+    public int getQueueCapacity()
+    {
+        return this.queueCapacity;
+    }
+
+    @Override
+    public WaitStrategy getWaitStrategy()
+    {
+        return this.waitStrategy;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy()
+    {
+        return this.overflowPolicy;
+    }
+
+    @Override
+    public File getSpillFile()
+    {
+        return this.spillFile != null ? this.spillFile : new File( this.logFile.getPath() + ".spill" );
+    }
+
+    @Override
+    public int getWorkerThreads()
+    {
+        return this.workerThreads;
+    }
+
+    @Override
+    public int getFilterCacheSize()
+    {
+        return this.filterCacheSize;
+    }
+
+    @Override
+    public int getSampleRate()
+    {
+        return this.sampleRate;
+    }
+
+    @Override
+    public int getSampleMaxPerSecond()
+    {
+        return this.sampleMaxPerSecond;
+    }
+
+    @Override
+    public boolean isSampleByExecution()
+    {
+        return this.sampleByExecution;
+    }
+
+    @Override
+    public Optional<FilterExpression> getSampleBypass()
+    {
+        return Optional.ofNullable( this.sampleBypass );
+    }
+
+    @Override
+    public Optional<File> getStatsFile()
+    {
+        if( this.statsFile == null && this.statsOnly )
+        {
+            return Optional.of( new File( this.logFile.getPath() + ".stats" ) );
+        }
+        return Optional.ofNullable( this.statsFile );
+    }
+
+    @Override
+    public long getStatsIntervalMillis()
+    {
+        return this.statsIntervalMillis;
+    }
+
+    @Override
+    public boolean isStatsOnly()
+    {
+        return this.statsOnly;
+    }
+
+    @Override
+    public EventFormat getEventFormat()
+    {
+        return this.eventFormat;
+    }
+
+    @Override
+    public long getRotateSize()
+    {
+        return this.rotateSize;
+    }
+
+    @Override
+    public long getRotateIntervalMillis()
+    {
+        return this.rotateIntervalMillis;
+    }
+
+    @Override
+    public int getRotateRetain()
+    {
+        return this.rotateRetain;
+    }
+
+    @Override
+    public long getReconnectInitialMillis()
+    {
+        return this.reconnectInitialMillis;
+    }
+
+    @Override
+    public long getReconnectMaxMillis()
+    {
+        return this.reconnectMaxMillis;
+    }
+
+    @Override
+    public Optional<File> getGapFile()
+    {
+        return Optional.ofNullable( this.gapFile );
+    }
+
+    @Override
+    public int getMetricsPort()
+    {
+        return this.metricsPort;
+    }
+
+    @Override
+    public String getMetricsHost()
+    {
+        return this.metricsHost;
+    }
+
+    @Override
+    public ThreadMode getThreadMode()
+    {
+        return this.threadMode;
+    }
+
+    @Override
+    public Optional<File> getGraphFile()
+    {
+        return Optional.ofNullable( this.graphFile );
+    }
+
+    @Override
+    public long getGraphIntervalMillis()
+    {
+        return this.graphIntervalMillis;
+    }
+
+    @Override
+    public int getGraphSlowest()
+    {
+        return this.graphSlowest;
+    }
+
+    @Override
+    public long getExecutionTimeoutMillis()
+    {
+        return this.executionTimeoutMillis;
+    }
+
+    @Override
+    public int getMaxExecutions()
+    {
+        return this.maxExecutions;
+    }
+
+    @Override
+    public int getMaxCalls()
+    {
+        return this.maxCalls;
+    }
+
+    @Override
+    public Optional<File> getTridFile()
+    {
+        return Optional.ofNullable( this.tridFile );
+    }
+
+    @Override
+    public long getTridIdleTimeoutMillis()
+    {
+        return this.tridIdleTimeoutMillis;
+    }
+
+    @Override
+    public int getMaxTrids()
+    {
+        return this.maxTrids;
+    }
+
+    @Override
+    public Optional<File> getTopFile()
+    {
+        return Optional.ofNullable( this.topFile );
+    }
+
+    @Override
+    public int getTopN()
+    {
+        return this.topN;
+    }
+
+    @Override
+    public List<Long> getTopWindowsMillis()
+    {
+        return Collections.unmodifiableList( this.topWindowsMillis );
+    }
+
+    @Override
+    public long getTopIntervalMillis()
+    {
+        return this.topIntervalMillis;
+    }
+
+    @Override
+    public boolean isIndex()
+    {
+        return this.index;
+    }
+
+    @Override
+    public int getIndexEvents()
+    {
+        return this.indexEvents;
+    }
+
+    @Override
+    public long getIndexIntervalMillis()
+    {
+        return this.indexIntervalMillis;
+    }
+
 
     public static void main( String[] args )
     {
@@ -106,12 +493,43 @@ public class Main implements Callable<Integer>, EventServiceLogParams
      * Invalid arguments will already have resulted in a failure in {@link #execute(String[])}
      * and will therefore not have been called.
      *
+     * Options that are only invalid in combination are checked here, see {@link #validate()}.
+     *
      * @return command line return code to represent status of running the command.
      */
     @Override
     public Integer call()
     {
+        validate();
         return new EventServiceLogRunner( this, spec.commandLine().getOut() ).run();
     }
 
-}
\ No newline at end of file
+    /**
+     * Reject options that are valid on their own but not in combination.
+     *
+     * @throws ParameterException if invalid, reported along with the usage by picocli.
+     */
+    void validate()
+    {
+        if( eventQueueType == EventQueueType.STORE && overflowPolicy != OverflowPolicy.BLOCK )
+        {
+            throw new ParameterException( spec.commandLine(), "Overflow " + overflowPolicy + " requires a bounded queue, use --queue=BOUNDED or --queue=RING." );
+        }
+        if( eventQueueType == EventQueueType.RING && overflowPolicy == OverflowPolicy.DROP_OLDEST )
+        {
+            throw new ParameterException( spec.commandLine(), "Overflow " + overflowPolicy + " requires a queue supporting multiple consumers, use --queue=BOUNDED." );
+        }
+        if( !threadMode.isSupported() )
+        {
+            throw new ParameterException( spec.commandLine(), "Thread mode " + threadMode + " requires Java " + ThreadMode.VIRTUAL_JAVA_VERSION + " or later, running: " + Runtime.version() + ", use --thread-mode=PLATFORM." );
+        }
+        if( !eventFormat.isText() && logOutputType.isZeroPadded() )
+        {
+            throw new ParameterException( spec.commandLine(), "Format " + eventFormat + " is not supported by output " + logOutputType + ", use --output=STREAM, --output=CHANNEL or --output=GZIP." );
+        }
+        if( index && ( !eventFormat.isText() || logOutputType.isCompressed() || logOutputType.isZeroPadded() ) )
+        {
+            throw new ParameterException( spec.commandLine(), "Index requires format TEXT and output STREAM or CHANNEL, was: " + eventFormat + " and " + logOutputType + "." );
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+
+/**
+ * Field of a {@link ServiceCallEvent} which can be used within a {@link FilterExpression},
+ * either a {@link TextField} compared as a string or a {@link NumericField} compared as a long.
+ * <br/>
+ * Each field is read from an {@link EventRecord} as it would be from the event the record was logged from.
+ */
+public interface EventField
+{
+    /**
+     * @return name of the field, as used within filter expressions.
+     */
+    String getFieldName();
+
+    /**
+     * Find the field with the given name, as used within filter expressions.
+     *
+     * @param fieldName to find, case insensitive.
+     * @return field or null if there is no such field.
+     */
+    static EventField forName( String fieldName )
+    {
+        for( TextField field : TextField.values() )
+        {
+            if( field.getFieldName().equalsIgnoreCase( fieldName ) )
+            {
+                return field;
+            }
+        }
+        for( NumericField field : NumericField.values() )
+        {
+            if( field.getFieldName().equalsIgnoreCase( fieldName ) )
+            {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Compiled filter expression over the fields of a {@link ServiceCallEvent}.
+ * <br/>
+ * Comparisons of a field with a value, see {@link TextField} and {@link NumericField} for field names, combined with
+ * {@code &&}, {@code ||}, {@code !} and parentheses, for example:
+ * <pre>
+ * duration &gt; 50ms &amp;&amp; code != OK
+ * pending &gt;= 1ms || ( parent =~ 'batch/.*' &amp;&amp; pid == 1234 )
+ * </pre>
+ * Numeric fields support {@code == != < <= > >=}, time fields accept the units {@code us} (default), {@code ms} and {@code s}.
+ * Text fields support {@code ==}, {@code !=} and the regular expression matches {@code =~} and {@code !~}.
+ * Values containing whitespace or operator characters must be quoted.
+ * <br/>
+ * Records read back from a log, see {@link #test(EventRecord)}, are tested as the events they were logged from.
+ * <br/>
+ * Thread safe, evaluation does not allocate.
+ */
+public final class FilterExpression implements Predicate<ServiceCallEvent>
+{
+    private static final FilterExpressionParser.FieldReader<ServiceCallEvent> EVENT_READER = new FilterExpressionParser.FieldReader<>()
+    {
+        @Override
+        public String text( TextField field, ServiceCallEvent event )
+        {
+            return field.text( event );
+        }
+
+        @Override
+        public long number( NumericField field, ServiceCallEvent event )
+        {
+            return field.number( event );
+        }
+    };
+    private static final FilterExpressionParser.FieldReader<EventRecord> RECORD_READER = new FilterExpressionParser.FieldReader<>()
+    {
+        @Override
+        public String text( TextField field, EventRecord record )
+        {
+            return field.text( record );
+        }
+
+        @Override
+        public long number( NumericField field, EventRecord record )
+        {
+            return field.number( record );
+        }
+    };
+
+    private final String expression;
+    private final Predicate<ServiceCallEvent> predicate;
+    private final Predicate<EventRecord> recordPredicate;
+
+    private FilterExpression( String expression, Predicate<ServiceCallEvent> predicate, Predicate<EventRecord> recordPredicate )
+    {
+        this.expression = expression;
+        this.predicate = predicate;
+        this.recordPredicate = recordPredicate;
+    }
+
+    /**
+     * Compile the expression.
+     *
+     * @param expression to compile.
+     * @return compiled expression.
+     * @throws FilterExpressionException if the expression is invalid.
+     */
+    public static FilterExpression compile( String expression )
+    {
+        Objects.requireNonNull( expression, "Expression is null." );
+        return new FilterExpression( expression,
+                FilterExpressionParser.parse( expression, EVENT_READER ),
+                FilterExpressionParser.parse( expression, RECORD_READER ) );
+    }
+
+    @Override
+    public boolean test( ServiceCallEvent event )
+    {
+        return predicate.test( event );
+    }
+
+    /**
+     * @param record read back from a log.
+     * @return true if the event the record was logged from matches.
+     */
+    public boolean test( EventRecord record )
+    {
+        return recordPredicate.test( record );
+    }
+
+    public String getExpression()
+    {
+        return expression;
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+}
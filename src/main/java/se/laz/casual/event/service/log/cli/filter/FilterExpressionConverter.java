@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import picocli.CommandLine;
+
+/**
+ * Compiles command line options into a {@link FilterExpression}, reporting invalid expressions as invalid option values.
+ */
+public class FilterExpressionConverter implements CommandLine.ITypeConverter<FilterExpression>
+{
+    @Override
+    public FilterExpression convert( String value )
+    {
+        try
+        {
+            return FilterExpression.compile( value );
+        }
+        catch( FilterExpressionException e )
+        {
+            throw new CommandLine.TypeConversionException( e.getMessage() );
+        }
+    }
+}
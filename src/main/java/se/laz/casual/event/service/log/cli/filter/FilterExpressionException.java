@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+public class FilterExpressionException extends EventServiceLoggerException
+{
+    private static final long serialVersionUID = 1L;
+
+    public FilterExpressionException( String message )
+    {
+        super( message );
+    }
+
+    public FilterExpressionException( String message, Throwable cause )
+    {
+        super( message, cause );
+    }
+}
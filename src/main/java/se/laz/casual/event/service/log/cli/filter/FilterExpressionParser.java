@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recursive descent parser compiling a filter expression into a tree of predicates.
+ * <br/>
+ * Grammar:
+ * <pre>
+ * expression := and ( '||' and )*
+ * and        := unary ( '&amp;&amp;' unary )*
+ * unary      := '!' unary | '(' expression ')' | comparison
+ * comparison := field operator value
+ * operator   := '==' | '!=' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=' | '=~' | '!~'
+ * value      := word | 'quoted' | "quoted"
+ * </pre>
+ * All field lookups, operator checks and value conversions are resolved whilst parsing,
+ * evaluating the resulting predicate only reads the event and compares primitives.
+ * Text and numeric fields, and their operators, are separate types, so a field is only ever read as its type.
+ * <br/>
+ * Fields are read through a {@link FieldReader}, so the same expression can be compiled for events as received
+ * and for records read back from a log.
+ *
+ * @param <T> kind of event the predicate tests.
+ */
+final class FilterExpressionParser<T>
+{
+    private static final Pattern NUMBER = Pattern.compile( "(\\d+(?:\\.\\d+)?)(us|ms|s)?" );
+    private static final String OPERATOR_CHARS = "=!<>~";
+    private static final String RESERVED_CHARS = "()&|'\"" + OPERATOR_CHARS;
+
+    private final String expression;
+    private final FieldReader<T> reader;
+    private int position;
+
+    private FilterExpressionParser( String expression, FieldReader<T> reader )
+    {
+        this.expression = expression;
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the fields of the kind of event tested.
+     *
+     * @param <T> kind of event.
+     */
+    interface FieldReader<T>
+    {
+        /**
+         * @return value of the field, may be null.
+         */
+        String text( TextField field, T event );
+
+        /**
+         * @return value of the field.
+         */
+        long number( NumericField field, T event );
+    }
+
+    static <T> Predicate<T> parse( String expression, FieldReader<T> reader )
+    {
+        FilterExpressionParser<T> parser = new FilterExpressionParser<>( expression, reader );
+        Predicate<T> predicate = parser.parseOr();
+        parser.skipWhitespace();
+        if( !parser.atEnd() )
+        {
+            throw parser.error( "Unexpected '" + parser.expression.charAt( parser.position ) + "'" );
+        }
+        return predicate;
+    }
+
+    private Predicate<T> parseOr()
+    {
+        Predicate<T> left = parseAnd();
+        while( consume( "||" ) )
+        {
+            Predicate<T> first = left;
+            Predicate<T> second = parseAnd();
+            left = event -> first.test( event ) || second.test( event );
+        }
+        return left;
+    }
+
+    private Predicate<T> parseAnd()
+    {
+        Predicate<T> left = parseUnary();
+        while( consume( "&&" ) )
+        {
+            Predicate<T> first = left;
+            Predicate<T> second = parseUnary();
+            left = event -> first.test( event ) && second.test( event );
+        }
+        return left;
+    }
+
+    private Predicate<T> parseUnary()
+    {
+        skipWhitespace();
+        if( peek( "!" ) && !peek( "!=" ) && !peek( "!~" ) )
+        {
+            position++;
+            Predicate<T> negated = parseUnary();
+            return event -> !negated.test( event );
+        }
+        if( consume( "(" ) )
+        {
+            Predicate<T> inner = parseOr();
+            if( !consume( ")" ) )
+            {
+                throw error( "Expected ')'" );
+            }
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private Predicate<T> parseComparison()
+    {
+        int fieldPosition = position;
+        String fieldName = readWord();
+        EventField field = EventField.forName( fieldName );
+        if( field == null )
+        {
+            position = fieldPosition;
+            throw error( "Unknown field '" + fieldName + "'" );
+        }
+        int operatorPosition = skipWhitespace();
+        String symbol = readOperator();
+        NumericOperator numericOperator = NumericOperator.forSymbol( symbol );
+        TextOperator textOperator = TextOperator.forSymbol( symbol );
+        if( field instanceof NumericField ? numericOperator == null : textOperator == null )
+        {
+            position = operatorPosition;
+            throw error( "Operator '" + symbol + "' can not be applied to " + field.getFieldName() );
+        }
+        int valuePosition = skipWhitespace();
+        String value = readValue();
+        try
+        {
+            return field instanceof NumericField
+                    ? compile( (NumericField) field, numericOperator, value )
+                    : compile( (TextField) field, textOperator, value );
+        }
+        catch( FilterExpressionException e )
+        {
+            position = valuePosition;
+            throw error( e.getMessage() );
+        }
+    }
+
+    private Predicate<T> compile( NumericField field, NumericOperator operator, String value )
+    {
+        long operand = parseNumber( field, value );
+        return event -> operator.compare( reader.number( field, event ), operand );
+    }
+
+    private Predicate<T> compile( TextField field, TextOperator operator, String value )
+    {
+        Predicate<String> comparison = operator.compile( value );
+        return event -> comparison.test( reader.text( field, event ) );
+    }
+
+    private static long parseNumber( NumericField field, String value )
+    {
+        Matcher matcher = NUMBER.matcher( value );
+        if( !matcher.matches() )
+        {
+            throw new FilterExpressionException( "Expected a number for " + field.getFieldName() + " but was '" + value + "'" );
+        }
+        String unit = matcher.group( 2 );
+        if( unit != null && !field.isTime() )
+        {
+            throw new FilterExpressionException( "Unit '" + unit + "' can not be applied to " + field.getFieldName() );
+        }
+        BigDecimal number = new BigDecimal( matcher.group( 1 ) );
+        if( unit == null && number.scale() > 0 )
+        {
+            throw new FilterExpressionException( "Expected a whole number for " + field.getFieldName() + " but was '" + value + "'" );
+        }
+        try
+        {
+            // Fractions of a microsecond are truncated.
+            return number.multiply( BigDecimal.valueOf( microsPer( unit ) ) ).setScale( 0, RoundingMode.DOWN ).longValueExact();
+        }
+        catch( ArithmeticException e )
+        {
+            throw new FilterExpressionException( "Value '" + value + "' is out of range for " + field.getFieldName(), e );
+        }
+    }
+
+    private static long microsPer( String unit )
+    {
+        if( unit == null || "us".equals( unit ) )
+        {
+            return 1L;
+        }
+        return "ms".equals( unit ) ? 1_000L : 1_000_000L;
+    }
+
+    /**
+     * @return symbol of a text or numeric operator.
+     */
+    private String readOperator()
+    {
+        int start = position;
+        while( !atEnd() && OPERATOR_CHARS.indexOf( expression.charAt( position ) ) >= 0 )
+        {
+            position++;
+        }
+        String symbol = expression.substring( start, position );
+        if( NumericOperator.forSymbol( symbol ) == null && TextOperator.forSymbol( symbol ) == null )
+        {
+            position = start;
+            throw error( "Expected an operator" );
+        }
+        return symbol;
+    }
+
+    private String readValue()
+    {
+        if( atEnd() )
+        {
+            throw error( "Expected a value" );
+        }
+        char quote = expression.charAt( position );
+        if( quote != '\'' && quote != '"' )
+        {
+            return readWord();
+        }
+        int start = ++position;
+        int end = expression.indexOf( quote, start );
+        if( end < 0 )
+        {
+            position = start - 1;
+            throw error( "Unterminated string" );
+        }
+        position = end + 1;
+        return expression.substring( start, end );
+    }
+
+    private String readWord()
+    {
+        skipWhitespace();
+        int start = position;
+        while( !atEnd() && !Character.isWhitespace( expression.charAt( position ) )
+                && RESERVED_CHARS.indexOf( expression.charAt( position ) ) < 0 )
+        {
+            position++;
+        }
+        if( start == position )
+        {
+            throw error( atEnd() ? "Unexpected end of expression" : "Unexpected '" + expression.charAt( position ) + "'" );
+        }
+        return expression.substring( start, position );
+    }
+
+    private boolean consume( String token )
+    {
+        skipWhitespace();
+        if( peek( token ) )
+        {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean peek( String token )
+    {
+        return expression.startsWith( token, position );
+    }
+
+    private int skipWhitespace()
+    {
+        while( !atEnd() && Character.isWhitespace( expression.charAt( position ) ) )
+        {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean atEnd()
+    {
+        return position >= expression.length();
+    }
+
+    private FilterExpressionException error( String message )
+    {
+        return new FilterExpressionException( message + " at position " + position + " in: " + expression );
+    }
+}
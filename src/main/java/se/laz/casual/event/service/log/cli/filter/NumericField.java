@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+
+/**
+ * Numeric fields of a {@link ServiceCallEvent}, compared as longs. Times are in {@code us}.
+ */
+public enum NumericField implements EventField
+{
+    PID( "pid", false )
+    {
+        @Override
+        public long number( ServiceCallEvent event )
+        {
+            return event.getPid();
+        }
+
+        @Override
+        public long number( EventRecord record )
+        {
+            return record.getPid();
+        }
+    },
+    START( "start", true )
+    {
+        @Override
+        public long number( ServiceCallEvent event )
+        {
+            return event.getStart();
+        }
+
+        @Override
+        public long number( EventRecord record )
+        {
+            return record.getStart();
+        }
+    },
+    END( "end", true )
+    {
+        @Override
+        public long number( ServiceCallEvent event )
+        {
+            return event.getEnd();
+        }
+
+        @Override
+        public long number( EventRecord record )
+        {
+            return record.getEnd();
+        }
+    },
+    DURATION( "duration", true )
+    {
+        @Override
+        public long number( ServiceCallEvent event )
+        {
+            return event.getEnd() - event.getStart();
+        }
+
+        @Override
+        public long number( EventRecord record )
+        {
+            return record.getEnd() - record.getStart();
+        }
+    },
+    PENDING( "pending", true )
+    {
+        @Override
+        public long number( ServiceCallEvent event )
+        {
+            return event.getPending();
+        }
+
+        @Override
+        public long number( EventRecord record )
+        {
+            return record.getPending();
+        }
+    };
+
+    private final String fieldName;
+    private final boolean time;
+
+    NumericField( String fieldName, boolean time )
+    {
+        this.fieldName = fieldName;
+        this.time = time;
+    }
+
+    @Override
+    public String getFieldName()
+    {
+        return fieldName;
+    }
+
+    /**
+     * @return true if the field is a time or duration in {@code us}.
+     */
+    public boolean isTime()
+    {
+        return time;
+    }
+
+    /**
+     * Get the value of the field.
+     *
+     * @param event to read from.
+     * @return value.
+     */
+    public abstract long number( ServiceCallEvent event );
+
+    /**
+     * Get the value of the field.
+     *
+     * @param record to read from.
+     * @return value.
+     */
+    public abstract long number( EventRecord record );
+}
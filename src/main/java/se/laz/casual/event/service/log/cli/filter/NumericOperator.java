@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+/**
+ * Comparison operators available for a {@link NumericField} within a {@link FilterExpression}.
+ */
+enum NumericOperator
+{
+    EQ( "==" )
+    {
+        @Override
+        boolean compare( long value, long operand )
+        {
+            return value == operand;
+        }
+    },
+    NE( "!=" )
+    {
+        @Override
+        boolean compare( long value, long operand )
+        {
+            return value != operand;
+        }
+    },
+    LT( "<" )
+    {
+        @Override
+        boolean compare( long value, long operand )
+        {
+            return value < operand;
+        }
+    },
+    LE( "<=" )
+    {
+        @Override
+        boolean compare( long value, long operand )
+        {
+            return value <= operand;
+        }
+    },
+    GT( ">" )
+    {
+        @Override
+        boolean compare( long value, long operand )
+        {
+            return value > operand;
+        }
+    },
+    GE( ">=" )
+    {
+        @Override
+        boolean compare( long value, long operand )
+        {
+            return value >= operand;
+        }
+    };
+
+    private final String symbol;
+
+    NumericOperator( String symbol )
+    {
+        this.symbol = symbol;
+    }
+
+    String getSymbol()
+    {
+        return symbol;
+    }
+
+    abstract boolean compare( long value, long operand );
+
+    /**
+     * @param symbol of the operator.
+     * @return operator or null if there is no such numeric operator.
+     */
+    static NumericOperator forSymbol( String symbol )
+    {
+        for( NumericOperator operator : values() )
+        {
+            if( operator.symbol.equals( symbol ) )
+            {
+                return operator;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+
+/**
+ * Text fields of a {@link ServiceCallEvent}, compared as strings.
+ */
+public enum TextField implements EventField
+{
+    SERVICE( "service" )
+    {
+        @Override
+        public String text( ServiceCallEvent event )
+        {
+            return event.getService();
+        }
+
+        @Override
+        public String text( EventRecord record )
+        {
+            return record.getService();
+        }
+    },
+    PARENT( "parent" )
+    {
+        @Override
+        public String text( ServiceCallEvent event )
+        {
+            return event.getParent();
+        }
+
+        @Override
+        public String text( EventRecord record )
+        {
+            return record.getParent();
+        }
+    },
+    EXECUTION( "execution" )
+    {
+        @Override
+        public String text( ServiceCallEvent event )
+        {
+            return event.getExecution();
+        }
+
+        @Override
+        public String text( EventRecord record )
+        {
+            return record.getExecution();
+        }
+    },
+    TRID( "trid" )
+    {
+        @Override
+        public String text( ServiceCallEvent event )
+        {
+            return event.getTransactionId();
+        }
+
+        @Override
+        public String text( EventRecord record )
+        {
+            return record.getTransactionId();
+        }
+    },
+    CODE( "code" )
+    {
+        @Override
+        public String text( ServiceCallEvent event )
+        {
+            return event.getCode();
+        }
+
+        @Override
+        public String text( EventRecord record )
+        {
+            return record.getCode();
+        }
+    },
+    ORDER( "order" )
+    {
+        @Override
+        public String text( ServiceCallEvent event )
+        {
+            return orderText( event.getOrder() );
+        }
+
+        @Override
+        public String text( EventRecord record )
+        {
+            return orderText( record.getOrder() );
+        }
+    };
+
+    private final String fieldName;
+
+    TextField( String fieldName )
+    {
+        this.fieldName = fieldName;
+    }
+
+    @Override
+    public String getFieldName()
+    {
+        return fieldName;
+    }
+
+    /**
+     * Get the value of the field.
+     *
+     * @param event to read from.
+     * @return value, may be null.
+     */
+    public abstract String text( ServiceCallEvent event );
+
+    /**
+     * Get the value of the field.
+     *
+     * @param record to read from.
+     * @return value, may be null.
+     */
+    public abstract String text( EventRecord record );
+
+    /**
+     * Avoids allocating a string per event for the known orders.
+     */
+    private static String orderText( char order )
+    {
+        switch( order )
+        {
+            case 'S':
+                return "S";
+            case 'C':
+                return "C";
+            default:
+                return String.valueOf( order );
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Comparison operators available for a {@link TextField} within a {@link FilterExpression}.
+ * <p>
+ * A missing field, i.e. a null value, neither equals nor matches any operand. The negated operators
+ * are the negation of these, so a missing field satisfies both {@code !=} and {@code !~}.
+ */
+enum TextOperator
+{
+    EQ( "==" )
+    {
+        @Override
+        Predicate<String> compile( String operand )
+        {
+            return value -> Objects.equals( value, operand );
+        }
+    },
+    NE( "!=" )
+    {
+        @Override
+        Predicate<String> compile( String operand )
+        {
+            return value -> !Objects.equals( value, operand );
+        }
+    },
+    MATCHES( "=~" )
+    {
+        @Override
+        Predicate<String> compile( String operand )
+        {
+            ThreadLocal<Matcher> matcher = compilePattern( operand );
+            return value -> value != null && matcher.get().reset( value ).matches();
+        }
+    },
+    NOT_MATCHES( "!~" )
+    {
+        @Override
+        Predicate<String> compile( String operand )
+        {
+            ThreadLocal<Matcher> matcher = compilePattern( operand );
+            return value -> value == null || !matcher.get().reset( value ).matches();
+        }
+    };
+
+    private final String symbol;
+
+    TextOperator( String symbol )
+    {
+        this.symbol = symbol;
+    }
+
+    String getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Compile the comparison with the operand, so that evaluating it only compares.
+     *
+     * @param operand to compare field values with.
+     * @return comparison of a field value, which may be null, with the operand.
+     * @throws FilterExpressionException if the operand is invalid.
+     */
+    abstract Predicate<String> compile( String operand );
+
+    /**
+     * @param symbol of the operator.
+     * @return operator or null if there is no such text operator.
+     */
+    static TextOperator forSymbol( String symbol )
+    {
+        for( TextOperator operator : values() )
+        {
+            if( operator.symbol.equals( symbol ) )
+            {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    private static ThreadLocal<Matcher> compilePattern( String value )
+    {
+        try
+        {
+            Pattern pattern = Pattern.compile( value );
+            // A matcher per thread is reset for each event rather than allocating a new one.
+            return ThreadLocal.withInitial( () -> pattern.matcher( "" ) );
+        }
+        catch( PatternSyntaxException e )
+        {
+            throw new FilterExpressionException( "Invalid pattern '" + value + "': " + e.getDescription(), e );
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.stats.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for the calls from one service to another, since creation.
+ * <br/>
+ * Thread safe, recording is lock-free.
+ */
+public final class CallEdge
+{
+    static final String OK = "OK";
+
+    private final String parent;
+    private final String service;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    CallEdge( String parent, String service )
+    {
+        this.parent = parent;
+        this.service = service;
+    }
+
+    void record( ServiceCallEvent event )
+    {
+        latency.record( event.getEnd() - event.getStart() );
+        if( !OK.equals( event.getCode() ) )
+        {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return the calling service, {@value CallGraph#ROOT} if called from outside any service.
+     */
+    public String getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * @return the called service.
+     */
+    public String getService()
+    {
+        return service;
+    }
+
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live graph of which services call which, from the parent of each event, with the count, errors and latency
+ * of the calls along each edge.
+ * <br/>
+ * Memory is bounded by max edges, calls along edges beyond that are aggregated together
+ * as calls from {@value #OTHER_SERVICES} to {@value #OTHER_SERVICES}.
+ * <br/>
+ * Thread safe.
+ */
+public final class CallGraph implements ServiceCallEventListener
+{
+    public static final int DEFAULT_MAX_EDGES = 4096;
+    public static final String ROOT = "<root>";
+    public static final String OTHER_SERVICES = "<other>";
+
+    private final int maxEdges;
+    // Keyed by parent then service, so that recording a call along a known edge does not allocate.
+    private final ConcurrentMap<String, ConcurrentMap<String, CallEdge>> edges = new ConcurrentHashMap<>();
+    private final AtomicInteger edgeCount = new AtomicInteger();
+
+    public CallGraph()
+    {
+        this( DEFAULT_MAX_EDGES );
+    }
+
+    public CallGraph( int maxEdges )
+    {
+        if( maxEdges < 1 )
+        {
+            throw new IllegalArgumentException( "Max edges must be at least 1, was: " + maxEdges );
+        }
+        this.maxEdges = maxEdges;
+    }
+
+    @Override
+    public void onEvent( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        getEdge( parentOf( event ), Objects.toString( event.getService(), "" ) ).record( event );
+    }
+
+    /**
+     * @param event called.
+     * @return the calling service, {@value #ROOT} if none.
+     */
+    static String parentOf( ServiceCallEvent event )
+    {
+        String parent = event.getParent();
+        return parent == null || parent.isEmpty() ? ROOT : parent;
+    }
+
+    private CallEdge getEdge( String parent, String service )
+    {
+        ConcurrentMap<String, CallEdge> callees = edges.get( parent );
+        CallEdge edge = callees == null ? null : callees.get( service );
+        if( edge != null )
+        {
+            return edge;
+        }
+        // The check is racy, so the bound may be exceeded by the number of concurrently recording threads.
+        if( edgeCount.get() >= maxEdges )
+        {
+            parent = OTHER_SERVICES;
+            service = OTHER_SERVICES;
+        }
+        String from = parent;
+        return edges.computeIfAbsent( from, k -> new ConcurrentHashMap<>() )
+                .computeIfAbsent( service, to -> {
+                    edgeCount.incrementAndGet();
+                    return new CallEdge( from, to );
+                } );
+    }
+
+    /**
+     * @return every edge recorded so far.
+     */
+    public Collection<CallEdge> getEdges()
+    {
+        List<CallEdge> all = new ArrayList<>( edgeCount.get() );
+        edges.values().forEach( callees -> all.addAll( callees.values() ) );
+        return Collections.unmodifiableCollection( all );
+    }
+
+    public int getMaxEdges()
+    {
+        return maxEdges;
+    }
+}
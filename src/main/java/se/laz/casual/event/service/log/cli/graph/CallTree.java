@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The calls of one execution, arranged as the tree of which call made which.
+ * <br/>
+ * Events only name the parent service, not the parent call, so a call is attached to the latest started call
+ * of its parent service that was in progress when it started, else to the latest started call of its parent
+ * service, else it is a root of the tree.
+ */
+public final class CallTree
+{
+    private static final Comparator<ServiceCallEvent> BY_START = Comparator.comparingLong( ServiceCallEvent::getStart );
+
+    private final String execution;
+    private final long start;
+    private final long end;
+    private final long errors;
+    private final long dropped;
+    private final List<Call> calls;
+
+    CallTree( String execution, List<ServiceCallEvent> events, long dropped )
+    {
+        this.execution = Objects.requireNonNull( execution, "Execution is null." );
+        if( events.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Execution without calls: " + execution );
+        }
+        this.dropped = dropped;
+        List<ServiceCallEvent> sorted = new ArrayList<>( events );
+        sorted.sort( BY_START );
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        long failed = 0;
+        for( ServiceCallEvent event : sorted )
+        {
+            first = Math.min( first, event.getStart() );
+            last = Math.max( last, event.getEnd() );
+            if( !CallEdge.OK.equals( event.getCode() ) )
+            {
+                failed++;
+            }
+        }
+        this.start = first;
+        this.end = last;
+        this.errors = failed;
+        this.calls = Collections.unmodifiableList( arrange( sorted ) );
+    }
+
+    /**
+     * @param sorted calls by start.
+     * @return the calls depth first, children in order of start.
+     */
+    private static List<Call> arrange( List<ServiceCallEvent> sorted )
+    {
+        Map<String, List<Node>> byService = new HashMap<>();
+        List<Node> roots = new ArrayList<>();
+        for( ServiceCallEvent event : sorted )
+        {
+            Node node = new Node( event );
+            Node parent = findParent( byService.get( event.getParent() ), event.getStart() );
+            if( parent == null )
+            {
+                roots.add( node );
+            }
+            else
+            {
+                parent.children.add( node );
+            }
+            byService.computeIfAbsent( Objects.toString( event.getService(), "" ), k -> new ArrayList<>() ).add( node );
+        }
+        List<Call> calls = new ArrayList<>( sorted.size() );
+        Deque<Node> stack = new ArrayDeque<>();
+        for( int i = roots.size() - 1; i >= 0; i-- )
+        {
+            stack.push( roots.get( i ) );
+        }
+        while( !stack.isEmpty() )
+        {
+            Node node = stack.pop();
+            calls.add( new Call( node.event, node.depth ) );
+            for( int i = node.children.size() - 1; i >= 0; i-- )
+            {
+                Node child = node.children.get( i );
+                child.depth = node.depth + 1;
+                stack.push( child );
+            }
+        }
+        return calls;
+    }
+
+    private static Node findParent( List<Node> candidates, long start )
+    {
+        if( candidates == null )
+        {
+            return null;
+        }
+        for( int i = candidates.size() - 1; i >= 0; i-- )
+        {
+            ServiceCallEvent candidate = candidates.get( i ).event;
+            if( candidate.getEnd() >= start )
+            {
+                return candidates.get( i );
+            }
+        }
+        return candidates.get( candidates.size() - 1 );
+    }
+
+    public String getExecution()
+    {
+        return execution;
+    }
+
+    /**
+     * @return start of the first call, {@code us} since epoch.
+     */
+    public long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * @return end of the last call to end, {@code us} since epoch.
+     */
+    public long getEnd()
+    {
+        return end;
+    }
+
+    /**
+     * @return time from the start of the first call until the end of the last, {@code us}.
+     */
+    public long getDuration()
+    {
+        return end - start;
+    }
+
+    public long getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * @return calls of the execution not kept, as it had too many.
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    /**
+     * @return calls depth first, children in order of start.
+     */
+    public List<Call> getCalls()
+    {
+        return calls;
+    }
+
+    /**
+     * A call in the tree.
+     */
+    public static final class Call
+    {
+        private final ServiceCallEvent event;
+        private final int depth;
+
+        private Call( ServiceCallEvent event, int depth )
+        {
+            this.event = event;
+            this.depth = depth;
+        }
+
+        public ServiceCallEvent getEvent()
+        {
+            return event;
+        }
+
+        /**
+         * @return 0 for a root of the tree, 1 for the calls it made and so on.
+         */
+        public int getDepth()
+        {
+            return depth;
+        }
+    }
+
+    private static final class Node
+    {
+        private final ServiceCallEvent event;
+        private final List<Node> children = new ArrayList<>( 2 );
+        private int depth;
+
+        private Node( ServiceCallEvent event )
+        {
+            this.event = event;
+        }
+    }
+}
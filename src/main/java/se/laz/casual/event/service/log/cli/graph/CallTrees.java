@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Groups the calls of each execution into a call tree, keeping the slowest trees completed since last removed.
+ * <br/>
+ * Events carry no marker of an execution being done, so an execution is complete once no call of it
+ * has arrived for the execution timeout. Memory is bounded by max executions and by max calls held by all open
+ * executions together, the least recently called execution being completed early when either is exceeded.
+ * At most {@value #MAX_CALLS_PER_EXECUTION} calls of an execution are kept.
+ * <br/>
+ * Thread safe, calls of one execution may be handled by any thread so all access is serialised.
+ */
+public final class CallTrees implements ServiceCallEventListener
+{
+    public static final int DEFAULT_MAX_EXECUTIONS = 100_000;
+    public static final int DEFAULT_MAX_CALLS = 1_000_000;
+    public static final int MAX_CALLS_PER_EXECUTION = 1024;
+
+    private static final Comparator<CallTree> BY_DURATION = Comparator.comparingLong( CallTree::getDuration );
+
+    private final int maxExecutions;
+    private final int maxCalls;
+    private final int maxCallsPerExecution;
+    private final int slowest;
+    private final long timeoutMillis;
+    private final LongSupplier currentTimeMillis;
+    // Access order, so the eldest entry is the execution least recently called.
+    private final LinkedHashMap<String, Execution> executions = new LinkedHashMap<>( 16, 0.75f, true );
+    private final PriorityQueue<CallTree> slowestTrees;
+
+    private long calls = 0;
+    private long completed = 0;
+    private long evicted = 0;
+
+    private CallTrees( Builder builder )
+    {
+        this.maxExecutions = builder.maxExecutions;
+        this.maxCalls = builder.maxCalls;
+        this.maxCallsPerExecution = Math.min( MAX_CALLS_PER_EXECUTION, maxCalls );
+        this.slowest = builder.slowest;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.currentTimeMillis = builder.currentTimeMillis;
+        this.slowestTrees = new PriorityQueue<>( Math.max( 1, slowest ), BY_DURATION );
+    }
+
+    @Override
+    public synchronized void onEvent( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        long now = currentTimeMillis.getAsLong();
+        String id = event.getExecution();
+        if( id != null && !id.isEmpty() )
+        {
+            if( executions.computeIfAbsent( id, Execution::new ).add( event, now, maxCallsPerExecution ) )
+            {
+                calls++;
+            }
+            // An execution holds at most max calls, so once only the one just called is left both are within bounds.
+            while( executions.size() > maxExecutions || calls > maxCalls )
+            {
+                Iterator<Execution> eldest = executions.values().iterator();
+                complete( eldest.next() );
+                eldest.remove();
+                evicted++;
+            }
+        }
+        expire( now );
+    }
+
+    /**
+     * Complete every execution no call of which has arrived for the execution timeout.
+     */
+    public synchronized void expire()
+    {
+        expire( currentTimeMillis.getAsLong() );
+    }
+
+    private void expire( long now )
+    {
+        Iterator<Execution> iterator = executions.values().iterator();
+        while( iterator.hasNext() )
+        {
+            Execution execution = iterator.next();
+            if( now - execution.lastCalled < timeoutMillis )
+            {
+                return;
+            }
+            complete( execution );
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Complete every execution regardless of timeout, e.g. when stopping.
+     */
+    public synchronized void completeAll()
+    {
+        executions.values().forEach( this::complete );
+        executions.clear();
+    }
+
+    private void complete( Execution execution )
+    {
+        calls -= execution.events.size();
+        completed++;
+        if( slowest == 0 )
+        {
+            return;
+        }
+        // Building the tree is only worth it for those slow enough to be kept.
+        if( slowestTrees.size() >= slowest && slowestTrees.peek().getDuration() >= execution.end - execution.start )
+        {
+            return;
+        }
+        slowestTrees.add( new CallTree( execution.id, execution.events, execution.dropped ) );
+        if( slowestTrees.size() > slowest )
+        {
+            slowestTrees.poll();
+        }
+    }
+
+    /**
+     * Get the slowest trees completed since last removed, they are kept until removed, e.g. once reported.
+     *
+     * @return trees, slowest first.
+     */
+    public synchronized List<CallTree> getSlowest()
+    {
+        List<CallTree> trees = new ArrayList<>( slowestTrees );
+        trees.sort( BY_DURATION.reversed() );
+        return trees;
+    }
+
+    /**
+     * Remove trees, those completed since they were got are kept.
+     *
+     * @param trees to remove, as got by {@link #getSlowest()}.
+     */
+    public synchronized void removeSlowest( List<CallTree> trees )
+    {
+        trees.forEach( slowestTrees::remove );
+    }
+
+    /**
+     * @return executions waiting to complete.
+     */
+    public synchronized int getOpen()
+    {
+        return executions.size();
+    }
+
+    /**
+     * @return calls held by the executions waiting to complete.
+     */
+    public synchronized long getCalls()
+    {
+        return calls;
+    }
+
+    /**
+     * @return executions completed since creation, including those evicted.
+     */
+    public synchronized long getCompleted()
+    {
+        return completed;
+    }
+
+    /**
+     * @return executions completed early since creation, as max executions or max calls was exceeded.
+     */
+    public synchronized long getEvicted()
+    {
+        return evicted;
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    private static final class Execution
+    {
+        private final String id;
+        private final List<ServiceCallEvent> events = new ArrayList<>( 4 );
+        private long start = Long.MAX_VALUE;
+        private long end = Long.MIN_VALUE;
+        private long dropped = 0;
+        private long lastCalled;
+
+        private Execution( String id )
+        {
+            this.id = id;
+        }
+
+        /**
+         * @return true if kept, false if dropped as the execution already holds max calls.
+         */
+        private boolean add( ServiceCallEvent event, long now, int maxCalls )
+        {
+            lastCalled = now;
+            if( events.size() >= maxCalls )
+            {
+                dropped++;
+                return false;
+            }
+            events.add( event );
+            start = Math.min( start, event.getStart() );
+            end = Math.max( end, event.getEnd() );
+            return true;
+        }
+    }
+
+    public static final class Builder
+    {
+        private int maxExecutions = DEFAULT_MAX_EXECUTIONS;
+        private int maxCalls = DEFAULT_MAX_CALLS;
+        private int slowest = 10;
+        private long timeoutMillis = 10_000L;
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+
+        private Builder()
+        {
+        }
+
+        public Builder maxExecutions( int maxExecutions )
+        {
+            this.maxExecutions = maxExecutions;
+            return this;
+        }
+
+        /**
+         * @param maxCalls held by all open executions together.
+         */
+        public Builder maxCalls( int maxCalls )
+        {
+            this.maxCalls = maxCalls;
+            return this;
+        }
+
+        /**
+         * @param slowest number of trees to keep until removed, 0 to keep none.
+         */
+        public Builder slowest( int slowest )
+        {
+            this.slowest = slowest;
+            return this;
+        }
+
+        public Builder timeoutMillis( long timeoutMillis )
+        {
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        public CallTrees build()
+        {
+            Objects.requireNonNull( currentTimeMillis, "Clock is null." );
+            if( maxExecutions < 1 )
+            {
+                throw new IllegalArgumentException( "Max executions must be at least 1, was: " + maxExecutions );
+            }
+            if( maxCalls < 1 )
+            {
+                throw new IllegalArgumentException( "Max calls must be at least 1, was: " + maxCalls );
+            }
+            if( slowest < 0 )
+            {
+                throw new IllegalArgumentException( "Slowest must not be negative, was: " + slowest );
+            }
+            if( timeoutMillis <= 0 )
+            {
+                throw new IllegalArgumentException( "Timeout must be positive, was: " + timeoutMillis );
+            }
+            return new CallTrees( this );
+        }
+    }
+}
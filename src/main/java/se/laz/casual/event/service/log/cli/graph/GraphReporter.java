@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.internal.ScheduledTask;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.LogOutput;
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput;
+import se.laz.casual.event.service.log.cli.stats.HistogramSnapshot;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodically appends the service call graph of the last interval, and the slowest call trees completed
+ * during it, to the graph file.
+ * <br/>
+ * Each line starts with the interval end ({@code us} since epoch) and the kind of line, columns separated
+ * by the delimiter:
+ * <ul>
+ *     <li>{@code edge}: parent, service, count, errors, latency mean, p99, max.
+ *     One per edge called during the interval.</li>
+ *     <li>{@code tree}: execution, duration, calls, errors, calls dropped. One per slow tree, slowest first.</li>
+ *     <li>{@code call}: execution, depth, parent, service, offset from start of tree, latency, code.
+ *     One per call of the preceding tree, depth first.</li>
+ * </ul>
+ * Times are in {@code us}. A final report, completing every open execution, is written on close.
+ * Should a write fail, its edges and trees are included in the next report instead.
+ */
+public final class GraphReporter
+{
+    private static final String EDGE = "edge";
+    private static final String TREE = "tree";
+    private static final String CALL = "call";
+
+    private final CallGraph graph;
+    private final CallTrees trees;
+    private final String delimiter;
+    private final LongSupplier currentTimeMicros;
+    private final LogOutput output;
+    private final LogBuffer buffer = new LogBuffer( 4096 );
+    private final Map<CallEdge, Previous> previous = new HashMap<>();
+    private final Map<CallEdge, Previous> current = new HashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private final ScheduledTask reportTask;
+
+    private boolean closed = false;
+
+    private GraphReporter( Builder builder )
+    {
+        this.graph = builder.graph;
+        this.trees = builder.trees;
+        this.delimiter = builder.delimiter;
+        this.currentTimeMicros = builder.currentTimeMicros;
+        this.output = builder.output != null ? builder.output : new StreamLogOutput( builder.file );
+        this.executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "graph-reporter" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        this.reportTask = new ScheduledTask( "Graph report", this::report );
+        executor.scheduleAtFixedRate( reportTask, builder.intervalMillis, builder.intervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * @return the periodic report, counting its failures.
+     */
+    public ScheduledTask getReportTask()
+    {
+        return reportTask;
+    }
+
+    /**
+     * Append the edges called since the last successful report and the slowest trees completed since then.
+     */
+    public synchronized void report()
+    {
+        if( closed )
+        {
+            return;
+        }
+        // Executions are otherwise only expired as calls arrive, which may be never once calls stop.
+        trees.expire();
+        long intervalEnd = currentTimeMicros.getAsLong();
+        buffer.reset();
+        current.clear();
+        for( CallEdge edge : graph.getEdges() )
+        {
+            Previous now = new Previous( edge.getErrors(), edge.getLatency().snapshot() );
+            current.put( edge, now );
+            Previous last = previous.get( edge );
+            HistogramSnapshot latency = last == null ? now.latency : now.latency.minus( last.latency );
+            if( latency.getCount() == 0 )
+            {
+                continue;
+            }
+            long errors = last == null ? now.errors : now.errors - last.errors;
+            start( intervalEnd, EDGE )
+                    .append( edge.getParent() ).append( delimiter )
+                    .append( edge.getService() ).append( delimiter )
+                    .append( latency.getCount() ).append( delimiter )
+                    .append( errors ).append( delimiter )
+                    .append( latency.getMean() ).append( delimiter )
+                    .append( latency.getValueAtPercentile( 99.0 ) ).append( delimiter )
+                    .append( latency.getMax() )
+                    .appendLineSeparator();
+        }
+        List<CallTree> slowest = trees.getSlowest();
+        for( CallTree tree : slowest )
+        {
+            start( intervalEnd, TREE )
+                    .append( tree.getExecution() ).append( delimiter )
+                    .append( tree.getDuration() ).append( delimiter )
+                    .append( tree.getCalls().size() ).append( delimiter )
+                    .append( tree.getErrors() ).append( delimiter )
+                    .append( tree.getDropped() )
+                    .appendLineSeparator();
+            for( CallTree.Call call : tree.getCalls() )
+            {
+                ServiceCallEvent event = call.getEvent();
+                start( intervalEnd, CALL )
+                        .append( tree.getExecution() ).append( delimiter )
+                        .append( call.getDepth() ).append( delimiter )
+                        .append( CallGraph.parentOf( event ) ).append( delimiter )
+                        .append( event.getService() ).append( delimiter )
+                        .append( event.getStart() - tree.getStart() ).append( delimiter )
+                        .append( event.getEnd() - event.getStart() ).append( delimiter )
+                        .append( event.getCode() )
+                        .appendLineSeparator();
+            }
+        }
+        if( !buffer.isEmpty() )
+        {
+            output.write( buffer );
+        }
+        // Only once written, so that a failed report is included in the next.
+        previous.putAll( current );
+        trees.removeSlowest( slowest );
+    }
+
+    private LogBuffer start( long intervalEnd, String kind )
+    {
+        return buffer.append( intervalEnd ).append( delimiter ).append( kind ).append( delimiter );
+    }
+
+    /**
+     * Stop the periodic reports, writing a final report, and close the graph file.
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+        synchronized( this )
+        {
+            if( closed )
+            {
+                return;
+            }
+            try
+            {
+                trees.completeAll();
+                report();
+            }
+            finally
+            {
+                closed = true;
+                output.close();
+            }
+        }
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    private static final class Previous
+    {
+        private final long errors;
+        private final HistogramSnapshot latency;
+
+        private Previous( long errors, HistogramSnapshot latency )
+        {
+            this.errors = errors;
+            this.latency = latency;
+        }
+    }
+
+    public static final class Builder
+    {
+        private CallGraph graph;
+        private CallTrees trees;
+        private File file;
+        private String delimiter = "|";
+        private long intervalMillis = 60_000L;
+        private LongSupplier currentTimeMicros = () -> TimeUnit.MILLISECONDS.toMicros( System.currentTimeMillis() );
+        private LogOutput output;
+
+        private Builder()
+        {
+        }
+
+        public Builder graph( CallGraph graph )
+        {
+            this.graph = graph;
+            return this;
+        }
+
+        public Builder trees( CallTrees trees )
+        {
+            this.trees = trees;
+            return this;
+        }
+
+        public Builder file( File file )
+        {
+            this.file = file;
+            return this;
+        }
+
+        public Builder delimiter( String delimiter )
+        {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public Builder intervalMillis( long intervalMillis )
+        {
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        public Builder currentTimeMicros( LongSupplier currentTimeMicros )
+        {
+            this.currentTimeMicros = currentTimeMicros;
+            return this;
+        }
+
+        /**
+         * @param output to write to in place of the file, e.g. to test failed writes.
+         * @return this builder.
+         */
+        Builder output( LogOutput output )
+        {
+            this.output = output;
+            return this;
+        }
+
+        public GraphReporter build()
+        {
+            Objects.requireNonNull( graph, "Graph is null." );
+            Objects.requireNonNull( trees, "Trees is null." );
+            if( output == null )
+            {
+                Objects.requireNonNull( file, "File is null." );
+            }
+            Objects.requireNonNull( delimiter, "Delimiter is null." );
+            Objects.requireNonNull( currentTimeMicros, "Clock is null." );
+            if( intervalMillis <= 0 )
+            {
+                throw new IllegalArgumentException( "Interval must be positive, was: " + intervalMillis );
+            }
+            return new GraphReporter( this );
+        }
+    }
+}
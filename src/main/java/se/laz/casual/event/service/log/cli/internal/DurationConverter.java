@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.internal;
+
+import picocli.CommandLine;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a duration into milliseconds, optionally suffixed with a unit of {@code ms}, {@code s}, {@code m}, {@code h} or {@code d},
+ * e.g. {@code 500}, {@code 30s} or {@code 1h}. Without a unit the value is in milliseconds.
+ */
+public class DurationConverter implements CommandLine.ITypeConverter<Long>
+{
+    @Override
+    public Long convert( String value )
+    {
+        String text = value.trim().toLowerCase( Locale.ROOT );
+        TimeUnit unit = TimeUnit.MILLISECONDS;
+        if( text.endsWith( "ms" ) )
+        {
+            text = text.substring( 0, text.length() - 2 );
+        }
+        else if( text.endsWith( "s" ) )
+        {
+            unit = TimeUnit.SECONDS;
+        }
+        else if( text.endsWith( "m" ) )
+        {
+            unit = TimeUnit.MINUTES;
+        }
+        else if( text.endsWith( "h" ) )
+        {
+            unit = TimeUnit.HOURS;
+        }
+        else if( text.endsWith( "d" ) )
+        {
+            unit = TimeUnit.DAYS;
+        }
+        if( unit != TimeUnit.MILLISECONDS )
+        {
+            text = text.substring( 0, text.length() - 1 );
+        }
+        try
+        {
+            long duration = Long.parseLong( text.trim() );
+            if( duration < 0 )
+            {
+                throw new CommandLine.TypeConversionException( "Duration must not be negative: " + value );
+            }
+            long millis = unit.toMillis( duration );
+            if( millis == Long.MAX_VALUE )
+            {
+                throw new CommandLine.TypeConversionException( "Duration too large: " + value );
+            }
+            return millis;
+        }
+        catch( NumberFormatException e )
+        {
+            throw new CommandLine.TypeConversionException( "Invalid duration: " + value + ", expected e.g. 500ms, 30s, 15m, 1h or 1d" );
+        }
+    }
+}
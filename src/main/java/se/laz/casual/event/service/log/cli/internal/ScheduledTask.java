@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.internal;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A task run periodically by a scheduled executor, e.g. a timed flush or report.
+ * <br/>
+ * An executor never runs a task again once it has thrown, so failures are counted, and the last kept,
+ * instead of thrown. The count is printed when the application stops.
+ */
+public final class ScheduledTask implements Runnable
+{
+    private final String name;
+    private final Runnable task;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile RuntimeException lastFailure;
+
+    public ScheduledTask( String name, Runnable task )
+    {
+        Objects.requireNonNull( name, "Name is null." );
+        Objects.requireNonNull( task, "Task is null." );
+        this.name = name;
+        this.task = task;
+    }
+
+    @Override
+    public void run()
+    {
+        runs.incrementAndGet();
+        try
+        {
+            task.run();
+        }
+        catch( RuntimeException e )
+        {
+            failures.incrementAndGet();
+            lastFailure = e;
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return number of times run, including those that failed.
+     */
+    public long getRuns()
+    {
+        return runs.get();
+    }
+
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * @return the most recent failure, or null if none.
+     */
+    public RuntimeException getLastFailure()
+    {
+        return lastFailure;
+    }
+
+    @Override
+    public String toString()
+    {
+        RuntimeException last = lastFailure;
+        return name + " runs: " + getRuns() + ", failures: " + getFailures()
+                + ( last == null ? "" : ", last: " + last.getMessage() ) + ".";
+    }
+}
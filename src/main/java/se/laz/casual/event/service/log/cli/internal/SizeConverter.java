@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.internal;
+
+import picocli.CommandLine;
+
+import java.util.Locale;
+
+/**
+ * Converts a size in bytes, optionally suffixed with a binary unit of {@code K}, {@code M} or {@code G},
+ * e.g. {@code 512}, {@code 64K} or {@code 100MB}.
+ */
+public class SizeConverter implements CommandLine.ITypeConverter<Long>
+{
+    @Override
+    public Long convert( String value )
+    {
+        String text = value.trim().toUpperCase( Locale.ROOT );
+        if( text.endsWith( "B" ) )
+        {
+            text = text.substring( 0, text.length() - 1 );
+        }
+        long multiplier = 1L;
+        if( !text.isEmpty() )
+        {
+            switch( text.charAt( text.length() - 1 ) )
+            {
+                case 'K':
+                    multiplier = 1L << 10;
+                    break;
+                case 'M':
+                    multiplier = 1L << 20;
+                    break;
+                case 'G':
+                    multiplier = 1L << 30;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if( multiplier > 1L )
+        {
+            text = text.substring( 0, text.length() - 1 ).trim();
+        }
+        try
+        {
+            long size = Long.parseLong( text );
+            if( size < 0 )
+            {
+                throw new CommandLine.TypeConversionException( "Size must not be negative: " + value );
+            }
+            return Math.multiplyExact( size, multiplier );
+        }
+        catch( NumberFormatException | ArithmeticException e )
+        {
+            throw new CommandLine.TypeConversionException( "Invalid size: " + value + ", expected e.g. 512, 64K, 100M or 1G" );
+        }
+    }
+}
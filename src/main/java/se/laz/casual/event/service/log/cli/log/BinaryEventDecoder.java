@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.DICTIONARY;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.EVENT;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_EXECUTION_NULL;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_EXECUTION_RAW;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_SOURCE;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_TRANSACTION_ID_NULL;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.MAGIC;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.NULL_ID;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.PART_HEX;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.PART_TEXT;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.RAW_EXECUTION_LENGTH;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.VERSION;
+
+/**
+ * Decodes events written in the {@link BinaryLogFormat}.
+ * <br/>
+ * Not thread safe.
+ */
+public final class BinaryEventDecoder
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final InputStream stream;
+    private final List<String> dictionary = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+    private long previousStart;
+    private boolean started;
+
+    public BinaryEventDecoder( InputStream stream )
+    {
+        Objects.requireNonNull( stream, "Stream is null." );
+        this.stream = stream instanceof BufferedInputStream ? stream : new BufferedInputStream( stream );
+    }
+
+    /**
+     * Read the next event.
+     *
+     * @param event to populate.
+     * @return true if an event was read, false at the end of the stream.
+     * @throws IOException if reading fails.
+     * @throws LogFormatException if the stream is not in the binary format or is truncated.
+     */
+    public boolean read( EventRecord event ) throws IOException
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        while( true )
+        {
+            int type = stream.read();
+            if( type < 0 )
+            {
+                return false;
+            }
+            if( type == MAGIC[0] )
+            {
+                readHeader();
+            }
+            else if( !started )
+            {
+                throw new LogFormatException( "Not a binary log, missing header." );
+            }
+            else if( type == DICTIONARY )
+            {
+                readDictionaryEntry();
+            }
+            else if( type == EVENT )
+            {
+                readEvent( event );
+                return true;
+            }
+            else
+            {
+                throw new LogFormatException( "Unknown record type: " + type );
+            }
+        }
+    }
+
+    private void readHeader() throws IOException
+    {
+        for( int i = 1; i < MAGIC.length; i++ )
+        {
+            if( readByte() != MAGIC[i] )
+            {
+                throw new LogFormatException( "Not a binary log, invalid header." );
+            }
+        }
+        int version = readByte();
+        if( version != VERSION )
+        {
+            throw new LogFormatException( "Unsupported binary log version: " + version );
+        }
+        dictionary.clear();
+        previousStart = 0L;
+        started = true;
+    }
+
+    private void readDictionaryEntry() throws IOException
+    {
+        long id = readVarLong();
+        if( id != dictionary.size() + 1 )
+        {
+            throw new LogFormatException( "Unexpected dictionary id: " + id + ", expected: " + ( dictionary.size() + 1 ) );
+        }
+        dictionary.add( readText() );
+    }
+
+    private void readEvent( EventRecord event ) throws IOException
+    {
+        int flags = readByte();
+        char order = (char) readByte();
+        int pid = ( readByte() << 24 ) | ( readByte() << 16 ) | ( readByte() << 8 ) | readByte();
+        String service = lookup( readVarLong() );
+        String parent = lookup( readVarLong() );
+        String code = lookup( readVarLong() );
+        String source = ( flags & FLAG_SOURCE ) != 0 ? lookup( readVarLong() ) : null;
+        long start = previousStart + readZigZag();
+        long end = start + readZigZag();
+        long pending = readZigZag();
+        previousStart = start;
+
+        String execution = null;
+        if( ( flags & FLAG_EXECUTION_RAW ) != 0 )
+        {
+            text.setLength( 0 );
+            appendHex( RAW_EXECUTION_LENGTH );
+            execution = text.toString();
+        }
+        else if( ( flags & FLAG_EXECUTION_NULL ) == 0 )
+        {
+            execution = readText();
+        }
+        String transactionId = ( flags & FLAG_TRANSACTION_ID_NULL ) == 0 ? readTransactionId() : null;
+
+        event.setService( service )
+             .setParent( parent )
+             .setPid( pid )
+             .setExecution( execution )
+             .setTransactionId( transactionId )
+             .setStart( start )
+             .setEnd( end )
+             .setPending( pending )
+             .setCode( code )
+             .setOrder( order )
+             .setSource( source );
+    }
+
+    private String readTransactionId() throws IOException
+    {
+        long parts = readVarLong();
+        text.setLength( 0 );
+        for( long i = 0; i < parts; i++ )
+        {
+            if( i > 0 )
+            {
+                text.append( ':' );
+            }
+            int tag = readByte();
+            int length = readLength();
+            if( tag == PART_HEX )
+            {
+                appendHex( length );
+            }
+            else if( tag == PART_TEXT )
+            {
+                text.append( new String( readBytes( length ), StandardCharsets.UTF_8 ) );
+            }
+            else
+            {
+                throw new LogFormatException( "Unknown transaction id part: " + tag );
+            }
+        }
+        return text.toString();
+    }
+
+    private void appendHex( int length ) throws IOException
+    {
+        for( int i = 0; i < length; i++ )
+        {
+            int value = readByte();
+            text.append( HEX_DIGITS[value >>> 4] ).append( HEX_DIGITS[value & 0x0F] );
+        }
+    }
+
+    private String lookup( long id )
+    {
+        if( id == NULL_ID )
+        {
+            return null;
+        }
+        if( id > dictionary.size() )
+        {
+            throw new LogFormatException( "Undefined dictionary id: " + id );
+        }
+        return dictionary.get( (int) id - 1 );
+    }
+
+    private String readText() throws IOException
+    {
+        return new String( readBytes( readLength() ), StandardCharsets.UTF_8 );
+    }
+
+    private byte[] readBytes( int length ) throws IOException
+    {
+        byte[] bytes = new byte[length];
+        int read = stream.readNBytes( bytes, 0, length );
+        if( read < length )
+        {
+            throw truncated();
+        }
+        return bytes;
+    }
+
+    private int readLength() throws IOException
+    {
+        long length = readVarLong();
+        if( length > Integer.MAX_VALUE - 8 )
+        {
+            throw new LogFormatException( "Invalid length: " + length );
+        }
+        return (int) length;
+    }
+
+    private long readZigZag() throws IOException
+    {
+        long value = readVarLong();
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private long readVarLong() throws IOException
+    {
+        long value = 0;
+        for( int shift = 0; shift < 64; shift += 7 )
+        {
+            int b = readByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            if( ( b & 0x80 ) == 0 )
+            {
+                return value;
+            }
+        }
+        throw new LogFormatException( "Invalid varint." );
+    }
+
+    private int readByte() throws IOException
+    {
+        int b = stream.read();
+        if( b < 0 )
+        {
+            throw truncated();
+        }
+        return b;
+    }
+
+    private static LogFormatException truncated()
+    {
+        return new LogFormatException( "Truncated record." );
+    }
+}
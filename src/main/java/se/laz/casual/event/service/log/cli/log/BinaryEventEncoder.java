@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.DICTIONARY;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.EVENT;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_EXECUTION_NULL;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_EXECUTION_RAW;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_SOURCE;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.FLAG_TRANSACTION_ID_NULL;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.MAGIC;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.NULL_ID;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.PART_HEX;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.PART_TEXT;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.RAW_EXECUTION_LENGTH;
+import static se.laz.casual.event.service.log.cli.log.BinaryLogFormat.VERSION;
+
+/**
+ * Encodes events in the {@link BinaryLogFormat}.
+ * <br/>
+ * Service, parent and code strings are written once per segment into a dictionary and referenced by id thereafter.
+ * Once the dictionary is full, a new segment is started.
+ * <br/>
+ * Stateful, not thread safe.
+ */
+public final class BinaryEventEncoder implements EventEncoder
+{
+    public static final int DEFAULT_MAX_DICTIONARY_SIZE = 65536;
+    private static final int MAX_NEW_ENTRIES = 4;
+
+    private final int maxDictionarySize;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private long previousStart;
+
+    public BinaryEventEncoder()
+    {
+        this( DEFAULT_MAX_DICTIONARY_SIZE );
+    }
+
+    public BinaryEventEncoder( int maxDictionarySize )
+    {
+        if( maxDictionarySize < MAX_NEW_ENTRIES )
+        {
+            // An event may need a new entry for each of service, parent, code and source.
+            throw new IllegalArgumentException( "Max dictionary size must be at least " + MAX_NEW_ENTRIES + ", was: " + maxDictionarySize );
+        }
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    @Override
+    public void start( LogBuffer buffer )
+    {
+        dictionary.clear();
+        previousStart = 0L;
+        buffer.appendBytes( MAGIC, 0, MAGIC.length ).appendByte( VERSION );
+    }
+
+    @Override
+    public void encode( ServiceCallEvent event, String source, LogBuffer buffer )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        Objects.requireNonNull( buffer, "Buffer is null." );
+        if( dictionary.size() > maxDictionarySize - MAX_NEW_ENTRIES )
+        {
+            start( buffer );
+        }
+        int service = idOf( event.getService(), buffer );
+        int parent = idOf( event.getParent(), buffer );
+        int code = idOf( event.getCode(), buffer );
+        int sourceId = idOf( source, buffer );
+
+        String execution = event.getExecution();
+        String transactionId = event.getTransactionId();
+        int flags = 0;
+        if( execution == null )
+        {
+            flags |= FLAG_EXECUTION_NULL;
+        }
+        else if( execution.length() == RAW_EXECUTION_LENGTH * 2 && isHex( execution ) )
+        {
+            flags |= FLAG_EXECUTION_RAW;
+        }
+        if( transactionId == null )
+        {
+            flags |= FLAG_TRANSACTION_ID_NULL;
+        }
+        if( source != null )
+        {
+            flags |= FLAG_SOURCE;
+        }
+
+        int pid = event.getPid();
+        buffer.appendByte( EVENT )
+                .appendByte( flags )
+                .appendByte( event.getOrder() )
+                .appendByte( pid >>> 24 ).appendByte( pid >>> 16 ).appendByte( pid >>> 8 ).appendByte( pid );
+        appendVarLong( service, buffer );
+        appendVarLong( parent, buffer );
+        appendVarLong( code, buffer );
+        if( source != null )
+        {
+            appendVarLong( sourceId, buffer );
+        }
+        long start = event.getStart();
+        appendZigZag( start - previousStart, buffer );
+        appendZigZag( event.getEnd() - start, buffer );
+        appendZigZag( event.getPending(), buffer );
+        previousStart = start;
+
+        if( ( flags & FLAG_EXECUTION_RAW ) != 0 )
+        {
+            appendHex( execution, 0, execution.length(), buffer );
+        }
+        else if( execution != null )
+        {
+            appendText( execution, 0, execution.length(), buffer );
+        }
+        if( transactionId != null )
+        {
+            appendTransactionId( transactionId, buffer );
+        }
+    }
+
+    @Override
+    public boolean isStateless()
+    {
+        return false;
+    }
+
+    private int idOf( String value, LogBuffer buffer )
+    {
+        if( value == null )
+        {
+            return NULL_ID;
+        }
+        Integer id = dictionary.get( value );
+        if( id != null )
+        {
+            return id;
+        }
+        int newId = dictionary.size() + 1;
+        dictionary.put( value, newId );
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        buffer.appendByte( DICTIONARY );
+        appendVarLong( newId, buffer );
+        appendVarLong( bytes.length, buffer );
+        buffer.appendBytes( bytes, 0, bytes.length );
+        return newId;
+    }
+
+    private static void appendTransactionId( String transactionId, LogBuffer buffer )
+    {
+        int parts = 1;
+        for( int i = 0; i < transactionId.length(); i++ )
+        {
+            if( transactionId.charAt( i ) == ':' )
+            {
+                parts++;
+            }
+        }
+        appendVarLong( parts, buffer );
+        int partStart = 0;
+        for( int i = 0; i <= transactionId.length(); i++ )
+        {
+            if( i == transactionId.length() || transactionId.charAt( i ) == ':' )
+            {
+                appendPart( transactionId, partStart, i, buffer );
+                partStart = i + 1;
+            }
+        }
+    }
+
+    private static void appendPart( String text, int from, int to, LogBuffer buffer )
+    {
+        int length = to - from;
+        if( length > 0 && length % 2 == 0 && isHex( text, from, to ) )
+        {
+            buffer.appendByte( PART_HEX );
+            appendVarLong( length / 2, buffer );
+            appendHex( text, from, to, buffer );
+        }
+        else
+        {
+            buffer.appendByte( PART_TEXT );
+            appendText( text, from, to, buffer );
+        }
+    }
+
+    private static void appendText( String text, int from, int to, LogBuffer buffer )
+    {
+        byte[] bytes = text.substring( from, to ).getBytes( StandardCharsets.UTF_8 );
+        appendVarLong( bytes.length, buffer );
+        buffer.appendBytes( bytes, 0, bytes.length );
+    }
+
+    private static void appendHex( String text, int from, int to, LogBuffer buffer )
+    {
+        for( int i = from; i < to; i += 2 )
+        {
+            buffer.appendByte( ( Character.digit( text.charAt( i ), 16 ) << 4 ) | Character.digit( text.charAt( i + 1 ), 16 ) );
+        }
+    }
+
+    private static boolean isHex( String text )
+    {
+        return isHex( text, 0, text.length() );
+    }
+
+    /**
+     * Only lower case, so that decoding reproduces the text exactly.
+     */
+    private static boolean isHex( String text, int from, int to )
+    {
+        for( int i = from; i < to; i++ )
+        {
+            char c = text.charAt( i );
+            if( ( c < '0' || c > '9' ) && ( c < 'a' || c > 'f' ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendZigZag( long value, LogBuffer buffer )
+    {
+        appendVarLong( ( value << 1 ) ^ ( value >> 63 ), buffer );
+    }
+
+    private static void appendVarLong( long value, LogBuffer buffer )
+    {
+        long remaining = value;
+        while( ( remaining & ~0x7FL ) != 0 )
+        {
+            buffer.appendByte( (int) ( ( remaining & 0x7F ) | 0x80 ) );
+            remaining >>>= 7;
+        }
+        buffer.appendByte( (int) remaining );
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the binary log format, written by {@link BinaryEventEncoder} and read by {@link BinaryEventDecoder}.
+ * <br/>
+ * A file is a sequence of segments. Each segment starts with the {@link #MAGIC} and {@link #VERSION}
+ * followed by records. A new segment is started every time the file is opened for writing, so appending
+ * to an existing file is supported, and whenever the dictionary is full.
+ * <br/>
+ * Records start with a type byte:
+ * <ul>
+ *     <li>{@link #DICTIONARY}: id (varint), length (varint), UTF-8 bytes.
+ *     Defines a service, parent or code string, referenced by id from the following events of the segment.</li>
+ *     <li>{@link #EVENT}: fixed header of flags (1 byte), order (1 byte) and pid (4 bytes, big endian),
+ *     followed by service, parent and code dictionary ids (varint, 0 for null),
+ *     the source dictionary id (varint) only if {@link #FLAG_SOURCE} is set,
+ *     start as a delta from the previous event's start, duration ({@code end - start}) and pending (zigzag varints),
+ *     then the execution and transaction id.</li>
+ * </ul>
+ * The execution is 16 raw bytes when it is 32 hex digits, {@link #FLAG_EXECUTION_RAW}, otherwise length prefixed UTF-8.
+ * The transaction id is a count (varint) of its {@code :} separated parts, each part a tag, {@link #PART_HEX} for
+ * hex digits stored as raw bytes or {@link #PART_TEXT} for UTF-8, then length (varint) and bytes.
+ */
+public final class BinaryLogFormat
+{
+    static final byte[] MAGIC = "CJSL".getBytes( StandardCharsets.US_ASCII );
+    static final int VERSION = 1;
+
+    static final int DICTIONARY = 0x01;
+    static final int EVENT = 0x02;
+
+    static final int FLAG_EXECUTION_NULL = 0x01;
+    static final int FLAG_EXECUTION_RAW = 0x02;
+    static final int FLAG_TRANSACTION_ID_NULL = 0x04;
+    static final int FLAG_SOURCE = 0x08;
+
+    static final int PART_HEX = 0x00;
+    static final int PART_TEXT = 0x01;
+
+    static final int NULL_ID = 0;
+    static final int RAW_EXECUTION_LENGTH = 16;
+
+    private BinaryLogFormat()
+    {
+    }
+
+    /**
+     * @param bytes the start of a file.
+     * @param length number of valid bytes.
+     * @return true if the bytes start with the magic of the binary format.
+     */
+    public static boolean isBinary( byte[] bytes, int length )
+    {
+        if( length < MAGIC.length || bytes.length < length )
+        {
+            return false;
+        }
+        for( int i = 0; i < MAGIC.length; i++ )
+        {
+            if( bytes[i] != MAGIC[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends to the file through a {@link FileChannel} opened in append mode.
+ * <br/>
+ * A channel is closed when the thread writing to it is interrupted, e.g. as a processor is stopped.
+ * The channel is then reopened and the rest of the write completed, the interrupt being left set for the caller.
+ * <br/>
+ * Should a write fail part way, the bytes written are found from the growth of the file,
+ * this being the only writer to it.
+ */
+public class ChannelLogOutput implements LogOutput
+{
+    private final File file;
+    private FileChannel channel;
+    private long size;
+
+    public ChannelLogOutput( File file )
+    {
+        this.file = file;
+        this.channel = open();
+        try
+        {
+            this.size = channel.size();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to open file.", e );
+        }
+    }
+
+    private FileChannel open()
+    {
+        try
+        {
+            return FileChannel.open( file.toPath(), CREATE, WRITE, APPEND );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to open file.", e );
+        }
+    }
+
+    @Override
+    public void write( LogBuffer buffer, int offset )
+    {
+        long start = size;
+        try
+        {
+            try
+            {
+                buffer.writeTo( channel, offset );
+            }
+            catch( ClosedByInterruptException e )
+            {
+                // Part of the buffer may already have been written.
+                Thread.interrupted();
+                try
+                {
+                    channel = open();
+                    buffer.writeTo( channel, offset + (int) ( channel.size() - start ) );
+                }
+                finally
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            size = start + buffer.size() - offset;
+        }
+        catch( IOException e )
+        {
+            long written = Math.max( 0L, Math.min( file.length() - start, (long) buffer.size() - offset ) );
+            size = start + written;
+            throw new LogWriteException( "Failed to write to file.", offset + (int) written, e );
+        }
+    }
+
+    @Override
+    public void discard( int length )
+    {
+        try
+        {
+            if( !channel.isOpen() )
+            {
+                channel = open();
+            }
+            channel.truncate( size - length );
+            size -= length;
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to truncate file.", e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to close file.", e );
+        }
+    }
+}
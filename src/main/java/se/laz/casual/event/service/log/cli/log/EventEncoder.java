@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+/**
+ * Encodes events into the bytes written to the log file.
+ */
+public interface EventEncoder
+{
+    /**
+     * Called whenever a file is opened, prior to encoding any events to it.
+     * Appends anything the format requires at the start of the file and resets any state.
+     *
+     * @param buffer to append to.
+     */
+    default void start( LogBuffer buffer )
+    {
+    }
+
+    /**
+     * Append a complete record of the event, including any record separator.
+     *
+     * @param event to encode.
+     * @param buffer to append to.
+     */
+    default void encode( ServiceCallEvent event, LogBuffer buffer )
+    {
+        encode( event, null, buffer );
+    }
+
+    /**
+     * Append a complete record of the event tagged with the source it was received from.
+     *
+     * @param event to encode.
+     * @param source of the event, or null to not record the source.
+     * @param buffer to append to.
+     */
+    void encode( ServiceCallEvent event, String source, LogBuffer buffer );
+
+    /**
+     * Whether the encoding of an event is independent of the events encoded before it, in which case
+     * the encoder is thread safe and events may be encoded in parallel then concatenated.
+     *
+     * @return true if stateless.
+     */
+    boolean isStateless();
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+/**
+ * Available formats for events written to the log file.
+ */
+public enum EventFormat
+{
+    /**
+     * A line of delimited text per event.
+     */
+    TEXT
+    {
+        @Override
+        public EventEncoder createEncoder( String delimiter )
+        {
+            return new ServiceCallEventFormatter( delimiter );
+        }
+    },
+    /**
+     * Compact {@link BinaryLogFormat}, converted back to text with the decode tool.
+     */
+    BINARY
+    {
+        @Override
+        public EventEncoder createEncoder( String delimiter )
+        {
+            return new BinaryEventEncoder();
+        }
+
+        @Override
+        public boolean isText()
+        {
+            return false;
+        }
+    };
+
+    /**
+     * Create a new encoder for a log file.
+     *
+     * @param delimiter between columns, for text formats.
+     * @return encoder.
+     */
+    public abstract EventEncoder createEncoder( String delimiter );
+
+    /**
+     * @return true if the format is text.
+     */
+    public boolean isText()
+    {
+        return true;
+    }
+}
@@ -7,25 +7,51 @@
 package se.laz.casual.event.service.log.cli.log;
 
 import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.filter.FilterExpression;
+import se.laz.casual.event.service.log.cli.sample.EventSampler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 /**
  * Handle incoming events.
  * Applying necessary filtering prior to logging.
+ * <br/>
+ * Service name filter decisions are cached per service name, see {@link FilterDecisionCache}.
+ * Events passing the service name filters must then also match the filter expression, if any.
+ * Listeners are then notified of the remaining events, for example to aggregate statistics.
+ * Finally, the remaining events are sampled, if configured, see {@link EventSampler}.
  */
 public class EventHandler
 {
     private final ServiceLogger serviceLogger;
     private final Pattern filterInclusive;
     private final Pattern filterExclusive;
+    private final FilterDecisionCache filterCache;
+    private final FilterExpression filter;
+    private final EventSampler sampler;
+    private final ServiceCallEventListener[] listeners;
+    private final boolean logEvents;
+    private final String source;
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
 
     private EventHandler( Builder builder )
     {
         this.serviceLogger = builder.serviceLogger;
         this.filterInclusive = builder.filterInclusive;
         this.filterExclusive = builder.filterExclusive;
+        this.filterCache = new FilterDecisionCache( this::matchesServiceFilters, builder.filterCacheSize );
+        this.filter = builder.filter;
+        this.sampler = builder.sampler;
+        this.listeners = builder.listeners.toArray( new ServiceCallEventListener[0] );
+        this.logEvents = builder.logEvents;
+        this.source = builder.source;
     }
 
     public ServiceLogger getServiceLogger()
@@ -43,6 +69,55 @@ public class EventHandler
         return filterExclusive;
     }
 
+    public FilterExpression getFilter()
+    {
+        return filter;
+    }
+
+    public FilterDecisionCache getFilterCache()
+    {
+        return filterCache;
+    }
+
+    public EventSampler getSampler()
+    {
+        return sampler;
+    }
+
+    public List<ServiceCallEventListener> getListeners()
+    {
+        return Collections.unmodifiableList( Arrays.asList( listeners ) );
+    }
+
+    public boolean isLogEvents()
+    {
+        return logEvents;
+    }
+
+    /**
+     * @return the source logged with each event, or null if not logged.
+     */
+    public String getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @return events filtered and sampled.
+     */
+    public long getHandled()
+    {
+        return handled.sum();
+    }
+
+    /**
+     * @return events passing the filters and sampling.
+     */
+    public long getAccepted()
+    {
+        return accepted.sum();
+    }
+
     @Override
     public String toString()
     {
@@ -50,23 +125,83 @@ public class EventHandler
                 "serviceLogger=" + serviceLogger +
                 ", filterInclusive=" + filterInclusive +
                 ", filterExclusive=" + filterExclusive +
+                ", filter=" + filter +
+                ", filterCache=" + filterCache +
+                ", sampler=" + sampler +
+                ", listeners=" + Arrays.toString( listeners ) +
+                ", logEvents=" + logEvents +
+                ", source='" + source + '\'' +
                 '}';
     }
 
     public void handle( ServiceCallEvent event )
     {
-        Objects.requireNonNull( event, "Event is null." );
-        if( filterInclusive != null && !filterInclusive.matcher( event.getService() ).matches() )
+        if( !accept( event ) )
         {
             return;
         }
+        if( source == null )
+        {
+            serviceLogger.logEvent( event );
+        }
+        else
+        {
+            serviceLogger.logEvent( event, source );
+        }
+    }
 
-        if( filterExclusive != null && filterExclusive.matcher( event.getService() ).matches() )
+    /**
+     * Apply the filters to the event, notifying the listeners if it passes, then sample it.
+     * Thread safe, so may be used to filter events in parallel prior to logging.
+     *
+     * @param event to check.
+     * @return true if the event should be logged.
+     */
+    public boolean accept( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        handled.increment();
+        if( ( filterInclusive != null || filterExclusive != null ) && !filterCache.test( event.getService() ) )
         {
-            return;
+            return false;
+        }
+        if( filter != null && !filter.test( event ) )
+        {
+            return false;
+        }
+        for( ServiceCallEventListener listener : listeners )
+        {
+            listener.onEvent( event );
+        }
+        if( logEvents && ( sampler == null || sampler.sample( event ) ) )
+        {
+            accepted.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matchesServiceFilters( String service )
+    {
+        return matchesServiceFilters( service, filterInclusive, filterExclusive );
+    }
+
+    static boolean matchesServiceFilters( String service, Pattern filterInclusive, Pattern filterExclusive )
+    {
+        if( filterInclusive != null && !filterInclusive.matcher( service ).matches() )
+        {
+            return false;
         }
 
-        serviceLogger.logEvent( event );
+        return filterExclusive == null || !filterExclusive.matcher( service ).matches();
+    }
+
+    /**
+     * Write out any events buffered by the logger.
+     */
+    public void flush()
+    {
+        serviceLogger.flush();
     }
 
     public static Builder newBuilder()
@@ -79,6 +214,12 @@ public class EventHandler
         private ServiceLogger serviceLogger;
         private Pattern filterInclusive;
         private Pattern filterExclusive;
+        private int filterCacheSize = FilterDecisionCache.DEFAULT_MAX_SIZE;
+        private FilterExpression filter;
+        private EventSampler sampler;
+        private final List<ServiceCallEventListener> listeners = new ArrayList<>();
+        private boolean logEvents = true;
+        private String source;
 
         private Builder()
         {
@@ -102,6 +243,50 @@ public class EventHandler
             return this;
         }
 
+        public Builder filter( FilterExpression filter )
+        {
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder sampler( EventSampler sampler )
+        {
+            this.sampler = sampler;
+            return this;
+        }
+
+        public Builder listener( ServiceCallEventListener listener )
+        {
+            this.listeners.add( Objects.requireNonNull( listener, "Listener is null." ) );
+            return this;
+        }
+
+        /**
+         * @param logEvents false if events are only passed to the listeners and never logged.
+         * @return builder.
+         */
+        public Builder logEvents( boolean logEvents )
+        {
+            this.logEvents = logEvents;
+            return this;
+        }
+
+        /**
+         * @param source logged with each event, null to not log the source.
+         * @return this builder.
+         */
+        public Builder source( String source )
+        {
+            this.source = source;
+            return this;
+        }
+
+        public Builder filterCacheSize( int filterCacheSize )
+        {
+            this.filterCacheSize = filterCacheSize;
+            return this;
+        }
+
         public EventHandler build()
         {
             Objects.requireNonNull( serviceLogger, "ServiceLogger is null." );
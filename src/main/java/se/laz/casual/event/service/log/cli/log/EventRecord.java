@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+/**
+ * Mutable holder of the columns of a logged event, as read back from a log file.
+ * <br/>
+ * Values are as logged, so execution and transaction id are in their logged string form.
+ * Reused between records by readers to avoid allocation, so must be copied if retained.
+ */
+public final class EventRecord
+{
+    private String service;
+    private String parent;
+    private int pid;
+    private String execution;
+    private String transactionId;
+    private long start;
+    private long end;
+    private long pending;
+    private String code;
+    private char order;
+    private String source;
+
+    public String getService()
+    {
+        return service;
+    }
+
+    public EventRecord setService( String service )
+    {
+        this.service = service;
+        return this;
+    }
+
+    public String getParent()
+    {
+        return parent;
+    }
+
+    public EventRecord setParent( String parent )
+    {
+        this.parent = parent;
+        return this;
+    }
+
+    public int getPid()
+    {
+        return pid;
+    }
+
+    public EventRecord setPid( int pid )
+    {
+        this.pid = pid;
+        return this;
+    }
+
+    public String getExecution()
+    {
+        return execution;
+    }
+
+    public EventRecord setExecution( String execution )
+    {
+        this.execution = execution;
+        return this;
+    }
+
+    public String getTransactionId()
+    {
+        return transactionId;
+    }
+
+    public EventRecord setTransactionId( String transactionId )
+    {
+        this.transactionId = transactionId;
+        return this;
+    }
+
+    public long getStart()
+    {
+        return start;
+    }
+
+    public EventRecord setStart( long start )
+    {
+        this.start = start;
+        return this;
+    }
+
+    public long getEnd()
+    {
+        return end;
+    }
+
+    public EventRecord setEnd( long end )
+    {
+        this.end = end;
+        return this;
+    }
+
+    public long getPending()
+    {
+        return pending;
+    }
+
+    public EventRecord setPending( long pending )
+    {
+        this.pending = pending;
+        return this;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    public EventRecord setCode( String code )
+    {
+        this.code = code;
+        return this;
+    }
+
+    public char getOrder()
+    {
+        return order;
+    }
+
+    public EventRecord setOrder( char order )
+    {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * @return the source the event was received from, or null if not recorded.
+     */
+    public String getSource()
+    {
+        return source;
+    }
+
+    public EventRecord setSource( String source )
+    {
+        this.source = source;
+        return this;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EventRecord{" +
+                "service='" + service + '\'' +
+                ", parent='" + parent + '\'' +
+                ", pid=" + pid +
+                ", execution='" + execution + '\'' +
+                ", transactionId='" + transactionId + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                ", pending=" + pending +
+                ", code='" + code + '\'' +
+                ", order=" + order +
+                ", source='" + source + '\'' +
+                '}';
+    }
+}
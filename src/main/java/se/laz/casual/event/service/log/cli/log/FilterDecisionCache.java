@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Caches the decision of a filter per distinct key, for example per service name.
+ * <br/>
+ * Service names have low cardinality, so once warmed up the filter is only evaluated for new names
+ * and every other check is a hash lookup.
+ * <br/>
+ * The cache is bounded by max size, when full an arbitrary entry is evicted to make room,
+ * so that unexpectedly high cardinality can not exhaust memory. A max size of 0 disables caching.
+ * <br/>
+ * Thread safe.
+ */
+public final class FilterDecisionCache
+{
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final Predicate<String> filter;
+    private final int maxSize;
+    private final Map<String, Boolean> decisions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FilterDecisionCache( Predicate<String> filter, int maxSize )
+    {
+        Objects.requireNonNull( filter, "Filter is null." );
+        if( maxSize < 0 )
+        {
+            throw new IllegalArgumentException( "Max size must not be negative, was: " + maxSize );
+        }
+        this.filter = filter;
+        this.maxSize = maxSize;
+        this.decisions = new ConcurrentHashMap<>( Math.min( maxSize, DEFAULT_MAX_SIZE ) );
+    }
+
+    /**
+     * Get the filter decision for the key, evaluating the filter only if not already cached.
+     *
+     * @param key to check.
+     * @return filter decision.
+     */
+    public boolean test( String key )
+    {
+        Objects.requireNonNull( key, "Key is null." );
+        Boolean decision = decisions.get( key );
+        if( decision != null )
+        {
+            hits.increment();
+            return decision;
+        }
+        misses.increment();
+        boolean evaluated = filter.test( key );
+        if( maxSize > 0 )
+        {
+            if( decisions.size() >= maxSize )
+            {
+                evictOne();
+            }
+            decisions.put( key, evaluated );
+        }
+        return evaluated;
+    }
+
+    private void evictOne()
+    {
+        Iterator<String> keys = decisions.keySet().iterator();
+        if( keys.hasNext() )
+        {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public int size()
+    {
+        return decisions.size();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FilterDecisionCache{" +
+                "maxSize=" + maxSize +
+                ", size=" + size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+}
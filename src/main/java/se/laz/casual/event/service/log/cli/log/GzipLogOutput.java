@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends gzip compressed output to the file, compressed in independent blocks on a background thread.
+ * <br/>
+ * Writes are collected into a block which, once full, is compressed as a separate gzip member and appended to the file.
+ * Concatenated members form a valid gzip file, readable with the standard tools, e.g. {@code zcat}.
+ * Flush compresses a partial block as a member of its own, bounding how long writes wait to be readable.
+ * Should the process be killed, only the block being collected and those not yet compressed are lost,
+ * the members already written remain readable.
+ * <br/>
+ * Compression happens on a background thread, the writing thread only copies into the block. Should compression
+ * fall {@value #MAX_PENDING_BLOCKS} blocks behind, writes wait for a block to become free.
+ * <br/>
+ * Close compresses the remaining partial block and waits for all blocks to be written.
+ * <br/>
+ * A buffer is either copied into the block whole or, following a failure, not at all,
+ * so there is never part of a buffer to discard.
+ */
+public class GzipLogOutput implements LogOutput
+{
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    private static final int MAX_PENDING_BLOCKS = 4;
+    private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream stream;
+    private final int blockSize;
+    private final BlockingQueue<LogBuffer> freeBlocks = new ArrayBlockingQueue<>( MAX_PENDING_BLOCKS + 1 );
+    private final ExecutorService compressor;
+    private final ByteArrayOutputStream compressed;
+
+    private LogBuffer block;
+    private volatile IOException failure;
+
+    /**
+     * Open the file for append, creating it if it does not exist.
+     *
+     * @param file to write to.
+     * @param blockSize uncompressed bytes per gzip member.
+     */
+    //2024-05-15 CK - File#createNewFile boolean return ignored, as no action required, see javadoc above.
+    @SuppressWarnings( "squid:S899" )
+    public GzipLogOutput( File file, int blockSize )
+    {
+        if( blockSize <= 0 )
+        {
+            throw new IllegalArgumentException( "Block size must be positive, was: " + blockSize );
+        }
+        this.blockSize = blockSize;
+        this.compressed = new ByteArrayOutputStream( blockSize / 2 );
+        for( int i = 0; i < MAX_PENDING_BLOCKS + 1; i++ )
+        {
+            freeBlocks.add( new LogBuffer( blockSize ) );
+        }
+        this.block = freeBlocks.poll();
+        try
+        {
+            file.createNewFile();
+            this.stream = new FileOutputStream( file, true );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to open file.", e );
+        }
+        this.compressor = Executors.newSingleThreadExecutor( r -> {
+            Thread thread = new Thread( r, "gzip-log-output" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    @Override
+    public void write( LogBuffer buffer, int offset )
+    {
+        if( failure != null )
+        {
+            throw new LogWriteException( "Failed to write to file.", offset, failure );
+        }
+        block.append( buffer, offset );
+        if( block.size() >= blockSize )
+        {
+            submit( block );
+            block = takeFreeBlock();
+        }
+    }
+
+    /**
+     * Compress the partial block, if any, as a member of its own. Smaller members compress less well,
+     * so this is intended to be called on an interval rather than after every write.
+     */
+    @Override
+    public void flush()
+    {
+        checkFailure();
+        if( !block.isEmpty() )
+        {
+            submit( block );
+            block = takeFreeBlock();
+        }
+    }
+
+    private void submit( LogBuffer full )
+    {
+        compressor.execute( () -> compress( full ) );
+    }
+
+    /**
+     * The full block has already been submitted, so the wait is not given up when interrupted,
+     * e.g. as a processor is stopped, the interrupt being left set for the caller.
+     * A block is always freed once compressed.
+     */
+    private LogBuffer takeFreeBlock()
+    {
+        boolean interrupted = false;
+        try
+        {
+            while( true )
+            {
+                try
+                {
+                    return freeBlocks.take();
+                }
+                catch( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        finally
+        {
+            if( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Only ever called on the compressor thread, so members are appended in submission order.
+     */
+    private void compress( LogBuffer full )
+    {
+        try
+        {
+            if( failure == null )
+            {
+                compressed.reset();
+                try( GZIPOutputStream gzip = new GZIPOutputStream( compressed, DEFLATE_BUFFER_SIZE ) )
+                {
+                    full.writeTo( gzip );
+                }
+                compressed.writeTo( stream );
+            }
+        }
+        catch( IOException e )
+        {
+            failure = e;
+        }
+        finally
+        {
+            full.reset();
+            freeBlocks.add( full );
+        }
+    }
+
+    private void checkFailure()
+    {
+        if( failure != null )
+        {
+            throw new EventServiceLoggerException( "Failed to write to file.", failure );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if( !block.isEmpty() )
+            {
+                submit( block );
+            }
+            compressor.shutdown();
+            if( !compressor.awaitTermination( 1, TimeUnit.MINUTES ) )
+            {
+                throw new EventServiceLoggerException( "Timed out waiting for compression." );
+            }
+            stream.close();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to close file.", e );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new EventServiceLoggerException( "Interrupted waiting for compression.", e );
+        }
+        checkFailure();
+    }
+}
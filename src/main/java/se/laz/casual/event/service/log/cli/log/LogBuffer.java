@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable, growable byte buffer holding log output, text is UTF-8 encoded.
+ * <br/>
+ * Text is encoded directly into the backing array so that, once the buffer has grown
+ * to its working size, appending does not allocate.
+ * <br/>
+ * Not thread safe, callers must confine an instance to one thread or guard it externally.
+ */
+public final class LogBuffer
+{
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes( StandardCharsets.UTF_8 );
+
+    private static final int MAX_LONG_DIGITS = 20;
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final String NULL_TEXT = "null";
+
+    private byte[] bytes;
+    private int size;
+    private ByteBuffer view;
+
+    public LogBuffer( int initialCapacity )
+    {
+        this.bytes = new byte[Math.max( 16, initialCapacity )];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Discard the contents, retaining the allocated capacity for reuse.
+     */
+    public void reset()
+    {
+        size = 0;
+    }
+
+    /**
+     * Append the text UTF-8 encoded.
+     * As with {@link StringBuilder#append(String)}, null is appended as {@code "null"}.
+     *
+     * @param text to append.
+     * @return this buffer.
+     */
+    public LogBuffer append( String text )
+    {
+        if( text == null )
+        {
+            return append( NULL_TEXT );
+        }
+        int length = text.length();
+        // Worst case every char needs 3 bytes, reserve for that once rather than checking per char.
+        ensureCapacity( length * MAX_BYTES_PER_CHAR );
+        for( int i = 0; i < length; i++ )
+        {
+            char c = text.charAt( i );
+            if( c < 0x80 )
+            {
+                bytes[size++] = (byte) c;
+            }
+            else
+            {
+                i = appendNonAscii( text, i, c );
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Append the decimal representation of the value.
+     *
+     * @param value to append.
+     * @return this buffer.
+     */
+    public LogBuffer append( long value )
+    {
+        ensureCapacity( MAX_LONG_DIGITS );
+        // Work with the negated value so that Long.MIN_VALUE needs no special case.
+        long remaining = value < 0 ? value : -value;
+        int digits = 1;
+        for( long v = remaining; v <= -10; v /= 10 )
+        {
+            digits++;
+        }
+        if( value < 0 )
+        {
+            bytes[size++] = (byte) '-';
+        }
+        int position = size + digits;
+        size = position;
+        do
+        {
+            bytes[--position] = (byte) ( '0' - ( remaining % 10 ) );
+            remaining /= 10;
+        }
+        while( remaining != 0 );
+        return this;
+    }
+
+    /**
+     * Append the character UTF-8 encoded.
+     *
+     * @param c to append.
+     * @return this buffer.
+     */
+    public LogBuffer append( char c )
+    {
+        if( c < 0x80 )
+        {
+            ensureCapacity( 1 );
+            bytes[size++] = (byte) c;
+            return this;
+        }
+        // A lone char can not form a surrogate pair, so no lookahead is needed.
+        appendNonAscii( "", 0, c );
+        return this;
+    }
+
+    /**
+     * Append the contents of another buffer.
+     *
+     * @param other buffer to copy from.
+     * @return this buffer.
+     */
+    public LogBuffer append( LogBuffer other )
+    {
+        return append( other, 0 );
+    }
+
+    /**
+     * Append the contents of another buffer from the offset.
+     *
+     * @param other buffer to copy from.
+     * @param offset of the first byte to copy.
+     * @return this buffer.
+     */
+    public LogBuffer append( LogBuffer other, int offset )
+    {
+        if( offset < 0 || offset > other.size )
+        {
+            throw new IndexOutOfBoundsException( "offset: " + offset + ", size: " + other.size );
+        }
+        int length = other.size - offset;
+        ensureCapacity( length );
+        System.arraycopy( other.bytes, offset, bytes, size, length );
+        size += length;
+        return this;
+    }
+
+    /**
+     * Append a single raw byte.
+     *
+     * @param value to append, only the low 8 bits are used.
+     * @return this buffer.
+     */
+    public LogBuffer appendByte( int value )
+    {
+        ensureCapacity( 1 );
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Append raw bytes.
+     *
+     * @param source to copy from.
+     * @param offset of the first byte to copy.
+     * @param length number of bytes to copy.
+     * @return this buffer.
+     */
+    public LogBuffer appendBytes( byte[] source, int offset, int length )
+    {
+        ensureCapacity( length );
+        System.arraycopy( source, offset, bytes, size, length );
+        size += length;
+        return this;
+    }
+
+    /**
+     * Append the platform line separator.
+     *
+     * @return this buffer.
+     */
+    public LogBuffer appendLineSeparator()
+    {
+        ensureCapacity( LINE_SEPARATOR.length );
+        System.arraycopy( LINE_SEPARATOR, 0, bytes, size, LINE_SEPARATOR.length );
+        size += LINE_SEPARATOR.length;
+        return this;
+    }
+
+    /**
+     * Write the entire contents to the stream in a single write.
+     *
+     * @param stream to write to.
+     * @throws IOException if the write fails.
+     */
+    public void writeTo( OutputStream stream ) throws IOException
+    {
+        writeTo( stream, 0 );
+    }
+
+    /**
+     * Write the contents from the offset to the stream in a single write.
+     *
+     * @param stream to write to.
+     * @param offset of the first byte to write.
+     * @throws IOException if the write fails.
+     */
+    public void writeTo( OutputStream stream, int offset ) throws IOException
+    {
+        if( offset < 0 || offset > size )
+        {
+            throw new IndexOutOfBoundsException( "offset: " + offset + ", size: " + size );
+        }
+        stream.write( bytes, offset, size - offset );
+    }
+
+    /**
+     * Write the entire contents to the channel.
+     *
+     * @param channel to write to.
+     * @throws IOException if the write fails.
+     */
+    public void writeTo( WritableByteChannel channel ) throws IOException
+    {
+        writeTo( channel, 0 );
+    }
+
+    /**
+     * Write the contents from the offset to the channel.
+     *
+     * @param channel to write to.
+     * @param offset of the first byte to write.
+     * @throws IOException if the write fails.
+     */
+    public void writeTo( WritableByteChannel channel, int offset ) throws IOException
+    {
+        if( offset < 0 || offset > size )
+        {
+            throw new IndexOutOfBoundsException( "offset: " + offset + ", size: " + size );
+        }
+        if( view == null || view.array() != bytes )
+        {
+            view = ByteBuffer.wrap( bytes );
+        }
+        view.clear().limit( size ).position( offset );
+        while( view.hasRemaining() )
+        {
+            channel.write( view );
+        }
+    }
+
+    /**
+     * Copy part of the contents into the target at its current position.
+     *
+     * @param target to copy to.
+     * @param offset of the first byte to copy.
+     * @param length number of bytes to copy.
+     */
+    public void copyTo( ByteBuffer target, int offset, int length )
+    {
+        if( offset < 0 || length < 0 || offset + length > size )
+        {
+            throw new IndexOutOfBoundsException( "offset: " + offset + ", length: " + length + ", size: " + size );
+        }
+        target.put( bytes, offset, length );
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String( bytes, 0, size, StandardCharsets.UTF_8 );
+    }
+
+    private int appendNonAscii( String text, int index, char c )
+    {
+        ensureCapacity( 4 );
+        if( c < 0x800 )
+        {
+            bytes[size++] = (byte) ( 0xC0 | ( c >> 6 ) );
+            bytes[size++] = (byte) ( 0x80 | ( c & 0x3F ) );
+            return index;
+        }
+        if( Character.isHighSurrogate( c ) && index + 1 < text.length() && Character.isLowSurrogate( text.charAt( index + 1 ) ) )
+        {
+            int codePoint = Character.toCodePoint( c, text.charAt( index + 1 ) );
+            bytes[size++] = (byte) ( 0xF0 | ( codePoint >> 18 ) );
+            bytes[size++] = (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) );
+            bytes[size++] = (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) );
+            bytes[size++] = (byte) ( 0x80 | ( codePoint & 0x3F ) );
+            return index + 1;
+        }
+        if( Character.isSurrogate( c ) )
+        {
+            // Unpaired surrogate, replaced as the JDK encoder would.
+            bytes[size++] = (byte) '?';
+            return index;
+        }
+        bytes[size++] = (byte) ( 0xE0 | ( c >> 12 ) );
+        bytes[size++] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+        bytes[size++] = (byte) ( 0x80 | ( c & 0x3F ) );
+        return index;
+    }
+
+    private void ensureCapacity( int additionalBytes )
+    {
+        int required = size + additionalBytes;
+        if( required > bytes.length )
+        {
+            bytes = Arrays.copyOf( bytes, Math.max( required, bytes.length * 2 ) );
+        }
+    }
+}
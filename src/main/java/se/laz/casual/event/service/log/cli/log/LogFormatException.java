@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+public class LogFormatException extends EventServiceLoggerException
+{
+    private static final long serialVersionUID = 1L;
+
+    public LogFormatException( String message )
+    {
+        super( message );
+    }
+}
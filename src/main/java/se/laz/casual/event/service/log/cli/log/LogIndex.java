@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Sparse index of a text log file, written alongside it as {@code <file>.idx}, so that the events started within
+ * a time range can be found without reading the whole log.
+ * <br/>
+ * The log is divided into contiguous blocks of whole lines, a block ending once it holds max events or has been open
+ * for the interval, checked as events are written. One line is written per block, columns separated by {@value #DELIMITER}:
+ * offset, length (bytes), events, min start, max start ({@code us} since epoch). Events are logged as they end, not in
+ * order of start, so every block whose range of starts overlaps the time range must be read. The start range is
+ * empty where unknown, e.g. for the part of a log written before indexing, and such blocks are always read,
+ * as is the part of the log after the last block.
+ * <br/>
+ * Not thread safe, {@link ServiceLogger} serialises access.
+ */
+public final class LogIndex
+{
+    public static final String SUFFIX = ".idx";
+    public static final String DELIMITER = "|";
+
+    private final LogOutput output;
+    private final LogBuffer buffer = new LogBuffer( 128 );
+    private final int maxEvents;
+    private final long intervalMillis;
+    private final LongSupplier currentTimeMillis;
+
+    private long blockOffset;
+    private long blockEvents = 0;
+    private long blockMinStart = Long.MAX_VALUE;
+    private long blockMaxStart = Long.MIN_VALUE;
+    private long blockOpenedMillis;
+    private boolean closed = false;
+
+    private LogIndex( Builder builder )
+    {
+        this.maxEvents = builder.maxEvents;
+        this.intervalMillis = builder.intervalMillis;
+        this.currentTimeMillis = builder.currentTimeMillis;
+        File indexFile = indexFileOf( builder.logFile );
+        long indexedEnd = indexedEnd( indexFile );
+        if( indexedEnd > builder.logSize )
+        {
+            // The log was replaced, e.g. by an external rotation that left the index behind.
+            delete( indexFile );
+            indexedEnd = 0L;
+        }
+        this.output = new StreamLogOutput( indexFile );
+        this.blockOffset = indexedEnd;
+        if( indexedEnd < builder.logSize )
+        {
+            writeEntry( builder.logSize );
+        }
+        this.blockOpenedMillis = currentTimeMillis.getAsLong();
+    }
+
+    /**
+     * @param logFile the log.
+     * @return the index of the log.
+     */
+    public static File indexFileOf( File logFile )
+    {
+        return new File( logFile.getPath() + SUFFIX );
+    }
+
+    /**
+     * Record the start of an event about to be written.
+     *
+     * @param start {@code us} since epoch.
+     */
+    public void record( long start )
+    {
+        blockMinStart = Math.min( blockMinStart, start );
+        blockMaxStart = Math.max( blockMaxStart, start );
+    }
+
+    /**
+     * Record the range of starts of events about to be written, {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE}
+     * if unknown.
+     *
+     * @param minStart {@code us} since epoch.
+     * @param maxStart {@code us} since epoch.
+     */
+    public void record( long minStart, long maxStart )
+    {
+        blockMinStart = Math.min( blockMinStart, minStart );
+        blockMaxStart = Math.max( blockMaxStart, maxStart );
+    }
+
+    /**
+     * Called once recorded events have been written, ending the block if full or open for the interval.
+     *
+     * @param logSize bytes written to the log, the end of the events.
+     * @param events number of events written.
+     */
+    public void written( long logSize, long events )
+    {
+        blockEvents += events;
+        long now = currentTimeMillis.getAsLong();
+        if( blockEvents >= maxEvents || now - blockOpenedMillis >= intervalMillis )
+        {
+            writeEntry( logSize );
+            blockOpenedMillis = now;
+        }
+    }
+
+    /**
+     * End the current block and close the index.
+     *
+     * @param logSize bytes written to the log.
+     */
+    public void close( long logSize )
+    {
+        if( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            writeEntry( logSize );
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    private void writeEntry( long logSize )
+    {
+        if( logSize > blockOffset )
+        {
+            buffer.reset();
+            buffer.append( blockOffset ).append( DELIMITER )
+                    .append( logSize - blockOffset ).append( DELIMITER );
+            if( blockEvents > 0 )
+            {
+                buffer.append( blockEvents );
+            }
+            buffer.append( DELIMITER );
+            if( blockEvents > 0 && blockMinStart != Long.MIN_VALUE && blockMaxStart != Long.MAX_VALUE )
+            {
+                buffer.append( blockMinStart ).append( DELIMITER ).append( blockMaxStart );
+            }
+            else
+            {
+                buffer.append( DELIMITER );
+            }
+            buffer.appendLineSeparator();
+            output.write( buffer );
+        }
+        blockOffset = logSize;
+        blockEvents = 0L;
+        blockMinStart = Long.MAX_VALUE;
+        blockMaxStart = Long.MIN_VALUE;
+    }
+
+    private static long indexedEnd( File indexFile )
+    {
+        List<Entry> entries = read( indexFile );
+        if( entries.isEmpty() )
+        {
+            return 0L;
+        }
+        Entry last = entries.get( entries.size() - 1 );
+        return last.getOffset() + last.getLength();
+    }
+
+    private static void delete( File indexFile )
+    {
+        try
+        {
+            Files.deleteIfExists( indexFile.toPath() );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to delete: " + indexFile, e );
+        }
+    }
+
+    /**
+     * Read the entries of an index, a line only partly written being ignored.
+     *
+     * @param indexFile to read.
+     * @return the entries in order of offset, empty if there is no index.
+     */
+    public static List<Entry> read( File indexFile )
+    {
+        Objects.requireNonNull( indexFile, "Index file is null." );
+        if( !indexFile.isFile() )
+        {
+            return Collections.emptyList();
+        }
+        List<String> lines;
+        try
+        {
+            lines = Files.readAllLines( indexFile.toPath(), StandardCharsets.UTF_8 );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to read: " + indexFile, e );
+        }
+        List<Entry> entries = new ArrayList<>( lines.size() );
+        for( String line : lines )
+        {
+            Entry entry = Entry.parse( line );
+            if( entry == null )
+            {
+                break;
+            }
+            entries.add( entry );
+        }
+        return entries;
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * A block of the log.
+     */
+    public static final class Entry
+    {
+        private final long offset;
+        private final long length;
+        private final long minStart;
+        private final long maxStart;
+
+        Entry( long offset, long length, long minStart, long maxStart )
+        {
+            this.offset = offset;
+            this.length = length;
+            this.minStart = minStart;
+            this.maxStart = maxStart;
+        }
+
+        private static Entry parse( String line )
+        {
+            String[] columns = line.split( "\\|", -1 );
+            if( columns.length != 5 )
+            {
+                return null;
+            }
+            try
+            {
+                long offset = Long.parseLong( columns[0] );
+                long length = Long.parseLong( columns[1] );
+                boolean known = !columns[3].isEmpty() && !columns[4].isEmpty();
+                return new Entry( offset, length,
+                        known ? Long.parseLong( columns[3] ) : Long.MIN_VALUE,
+                        known ? Long.parseLong( columns[4] ) : Long.MAX_VALUE );
+            }
+            catch( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+
+        public long getOffset()
+        {
+            return offset;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+
+        /**
+         * @param from {@code us} since epoch, inclusive.
+         * @param to {@code us} since epoch, inclusive.
+         * @return true if the block may hold events started within the range.
+         */
+        public boolean overlaps( long from, long to )
+        {
+            return minStart <= to && maxStart >= from;
+        }
+    }
+
+    public static final class Builder
+    {
+        private File logFile;
+        private long logSize;
+        private int maxEvents = 1000;
+        private long intervalMillis = 1000L;
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+
+        private Builder()
+        {
+        }
+
+        public Builder logFile( File logFile )
+        {
+            this.logFile = logFile;
+            return this;
+        }
+
+        /**
+         * @param logSize bytes already in the log, any not yet indexed are indexed as a block without a start range.
+         */
+        public Builder logSize( long logSize )
+        {
+            this.logSize = logSize;
+            return this;
+        }
+
+        public Builder maxEvents( int maxEvents )
+        {
+            this.maxEvents = maxEvents;
+            return this;
+        }
+
+        public Builder intervalMillis( long intervalMillis )
+        {
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        public LogIndex build()
+        {
+            Objects.requireNonNull( logFile, "Log file is null." );
+            Objects.requireNonNull( currentTimeMillis, "Clock is null." );
+            if( maxEvents < 1 )
+            {
+                throw new IllegalArgumentException( "Max events must be at least 1, was: " + maxEvents );
+            }
+            if( intervalMillis <= 0 )
+            {
+                throw new IllegalArgumentException( "Interval must be positive, was: " + intervalMillis );
+            }
+            return new LogIndex( this );
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+/**
+ * Destination for formatted log output, appending to a file.
+ * <br/>
+ * Implementations are not required to be thread safe, {@link ServiceLogger} serialises access.
+ */
+public interface LogOutput
+{
+    /**
+     * Append the entire contents of the buffer.
+     *
+     * @param buffer to write.
+     * @throws LogWriteException if the write fails.
+     */
+    default void write( LogBuffer buffer )
+    {
+        write( buffer, 0 );
+    }
+
+    /**
+     * Append the contents of the buffer from the offset, e.g. to resume a write that failed part way through.
+     *
+     * @param buffer to write.
+     * @param offset of the first byte to write.
+     * @throws LogWriteException if the write fails, giving the offset reached.
+     */
+    void write( LogBuffer buffer, int offset );
+
+    /**
+     * Remove the last bytes written, so that a buffer only written in part can be given up
+     * without leaving part of a record in the file.
+     * Only required of outputs that may write part of a buffer.
+     *
+     * @param length number of bytes to remove.
+     */
+    default void discard( int length )
+    {
+        if( length > 0 )
+        {
+            throw new UnsupportedOperationException( "Discard is not supported by " + getClass().getSimpleName() + "." );
+        }
+    }
+
+    /**
+     * Write out anything held back, for outputs that do not write each buffer as it is given, e.g. compressed in blocks.
+     */
+    default void flush()
+    {
+    }
+
+    /**
+     * Release the file, after which no further writes are permitted.
+     */
+    void close();
+}
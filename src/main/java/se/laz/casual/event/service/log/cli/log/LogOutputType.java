@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import java.io.File;
+
+/**
+ * Available {@link LogOutput} implementations.
+ */
+public enum LogOutputType
+{
+    /**
+     * Write through a {@link java.io.FileOutputStream}.
+     */
+    STREAM
+    {
+        @Override
+        public LogOutput open( File file )
+        {
+            return new StreamLogOutput( file );
+        }
+    },
+    /**
+     * Write through a {@link java.nio.channels.FileChannel} opened for append.
+     */
+    CHANNEL
+    {
+        @Override
+        public LogOutput open( File file )
+        {
+            return new ChannelLogOutput( file );
+        }
+    },
+    /**
+     * Copy into a memory mapped region of the file, grown in chunks and truncated on close.
+     */
+    MAPPED
+    {
+        @Override
+        public LogOutput open( File file )
+        {
+            return new MappedLogOutput( file, MappedLogOutput.DEFAULT_CHUNK_SIZE );
+        }
+
+        @Override
+        public boolean isZeroPadded()
+        {
+            return true;
+        }
+    },
+    /**
+     * Gzip compressed in independent blocks on a background thread.
+     */
+    GZIP
+    {
+        @Override
+        public LogOutput open( File file )
+        {
+            return new GzipLogOutput( file, GzipLogOutput.DEFAULT_BLOCK_SIZE );
+        }
+
+        @Override
+        public boolean isCompressed()
+        {
+            return true;
+        }
+    };
+
+    /**
+     * Open the file for appending, creating it if it does not exist.
+     *
+     * @param file to write to.
+     * @return output writing to the file.
+     */
+    public abstract LogOutput open( File file );
+
+    /**
+     * @return true if the file content is compressed, rather than the plain log format.
+     */
+    public boolean isCompressed()
+    {
+        return false;
+    }
+
+    /**
+     * @return true if, whilst open, the file is padded with zeros which are removed based on the content.
+     * Only suitable for text, where zero bytes do not occur.
+     */
+    public boolean isZeroPadded()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Rotates the log file by size and/or wall clock interval, optionally retaining only the newest rotated files.
+ * <br/>
+ * The next output is opened ahead of time on a background thread, as {@code <file>.next}.
+ * Rotating then only renames the current file to {@code <file>.<yyyyMMdd-HHmmss-SSS>}, along with its index
+ * if any, see {@link LogIndex}, renames the next file into place and swaps the output. Closing the previous output, which for some outputs writes remaining data,
+ * and removing old files is left to the background thread.
+ * <br/>
+ * Relies on an open file following a rename, as it does on linux.
+ * <br/>
+ * Thread safe, though {@link ServiceLogger} serialises rotation with writes.
+ */
+public final class LogRotator
+{
+    private static final String NEXT_SUFFIX = ".next";
+    private static final DateTimeFormatter ARCHIVE_SUFFIX = DateTimeFormatter.ofPattern( "yyyyMMdd-HHmmss-SSS" );
+
+    private final File file;
+    private final File nextFile;
+    private final LogOutputType outputType;
+    private final long maxSize;
+    private final long intervalMillis;
+    private final int retain;
+    private final LongSupplier currentTimeMillis;
+    private final ZoneId zone;
+    private final Pattern archivePattern;
+    private final ExecutorService background = Executors.newSingleThreadExecutor( r -> {
+        Thread thread = new Thread( r, "log-rotator" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private Future<LogOutput> next;
+    private boolean closed;
+
+    private LogRotator( Builder builder )
+    {
+        this.file = builder.file;
+        this.nextFile = new File( file.getPath() + NEXT_SUFFIX );
+        this.outputType = builder.outputType;
+        this.maxSize = builder.maxSize;
+        this.intervalMillis = builder.intervalMillis;
+        this.retain = builder.retain;
+        this.currentTimeMillis = builder.currentTimeMillis;
+        this.zone = builder.zone;
+        this.archivePattern = Pattern.compile( Pattern.quote( file.getName() ) + "\\.\\d{8}-\\d{6}-\\d{3}(-\\d+)?" );
+        this.next = background.submit( this::prepare );
+    }
+
+    /**
+     * @param size written to the current file.
+     * @return true if the file should be rotated due to its size.
+     */
+    public boolean isSizeExceeded( long size )
+    {
+        return maxSize > 0 && size >= maxSize;
+    }
+
+    /**
+     * Time until the next interval boundary, intervals are aligned to the wall clock
+     * so that with an interval of an hour, files are rotated on the hour.
+     *
+     * @return millis until the next rotation is due, or -1 if not rotating by interval.
+     */
+    public long millisUntilInterval()
+    {
+        if( intervalMillis <= 0 )
+        {
+            return -1;
+        }
+        long now = currentTimeMillis.getAsLong();
+        long offset = zone.getRules().getOffset( Instant.ofEpochMilli( now ) ).getTotalSeconds() * 1000L;
+        return intervalMillis - Math.floorMod( now + offset, intervalMillis );
+    }
+
+    /**
+     * Wait until the next output has been opened, without taking it.
+     * Called prior to acquiring any lock required by {@link #rotate(LogOutput)}, so that the wait does not hold up writers.
+     */
+    public void awaitPrepared()
+    {
+        Future<LogOutput> prepared;
+        synchronized( this )
+        {
+            prepared = next;
+        }
+        try
+        {
+            prepared.get();
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch( ExecutionException e )
+        {
+            // Reported when rotating.
+        }
+    }
+
+    /**
+     * Swap the current output for the prepared next output, the caller must no longer use the current output.
+     * <br/>
+     * Does not block, should the next output not be ready, or the rename fail, the current output is kept.
+     *
+     * @param current output, which is closed in the background once rotated.
+     * @return the output to use from now on, or null if not rotated.
+     */
+    public synchronized LogOutput rotate( LogOutput current )
+    {
+        Objects.requireNonNull( current, "Current output is null." );
+        if( closed || !next.isDone() )
+        {
+            return null;
+        }
+        LogOutput prepared = takePrepared();
+        if( prepared == null )
+        {
+            return null;
+        }
+        try
+        {
+            Path path = file.toPath();
+            if( Files.exists( path ) )
+            {
+                File archive = archiveFile();
+                Files.move( path, archive.toPath() );
+                moveIndex( archive );
+            }
+            Files.move( nextFile.toPath(), path );
+        }
+        catch( IOException e )
+        {
+            failures.increment();
+            background.submit( () -> close( prepared ) );
+            next = background.submit( this::prepare );
+            return null;
+        }
+        rotations.increment();
+        background.submit( () -> {
+            close( current );
+            removeOldFiles();
+        } );
+        next = background.submit( this::prepare );
+        return prepared;
+    }
+
+    public long getRotations()
+    {
+        return rotations.sum();
+    }
+
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public long getIntervalMillis()
+    {
+        return intervalMillis;
+    }
+
+    public int getRetain()
+    {
+        return retain;
+    }
+
+    /**
+     * Close the prepared next output, removing its file, and wait for pending background work.
+     */
+    public void close()
+    {
+        synchronized( this )
+        {
+            if( closed )
+            {
+                return;
+            }
+            closed = true;
+            background.submit( () -> {
+                close( takePrepared() );
+                deleteNextFile();
+            } );
+        }
+        background.shutdown();
+        try
+        {
+            background.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private LogOutput takePrepared()
+    {
+        try
+        {
+            return next.get();
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch( ExecutionException e )
+        {
+            failures.increment();
+            if( !closed )
+            {
+                next = background.submit( this::prepare );
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A next file left by a previous run is stale, it is replaced.
+     */
+    private LogOutput prepare()
+    {
+        deleteNextFile();
+        return outputType.open( nextFile );
+    }
+
+    private void deleteNextFile()
+    {
+        try
+        {
+            Files.deleteIfExists( nextFile.toPath() );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to delete: " + nextFile, e );
+        }
+    }
+
+    private File archiveFile()
+    {
+        String name = file.getPath() + "." + ARCHIVE_SUFFIX.format( Instant.ofEpochMilli( currentTimeMillis.getAsLong() ).atZone( zone ) );
+        File archive = new File( name );
+        for( int i = 1; archive.exists(); i++ )
+        {
+            archive = new File( name + "-" + i );
+        }
+        return archive;
+    }
+
+    /**
+     * A failure leaves the index with the next file, where it is found to be stale and replaced.
+     */
+    private void moveIndex( File archive )
+    {
+        Path index = LogIndex.indexFileOf( file ).toPath();
+        try
+        {
+            if( Files.exists( index ) )
+            {
+                Files.move( index, LogIndex.indexFileOf( archive ).toPath() );
+            }
+        }
+        catch( IOException e )
+        {
+            failures.increment();
+        }
+    }
+
+    private void removeOldFiles()
+    {
+        if( retain <= 0 )
+        {
+            return;
+        }
+        File directory = file.getAbsoluteFile().getParentFile();
+        File[] archives = directory.listFiles( ( dir, name ) -> archivePattern.matcher( name ).matches() );
+        if( archives == null || archives.length <= retain )
+        {
+            return;
+        }
+        // Oldest first, the timestamp sorts by name.
+        Arrays.sort( archives );
+        for( int i = 0; i < archives.length - retain; i++ )
+        {
+            try
+            {
+                Files.deleteIfExists( archives[i].toPath() );
+                Files.deleteIfExists( LogIndex.indexFileOf( archives[i] ).toPath() );
+            }
+            catch( IOException e )
+            {
+                failures.increment();
+            }
+        }
+    }
+
+    private static void close( LogOutput output )
+    {
+        if( output == null )
+        {
+            return;
+        }
+        try
+        {
+            output.close();
+        }
+        catch( EventServiceLoggerException e )
+        {
+            // Nothing more can be done for a file no longer written to.
+        }
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+        private File file;
+        private LogOutputType outputType = LogOutputType.STREAM;
+        private long maxSize;
+        private long intervalMillis;
+        private int retain;
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+        private ZoneId zone = ZoneId.systemDefault();
+
+        private Builder()
+        {
+        }
+
+        public Builder file( File file )
+        {
+            this.file = file;
+            return this;
+        }
+
+        public Builder outputType( LogOutputType outputType )
+        {
+            this.outputType = outputType;
+            return this;
+        }
+
+        /**
+         * @param maxSize in bytes, 0 to not rotate by size.
+         * @return this builder.
+         */
+        public Builder maxSize( long maxSize )
+        {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param intervalMillis between rotations, 0 to not rotate by interval.
+         * @return this builder.
+         */
+        public Builder intervalMillis( long intervalMillis )
+        {
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        /**
+         * @param retain number of rotated files to keep, 0 to keep all.
+         * @return this builder.
+         */
+        public Builder retain( int retain )
+        {
+            this.retain = retain;
+            return this;
+        }
+
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        public Builder zone( ZoneId zone )
+        {
+            this.zone = zone;
+            return this;
+        }
+
+        public LogRotator build()
+        {
+            Objects.requireNonNull( file, "File is null." );
+            Objects.requireNonNull( outputType, "Output type is null." );
+            Objects.requireNonNull( currentTimeMillis, "Clock is null." );
+            Objects.requireNonNull( zone, "Zone is null." );
+            if( maxSize < 0 || intervalMillis < 0 || retain < 0 )
+            {
+                throw new IllegalArgumentException( "Max size, interval and retain must not be negative." );
+            }
+            return new LogRotator( this );
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+/**
+ * A write to a {@link LogOutput} failed, possibly after part of the buffer had been written.
+ */
+public class LogWriteException extends EventServiceLoggerException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int offset;
+
+    public LogWriteException( String message, int offset, Throwable cause )
+    {
+        super( message, cause );
+        this.offset = offset;
+    }
+
+    /**
+     * @return offset in the buffer of the first byte not written, from which the write may be resumed.
+     */
+    public int getOffset()
+    {
+        return offset;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends to the file by copying into a memory mapped region past the current end of the file.
+ * <br/>
+ * The region is mapped a chunk at a time, which extends the file by the chunk size.
+ * On close the file is truncated back to the end of the written data.
+ * <br/>
+ * NB - whilst open, the file contains zero filled padding after the written data.
+ * Should the process die without closing the file, the padding is removed when the file is next opened.
+ * <br/>
+ * A channel is closed when the thread mapping a chunk is interrupted, e.g. as a processor is stopped.
+ * The channel is then reopened and the chunk mapped again, the interrupt being left set for the caller.
+ */
+public class MappedLogOutput implements LogOutput
+{
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+    private final File file;
+    private final int chunkSize;
+    private FileChannel channel;
+    private MappedByteBuffer region;
+    private long position;
+
+    public MappedLogOutput( File file, int chunkSize )
+    {
+        if( chunkSize <= 0 )
+        {
+            throw new IllegalArgumentException( "Chunk size must be positive: " + chunkSize );
+        }
+        this.file = file;
+        this.chunkSize = chunkSize;
+        try
+        {
+            this.channel = FileChannel.open( file.toPath(), CREATE, READ, WRITE );
+            this.position = findEndOfData();
+            this.channel.truncate( position );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to open file.", e );
+        }
+    }
+
+    @Override
+    public void write( LogBuffer buffer, int offset )
+    {
+        int written = offset;
+        try
+        {
+            int remaining = buffer.size() - offset;
+            while( remaining > 0 )
+            {
+                if( region == null || !region.hasRemaining() )
+                {
+                    region = map();
+                }
+                int length = Math.min( remaining, region.remaining() );
+                buffer.copyTo( region, written, length );
+                written += length;
+                remaining -= length;
+                position += length;
+            }
+        }
+        catch( IOException e )
+        {
+            throw new LogWriteException( "Failed to write to file.", written, e );
+        }
+    }
+
+    /**
+     * The bytes are zeroed rather than truncated, as the file is mapped beyond them,
+     * and the region mapped again from the new end of the data.
+     */
+    @Override
+    public void discard( int length )
+    {
+        try
+        {
+            ByteBuffer zeros = ByteBuffer.allocate( length );
+            while( zeros.hasRemaining() )
+            {
+                channel.write( zeros, position - length + zeros.position() );
+            }
+            position -= length;
+            region = null;
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to truncate file.", e );
+        }
+    }
+
+    private MappedByteBuffer map() throws IOException
+    {
+        try
+        {
+            return channel.map( FileChannel.MapMode.READ_WRITE, position, chunkSize );
+        }
+        catch( ClosedByInterruptException e )
+        {
+            // Regions already mapped remain valid once the channel is closed.
+            Thread.interrupted();
+            try
+            {
+                channel = FileChannel.open( file.toPath(), READ, WRITE );
+                return channel.map( FileChannel.MapMode.READ_WRITE, position, chunkSize );
+            }
+            finally
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if( region != null )
+            {
+                region.force();
+                region = null;
+            }
+            channel.truncate( position );
+            channel.close();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to close file.", e );
+        }
+    }
+
+    /**
+     * Padding can only be left by a single unclosed chunk, so at most the final chunk is scanned.
+     */
+    private long findEndOfData() throws IOException
+    {
+        long end = channel.size();
+        long limit = Math.max( 0, end - chunkSize );
+        ByteBuffer block = ByteBuffer.allocate( SCAN_BLOCK_SIZE );
+        while( end > limit )
+        {
+            int length = (int) Math.min( SCAN_BLOCK_SIZE, end - limit );
+            long start = end - length;
+            block.clear().limit( length );
+            while( block.hasRemaining() && channel.read( block, start + block.position() ) >= 0 )
+            {
+                // read until the block is full.
+            }
+            for( int i = length - 1; i >= 0; i-- )
+            {
+                if( block.get( i ) != 0 )
+                {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return end;
+    }
+}
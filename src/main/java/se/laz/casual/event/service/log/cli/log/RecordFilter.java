@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.filter.FilterExpression;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * The filters of {@link EventHandler} applied to records read back from a log, e.g. to replay it,
+ * so that a record passes if the event it was logged from would have.
+ * <br/>
+ * Service name filter decisions are cached per service name, see {@link FilterDecisionCache}.
+ * <br/>
+ * Thread safe.
+ */
+public final class RecordFilter implements Predicate<EventRecord>
+{
+    private final Pattern filterInclusive;
+    private final Pattern filterExclusive;
+    private final FilterDecisionCache filterCache;
+    private final FilterExpression filter;
+
+    private RecordFilter( Builder builder )
+    {
+        this.filterInclusive = builder.filterInclusive;
+        this.filterExclusive = builder.filterExclusive;
+        this.filterCache = new FilterDecisionCache( service -> EventHandler.matchesServiceFilters( service, filterInclusive, filterExclusive ),
+                builder.filterCacheSize );
+        this.filter = builder.filter;
+    }
+
+    @Override
+    public boolean test( EventRecord record )
+    {
+        Objects.requireNonNull( record, "Record is null." );
+        if( ( filterInclusive != null || filterExclusive != null ) && !filterCache.test( Objects.toString( record.getService(), "" ) ) )
+        {
+            return false;
+        }
+        return filter == null || filter.test( record );
+    }
+
+    public Pattern getFilterInclusive()
+    {
+        return filterInclusive;
+    }
+
+    public Pattern getFilterExclusive()
+    {
+        return filterExclusive;
+    }
+
+    public FilterExpression getFilter()
+    {
+        return filter;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RecordFilter{" +
+                "filterInclusive=" + filterInclusive +
+                ", filterExclusive=" + filterExclusive +
+                ", filter=" + filter +
+                ", filterCache=" + filterCache +
+                '}';
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+        private Pattern filterInclusive;
+        private Pattern filterExclusive;
+        private int filterCacheSize = FilterDecisionCache.DEFAULT_MAX_SIZE;
+        private FilterExpression filter;
+
+        private Builder()
+        {
+        }
+
+        public Builder filterInclusive( Pattern filterInclusive )
+        {
+            this.filterInclusive = filterInclusive;
+            return this;
+        }
+
+        public Builder filterExclusive( Pattern filterExclusive )
+        {
+            this.filterExclusive = filterExclusive;
+            return this;
+        }
+
+        public Builder filter( FilterExpression filter )
+        {
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder filterCacheSize( int filterCacheSize )
+        {
+            this.filterCacheSize = filterCacheSize;
+            return this;
+        }
+
+        public RecordFilter build()
+        {
+            return new RecordFilter( this );
+        }
+    }
+}
@@ -8,21 +8,25 @@ package se.laz.casual.event.service.log.cli.log;
 
 import se.laz.casual.event.ServiceCallEvent;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 /**
  * Formatter for events.
+ * <br/>
+ * Columns are appended directly to a {@link LogBuffer}, so formatting into a reused buffer
+ * does not allocate per event.
+ * <br/>
+ * As an {@link EventEncoder}, each event is a line of delimited text.
  */
-public class ServiceCallEventFormatter
+public class ServiceCallEventFormatter implements EventEncoder
 {
+    private static final int ESTIMATED_EVENT_SIZE = 256;
+
     private final String delimiter;
-    private final List<String> columnValues = new ArrayList<>();
 
-    private ServiceCallEventFormatter( String delimiter )
+    public ServiceCallEventFormatter( String delimiter )
     {
-        this.delimiter = delimiter;
+        this.delimiter = Objects.requireNonNull( delimiter, "Delimiter is null" );
     }
 
     /**
@@ -36,36 +40,82 @@ public class ServiceCallEventFormatter
     {
         Objects.requireNonNull( event, "Event is null." );
         Objects.requireNonNull( delimiter, "Delimiter is null" );
-        return new ServiceCallEventFormatter( delimiter ).formatEvent( event );
+        LogBuffer buffer = new LogBuffer( ESTIMATED_EVENT_SIZE );
+        new ServiceCallEventFormatter( delimiter ).appendTo( event, buffer );
+        return buffer.toString();
     }
 
-    private String formatEvent( ServiceCallEvent event )
+    /**
+     * Append the formatted event to the buffer, without a trailing line separator.
+     *
+     * @param event to format.
+     * @param buffer to append to.
+     */
+    public void appendTo( ServiceCallEvent event, LogBuffer buffer )
     {
-        appendColumn( event.getService() );
-        appendColumn( event.getParent() );
-        appendColumn( event.getPid() );
-        appendColumn( event.getExecution() );
-        appendColumn( event.getTransactionId() );
-        appendColumn( event.getStart() );
-        appendColumn( event.getEnd() );
-        appendColumn( event.getPending() );
-        appendColumn( event.getCode() );
-        appendColumn( event.getOrder() );
-
-        return String.join( delimiter, columnValues );
+        Objects.requireNonNull( event, "Event is null." );
+        Objects.requireNonNull( buffer, "Buffer is null." );
+        buffer.append( event.getService() ).append( delimiter )
+                .append( event.getParent() ).append( delimiter )
+                .append( event.getPid() ).append( delimiter )
+                .append( event.getExecution() ).append( delimiter )
+                .append( event.getTransactionId() ).append( delimiter )
+                .append( event.getStart() ).append( delimiter )
+                .append( event.getEnd() ).append( delimiter )
+                .append( event.getPending() ).append( delimiter )
+                .append( event.getCode() ).append( delimiter )
+                .append( event.getOrder() );
     }
-    private void appendColumn( long data )
+
+    /**
+     * Append the formatted record to the buffer, without a trailing line separator.
+     * Records are formatted exactly as the event they were decoded from, including the source if recorded.
+     *
+     * @param record to format.
+     * @param buffer to append to.
+     */
+    public void appendTo( EventRecord record, LogBuffer buffer )
     {
-        appendColumn( String.valueOf( data ) );
+        Objects.requireNonNull( record, "Record is null." );
+        Objects.requireNonNull( buffer, "Buffer is null." );
+        buffer.append( record.getService() ).append( delimiter )
+                .append( record.getParent() ).append( delimiter )
+                .append( record.getPid() ).append( delimiter )
+                .append( record.getExecution() ).append( delimiter )
+                .append( record.getTransactionId() ).append( delimiter )
+                .append( record.getStart() ).append( delimiter )
+                .append( record.getEnd() ).append( delimiter )
+                .append( record.getPending() ).append( delimiter )
+                .append( record.getCode() ).append( delimiter )
+                .append( record.getOrder() );
+        if( record.getSource() != null )
+        {
+            buffer.append( delimiter ).append( record.getSource() );
+        }
     }
 
-    private void appendColumn( char data )
+    /**
+     * The source, if any, is appended as the last column so that the positions of the other columns are unchanged.
+     */
+    @Override
+    public void encode( ServiceCallEvent event, String source, LogBuffer buffer )
     {
-        appendColumn( String.valueOf( data ) );
+        appendTo( event, buffer );
+        if( source != null )
+        {
+            buffer.append( delimiter ).append( source );
+        }
+        buffer.appendLineSeparator();
     }
-    private void appendColumn( String data )
+
+    @Override
+    public boolean isStateless()
     {
-        columnValues.add( data );
+        return true;
     }
 
+    public String getDelimiter()
+    {
+        return delimiter;
+    }
 }
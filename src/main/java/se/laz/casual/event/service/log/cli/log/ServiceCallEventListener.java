@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+/**
+ * Notified by the {@link EventHandler} of every event which passed the filters, prior to sampling.
+ * <br/>
+ * Implementations must be thread safe and must not block, as they are called on the event processing threads.
+ */
+@FunctionalInterface
+public interface ServiceCallEventListener
+{
+    void onEvent( ServiceCallEvent event );
+}
@@ -8,55 +8,155 @@ package se.laz.casual.event.service.log.cli.log;
 
 import se.laz.casual.event.ServiceCallEvent;
 import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
-import se.laz.casual.event.service.log.cli.internal.StreamEncoder;
+import se.laz.casual.event.service.log.cli.internal.ScheduledTask;
+import se.laz.casual.event.service.log.cli.metrics.PipelineMetrics;
 import se.laz.casual.event.service.log.cli.runner.EventServiceLogParams;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.io.PrintWriter;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Writes an event to the log file.
+ * <br/>
+ * Encoded events are collected in a reusable buffer and committed to the file
+ * in a single write once the configured batch size is reached.
+ * When batching, a flush interval bounds how long an event may wait in the buffer. The output is also flushed
+ * on the interval, so that a compressed output does not hold back a partial block until it fills.
+ * Should a write fail the events are kept, to be written along with the next, until
+ * the max retained size, by default {@value #DEFAULT_MAX_RETAINED_SIZE} bytes, is waiting, beyond which they are dropped and counted.
+ * A write that failed part way is resumed from where it stopped, so no bytes are written twice.
+ * Dropped events are removed from the file should they have been written in part, and the encoder started again,
+ * as its state, e.g. the dictionary of the binary format, may refer to records dropped.
+ * <br/>
+ * Optionally the file is rotated by size and/or interval, see {@link LogRotator}, and indexed by start time,
+ * see {@link LogIndex}.
  */
 public class ServiceLogger
 {
+    private static final int ESTIMATED_EVENT_SIZE = 256;
+    private static final int MAX_INITIAL_BUFFER_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_RETAINED_SIZE = 64 * 1024 * 1024;
+
     private final EventServiceLogParams eventServiceLogParams;
-    private final String delimiter;
-    private PrintWriter fileWriter;
+    private final EventEncoder encoder;
+    private final int batchSize;
+    private final int maxRetainedSize;
+    private final LogBuffer batch;
+    private int batchCount = 0;
+    private int batchWritten = 0;
+    private final LogOutputType outputType;
+    private LogOutput fileWriter;
+    private long fileSize;
+    private long fileEvents;
+    private LogIndex index;
+    private long writeFailures;
+    private long dropped;
 
     private final Object fileWriterLock = new Object();
+    private final ScheduledTask flushTask;
+    private final ScheduledExecutorService flushExecutor;
+    private final LogRotator rotator;
+    private final ScheduledTask rotateTask;
+    private final ScheduledExecutorService rotateExecutor;
+    private final PipelineMetrics metrics;
 
     private ServiceLogger( Builder builder )
     {
         this.eventServiceLogParams = builder.eventServiceLogParams;
-        this.delimiter = eventServiceLogParams.getLogColumnDelimiter();
-        this.fileWriter = initialiseFileWriter( eventServiceLogParams.getLogFile() );
+        this.metrics = builder.metrics;
+        this.maxRetainedSize = builder.maxRetainedSize;
+        this.outputType = eventServiceLogParams.getLogOutputType();
+        EventFormat eventFormat = eventServiceLogParams.getEventFormat();
+        if( !eventFormat.isText() && outputType.isZeroPadded() )
+        {
+            throw new IllegalArgumentException( "Event format " + eventFormat + " is not supported by output " + outputType + "." );
+        }
+        if( eventServiceLogParams.isIndex() && ( !eventFormat.isText() || outputType.isCompressed() || outputType.isZeroPadded() ) )
+        {
+            throw new IllegalArgumentException( "Index is only supported with format TEXT and output STREAM or CHANNEL, was: " + eventFormat + " and " + outputType + "." );
+        }
+        this.encoder = eventFormat.createEncoder( eventServiceLogParams.getLogColumnDelimiter() );
+        this.batchSize = Math.max( 1, eventServiceLogParams.getBatchSize() );
+        this.batch = new LogBuffer( (int) Math.min( (long) batchSize * ESTIMATED_EVENT_SIZE, MAX_INITIAL_BUFFER_SIZE ) );
+        this.fileWriter = outputType.open( eventServiceLogParams.getLogFile() );
+        this.fileSize = eventServiceLogParams.getLogFile().length();
+        this.index = openIndex();
+        this.encoder.start( batch );
+        long flushIntervalMillis = eventServiceLogParams.getFlushIntervalMillis();
+        this.flushTask = ( batchSize > 1 || outputType.isCompressed() ) && flushIntervalMillis > 0 ? new ScheduledTask( "Timed flush", this::timedFlush ) : null;
+        this.flushExecutor = initialiseFlushExecutor( flushIntervalMillis );
+        this.rotator = initialiseRotator();
+        this.rotateTask = rotator != null && rotator.getIntervalMillis() > 0 ? new ScheduledTask( "Timed rotation", this::rotate ) : null;
+        this.rotateExecutor = initialiseRotateExecutor();
+    }
+
+    private LogIndex openIndex()
+    {
+        if( !eventServiceLogParams.isIndex() )
+        {
+            return null;
+        }
+        return LogIndex.newBuilder()
+                .logFile( eventServiceLogParams.getLogFile() )
+                .logSize( fileSize )
+                .maxEvents( eventServiceLogParams.getIndexEvents() )
+                .intervalMillis( eventServiceLogParams.getIndexIntervalMillis() )
+                .build();
+    }
+
+    private LogRotator initialiseRotator()
+    {
+        if( eventServiceLogParams.getRotateSize() <= 0 && eventServiceLogParams.getRotateIntervalMillis() <= 0 )
+        {
+            return null;
+        }
+        return LogRotator.newBuilder()
+                .file( eventServiceLogParams.getLogFile() )
+                .outputType( outputType )
+                .maxSize( eventServiceLogParams.getRotateSize() )
+                .intervalMillis( eventServiceLogParams.getRotateIntervalMillis() )
+                .retain( eventServiceLogParams.getRotateRetain() )
+                .build();
     }
 
     /**
-     * Initialise the print writer using the file provided.
-     * If the file already exists it will append.
-     * If the file does not exist it will be created.
-     *
-     * @param file for PrintWriter to write to.
-     * @return PrintWriter wrapping the file provided.
+     * Only required when rotating by interval, rotation by size is checked as the file is written.
      */
-    //2024-05-15 CK - File#createNewFile boolean return ignored, as no action required, see javadoc above.
-    @SuppressWarnings( "squid:S899" )
-    private PrintWriter initialiseFileWriter( File file )
+    private ScheduledExecutorService initialiseRotateExecutor()
     {
-        try
+        if( rotateTask == null )
         {
-            file.createNewFile();
-            return StreamEncoder.toPrintWriter( new PrintStream( new FileOutputStream( file, true ) ) );
+            return null;
         }
-        catch( IOException e )
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "service-logger-rotate" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        executor.schedule( this::scheduledRotate, rotator.millisUntilInterval(), TimeUnit.MILLISECONDS );
+        return executor;
+    }
+
+    /**
+     * Only required when batching or compressing, otherwise every event is written immediately.
+     */
+    private ScheduledExecutorService initialiseFlushExecutor( long flushIntervalMillis )
+    {
+        if( flushTask == null )
         {
-            throw new EventServiceLoggerException( "Failed to open file.", e );
+            return null;
         }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "service-logger-flush" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        executor.scheduleWithFixedDelay( flushTask, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS );
+        return executor;
     }
 
     public EventServiceLogParams getEventServiceLogParams()
@@ -73,32 +173,365 @@ public class ServiceLogger
     }
 
     /**
-     * Format the event and write to the log file.
+     * Encode the event and write to the log file.
+     * When batching, the write is deferred until the batch is full or flushed.
      * @param event to log.
      */
     public void logEvent( ServiceCallEvent event )
+    {
+        logEvent( event, null );
+    }
+
+    /**
+     * Encode the event, tagged with its source, and write to the log file.
+     * When batching, the write is deferred until the batch is full or flushed.
+     * @param event to log.
+     * @param source the event was received from, or null to not record the source.
+     */
+    public void logEvent( ServiceCallEvent event, String source )
     {
         Objects.requireNonNull( event, "Event is null." );
         synchronized( fileWriterLock )
         {
-            fileWriter.println( ServiceCallEventFormatter.format( event, delimiter ) );
-            this.fileWriter.flush();
+            if( metrics == null )
+            {
+                encoder.encode( event, source, batch );
+            }
+            else
+            {
+                long start = System.nanoTime();
+                encoder.encode( event, source, batch );
+                metrics.recordFormat( System.nanoTime() - start );
+            }
+            if( index != null )
+            {
+                index.record( event.getStart() );
+            }
+            if( ++batchCount >= batchSize )
+            {
+                commit();
+                rotateIfFull();
+            }
+        }
+    }
+
+    /**
+     * Write events already encoded by this logger's encoder, which must be {@link EventEncoder#isStateless()}.
+     * When batching, the write is deferred until the batch is full or flushed.
+     *
+     * @param formatted events.
+     * @param events number of events in the buffer.
+     */
+    public void logFormatted( LogBuffer formatted, int events )
+    {
+        logFormatted( formatted, events, Long.MIN_VALUE, Long.MAX_VALUE );
+    }
+
+    /**
+     * Write events already encoded by this logger's encoder, which must be {@link EventEncoder#isStateless()}.
+     * When batching, the write is deferred until the batch is full or flushed.
+     *
+     * @param formatted events.
+     * @param events number of events in the buffer.
+     * @param minStart earliest start of the events, {@link Long#MIN_VALUE} if unknown.
+     * @param maxStart latest start of the events, {@link Long#MAX_VALUE} if unknown.
+     */
+    public void logFormatted( LogBuffer formatted, int events, long minStart, long maxStart )
+    {
+        Objects.requireNonNull( formatted, "Formatted events is null." );
+        synchronized( fileWriterLock )
+        {
+            if( index != null )
+            {
+                index.record( minStart, maxStart );
+            }
+            batch.append( formatted );
+            batchCount += events;
+            if( batchCount >= batchSize )
+            {
+                commit();
+                rotateIfFull();
+            }
+        }
+    }
+
+    /**
+     * Get the encoder used for events written to the log file.
+     * Only thread safe if {@link EventEncoder#isStateless()}.
+     *
+     * @return encoder.
+     */
+    public EventEncoder getEncoder()
+    {
+        return encoder;
+    }
+
+    /**
+     * @return metrics recorded to, or null if not recording metrics.
+     */
+    public PipelineMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Write any buffered events to the log file.
+     */
+    public void flush()
+    {
+        synchronized( fileWriterLock )
+        {
+            commit();
+            rotateIfFull();
+        }
+    }
+
+    /**
+     * Write any buffered events, then flush the output. Only on the interval, as flushing a compressed output
+     * ends its block early.
+     */
+    private void timedFlush()
+    {
+        synchronized( fileWriterLock )
+        {
+            commit();
+            fileWriter.flush();
+            rotateIfFull();
+        }
+    }
+
+    /**
+     * @return the periodic flush, counting its failures, or null if neither batching nor compressing with a flush interval.
+     */
+    public ScheduledTask getFlushTask()
+    {
+        return flushTask;
+    }
+
+    /**
+     * Rotate the log file, provided rotation is enabled and events have been written since the last rotation.
+     * The wait for the next file to be opened is made before holding up writers.
+     */
+    public void rotate()
+    {
+        if( rotator == null )
+        {
+            return;
+        }
+        rotator.awaitPrepared();
+        synchronized( fileWriterLock )
+        {
+            commit();
+            if( fileEvents > 0 )
+            {
+                swap( rotator.rotate( fileWriter ) );
+            }
+        }
+    }
+
+    /**
+     * Get the rotator, if rotating.
+     *
+     * @return rotator or null.
+     */
+    public LogRotator getRotator()
+    {
+        return rotator;
+    }
+
+    /**
+     * @return the periodic rotation, counting its failures, or null if not rotating by interval.
+     */
+    public ScheduledTask getRotateTask()
+    {
+        return rotateTask;
+    }
+
+    /**
+     * Each interval has its own length, so the next rotation is scheduled once this one is done.
+     */
+    private void scheduledRotate()
+    {
+        rotateTask.run();
+        try
+        {
+            rotateExecutor.schedule( this::scheduledRotate, rotator.millisUntilInterval(), TimeUnit.MILLISECONDS );
+        }
+        catch( RejectedExecutionException e )
+        {
+            // Closed.
+        }
+    }
+
+    private void rotateIfFull()
+    {
+        if( rotator != null && rotator.isSizeExceeded( fileSize ) )
+        {
+            swap( rotator.rotate( fileWriter ) );
+        }
+    }
+
+    /**
+     * The batch is empty, so the start of the new file is the first thing written to it.
+     * The index of the previous file has been moved along with it, so ending its last block completes it.
+     */
+    private void swap( LogOutput next )
+    {
+        if( next == null )
+        {
+            return;
+        }
+        closeIndex();
+        fileWriter = next;
+        fileSize = 0L;
+        fileEvents = 0L;
+        index = openIndex();
+        encoder.start( batch );
+    }
+
+    private void closeIndex()
+    {
+        if( index != null )
+        {
+            index.close( fileSize );
         }
     }
 
     /**
      * Reload the log file. Used, for example, to allow for log rotation.
+     * Buffered events are written to the current file before it is closed.
      */
     public void reload()
     {
         synchronized( fileWriterLock )
         {
-            this.fileWriter.flush();
+            commit();
+            closeIndex();
             this.fileWriter.close();
-            this.fileWriter = initialiseFileWriter( eventServiceLogParams.getLogFile() );
+            File file = eventServiceLogParams.getLogFile();
+            this.fileWriter = outputType.open( file );
+            this.fileSize = file.length();
+            this.index = openIndex();
+            encoder.start( batch );
+        }
+    }
+
+    /**
+     * @return writes to the log file that failed.
+     */
+    public long getWriteFailures()
+    {
+        synchronized( fileWriterLock )
+        {
+            return writeFailures;
+        }
+    }
+
+    /**
+     * @return events dropped, as too many were waiting after failed writes or the final write failed.
+     */
+    public long getDropped()
+    {
+        synchronized( fileWriterLock )
+        {
+            return dropped;
         }
     }
 
+    /**
+     * Write any buffered events and close the log file.
+     * Should the final write fail its events are dropped, the file is closed regardless.
+     */
+    public void close()
+    {
+        if( flushExecutor != null )
+        {
+            flushExecutor.shutdown();
+        }
+        if( rotateExecutor != null )
+        {
+            rotateExecutor.shutdown();
+        }
+        synchronized( fileWriterLock )
+        {
+            try
+            {
+                commit();
+            }
+            catch( EventServiceLoggerException e )
+            {
+                drop();
+            }
+            finally
+            {
+                closeIndex();
+                this.fileWriter.close();
+            }
+        }
+        if( rotator != null )
+        {
+            rotator.close();
+        }
+    }
+
+    private void commit()
+    {
+        if( batch.isEmpty() )
+        {
+            return;
+        }
+        long start = metrics == null ? 0 : System.nanoTime();
+        try
+        {
+            fileWriter.write( batch, batchWritten );
+        }
+        catch( LogWriteException e )
+        {
+            batchWritten = e.getOffset();
+            failed();
+            throw e;
+        }
+        catch( EventServiceLoggerException e )
+        {
+            failed();
+            throw e;
+        }
+        if( metrics != null )
+        {
+            metrics.recordWrite( System.nanoTime() - start, batchCount, batch.size() );
+        }
+        fileSize += batch.size();
+        fileEvents += batchCount;
+        if( index != null )
+        {
+            index.written( fileSize, batchCount );
+        }
+        batch.reset();
+        batchCount = 0;
+        batchWritten = 0;
+    }
+
+    private void failed()
+    {
+        writeFailures++;
+        // Otherwise kept, to be written along with the next events.
+        if( batch.size() >= maxRetainedSize )
+        {
+            drop();
+        }
+    }
+
+    private void drop()
+    {
+        int written = batchWritten;
+        dropped += batchCount;
+        batch.reset();
+        batchCount = 0;
+        batchWritten = 0;
+        encoder.start( batch );
+        fileWriter.discard( written );
+    }
+
     public static Builder newBuilder()
     {
         return new Builder();
@@ -107,6 +540,8 @@ public class ServiceLogger
     public static final class Builder
     {
         private EventServiceLogParams eventServiceLogParams;
+        private PipelineMetrics metrics;
+        private int maxRetainedSize = DEFAULT_MAX_RETAINED_SIZE;
 
         private Builder()
         {
@@ -118,8 +553,32 @@ public class ServiceLogger
             return this;
         }
 
+        /**
+         * @param metrics to record encoding and write times to, null to not record.
+         * @return this builder.
+         */
+        public Builder metrics( PipelineMetrics metrics )
+        {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param maxRetainedSize bytes kept after failed writes, beyond which the events are dropped.
+         * @return this builder.
+         */
+        public Builder maxRetainedSize( int maxRetainedSize )
+        {
+            this.maxRetainedSize = maxRetainedSize;
+            return this;
+        }
+
         public ServiceLogger build()
         {
+            if( maxRetainedSize < 1 )
+            {
+                throw new IllegalArgumentException( "Max retained size must be at least 1, was: " + maxRetainedSize );
+            }
             return new ServiceLogger( this );
         }
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Appends to the file through an unbuffered {@link FileOutputStream}, one write per buffer.
+ * <br/>
+ * Should a write fail part way, the bytes written are found from the growth of the file,
+ * this being the only writer to it.
+ */
+public class StreamLogOutput implements LogOutput
+{
+    private final File file;
+    private final FileOutputStream stream;
+    private long size;
+
+    /**
+     * Open the file for append.
+     * If the file already exists it will append.
+     * If the file does not exist it will be created.
+     *
+     * @param file to write to.
+     */
+    //2024-05-15 CK - File#createNewFile boolean return ignored, as no action required, see javadoc above.
+    @SuppressWarnings( "squid:S899" )
+    public StreamLogOutput( File file )
+    {
+        try
+        {
+            file.createNewFile();
+            this.file = file;
+            this.stream = new FileOutputStream( file, true );
+            this.size = stream.getChannel().size();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to open file.", e );
+        }
+    }
+
+    @Override
+    public void write( LogBuffer buffer, int offset )
+    {
+        try
+        {
+            buffer.writeTo( stream, offset );
+            size += buffer.size() - offset;
+        }
+        catch( IOException e )
+        {
+            long written = Math.max( 0L, Math.min( file.length() - size, (long) buffer.size() - offset ) );
+            size += written;
+            throw new LogWriteException( "Failed to write to file.", offset + (int) written, e );
+        }
+    }
+
+    @Override
+    public void discard( int length )
+    {
+        try
+        {
+            stream.getChannel().truncate( size - length );
+            size -= length;
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to truncate file.", e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            stream.close();
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to close file.", e );
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Decodes lines of a log written in the TEXT format, see {@link ServiceCallEventFormatter}, straight from bytes.
+ * <br/>
+ * Columns: service, parent, pid, execution, trid, start, end, pending, code, order and optionally source.
+ * <br/>
+ * Not thread safe.
+ */
+public final class TextEventDecoder
+{
+    private static final int COLUMNS = 10;
+    private static final int COLUMNS_WITH_SOURCE = COLUMNS + 1;
+
+    private final byte[] delimiter;
+    private final int[] columnStarts = new int[COLUMNS_WITH_SOURCE + 1];
+    private byte[] text = new byte[256];
+
+    /**
+     * @param delimiter between columns, as logged with.
+     */
+    public TextEventDecoder( String delimiter )
+    {
+        Objects.requireNonNull( delimiter, "Delimiter is null." );
+        if( delimiter.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Delimiter is empty." );
+        }
+        this.delimiter = delimiter.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Decode a line, excluding the line separator.
+     *
+     * @param buffer holding the line.
+     * @param start index of the first byte of the line.
+     * @param end index after the last byte of the line.
+     * @param event to populate.
+     * @return true if decoded, false if the line is not an event, e.g. truncated, in which case the event is undefined.
+     */
+    public boolean decode( ByteBuffer buffer, int start, int end, EventRecord event )
+    {
+        Objects.requireNonNull( buffer, "Buffer is null." );
+        Objects.requireNonNull( event, "Event is null." );
+        int columns = split( buffer, start, end );
+        if( columns != COLUMNS && columns != COLUMNS_WITH_SOURCE )
+        {
+            return false;
+        }
+        long pid = number( buffer, 2 );
+        long eventStart = number( buffer, 5 );
+        long eventEnd = number( buffer, 6 );
+        long pending = number( buffer, 7 );
+        if( pid == Long.MIN_VALUE || pid > Integer.MAX_VALUE || eventStart == Long.MIN_VALUE
+                || eventEnd == Long.MIN_VALUE || pending == Long.MIN_VALUE || length( 9 ) != 1 )
+        {
+            return false;
+        }
+        event.setService( text( buffer, 0 ) )
+                .setParent( text( buffer, 1 ) )
+                .setPid( (int) pid )
+                .setExecution( text( buffer, 3 ) )
+                .setTransactionId( text( buffer, 4 ) )
+                .setStart( eventStart )
+                .setEnd( eventEnd )
+                .setPending( pending )
+                .setCode( text( buffer, 8 ) )
+                .setOrder( (char) buffer.get( columnStarts[9] ) )
+                .setSource( columns == COLUMNS_WITH_SOURCE ? text( buffer, 10 ) : null );
+        return true;
+    }
+
+    /**
+     * @return number of columns, beyond the max if more.
+     */
+    private int split( ByteBuffer buffer, int start, int end )
+    {
+        int columns = 0;
+        columnStarts[0] = start;
+        int i = start;
+        while( i <= end - delimiter.length )
+        {
+            if( isDelimiter( buffer, i ) )
+            {
+                if( ++columns > COLUMNS_WITH_SOURCE - 1 )
+                {
+                    return columns + 1;
+                }
+                i += delimiter.length;
+                columnStarts[columns] = i;
+            }
+            else
+            {
+                i++;
+            }
+        }
+        columns++;
+        // The end of the last column, as if followed by a delimiter.
+        columnStarts[columns] = end + delimiter.length;
+        return columns;
+    }
+
+    private boolean isDelimiter( ByteBuffer buffer, int index )
+    {
+        for( int i = 0; i < delimiter.length; i++ )
+        {
+            if( buffer.get( index + i ) != delimiter[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int length( int column )
+    {
+        return columnStarts[column + 1] - delimiter.length - columnStarts[column];
+    }
+
+    private String text( ByteBuffer buffer, int column )
+    {
+        int length = length( column );
+        if( text.length < length )
+        {
+            text = new byte[Math.max( length, text.length * 2 )];
+        }
+        buffer.get( columnStarts[column], text, 0, length );
+        return new String( text, 0, length, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * @return the value, {@link Long#MIN_VALUE} if not a number.
+     */
+    private long number( ByteBuffer buffer, int column )
+    {
+        int index = columnStarts[column];
+        int end = index + length( column );
+        boolean negative = index < end && buffer.get( index ) == '-';
+        if( negative )
+        {
+            index++;
+        }
+        if( index == end || end - index > 18 )
+        {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for( ; index < end; index++ )
+        {
+            int digit = buffer.get( index ) - '0';
+            if( digit < 0 || digit > 9 )
+            {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link PipelineMetrics} over HTTP at {@code /metrics}, for scraping by Prometheus.
+ * <br/>
+ * Uses the HTTP server included in the JDK with a single daemon thread, so scraping does not
+ * compete with event processing for more than one core.
+ */
+public final class MetricsServer
+{
+    static final String PATH = "/metrics";
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PipelineMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsServer( PipelineMetrics metrics, HttpServer server, ExecutorService executor )
+    {
+        this.metrics = metrics;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Start serving the metrics.
+     *
+     * @param address to listen on, port 0 for any free port.
+     * @param metrics to serve.
+     * @return the running server.
+     * @throws EventServiceLoggerException if unable to listen on the address.
+     */
+    public static MetricsServer start( InetSocketAddress address, PipelineMetrics metrics )
+    {
+        Objects.requireNonNull( address, "Address is null." );
+        Objects.requireNonNull( metrics, "Metrics is null." );
+        HttpServer server;
+        try
+        {
+            server = HttpServer.create( address, 0 );
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to start metrics server on: " + address, e );
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor( r -> {
+            Thread thread = new Thread( r, "metrics-server" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        MetricsServer instance = new MetricsServer( metrics, server, executor );
+        server.createContext( "/", instance::handle );
+        server.setExecutor( executor );
+        server.start();
+        return instance;
+    }
+
+    private void handle( HttpExchange exchange ) throws IOException
+    {
+        try
+        {
+            if( !PATH.equals( exchange.getRequestURI().getPath() ) )
+            {
+                exchange.sendResponseHeaders( 404, -1 );
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals( method );
+            if( !head && !"GET".equals( method ) )
+            {
+                exchange.getResponseHeaders().set( "Allow", "GET, HEAD" );
+                exchange.sendResponseHeaders( 405, -1 );
+                return;
+            }
+            StringBuilder builder = new StringBuilder( 4096 );
+            metrics.writeTo( builder );
+            byte[] body = builder.toString().getBytes( StandardCharsets.UTF_8 );
+            exchange.getResponseHeaders().set( "Content-Type", CONTENT_TYPE );
+            exchange.sendResponseHeaders( 200, head ? -1 : body.length );
+            if( !head )
+            {
+                try( OutputStream stream = exchange.getResponseBody() )
+                {
+                    stream.write( body );
+                }
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the address listened on, with the actual port if started on port 0.
+     */
+    public InetSocketAddress getAddress()
+    {
+        return server.getAddress();
+    }
+
+    /**
+     * Stop serving, without waiting for scrapes in progress.
+     */
+    public void close()
+    {
+        server.stop( 0 );
+        executor.shutdownNow();
+    }
+}
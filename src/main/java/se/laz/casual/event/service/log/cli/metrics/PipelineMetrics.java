@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.metrics;
+
+import se.laz.casual.event.service.log.cli.stats.HistogramSnapshot;
+import se.laz.casual.event.service.log.cli.stats.LatencyHistogram;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the tool itself, from receiving events through to writing them to the log file,
+ * rendered in the Prometheus text exposition format.
+ * <br/>
+ * Recording is lock-free and does not allocate. Durations are recorded in {@code ns}, the histograms
+ * being indifferent to the unit, and exposed in seconds.
+ */
+public final class PipelineMetrics
+{
+    static final String PREFIX = "casual_event_log_";
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0 };
+    private static final String[] QUANTILES = { "0.5", "0.9", "0.99" };
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final LatencyHistogram formatNanos = new LatencyHistogram();
+    private final LatencyHistogram writeNanos = new LatencyHistogram();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+    private final List<SourceMetrics> sources = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param nanos taken to encode one event.
+     */
+    public void recordFormat( long nanos )
+    {
+        formatNanos.record( nanos );
+    }
+
+    /**
+     * @param nanos taken by the write.
+     * @param events written.
+     * @param bytes written.
+     */
+    public void recordWrite( long nanos, long events, long bytes )
+    {
+        writeNanos.record( nanos );
+        written.add( events );
+        writes.increment();
+        writtenBytes.add( bytes );
+    }
+
+    public void addSource( SourceMetrics source )
+    {
+        sources.add( Objects.requireNonNull( source, "Source is null." ) );
+    }
+
+    public long getWritten()
+    {
+        return written.sum();
+    }
+
+    public long getWrites()
+    {
+        return writes.sum();
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @param builder to append to.
+     */
+    public void writeTo( StringBuilder builder )
+    {
+        header( builder, "received_total", "counter", "Events received from the event server." );
+        for( SourceMetrics source : sources )
+        {
+            sample( builder, "received_total", source, source.getReceived() );
+        }
+        header( builder, "queued", "gauge", "Events queued awaiting processing." );
+        for( SourceMetrics source : sources )
+        {
+            sample( builder, "queued", source, source.getQueued() );
+        }
+        header( builder, "handled_total", "counter", "Events filtered and sampled." );
+        for( SourceMetrics source : sources )
+        {
+            sample( builder, "handled_total", source, source.getHandled() );
+        }
+        header( builder, "accepted_total", "counter", "Events passing the filters and sampling." );
+        for( SourceMetrics source : sources )
+        {
+            sample( builder, "accepted_total", source, source.getAccepted() );
+        }
+        header( builder, "reconnects_total", "counter", "Times the connection to the event server was lost and established again." );
+        for( SourceMetrics source : sources )
+        {
+            sample( builder, "reconnects_total", source, source.getReconnects() );
+        }
+        header( builder, "written_total", "counter", "Events written to the log file." );
+        builder.append( PREFIX ).append( "written_total " ).append( written.sum() ).append( '\n' );
+        header( builder, "writes_total", "counter", "Writes to the log file." );
+        builder.append( PREFIX ).append( "writes_total " ).append( writes.sum() ).append( '\n' );
+        header( builder, "written_bytes_total", "counter", "Bytes written to the log file." );
+        builder.append( PREFIX ).append( "written_bytes_total " ).append( writtenBytes.sum() ).append( '\n' );
+        summary( builder, "format_seconds", "Time taken to encode an event.", formatNanos.snapshot() );
+        summary( builder, "write_seconds", "Time taken by a write to the log file.", writeNanos.snapshot() );
+    }
+
+    private static void header( StringBuilder builder, String name, String type, String help )
+    {
+        builder.append( "# HELP " ).append( PREFIX ).append( name ).append( ' ' ).append( help ).append( '\n' )
+                .append( "# TYPE " ).append( PREFIX ).append( name ).append( ' ' ).append( type ).append( '\n' );
+    }
+
+    private static void sample( StringBuilder builder, String name, SourceMetrics source, long value )
+    {
+        builder.append( PREFIX ).append( name ).append( "{source=\"" );
+        appendEscaped( builder, source.getName() );
+        builder.append( "\"} " ).append( value ).append( '\n' );
+    }
+
+    private static void summary( StringBuilder builder, String name, String help, HistogramSnapshot snapshot )
+    {
+        header( builder, name, "summary", help );
+        for( int i = 0; i < PERCENTILES.length; i++ )
+        {
+            builder.append( PREFIX ).append( name ).append( "{quantile=\"" ).append( QUANTILES[i] ).append( "\"} " )
+                    .append( snapshot.getCount() == 0 ? "NaN" : String.valueOf( snapshot.getValueAtPercentile( PERCENTILES[i] ) / NANOS_PER_SECOND ) )
+                    .append( '\n' );
+        }
+        builder.append( PREFIX ).append( name ).append( "_sum " ).append( snapshot.getSum() / NANOS_PER_SECOND ).append( '\n' )
+                .append( PREFIX ).append( name ).append( "_count " ).append( snapshot.getCount() ).append( '\n' );
+    }
+
+    private static void appendEscaped( StringBuilder builder, String value )
+    {
+        for( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch( c )
+            {
+                case '\\':
+                    builder.append( "\\\\" );
+                    break;
+                case '"':
+                    builder.append( "\\\"" );
+                    break;
+                case '\n':
+                    builder.append( "\\n" );
+                    break;
+                default:
+                    builder.append( c );
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.metrics;
+
+/**
+ * Counters of the processing of the events from one event server, read when the metrics are scraped.
+ * Implementations must be thread safe.
+ */
+public interface SourceMetrics
+{
+    /**
+     * @return name of the event server.
+     */
+    String getName();
+
+    /**
+     * @return events received from the event server.
+     */
+    long getReceived();
+
+    /**
+     * @return events currently queued awaiting processing.
+     */
+    long getQueued();
+
+    /**
+     * @return events filtered and sampled.
+     */
+    long getHandled();
+
+    /**
+     * @return events passing the filters and sampling.
+     */
+    long getAccepted();
+
+    /**
+     * @return times the connection was lost and established again.
+     */
+    long getReconnects();
+}
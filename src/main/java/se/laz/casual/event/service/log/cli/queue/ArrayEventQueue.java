@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Bounded blocking {@link EventQueue} backed by an {@link ArrayBlockingQueue}.
+ * Supports any number of producers.
+ */
+public class ArrayEventQueue implements BoundedEventQueue
+{
+    private final BlockingQueue<ServiceCallEvent> queue;
+    private final int capacity;
+    // Only used by the consumer, reused to drain under a single lock acquisition.
+    private final List<ServiceCallEvent> drained = new ArrayList<>();
+
+    public ArrayEventQueue( int capacity )
+    {
+        if( capacity <= 0 )
+        {
+            throw new IllegalArgumentException( "Capacity must be positive: " + capacity );
+        }
+        this.queue = new ArrayBlockingQueue<>( capacity );
+        this.capacity = capacity;
+    }
+
+    /**
+     * Place the event on the queue, waiting whilst the queue is full.
+     * If interrupted whilst waiting, the event is not queued and the interrupt status is retained.
+     *
+     * @param event to queue.
+     */
+    @Override
+    public void put( ServiceCallEvent event )
+    {
+        try
+        {
+            queue.put( event );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean offer( ServiceCallEvent event )
+    {
+        return queue.offer( event );
+    }
+
+    @Override
+    public ServiceCallEvent poll()
+    {
+        return queue.poll();
+    }
+
+    /**
+     * Take the next event, waiting whilst the queue is empty.
+     *
+     * @return the next event, or null if interrupted whilst waiting.
+     */
+    @Override
+    public ServiceCallEvent take()
+    {
+        try
+        {
+            return queue.take();
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public int drain( Consumer<ServiceCallEvent> consumer, int maxEvents )
+    {
+        Objects.requireNonNull( consumer, "Consumer is null." );
+        ServiceCallEvent first = take();
+        if( first == null )
+        {
+            return 0;
+        }
+        consumer.accept( first );
+        try
+        {
+            queue.drainTo( drained, maxEvents - 1 );
+            drained.forEach( consumer );
+            return drained.size() + 1;
+        }
+        finally
+        {
+            drained.clear();
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public int size()
+    {
+        return queue.size();
+    }
+
+    @Override
+    public int getCapacity()
+    {
+        return capacity;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+/**
+ * {@link EventQueue} with a fixed capacity, supporting non-blocking operations.
+ */
+public interface BoundedEventQueue extends EventQueue
+{
+    /**
+     * Place the event on the queue if there is space.
+     *
+     * @param event to queue.
+     * @return true if queued, false if the queue is full.
+     */
+    boolean offer( ServiceCallEvent event );
+
+    /**
+     * Take the next event if there is one.
+     *
+     * @return next event or null if the queue is empty.
+     */
+    ServiceCallEvent poll();
+
+    /**
+     * Get the maximum number of events that can be queued.
+     *
+     * @return capacity.
+     */
+    int getCapacity();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * Hand-off of received events from the network to the processing thread.
+ */
+public interface EventQueue
+{
+    /**
+     * Place an event on the queue.
+     *
+     * @param event to queue.
+     */
+    void put( ServiceCallEvent event );
+
+    /**
+     * Take the next event, waiting until one is available.
+     *
+     * @return the next event.
+     */
+    ServiceCallEvent take();
+
+    /**
+     * Wait until at least one event is available, then pass up to {@code maxEvents} queued events to the consumer.
+     * If the calling thread is interrupted whilst waiting, returns without passing any events.
+     *
+     * @param consumer to receive the events.
+     * @param maxEvents maximum number of events to pass.
+     * @return number of events passed to the consumer.
+     */
+    int drain( Consumer<ServiceCallEvent> consumer, int maxEvents );
+
+    /**
+     * Whether the queue currently holds no events.
+     *
+     * @return true if empty.
+     */
+    boolean isEmpty();
+
+    /**
+     * Get the number of events currently queued.
+     *
+     * @return queued events.
+     */
+    int size();
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEventStoreFactory;
+import se.laz.casual.event.service.log.cli.runner.EventServiceLogParams;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * Available {@link EventQueue} implementations.
+ */
+public enum EventQueueType
+{
+    /**
+     * Unbounded blocking store provided by casual.
+     */
+    STORE
+    {
+        @Override
+        public EventQueue create( EventServiceLogParams params, File spillFile )
+        {
+            return new StoreEventQueue( ServiceCallEventStoreFactory.getStore( UUID.randomUUID() ) );
+        }
+    },
+    /**
+     * Bounded blocking queue.
+     */
+    BOUNDED
+    {
+        @Override
+        public EventQueue create( EventServiceLogParams params, File spillFile )
+        {
+            return withOverflowPolicy( new ArrayEventQueue( params.getQueueCapacity() ), params, spillFile );
+        }
+    },
+    /**
+     * Bounded lock-free single producer, single consumer ring buffer.
+     */
+    RING
+    {
+        @Override
+        public EventQueue create( EventServiceLogParams params, File spillFile )
+        {
+            return withOverflowPolicy( new RingBufferEventQueue( params.getQueueCapacity(), params.getWaitStrategy() ), params, spillFile );
+        }
+    };
+
+    /**
+     * Create a new queue.
+     *
+     * @param params configuring the queue.
+     * @return the new queue.
+     */
+    public EventQueue create( EventServiceLogParams params )
+    {
+        return create( params, params.getSpillFile() );
+    }
+
+    /**
+     * Create a new queue, spilling to the given file rather than that of the params.
+     * Required when there are several queues, as each needs its own spill file.
+     *
+     * @param params configuring the queue.
+     * @param spillFile for overflow SPILL.
+     * @return the new queue.
+     */
+    public abstract EventQueue create( EventServiceLogParams params, File spillFile );
+
+    private static EventQueue withOverflowPolicy( BoundedEventQueue queue, EventServiceLogParams params, File spillFile )
+    {
+        if( params.getOverflowPolicy() == OverflowPolicy.BLOCK )
+        {
+            return queue;
+        }
+        EventSpillFile eventSpillFile = params.getOverflowPolicy() == OverflowPolicy.SPILL ? new EventSpillFile( spillFile ) : null;
+        return new OverflowEventQueue( queue, params.getOverflowPolicy(), eventSpillFile );
+    }
+}
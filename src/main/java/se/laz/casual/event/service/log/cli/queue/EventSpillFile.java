@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+import se.laz.casual.event.service.log.cli.internal.StreamEncoder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * First in, first out file of events, one JSON encoded event per line, as sent by the event server.
+ * <br/>
+ * The file is created on the first write and deleted once every written event has been read.
+ * Each event is flushed to the file as it is written, so that it is not lost should the process die.
+ * Unread events are kept in the file when closed, an existing file is read first, so they are replayed by the next run.
+ * A last line left incomplete, by a run that did not close the file, is removed when opened.
+ * Lines that cannot be read as an event are skipped, both are counted as discarded.
+ * Thread safe, intended for one writing and one reading thread.
+ */
+public class EventSpillFile
+{
+    private final File file;
+    private final Gson gson = new Gson();
+    private BufferedWriter writer;
+    private BufferedReader reader;
+    private long pending;
+    private final long recovered;
+    private long discarded = 0;
+
+    public EventSpillFile( File file )
+    {
+        this.file = Objects.requireNonNull( file, "File is null." );
+        this.pending = recover();
+        this.recovered = pending;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Append the event to the file.
+     *
+     * @param event to write.
+     */
+    public synchronized void write( ServiceCallEvent event )
+    {
+        try
+        {
+            if( writer == null )
+            {
+                writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file, true ), StandardCharsets.UTF_8 ) );
+            }
+            writer.write( gson.toJson( event ) );
+            writer.newLine();
+            writer.flush();
+            pending++;
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to write to spill file: " + file, e );
+        }
+    }
+
+    /**
+     * Pass up to {@code maxEvents} of the oldest unread events to the consumer.
+     *
+     * @param consumer to receive the events.
+     * @param maxEvents maximum number of events to read.
+     * @return number of events read.
+     */
+    public synchronized int read( Consumer<ServiceCallEvent> consumer, int maxEvents )
+    {
+        if( pending == 0 )
+        {
+            return 0;
+        }
+        try
+        {
+            if( reader == null )
+            {
+                reader = new BufferedReader( StreamEncoder.toReader( new FileInputStream( file ) ) );
+            }
+            int count = 0;
+            while( count < maxEvents && pending > 0 )
+            {
+                ServiceCallEvent event = parse( reader.readLine() );
+                pending--;
+                if( event == null )
+                {
+                    discarded++;
+                    continue;
+                }
+                consumer.accept( event );
+                count++;
+            }
+            if( pending == 0 )
+            {
+                reset();
+            }
+            return count;
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to read from spill file: " + file, e );
+        }
+    }
+
+    /**
+     * Get the number of written events not yet read.
+     *
+     * @return unread events.
+     */
+    public synchronized long getPending()
+    {
+        return pending;
+    }
+
+    /**
+     * Get the number of unread events found in the file when opened, left by a previous run.
+     *
+     * @return recovered events.
+     */
+    public long getRecovered()
+    {
+        return recovered;
+    }
+
+    /**
+     * Get the number of lines that could not be read as an event, including an incomplete last line.
+     *
+     * @return discarded events.
+     */
+    public synchronized long getDiscarded()
+    {
+        return discarded;
+    }
+
+    /**
+     * Close the file, keeping any unread events to be replayed when reopened.
+     * The file is deleted if there are none.
+     *
+     * @return events kept.
+     */
+    public long close()
+    {
+        return close( Collections.emptyList() );
+    }
+
+    /**
+     * Close the file, keeping the given events followed by any unread events, to be replayed when reopened.
+     * The file is deleted if there are none.
+     *
+     * @param queued events older than those in the file, e.g. still queued in memory.
+     * @return events kept.
+     */
+    public synchronized long close( Collection<ServiceCallEvent> queued )
+    {
+        Objects.requireNonNull( queued, "Queued events is null." );
+        try
+        {
+            long kept = queued.size() + pending;
+            if( kept == 0 )
+            {
+                reset();
+            }
+            else if( reader == null && queued.isEmpty() )
+            {
+                // The file holds exactly the unread events.
+                closeStreams();
+            }
+            else
+            {
+                rewrite( queued );
+            }
+            pending = 0;
+            return kept;
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to close spill file: " + file, e );
+        }
+    }
+
+    /**
+     * Replace the file with the queued events followed by the unread events.
+     */
+    private void rewrite( Collection<ServiceCallEvent> queued ) throws IOException
+    {
+        File rewritten = new File( file.getPath() + ".tmp" );
+        try( BufferedWriter out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( rewritten, false ), StandardCharsets.UTF_8 ) ) )
+        {
+            for( ServiceCallEvent event : queued )
+            {
+                out.write( gson.toJson( event ) );
+                out.newLine();
+            }
+            if( pending > 0 && reader == null )
+            {
+                reader = new BufferedReader( StreamEncoder.toReader( new FileInputStream( file ) ) );
+            }
+            String line;
+            for( long i = 0; i < pending && ( line = reader.readLine() ) != null; i++ )
+            {
+                out.write( line );
+                out.newLine();
+            }
+        }
+        closeStreams();
+        Files.move( rewritten.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Count the complete lines of an existing file, removing an incomplete last line.
+     *
+     * @return number of events in the file.
+     */
+    private long recover()
+    {
+        if( !file.exists() )
+        {
+            return 0;
+        }
+        long lines = 0;
+        try
+        {
+            try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+            {
+                ByteBuffer buffer = ByteBuffer.allocate( 8192 );
+                long position = 0;
+                long end = 0;
+                while( channel.read( buffer ) > 0 )
+                {
+                    buffer.flip();
+                    while( buffer.hasRemaining() )
+                    {
+                        position++;
+                        if( buffer.get() == '\n' )
+                        {
+                            lines++;
+                            end = position;
+                        }
+                    }
+                    buffer.clear();
+                }
+                if( end < position )
+                {
+                    channel.truncate( end );
+                    discarded++;
+                }
+            }
+            if( lines == 0 )
+            {
+                Files.deleteIfExists( file.toPath() );
+            }
+        }
+        catch( IOException e )
+        {
+            throw new EventServiceLoggerException( "Failed to recover spill file: " + file, e );
+        }
+        return lines;
+    }
+
+    private ServiceCallEvent parse( String line )
+    {
+        try
+        {
+            return line == null ? null : gson.fromJson( line, ServiceCallEvent.class );
+        }
+        catch( JsonParseException e )
+        {
+            return null;
+        }
+    }
+
+    private void reset() throws IOException
+    {
+        closeStreams();
+        Files.deleteIfExists( file.toPath() );
+    }
+
+    private void closeStreams() throws IOException
+    {
+        if( reader != null )
+        {
+            reader.close();
+            reader = null;
+        }
+        if( writer != null )
+        {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Applies an {@link OverflowPolicy} to a {@link BoundedEventQueue}, counting events dropped or spilled.
+ * <br/>
+ * With {@link OverflowPolicy#SPILL}, once an event has been spilled all incoming events are spilled
+ * until the spill file has been replayed, so that events are still processed in the order received.
+ * Events not processed when closed are kept in the spill file, and replayed first when next opened.
+ */
+public class OverflowEventQueue implements EventQueue
+{
+    private final BoundedEventQueue queue;
+    private final OverflowPolicy policy;
+    private final EventSpillFile spillFile;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private long discarded = 0;
+    private long kept = 0;
+
+    public OverflowEventQueue( BoundedEventQueue queue, OverflowPolicy policy, EventSpillFile spillFile )
+    {
+        this.queue = Objects.requireNonNull( queue, "Queue is null." );
+        this.policy = Objects.requireNonNull( policy, "Overflow policy is null." );
+        if( policy == OverflowPolicy.SPILL )
+        {
+            Objects.requireNonNull( spillFile, "Spill file is null." );
+        }
+        if( policy == OverflowPolicy.DROP_OLDEST && queue instanceof RingBufferEventQueue )
+        {
+            throw new IllegalArgumentException( "Overflow policy " + policy + " requires a queue supporting multiple consumers." );
+        }
+        this.spillFile = spillFile;
+    }
+
+    public BoundedEventQueue getQueue()
+    {
+        return queue;
+    }
+
+    public OverflowPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Get the number of incoming events discarded.
+     *
+     * @return dropped events.
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Get the number of incoming events written to the spill file.
+     *
+     * @return spilled events.
+     */
+    public long getSpilled()
+    {
+        return spilled.sum();
+    }
+
+    /**
+     * Get the number of events not processed, as left queued when closed or unreadable in the spill file.
+     *
+     * @return discarded events.
+     */
+    public synchronized long getDiscarded()
+    {
+        return discarded + ( spillFile == null ? 0 : spillFile.getDiscarded() );
+    }
+
+    /**
+     * Get the number of events kept in the spill file when closed, to be replayed when next opened.
+     *
+     * @return kept events.
+     */
+    public synchronized long getKept()
+    {
+        return kept;
+    }
+
+    /**
+     * Get the number of events found in the spill file when opened, left by a previous run.
+     *
+     * @return recovered events.
+     */
+    public long getRecovered()
+    {
+        return spillFile == null ? 0 : spillFile.getRecovered();
+    }
+
+    @Override
+    public void put( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        switch( policy )
+        {
+            case DROP_NEWEST:
+                if( !queue.offer( event ) )
+                {
+                    dropped.increment();
+                }
+                break;
+            case DROP_OLDEST:
+                while( !queue.offer( event ) )
+                {
+                    if( queue.poll() != null )
+                    {
+                        dropped.increment();
+                    }
+                }
+                break;
+            case SPILL:
+                if( spillFile.getPending() > 0 || !queue.offer( event ) )
+                {
+                    spillFile.write( event );
+                    spilled.increment();
+                }
+                break;
+            default:
+                queue.put( event );
+        }
+    }
+
+    @Override
+    public ServiceCallEvent take()
+    {
+        ServiceCallEvent[] taken = new ServiceCallEvent[1];
+        drain( e -> taken[0] = e, 1 );
+        return taken[0];
+    }
+
+    /**
+     * Spilled events are newer than any queued event, so are only replayed once the queue is empty.
+     */
+    @Override
+    public int drain( Consumer<ServiceCallEvent> consumer, int maxEvents )
+    {
+        if( spillFile != null && queue.isEmpty() && spillFile.getPending() > 0 )
+        {
+            return spillFile.read( consumer, maxEvents );
+        }
+        return queue.drain( consumer, maxEvents );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return queue.isEmpty() && ( spillFile == null || spillFile.getPending() == 0 );
+    }
+
+    /**
+     * Includes the events in the spill file.
+     */
+    @Override
+    public int size()
+    {
+        long spilledPending = spillFile == null ? 0 : spillFile.getPending();
+        return (int) Math.min( queue.size() + spilledPending, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Keep the events not yet processed in the spill file, queued events ahead of those already spilled.
+     * Without a spill file they are discarded.
+     * Call once the events are no longer being taken.
+     */
+    public synchronized void close()
+    {
+        List<ServiceCallEvent> queued = new ArrayList<>();
+        for( ServiceCallEvent event = queue.poll(); event != null; event = queue.poll() )
+        {
+            queued.add( event );
+        }
+        if( spillFile != null )
+        {
+            kept += spillFile.close( queued );
+        }
+        else
+        {
+            discarded += queued.size();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+/**
+ * What to do with an incoming event when a bounded event queue is full.
+ */
+public enum OverflowPolicy
+{
+    /**
+     * Wait for space, holding up the network thread and therefore the event server.
+     */
+    BLOCK,
+    /**
+     * Discard the incoming event.
+     */
+    DROP_NEWEST,
+    /**
+     * Discard the oldest queued event to make space for the incoming event.
+     * Not supported by single producer, single consumer queues.
+     */
+    DROP_OLDEST,
+    /**
+     * Write the incoming event to a spill file, replayed once the queue has been emptied.
+     */
+    SPILL
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free single producer, single consumer {@link EventQueue}.
+ * <br/>
+ * The ring is pre-sized to a power of two. Producer and consumer each own one counter,
+ * publishing it with release semantics, so no locks are taken and neither side signals the other.
+ * Instead a {@link WaitStrategy} determines how to wait when the ring is empty or full.
+ * <br/>
+ * NB - only one thread may put and only one thread may take or drain.
+ */
+public class RingBufferEventQueue implements BoundedEventQueue
+{
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final ServiceCallEvent[] ring;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    // Written by the producer only.
+    private final AtomicLong tail = new AtomicLong();
+    private long headCache;
+    // Written by the consumer only.
+    private final AtomicLong head = new AtomicLong();
+    private long tailCache;
+
+    public RingBufferEventQueue( int capacity, WaitStrategy waitStrategy )
+    {
+        if( capacity <= 0 || capacity > MAX_CAPACITY )
+        {
+            throw new IllegalArgumentException( "Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity );
+        }
+        int size = Integer.highestOneBit( capacity );
+        size = size == capacity ? size : size << 1;
+        this.ring = new ServiceCallEvent[size];
+        this.mask = size - 1;
+        this.waitStrategy = Objects.requireNonNull( waitStrategy, "Wait strategy is null." );
+    }
+
+    @Override
+    public int getCapacity()
+    {
+        return ring.length;
+    }
+
+    public WaitStrategy getWaitStrategy()
+    {
+        return waitStrategy;
+    }
+
+    /**
+     * Place the event on the ring, waiting whilst the ring is full.
+     * If interrupted whilst waiting, the event is not queued and the interrupt status is retained.
+     *
+     * @param event to queue.
+     */
+    @Override
+    public void put( ServiceCallEvent event )
+    {
+        int idleCount = 0;
+        while( !offer( event ) )
+        {
+            if( Thread.currentThread().isInterrupted() )
+            {
+                return;
+            }
+            waitStrategy.idle( idleCount++ );
+        }
+    }
+
+    /**
+     * Place the event on the ring if there is space.
+     *
+     * @param event to queue.
+     * @return true if queued, false if the ring is full.
+     */
+    @Override
+    public boolean offer( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        long t = tail.get();
+        if( t - headCache >= ring.length )
+        {
+            headCache = head.get();
+            if( t - headCache >= ring.length )
+            {
+                return false;
+            }
+        }
+        ring[(int) t & mask] = event;
+        tail.lazySet( t + 1 );
+        return true;
+    }
+
+    /**
+     * Take the next event, or null if the ring is empty.
+     *
+     * @return next event or null.
+     */
+    @Override
+    public ServiceCallEvent poll()
+    {
+        long h = head.get();
+        if( h >= tailCache )
+        {
+            tailCache = tail.get();
+            if( h >= tailCache )
+            {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        ServiceCallEvent event = ring[index];
+        ring[index] = null;
+        head.lazySet( h + 1 );
+        return event;
+    }
+
+    /**
+     * Take the next event, waiting whilst the ring is empty.
+     *
+     * @return the next event, or null if interrupted whilst waiting.
+     */
+    @Override
+    public ServiceCallEvent take()
+    {
+        int idleCount = 0;
+        ServiceCallEvent event;
+        while( ( event = poll() ) == null )
+        {
+            if( Thread.currentThread().isInterrupted() )
+            {
+                return null;
+            }
+            waitStrategy.idle( idleCount++ );
+        }
+        return event;
+    }
+
+    @Override
+    public int drain( Consumer<ServiceCallEvent> consumer, int maxEvents )
+    {
+        if( !awaitAvailable() )
+        {
+            return 0;
+        }
+        long h = head.get();
+        long available = Math.min( tailCache - h, maxEvents );
+        for( long i = 0; i < available; i++ )
+        {
+            int index = (int) ( h + i ) & mask;
+            ServiceCallEvent event = ring[index];
+            ring[index] = null;
+            // Release each slot as it is consumed, so the producer is not held up by a slow consumer.
+            head.lazySet( h + i + 1 );
+            consumer.accept( event );
+        }
+        return (int) available;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return head.get() >= tail.get();
+    }
+
+    @Override
+    public int size()
+    {
+        // Read head first, so that a concurrent put can only increase the result.
+        long h = head.get();
+        return (int) Math.max( 0, tail.get() - h );
+    }
+
+    private boolean awaitAvailable()
+    {
+        int idleCount = 0;
+        long h = head.get();
+        while( h >= tailCache )
+        {
+            tailCache = tail.get();
+            if( h < tailCache )
+            {
+                return true;
+            }
+            if( Thread.currentThread().isInterrupted() )
+            {
+                return false;
+            }
+            waitStrategy.idle( idleCount++ );
+        }
+        return true;
+    }
+}
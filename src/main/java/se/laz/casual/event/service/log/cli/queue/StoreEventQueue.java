@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.ServiceCallEventStore;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link EventQueue} backed by a {@link ServiceCallEventStore}.
+ * <br/>
+ * The store only supports a blocking take of a single event. Draining waits for the first event then,
+ * as the events put through this queue are counted, takes those already in the store without waiting.
+ */
+public class StoreEventQueue implements EventQueue
+{
+    private final ServiceCallEventStore store;
+    private final AtomicLong pending = new AtomicLong();
+
+    public StoreEventQueue( ServiceCallEventStore store )
+    {
+        this.store = Objects.requireNonNull( store, "Store is null." );
+    }
+
+    public ServiceCallEventStore getStore()
+    {
+        return store;
+    }
+
+    @Override
+    public void put( ServiceCallEvent event )
+    {
+        pending.incrementAndGet();
+        store.put( event );
+    }
+
+    @Override
+    public ServiceCallEvent take()
+    {
+        ServiceCallEvent event = store.take();
+        if( event != null )
+        {
+            pending.decrementAndGet();
+        }
+        return event;
+    }
+
+    @Override
+    public int drain( Consumer<ServiceCallEvent> consumer, int maxEvents )
+    {
+        int drained = 0;
+        while( drained < maxEvents && ( drained == 0 || pending.get() > 0 ) )
+        {
+            ServiceCallEvent event = take();
+            if( event == null )
+            {
+                break;
+            }
+            consumer.accept( event );
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Events placed directly on the store, rather than through this queue, are not accounted for.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return pending.get() <= 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return (int) Math.max( 0L, Math.min( pending.get(), Integer.MAX_VALUE ) );
+    }
+}
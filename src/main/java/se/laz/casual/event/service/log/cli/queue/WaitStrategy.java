@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for a lock-free queue to become non-empty, or non-full.
+ */
+public enum WaitStrategy
+{
+    /**
+     * Spin on the CPU, lowest latency at the cost of a fully occupied core.
+     */
+    BUSY_SPIN
+    {
+        @Override
+        public void idle( int idleCount )
+        {
+            Thread.onSpinWait();
+        }
+    },
+    /**
+     * Yield to other threads between checks.
+     */
+    YIELD
+    {
+        @Override
+        public void idle( int idleCount )
+        {
+            Thread.yield();
+        }
+    },
+    /**
+     * Park between checks with an exponentially increasing timeout, from 1us up to 1ms.
+     * No signal is required from the other side, so it does not pay for an unpark per event.
+     */
+    PARK
+    {
+        @Override
+        public void idle( int idleCount )
+        {
+            LockSupport.parkNanos( 1000L << Math.min( idleCount, MAX_PARK_SHIFT ) );
+        }
+    };
+
+    private static final int MAX_PARK_SHIFT = 10;
+
+    /**
+     * Wait before checking again.
+     *
+     * @param idleCount number of consecutive times the caller has already waited, starting at 0.
+     */
+    public abstract void idle( int idleCount );
+}
@@ -12,6 +12,9 @@ import se.laz.casual.event.service.log.cli.client.EventServerConnectionException
 
 import java.io.PrintWriter;
 import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -19,28 +22,76 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Maintains a connection to the event server, initiating reconnection after disconnected
- * with configurable fixed backoff.
+ * with configurable fixed or exponential backoff.
+ * <br/>
+ * When the event server has several urls, e.g. the nodes of a cluster, a lost connection is
+ * failed over to the next url straight away, backing off only once every url has failed.
  * Utilises a {@link ScheduledExecutorService} for perform client connection attempts.
  */
 public class ClientAutoReconnector
 {
     private final EventObserver eventObserver;
-    private final URI eventServerUrl;
+    private final FailoverEndpoints endpoints;
     private final PrintWriter outputStream;
-    private final long backoff;
+    private final ReconnectBackoff backoff;
+    private final ConnectionListener listener;
     private CompletableFuture<Boolean> connected = new CompletableFuture<>();
 
-    private final ScheduledExecutorService scheduledExecutor = new ScheduledThreadPoolExecutor( 1 );
+    private final ScheduledExecutorService scheduledExecutor;
 
-    private boolean stop = false;
-    private Client client;
+    private volatile boolean stop = false;
+    private volatile Client client;
 
     public ClientAutoReconnector( EventObserver observer, EventServiceLogRunner eventServiceLogRunner, long backoff )
     {
+        this( observer, eventServiceLogRunner.getParams().getEventServerUrl(), eventServiceLogRunner.getOutputStream(), backoff );
+    }
+
+    public ClientAutoReconnector( EventObserver observer, URI eventServerUrl, PrintWriter outputStream, long backoff )
+    {
+        this( observer, Collections.singletonList( eventServerUrl ), outputStream, ReconnectBackoff.fixed( backoff ) );
+    }
+
+    /**
+     * @param observer notified of received events.
+     * @param eventServerUrls of the event server, in order of preference.
+     * @param outputStream to report connection changes to.
+     * @param backoff between reconnection attempts.
+     */
+    public ClientAutoReconnector( EventObserver observer, List<URI> eventServerUrls, PrintWriter outputStream, ReconnectBackoff backoff )
+    {
+        this( observer, eventServerUrls, outputStream, backoff, null );
+    }
+
+    /**
+     * @param observer notified of received events.
+     * @param eventServerUrls of the event server, in order of preference.
+     * @param outputStream to report connection changes to.
+     * @param backoff between reconnection attempts.
+     * @param listener notified as the connection is established and lost, may be null.
+     */
+    public ClientAutoReconnector( EventObserver observer, List<URI> eventServerUrls, PrintWriter outputStream, ReconnectBackoff backoff, ConnectionListener listener )
+    {
+        this( observer, eventServerUrls, outputStream, backoff, listener, ThreadMode.PLATFORM );
+    }
+
+    /**
+     * @param observer notified of received events.
+     * @param eventServerUrls of the event server, in order of preference.
+     * @param outputStream to report connection changes to.
+     * @param backoff between reconnection attempts.
+     * @param listener notified as the connection is established and lost, may be null.
+     * @param threadMode of the thread maintaining the connection, blocked whilst connected.
+     */
+    public ClientAutoReconnector( EventObserver observer, List<URI> eventServerUrls, PrintWriter outputStream, ReconnectBackoff backoff, ConnectionListener listener, ThreadMode threadMode )
+    {
+        Objects.requireNonNull( backoff, "Backoff is null." );
+        this.scheduledExecutor = new ScheduledThreadPoolExecutor( 1, threadMode.newThreadFactory( "event-client" ) );
         this.eventObserver = observer;
-        this.eventServerUrl = eventServiceLogRunner.getParams().getEventServerUrl();
-        this.outputStream = eventServiceLogRunner.getOutputStream();
+        this.endpoints = new FailoverEndpoints( eventServerUrls );
+        this.outputStream = outputStream;
         this.backoff = backoff;
+        this.listener = listener;
         initialiseConnection(  );
     }
 
@@ -64,20 +115,36 @@ public class ClientAutoReconnector
 
     private void tryConnect( )
     {
+        URI eventServerUrl = endpoints.current();
+        // Should the attempt fail unexpectedly, wait as long as possible rather than retrying in a tight loop.
+        long delay = backoff.getMaxMillis();
         try
         {
             client = Client.newBuilder().eventServerUrl( eventServerUrl ).eventObserver( eventObserver ).build();
+            endpoints.connected();
+            backoff.reset();
+            if( listener != null )
+            {
+                listener.connected( eventServerUrl );
+            }
             connected.complete( true );
             outputStream.println( "Connected to: " + eventServerUrl );
             outputStream.flush();
             client.waitForDisconnect();
-            outputStream.println( "Disconnected from: " + eventServerUrl + ", retrying in " + backoff + "ms." );
+            if( listener != null && !stop )
+            {
+                listener.disconnected( eventServerUrl );
+            }
+            endpoints.disconnected();
+            delay = backoff.firstRetryMillis();
+            outputStream.println( "Disconnected from: " + eventServerUrl + ", retrying" + describeRetry( eventServerUrl ) + " in " + delay + "ms." );
             outputStream.flush();
         }
         catch( EventServerConnectionException e )
         {
             connected.complete( false );
-            outputStream.println( "Connection failed, retrying in " + backoff + "ms: " + e.getMessage() );
+            delay = endpoints.failed() ? backoff.nextDelayMillis() : 0;
+            outputStream.println( "Connection failed, retrying" + describeRetry( eventServerUrl ) + " in " + delay + "ms: " + e.getMessage() );
             outputStream.flush();
         }
         finally
@@ -85,21 +152,28 @@ public class ClientAutoReconnector
             connected = new CompletableFuture<>();
             if( !stop )
             {
-                scheduledExecutor.schedule( this::tryConnect, backoff, TimeUnit.MILLISECONDS );
+                scheduledExecutor.schedule( this::tryConnect, delay, TimeUnit.MILLISECONDS );
             }
         }
     }
 
+    private String describeRetry( URI previous )
+    {
+        URI next = endpoints.current();
+        return next.equals( previous ) ? "" : " " + next;
+    }
+
     /**
      * Stop current client connection and any reconnection attempts.
      */
     public void stop()
     {
         this.stop = true;
-        if( client != null )
+        Client current = client;
+        if( current != null )
         {
-            client.close();
+            current.close();
         }
         this.scheduledExecutor.shutdown();
     }
-}
\ No newline at end of file
+}
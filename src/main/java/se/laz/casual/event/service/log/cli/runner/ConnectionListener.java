@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import java.net.URI;
+
+/**
+ * Notified as the connection to an event server is established and lost.
+ * Called from the reconnection thread.
+ */
+public interface ConnectionListener
+{
+    /**
+     * @param eventServerUrl connected to.
+     */
+    void connected( URI eventServerUrl );
+
+    /**
+     * Not called when the connection is closed by stopping.
+     *
+     * @param eventServerUrl the connection to which was lost.
+     */
+    void disconnected( URI eventServerUrl );
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+/**
+ * Processes events received from the event server, from when created until stopped.
+ */
+public interface EventProcessor
+{
+    /**
+     * Stop processing events.
+     */
+    void stop();
+
+    /**
+     * @return failures processing events, the events concerned are not written.
+     */
+    long getFailures();
+}
@@ -6,8 +6,16 @@
 
 package se.laz.casual.event.service.log.cli.runner;
 
+import se.laz.casual.event.service.log.cli.filter.FilterExpression;
+import se.laz.casual.event.service.log.cli.log.EventFormat;
+import se.laz.casual.event.service.log.cli.log.LogOutputType;
+import se.laz.casual.event.service.log.cli.queue.EventQueueType;
+import se.laz.casual.event.service.log.cli.queue.OverflowPolicy;
+import se.laz.casual.event.service.log.cli.queue.WaitStrategy;
+
 import java.io.File;
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
@@ -18,11 +26,27 @@ public interface EventServiceLogParams
 {
     /**
      * URI for the event server, from which to retrieve events.
+     * When there are several, the first.
      *
      * @return event server uri.
      */
     URI getEventServerUrl();
 
+    /**
+     * All the event servers, from each of which to retrieve events.
+     * An event server may have several urls which are failed over between.
+     *
+     * @return event servers.
+     */
+    List<EventSource> getEventSources();
+
+    /**
+     * Whether the source of each event is logged, as an additional last column.
+     *
+     * @return true if the source is logged.
+     */
+    boolean isSourceColumn();
+
     /**
      * Get the file to use for output logging.
      *
@@ -50,4 +74,317 @@ public interface EventServiceLogParams
      * @return exclusive filte regex.
      */
     Optional<Pattern> getLogFilterExclusive();
+
+    /**
+     * Get the filter expression events must match to be logged, see {@link FilterExpression}.
+     *
+     * @return filter expression.
+     */
+    Optional<FilterExpression> getLogFilter();
+
+    /**
+     * Maximum number of events buffered before being written to the log file in a single write.
+     * A value of 1 or less writes every event as soon as it is logged.
+     *
+     * @return batch size.
+     */
+    int getBatchSize();
+
+    /**
+     * Maximum time in milliseconds that buffered events wait before being written to the log file.
+     * Only applies when batching, a value of 0 or less disables the periodic flush.
+     *
+     * @return flush interval in milliseconds.
+     */
+    long getFlushIntervalMillis();
+
+    /**
+     * Get how the log file is written.
+     *
+     * @return log output type.
+     */
+    LogOutputType getLogOutputType();
+
+    /**
+     * Get the type of queue between the event server connection and event processing.
+     *
+     * @return event queue type.
+     */
+    EventQueueType getEventQueueType();
+
+    /**
+     * Get the capacity of the event queue, when bounded.
+     *
+     * @return queue capacity.
+     */
+    int getQueueCapacity();
+
+    /**
+     * Get how threads wait on the event queue, when lock-free.
+     *
+     * @return wait strategy.
+     */
+    WaitStrategy getWaitStrategy();
+
+    /**
+     * Get what to do with incoming events when a bounded event queue is full.
+     *
+     * @return overflow policy.
+     */
+    OverflowPolicy getOverflowPolicy();
+
+    /**
+     * Get the file to spill events to when a bounded event queue is full.
+     *
+     * @return spill file.
+     */
+    File getSpillFile();
+
+    /**
+     * Get the number of threads filtering and formatting events.
+     * With a single thread events are processed sequentially on one thread.
+     *
+     * @return worker threads.
+     */
+    int getWorkerThreads();
+
+    /**
+     * Get the max number of service names for which filter decisions are cached.
+     *
+     * @return filter cache size, 0 disables caching.
+     */
+    int getFilterCacheSize();
+
+    /**
+     * Get the sample rate, 1 in rate events are logged per service.
+     *
+     * @return sample rate, 1 logs every event.
+     */
+    int getSampleRate();
+
+    /**
+     * Get the max events logged per service per second.
+     *
+     * @return max per second, 0 for no limit.
+     */
+    int getSampleMaxPerSecond();
+
+    /**
+     * Whether the sample rate is applied per execution rather than per event,
+     * keeping or dropping all calls within an execution together.
+     *
+     * @return true if sampling by execution.
+     */
+    boolean isSampleByExecution();
+
+    /**
+     * Get the filter expression for events which are always logged regardless of sampling.
+     *
+     * @return sample bypass expression.
+     */
+    Optional<FilterExpression> getSampleBypass();
+
+    /**
+     * Get the file to which per service latency statistics are periodically written.
+     *
+     * @return statistics file, empty if statistics are not aggregated.
+     */
+    Optional<File> getStatsFile();
+
+    /**
+     * Get the interval between writing statistics.
+     *
+     * @return statistics interval in milliseconds.
+     */
+    long getStatsIntervalMillis();
+
+    /**
+     * Whether only statistics are written, without logging the events.
+     *
+     * @return true if only statistics.
+     */
+    boolean isStatsOnly();
+
+    /**
+     * Get the format of events written to the log file.
+     *
+     * @return event format.
+     */
+    EventFormat getEventFormat();
+
+    /**
+     * Get the size at which the log file is rotated.
+     *
+     * @return size in bytes, 0 to not rotate by size.
+     */
+    long getRotateSize();
+
+    /**
+     * Get the interval at which the log file is rotated, aligned to the wall clock.
+     *
+     * @return interval in milliseconds, 0 to not rotate by interval.
+     */
+    long getRotateIntervalMillis();
+
+    /**
+     * Get the number of rotated log files to keep.
+     *
+     * @return number of files, 0 to keep all.
+     */
+    int getRotateRetain();
+
+    /**
+     * Get the delay before the first reconnection attempt once every url of an event server has failed,
+     * doubled after each further failed attempt.
+     *
+     * @return delay in milliseconds.
+     */
+    long getReconnectInitialMillis();
+
+    /**
+     * Get the max delay between reconnection attempts.
+     *
+     * @return delay in milliseconds.
+     */
+    long getReconnectMaxMillis();
+
+    /**
+     * Get where to record the periods during which the connection to an event server was lost.
+     *
+     * @return gap file if provided.
+     */
+    Optional<File> getGapFile();
+
+    /**
+     * Get the port on which to serve metrics of the tool itself.
+     *
+     * @return port, 0 to not serve metrics.
+     */
+    int getMetricsPort();
+
+    /**
+     * Get the host name or address on which to serve metrics.
+     *
+     * @return host.
+     */
+    String getMetricsHost();
+
+    /**
+     * Get the kind of threads running the connection and processing loops.
+     *
+     * @return thread mode.
+     */
+    ThreadMode getThreadMode();
+
+    /**
+     * Get where to write the service call graph and the slowest call trees.
+     *
+     * @return graph file if provided.
+     */
+    Optional<File> getGraphFile();
+
+    /**
+     * Get the interval between writing the service call graph.
+     *
+     * @return interval in milliseconds.
+     */
+    long getGraphIntervalMillis();
+
+    /**
+     * Get the number of slowest call trees written each interval.
+     *
+     * @return number of trees, 0 to write none.
+     */
+    int getGraphSlowest();
+
+    /**
+     * Get the time without further calls after which an execution is considered complete.
+     *
+     * @return timeout in milliseconds.
+     */
+    long getExecutionTimeoutMillis();
+
+    /**
+     * Get the max number of executions being grouped into call trees at once.
+     *
+     * @return number of executions.
+     */
+    int getMaxExecutions();
+
+    /**
+     * Get the max number of calls held by the executions being grouped into call trees at once.
+     *
+     * @return number of calls.
+     */
+    int getMaxCalls();
+
+    /**
+     * Get where to write a summary of each transaction once idle.
+     *
+     * @return transaction file if provided.
+     */
+    Optional<File> getTridFile();
+
+    /**
+     * Get the time without further calls within a transaction after which it is summarised.
+     *
+     * @return timeout in milliseconds.
+     */
+    long getTridIdleTimeoutMillis();
+
+    /**
+     * Get the max number of transactions accumulated at once.
+     *
+     * @return number of transactions.
+     */
+    int getMaxTrids();
+
+    /**
+     * Get where to write the top services over each window.
+     *
+     * @return top file if provided.
+     */
+    Optional<File> getTopFile();
+
+    /**
+     * Get the number of services ranked per window and metric.
+     *
+     * @return number of services.
+     */
+    int getTopN();
+
+    /**
+     * Get the sliding windows over which services are ranked.
+     *
+     * @return windows in milliseconds.
+     */
+    List<Long> getTopWindowsMillis();
+
+    /**
+     * Get the interval between writing the top services.
+     *
+     * @return interval in milliseconds.
+     */
+    long getTopIntervalMillis();
+
+    /**
+     * Check if the log file is indexed by start time, see {@link se.laz.casual.event.service.log.cli.log.LogIndex}.
+     *
+     * @return true if indexed.
+     */
+    boolean isIndex();
+
+    /**
+     * Get the max number of events in a block of the index.
+     *
+     * @return number of events.
+     */
+    int getIndexEvents();
+
+    /**
+     * Get the max time a block of the index is open for.
+     *
+     * @return interval in milliseconds.
+     */
+    long getIndexIntervalMillis();
 }
@@ -7,16 +7,39 @@
 package se.laz.casual.event.service.log.cli.runner;
 
 import io.quarkus.runtime.Quarkus;
-import se.laz.casual.event.ServiceCallEventStore;
-import se.laz.casual.event.ServiceCallEventStoreFactory;
 import se.laz.casual.event.service.log.cli.CommandRunner;
+import se.laz.casual.event.service.log.cli.graph.CallGraph;
+import se.laz.casual.event.service.log.cli.graph.CallTrees;
+import se.laz.casual.event.service.log.cli.graph.GraphReporter;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+import se.laz.casual.event.service.log.cli.internal.ScheduledTask;
 import se.laz.casual.event.service.log.cli.log.EventHandler;
+import se.laz.casual.event.service.log.cli.log.FilterDecisionCache;
 import se.laz.casual.event.service.log.cli.log.LogRotateHandler;
+import se.laz.casual.event.service.log.cli.log.LogRotator;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventListener;
 import se.laz.casual.event.service.log.cli.log.ServiceLogger;
+import se.laz.casual.event.service.log.cli.metrics.MetricsServer;
+import se.laz.casual.event.service.log.cli.metrics.PipelineMetrics;
+import se.laz.casual.event.service.log.cli.metrics.SourceMetrics;
+import se.laz.casual.event.service.log.cli.queue.EventQueue;
+import se.laz.casual.event.service.log.cli.queue.OverflowEventQueue;
+import se.laz.casual.event.service.log.cli.sample.EventSampler;
+import se.laz.casual.event.service.log.cli.stats.StatisticsAggregator;
+import se.laz.casual.event.service.log.cli.stats.StatisticsReporter;
+import se.laz.casual.event.service.log.cli.topk.TopReporter;
+import se.laz.casual.event.service.log.cli.topk.TopServices;
+import se.laz.casual.event.service.log.cli.transaction.TransactionLog;
 
+import java.io.File;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Runs the command based on the validated inputs provided.
@@ -25,9 +48,23 @@ import java.util.UUID;
  */
 public class EventServiceLogRunner implements CommandRunner<EventServiceLogParams>
 {
+    static final long DRAIN_TIMEOUT_MILLIS = 10_000L;
+    private static final long DRAIN_POLL_MILLIS = 10L;
+
     private final EventServiceLogParams params;
     private final PrintWriter outputStream;
 
+    private ServiceLogger logger;
+    private EventSampler sampler;
+    private StatisticsReporter statisticsReporter;
+    private GraphReporter graphReporter;
+    private TransactionLog transactionLog;
+    private TopReporter topReporter;
+    private GapLog gapLog;
+    private List<SourcePipeline> pipelines = Collections.emptyList();
+    private MetricsServer metricsServer;
+    private boolean stopped;
+
     public EventServiceLogRunner( EventServiceLogParams params, PrintWriter outputStream )
     {
         Objects.requireNonNull( params, "Params is null." );
@@ -50,48 +87,432 @@ public class EventServiceLogRunner implements CommandRunner<EventServiceLogParam
     /**
      * The commands execution entry point.
      * <br/>
-     * Initialise based on input params.
-     * <br/>
-     * Establish a client connection is maintained continuously placing incoming events in a store for processing.
-     * <br/>
-     * Filter all incoming events from the store logging the remaining formatted events to the log file.
+     * Start, then stop once the application is asked to exit.
      * @return exit code.
      */
     @Override
     public int run()
     {
+        start();
+        Quarkus.waitForExit();
+        stop();
+        return 0;
+    }
+
+    /**
+     * Initialise based on input params.
+     * <br/>
+     * Establish a client connection to each event server, maintained continuously placing incoming events in a store for processing.
+     * <br/>
+     * Filter all incoming events from the stores logging the remaining formatted events to the one log file.
+     * <br/>
+     * Returns once started, connecting to the event servers continues in the background.
+     */
+    public synchronized void start()
+    {
+        if( logger != null )
+        {
+            throw new IllegalStateException( "Already started." );
+        }
+        if( !params.getThreadMode().isSupported() )
+        {
+            throw new EventServiceLoggerException( "Thread mode " + params.getThreadMode() + " is not supported by Java " + Runtime.version() + "." );
+        }
         outputStream.println( printParams() );
         outputStream.flush();
 
-        // Initialise event store, logger and event handler.
-        ServiceCallEventStore store = ServiceCallEventStoreFactory.getStore( UUID.randomUUID() );
-        ServiceLogger logger = initialiseLogger();
-        EventHandler handler = initialiseEventHandler( logger );
+        // Initialise logger, shared by the events from all sources.
+        PipelineMetrics metrics = params.getMetricsPort() > 0 ? new PipelineMetrics() : null;
+        logger = initialiseLogger( metrics );
+        List<ServiceCallEventListener> listeners = new ArrayList<>();
+        StatisticsAggregator statistics = params.getStatsFile().isPresent() ? new StatisticsAggregator() : null;
+        sampler = initialiseSampler();
+        statisticsReporter = initialiseStatisticsReporter( statistics );
+        if( statistics != null )
+        {
+            listeners.add( statistics );
+        }
+        graphReporter = initialiseGraphReporter( listeners );
+        transactionLog = initialiseTransactionLog( listeners );
+        topReporter = initialiseTopReporter( listeners );
+        gapLog = params.getGapFile().map( file -> new GapLog( file, params.getLogColumnDelimiter() ) ).orElse( null );
 
-        // Run event processor and establish client connection.
-        EventStoreProcessor storeProcessor = new EventStoreProcessor( store, handler );
-        ClientAutoReconnector clientAutoReconnector = new ClientAutoReconnector( store::put,this, 30000 );
+        // Per source, run event processor and establish client connection.
+        List<EventSource> sources = params.getEventSources();
+        List<SourcePipeline> started = new ArrayList<>( sources.size() );
+        for( int i = 0; i < sources.size(); i++ )
+        {
+            started.add( initialisePipeline( sources.get( i ), i, logger, listeners, sampler, gapLog ) );
+        }
+        pipelines = started;
+        metricsServer = initialiseMetricsServer( metrics, pipelines );
+    }
 
-        Quarkus.waitForExit();
+    /**
+     * Disconnect from the event servers, process the events already received then close the log file,
+     * printing a summary of what was processed.
+     * <br/>
+     * Each queue is drained before its processor is stopped, waiting up to {@value #DRAIN_TIMEOUT_MILLIS}ms,
+     * events still queued after that are not written and are reported.
+     * <br/>
+     * Does nothing if not started or already stopped.
+     */
+    public synchronized void stop()
+    {
+        if( logger == null || stopped )
+        {
+            return;
+        }
+        stopped = true;
+        if( metricsServer != null )
+        {
+            metricsServer.close();
+        }
+        // Disconnect clients, process what was received, then stop processing.
+        for( SourcePipeline pipeline : pipelines )
+        {
+            pipeline.reconnector.stop();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( DRAIN_TIMEOUT_MILLIS );
+        for( SourcePipeline pipeline : pipelines )
+        {
+            awaitDrained( pipeline, deadline );
+            pipeline.processor.stop();
+            pipeline.gapTracker.close();
+        }
+        if( gapLog != null )
+        {
+            gapLog.close();
+        }
+        logger.close();
+        printLogger( logger );
+        printRotator( logger );
+        printScheduledTask( logger.getFlushTask() );
+        printScheduledTask( logger.getRotateTask() );
+        if( statisticsReporter != null )
+        {
+            statisticsReporter.close();
+            printScheduledTask( statisticsReporter.getReportTask() );
+        }
+        if( graphReporter != null )
+        {
+            graphReporter.close();
+            printScheduledTask( graphReporter.getReportTask() );
+        }
+        if( transactionLog != null )
+        {
+            transactionLog.close();
+            printScheduledTask( transactionLog.getExpireTask() );
+        }
+        if( topReporter != null )
+        {
+            topReporter.close();
+            printScheduledTask( topReporter.getReportTask() );
+        }
+        for( SourcePipeline pipeline : pipelines )
+        {
+            closeQueue( pipeline.queue, pipeline.prefix );
+            printFilterCache( pipeline.handler, pipeline.prefix );
+            printProcessor( pipeline.processor, pipeline.prefix );
+            printGaps( pipeline.gapTracker, pipeline.prefix );
+        }
+        printSampler( sampler );
+        printTransactions( transactionLog );
+    }
 
-        // Stop processing and disconnect client.
-        storeProcessor.stop();
-        clientAutoReconnector.stop();
-        return 0;
+    /**
+     * @return metrics of the pipeline, null unless started and serving metrics.
+     */
+    public synchronized PipelineMetrics getMetrics()
+    {
+        return logger == null ? null : logger.getMetrics();
+    }
+
+    /**
+     * Wait until connected to every event server.
+     */
+    public void waitForConnection()
+    {
+        for( SourcePipeline pipeline : getPipelines() )
+        {
+            pipeline.reconnector.waitForConnection();
+        }
     }
 
-    private ServiceLogger initialiseLogger()
+    private synchronized List<SourcePipeline> getPipelines()
     {
-        ServiceLogger logger = ServiceLogger.newBuilder().eventServiceLogParams( this.getParams() ).build();
+        return pipelines;
+    }
+
+    /**
+     * @return progress of each event server, in the order given, empty until started.
+     */
+    public synchronized List<SourceMetrics> getSources()
+    {
+        return Collections.unmodifiableList( pipelines );
+    }
+
+    /**
+     * Each source has its own queue, as a ring buffer only supports a single producer, and its own processor
+     * so that a burst from one source does not hold up another. All share the logger, and so the log file.
+     */
+    private SourcePipeline initialisePipeline( EventSource source, int index, ServiceLogger logger, List<ServiceCallEventListener> listeners, EventSampler sampler, GapLog gapLog )
+    {
+        boolean single = params.getEventSources().size() == 1;
+        File spillFile = index == 0 ? params.getSpillFile() : new File( params.getSpillFile().getPath() + "." + index );
+        EventQueue queue = params.getEventQueueType().create( params, spillFile );
+        String prefix = single ? "" : source.getName() + ": ";
+        printRecovered( queue, spillFile, prefix );
+        EventHandler handler = initialiseEventHandler( logger, listeners, sampler, params.isSourceColumn() ? source.getName() : null );
+        EventProcessor processor = initialiseEventProcessor( queue, handler, logger );
+        ReconnectBackoff backoff = ReconnectBackoff.exponential( params.getReconnectInitialMillis(), params.getReconnectMaxMillis() );
+        GapTracker gapTracker = GapTracker.newBuilder().source( source.getName() ).gapLog( gapLog ).build();
+        ClientAutoReconnector reconnector = new ClientAutoReconnector( gapTracker.observe( queue::put ), source.getUrls(), outputStream, backoff, gapTracker, params.getThreadMode() );
+        return new SourcePipeline( source.getName(), queue, handler, processor, reconnector, gapTracker, prefix );
+    }
+
+    private MetricsServer initialiseMetricsServer( PipelineMetrics metrics, List<SourcePipeline> pipelines )
+    {
+        if( metrics == null )
+        {
+            return null;
+        }
+        pipelines.forEach( metrics::addSource );
+        MetricsServer server = MetricsServer.start( new InetSocketAddress( params.getMetricsHost(), params.getMetricsPort() ), metrics );
+        outputStream.println( "Metrics served at: http://" + params.getMetricsHost() + ":" + server.getAddress().getPort() + "/metrics" );
+        outputStream.flush();
+        return server;
+    }
+
+    private void awaitDrained( SourcePipeline pipeline, long deadline )
+    {
+        try
+        {
+            while( !pipeline.queue.isEmpty() && System.nanoTime() - deadline < 0 )
+            {
+                Thread.sleep( DRAIN_POLL_MILLIS );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        if( !pipeline.queue.isEmpty() )
+        {
+            outputStream.println( pipeline.prefix + "Queue not drained, left: " + pipeline.queue.size() + "." );
+            outputStream.flush();
+        }
+    }
+
+    private void printGaps( GapTracker gapTracker, String prefix )
+    {
+        outputStream.println( prefix + "Received: " + gapTracker.getEvents() + ", gaps: " + gapTracker.getGaps()
+                + ", gap time: " + gapTracker.getGapMillis() + "ms, estimated missed: " + gapTracker.getEstimatedMissed() + "." );
+        outputStream.flush();
+    }
+
+    private void printLogger( ServiceLogger logger )
+    {
+        outputStream.println( "Write failures: " + logger.getWriteFailures() + ", dropped: " + logger.getDropped() + "." );
+        outputStream.flush();
+    }
+
+    private void printProcessor( EventProcessor processor, String prefix )
+    {
+        outputStream.println( prefix + "Processing failures: " + processor.getFailures() + "." );
+        outputStream.flush();
+    }
+
+    private void printRotator( ServiceLogger logger )
+    {
+        LogRotator rotator = logger.getRotator();
+        if( rotator != null )
+        {
+            outputStream.println( "Rotated: " + rotator.getRotations() + ", failures: " + rotator.getFailures() + "." );
+            outputStream.flush();
+        }
+    }
+
+    private void printScheduledTask( ScheduledTask task )
+    {
+        if( task != null )
+        {
+            outputStream.println( task );
+            outputStream.flush();
+        }
+    }
+
+    private void printSampler( EventSampler sampler )
+    {
+        if( sampler != null )
+        {
+            outputStream.println( "Sampled kept: " + sampler.getKept() + ", dropped: " + sampler.getDropped()
+                    + ", bypassed: " + sampler.getBypassed() + ", services: " + sampler.getServices() + "." );
+            outputStream.flush();
+        }
+    }
+
+    private void printTransactions( TransactionLog transactionLog )
+    {
+        if( transactionLog != null )
+        {
+            outputStream.println( "Transactions summarised: " + transactionLog.getIndex().getCompleted()
+                    + ", evicted: " + transactionLog.getIndex().getEvicted() + ", dropped: " + transactionLog.getIndex().getDropped() + "." );
+            outputStream.flush();
+        }
+    }
+
+    private void printFilterCache( EventHandler handler, String prefix )
+    {
+        FilterDecisionCache filterCache = handler.getFilterCache();
+        outputStream.println( prefix + "Filter cache hits: " + filterCache.getHits() + ", misses: " + filterCache.getMisses()
+                + ", evictions: " + filterCache.getEvictions() + "." );
+        outputStream.flush();
+    }
+
+    private void printRecovered( EventQueue queue, File spillFile, String prefix )
+    {
+        if( queue instanceof OverflowEventQueue && ( (OverflowEventQueue) queue ).getRecovered() > 0 )
+        {
+            OverflowEventQueue overflowQueue = (OverflowEventQueue) queue;
+            outputStream.println( prefix + "Replaying spill file: " + spillFile + ", events: " + overflowQueue.getRecovered()
+                    + ", discarded: " + overflowQueue.getDiscarded() + "." );
+            outputStream.flush();
+        }
+    }
+
+    private void closeQueue( EventQueue queue, String prefix )
+    {
+        if( queue instanceof OverflowEventQueue )
+        {
+            OverflowEventQueue overflowQueue = (OverflowEventQueue) queue;
+            overflowQueue.close();
+            outputStream.println( prefix + "Overflow " + overflowQueue.getPolicy() + ", dropped: " + overflowQueue.getDropped()
+                    + ", spilled: " + overflowQueue.getSpilled() + ", discarded: " + overflowQueue.getDiscarded()
+                    + ", kept: " + overflowQueue.getKept() + "." );
+            outputStream.flush();
+        }
+    }
+
+    private ServiceLogger initialiseLogger( PipelineMetrics metrics )
+    {
+        ServiceLogger logger = ServiceLogger.newBuilder().eventServiceLogParams( this.getParams() ).metrics( metrics ).build();
         LogRotateHandler.newBuilder().serviceLogger( logger ).build();
         return logger;
     }
 
-    private EventHandler initialiseEventHandler(ServiceLogger logger)
+    private StatisticsReporter initialiseStatisticsReporter( StatisticsAggregator statistics )
+    {
+        if( statistics == null )
+        {
+            return null;
+        }
+        return StatisticsReporter.newBuilder()
+                .aggregator( statistics )
+                .file( params.getStatsFile().orElseThrow( IllegalStateException::new ) )
+                .delimiter( params.getLogColumnDelimiter() )
+                .intervalMillis( params.getStatsIntervalMillis() )
+                .build();
+    }
+
+    /**
+     * The call graph and call trees are shared by every source, as the calls of one execution may pass through
+     * several event servers.
+     */
+    private GraphReporter initialiseGraphReporter( List<ServiceCallEventListener> listeners )
+    {
+        if( params.getGraphFile().isEmpty() )
+        {
+            return null;
+        }
+        CallGraph graph = new CallGraph();
+        CallTrees trees = CallTrees.newBuilder()
+                .maxExecutions( params.getMaxExecutions() )
+                .maxCalls( params.getMaxCalls() )
+                .slowest( params.getGraphSlowest() )
+                .timeoutMillis( params.getExecutionTimeoutMillis() )
+                .build();
+        listeners.add( graph );
+        listeners.add( trees );
+        return GraphReporter.newBuilder()
+                .graph( graph )
+                .trees( trees )
+                .file( params.getGraphFile().get() )
+                .delimiter( params.getLogColumnDelimiter() )
+                .intervalMillis( params.getGraphIntervalMillis() )
+                .build();
+    }
+
+    private TransactionLog initialiseTransactionLog( List<ServiceCallEventListener> listeners )
     {
-        return EventHandler.newBuilder().serviceLogger( logger )
+        if( params.getTridFile().isEmpty() )
+        {
+            return null;
+        }
+        TransactionLog log = TransactionLog.newBuilder()
+                .file( params.getTridFile().get() )
+                .delimiter( params.getLogColumnDelimiter() )
+                .maxTransactions( params.getMaxTrids() )
+                .idleTimeoutMillis( params.getTridIdleTimeoutMillis() )
+                .build();
+        listeners.add( log.getIndex() );
+        return log;
+    }
+
+    private TopReporter initialiseTopReporter( List<ServiceCallEventListener> listeners )
+    {
+        if( params.getTopFile().isEmpty() )
+        {
+            return null;
+        }
+        TopServices topServices = TopServices.newBuilder()
+                .n( params.getTopN() )
+                .windowsMillis( params.getTopWindowsMillis() )
+                .build();
+        listeners.add( topServices );
+        return TopReporter.newBuilder()
+                .topServices( topServices )
+                .file( params.getTopFile().get() )
+                .delimiter( params.getLogColumnDelimiter() )
+                .intervalMillis( params.getTopIntervalMillis() )
+                .build();
+    }
+
+    private EventHandler initialiseEventHandler( ServiceLogger logger, List<ServiceCallEventListener> listeners, EventSampler sampler, String source )
+    {
+        EventHandler.Builder builder = EventHandler.newBuilder();
+        listeners.forEach( builder::listener );
+        return builder.serviceLogger( logger )
                 .filterInclusive( this.getParams().getLogFilterInclusive().orElse( null ) )
                 .filterExclusive( this.getParams().getLogFilterExclusive().orElse( null ) )
+                .filter( this.getParams().getLogFilter().orElse( null ) )
+                .filterCacheSize( this.getParams().getFilterCacheSize() )
+                .sampler( sampler )
+                .logEvents( !this.getParams().isStatsOnly() )
+                .source( source )
+                .build();
+    }
+
+    private EventProcessor initialiseEventProcessor( EventQueue queue, EventHandler handler, ServiceLogger logger )
+    {
+        if( params.getWorkerThreads() > 1 )
+        {
+            return new ParallelEventProcessor( queue, handler, logger, params.getWorkerThreads(), EventStoreProcessor.DEFAULT_DRAIN_LIMIT, params.getThreadMode() );
+        }
+        return new EventStoreProcessor( queue, handler, EventStoreProcessor.DEFAULT_DRAIN_LIMIT, params.getThreadMode() );
+    }
+
+    private EventSampler initialiseSampler()
+    {
+        if( params.getSampleRate() <= 1 && params.getSampleMaxPerSecond() <= 0 )
+        {
+            return null;
+        }
+        return EventSampler.newBuilder()
+                .rate( params.getSampleRate() )
+                .maxPerSecond( params.getSampleMaxPerSecond() )
+                .byExecution( params.isSampleByExecution() )
+                .bypass( params.getSampleBypass().orElse( null ) )
                 .build();
     }
 
@@ -109,8 +530,137 @@ public class EventServiceLogRunner implements CommandRunner<EventServiceLogParam
         params.getLogFilterExclusive().ifPresent( p -> builder.append( p.pattern() ) );
         builder.append( System.lineSeparator() );
 
-        builder.append( "--eventServerUrl: " ).append( params.getEventServerUrl() )
-                .append( System.lineSeparator() );
+        builder.append( "--filter: " );
+        params.getLogFilter().ifPresent( f -> builder.append( f.getExpression() ) );
+        builder.append( System.lineSeparator() );
+
+        for( EventSource source : params.getEventSources() )
+        {
+            builder.append( "--eventServerUrl: " );
+            for( int i = 0; i < source.getUrls().size(); i++ )
+            {
+                builder.append( i == 0 ? "" : "," ).append( source.getUrls().get( i ) );
+            }
+            builder.append( System.lineSeparator() );
+        }
+        builder.append( "--source-column: " ).append( params.isSourceColumn() ).append( System.lineSeparator() );
+        builder.append( "--batch-size: " ).append( params.getBatchSize() ).append( System.lineSeparator() )
+                .append( "--flush-interval-ms: " ).append( params.getFlushIntervalMillis() ).append( System.lineSeparator() )
+                .append( "--output: " ).append( params.getLogOutputType() ).append( System.lineSeparator() )
+                .append( "--queue: " ).append( params.getEventQueueType() ).append( System.lineSeparator() )
+                .append( "--queue-capacity: " ).append( params.getQueueCapacity() ).append( System.lineSeparator() )
+                .append( "--wait-strategy: " ).append( params.getWaitStrategy() ).append( System.lineSeparator() )
+                .append( "--overflow: " ).append( params.getOverflowPolicy() ).append( System.lineSeparator() )
+                .append( "--worker-threads: " ).append( params.getWorkerThreads() ).append( System.lineSeparator() )
+                .append( "--filter-cache-size: " ).append( params.getFilterCacheSize() ).append( System.lineSeparator() )
+                .append( "--sample-rate: " ).append( params.getSampleRate() ).append( System.lineSeparator() )
+                .append( "--sample-max-per-second: " ).append( params.getSampleMaxPerSecond() ).append( System.lineSeparator() )
+                .append( "--sample-by-execution: " ).append( params.isSampleByExecution() ).append( System.lineSeparator() );
+
+        builder.append( "--sample-bypass: " );
+        params.getSampleBypass().ifPresent( f -> builder.append( f.getExpression() ) );
+        builder.append( System.lineSeparator() );
+
+        builder.append( "--stats-file: " );
+        params.getStatsFile().ifPresent( builder::append );
+        builder.append( System.lineSeparator() )
+                .append( "--stats-interval: " ).append( params.getStatsIntervalMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--stats-only: " ).append( params.isStatsOnly() ).append( System.lineSeparator() )
+                .append( "--format: " ).append( params.getEventFormat() ).append( System.lineSeparator() )
+                .append( "--rotate-size: " ).append( params.getRotateSize() ).append( System.lineSeparator() )
+                .append( "--rotate-interval: " ).append( params.getRotateIntervalMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--rotate-retain: " ).append( params.getRotateRetain() ).append( System.lineSeparator() )
+                .append( "--reconnect-initial: " ).append( params.getReconnectInitialMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--reconnect-max: " ).append( params.getReconnectMaxMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--gap-file: " );
+        params.getGapFile().ifPresent( builder::append );
+        builder.append( System.lineSeparator() )
+                .append( "--metrics-port: " ).append( params.getMetricsPort() ).append( System.lineSeparator() )
+                .append( "--metrics-host: " ).append( params.getMetricsHost() ).append( System.lineSeparator() )
+                .append( "--thread-mode: " ).append( params.getThreadMode() ).append( System.lineSeparator() )
+                .append( "--graph-file: " );
+        params.getGraphFile().ifPresent( builder::append );
+        builder.append( System.lineSeparator() )
+                .append( "--graph-interval: " ).append( params.getGraphIntervalMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--graph-slowest: " ).append( params.getGraphSlowest() ).append( System.lineSeparator() )
+                .append( "--execution-timeout: " ).append( params.getExecutionTimeoutMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--max-executions: " ).append( params.getMaxExecutions() ).append( System.lineSeparator() )
+                .append( "--max-calls: " ).append( params.getMaxCalls() ).append( System.lineSeparator() )
+                .append( "--trid-file: " );
+        params.getTridFile().ifPresent( builder::append );
+        builder.append( System.lineSeparator() )
+                .append( "--trid-idle-timeout: " ).append( params.getTridIdleTimeoutMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--max-trids: " ).append( params.getMaxTrids() ).append( System.lineSeparator() )
+                .append( "--top-file: " );
+        params.getTopFile().ifPresent( builder::append );
+        builder.append( System.lineSeparator() )
+                .append( "--top-n: " ).append( params.getTopN() ).append( System.lineSeparator() )
+                .append( "--top-windows: " ).append( params.getTopWindowsMillis().stream().map( window -> window + "ms" ).collect( Collectors.joining( "," ) ) ).append( System.lineSeparator() )
+                .append( "--top-interval: " ).append( params.getTopIntervalMillis() ).append( "ms" ).append( System.lineSeparator() )
+                .append( "--index: " ).append( params.isIndex() ).append( System.lineSeparator() )
+                .append( "--index-events: " ).append( params.getIndexEvents() ).append( System.lineSeparator() )
+                .append( "--index-interval: " ).append( params.getIndexIntervalMillis() ).append( "ms" ).append( System.lineSeparator() );
         return builder;
     }
+
+    /**
+     * Everything required to receive and process the events from one source.
+     */
+    private static final class SourcePipeline implements SourceMetrics
+    {
+        private final String name;
+        private final EventQueue queue;
+        private final EventHandler handler;
+        private final EventProcessor processor;
+        private final ClientAutoReconnector reconnector;
+        private final GapTracker gapTracker;
+        private final String prefix;
+
+        private SourcePipeline( String name, EventQueue queue, EventHandler handler, EventProcessor processor, ClientAutoReconnector reconnector, GapTracker gapTracker, String prefix )
+        {
+            this.name = name;
+            this.queue = queue;
+            this.handler = handler;
+            this.processor = processor;
+            this.reconnector = reconnector;
+            this.gapTracker = gapTracker;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public long getReceived()
+        {
+            return gapTracker.getEvents();
+        }
+
+        @Override
+        public long getQueued()
+        {
+            return queue.size();
+        }
+
+        @Override
+        public long getHandled()
+        {
+            return handler.getHandled();
+        }
+
+        @Override
+        public long getAccepted()
+        {
+            return handler.getAccepted();
+        }
+
+        @Override
+        public long getReconnects()
+        {
+            return gapTracker.getGaps();
+        }
+    }
 }
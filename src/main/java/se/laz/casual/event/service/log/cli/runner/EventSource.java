@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An event server from which events are received, along with the name used to tell its events apart.
+ * <br/>
+ * A source may have several urls, e.g. the nodes of a cluster, {@code tcp://node1:7774,tcp://node2:7774}.
+ * Only one is connected at a time, the others are failed over to should the connection be lost.
+ * <br/>
+ * The name is the fragment of a url if provided, e.g. {@code tcp://host:7774#domainA},
+ * otherwise the host and port of the first url.
+ */
+public final class EventSource
+{
+    private final List<URI> urls;
+    private final String name;
+
+    private EventSource( List<URI> urls, String name )
+    {
+        this.urls = urls;
+        this.name = name;
+    }
+
+    public static EventSource of( URI url )
+    {
+        Objects.requireNonNull( url, "Url is null." );
+        return of( Collections.singletonList( url ) );
+    }
+
+    /**
+     * @param urls of the event server, in order of preference.
+     * @return the source.
+     */
+    public static EventSource of( List<URI> urls )
+    {
+        Objects.requireNonNull( urls, "Urls is null." );
+        if( urls.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Urls is empty." );
+        }
+        List<URI> copy = Collections.unmodifiableList( new ArrayList<>( urls ) );
+        for( URI url : copy )
+        {
+            Objects.requireNonNull( url, "Url is null." );
+            String fragment = url.getFragment();
+            if( fragment != null && !fragment.isEmpty() )
+            {
+                return new EventSource( copy, fragment );
+            }
+        }
+        URI first = copy.get( 0 );
+        return new EventSource( copy, first.getPort() < 0 ? first.getHost() : first.getHost() + ":" + first.getPort() );
+    }
+
+    /**
+     * Parse a comma separated list of urls, e.g. {@code tcp://node1:7774,tcp://node2:7774#domainA}.
+     *
+     * @param text to parse.
+     * @return the source.
+     * @throws IllegalArgumentException if a url is invalid or does not provide a host.
+     */
+    public static EventSource parse( String text )
+    {
+        Objects.requireNonNull( text, "Text is null." );
+        List<URI> urls = new ArrayList<>();
+        for( String part : text.split( "," ) )
+        {
+            String value = part.trim();
+            if( value.isEmpty() )
+            {
+                continue;
+            }
+            try
+            {
+                URI url = new URI( value );
+                if( url.getHost() == null )
+                {
+                    throw new IllegalArgumentException( "Invalid event server url, no host: " + value + ", expected e.g. tcp://host:7774" );
+                }
+                urls.add( url );
+            }
+            catch( URISyntaxException e )
+            {
+                throw new IllegalArgumentException( "Invalid event server url: " + e.getMessage(), e );
+            }
+        }
+        if( urls.isEmpty() )
+        {
+            throw new IllegalArgumentException( "No event server url: " + text );
+        }
+        return of( urls );
+    }
+
+    /**
+     * @return the first, preferred, url.
+     */
+    public URI getUrl()
+    {
+        return urls.get( 0 );
+    }
+
+    /**
+     * @return all urls in order of preference.
+     */
+    public List<URI> getUrls()
+    {
+        return urls;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if( this == o )
+        {
+            return true;
+        }
+        if( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        EventSource that = (EventSource) o;
+        return urls.equals( that.urls ) && name.equals( that.name );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( urls, name );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EventSource{" +
+                "urls=" + urls +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import picocli.CommandLine;
+
+/**
+ * Parses command line options into an {@link EventSource}, reporting invalid urls as invalid option values.
+ */
+public class EventSourceConverter implements CommandLine.ITypeConverter<EventSource>
+{
+    @Override
+    public EventSource convert( String value )
+    {
+        try
+        {
+            return EventSource.parse( value );
+        }
+        catch( IllegalArgumentException e )
+        {
+            throw new CommandLine.TypeConversionException( e.getMessage() );
+        }
+    }
+}
@@ -6,30 +6,70 @@
 
 package se.laz.casual.event.service.log.cli.runner;
 
+import se.laz.casual.event.ServiceCallEvent;
 import se.laz.casual.event.ServiceCallEventStore;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
 import se.laz.casual.event.service.log.cli.log.EventHandler;
+import se.laz.casual.event.service.log.cli.queue.EventQueue;
+import se.laz.casual.event.service.log.cli.queue.StoreEventQueue;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Read incoming events from the store and send them handling.
+ * <br/>
+ * Events are drained from the queue in batches, once the queue has been emptied
+ * the handler is flushed so that batched output is written without waiting for the flush interval.
+ * Events are drained before being handled, so that stopping, which interrupts the wait for events,
+ * never interrupts writing them, see {@link InterruptibleWait}.
+ * A failed write is left to the logger, which keeps the output for the next write, so processing carries on.
  *
  * Utilises a {@link ExecutorService} to perform the processing.
  */
-public class EventStoreProcessor
+public class EventStoreProcessor implements EventProcessor
 {
-    private final ExecutorService executorService = Executors.newFixedThreadPool( 1 );
+    public static final int DEFAULT_DRAIN_LIMIT = 1024;
+    static final long STOP_TIMEOUT_MILLIS = 10_000L;
 
-    private final ServiceCallEventStore store;
+    private final ExecutorService executorService;
+
+    private final EventQueue queue;
     private final EventHandler handler;
+    private final ServiceCallEvent[] drained;
+    private final Consumer<ServiceCallEvent> add = this::add;
+    private final int drainLimit;
+    private final InterruptibleWait wait = new InterruptibleWait();
+    private final AtomicLong failures = new AtomicLong();
+    private int size;
 
-    private boolean stop = false;
+    private volatile boolean stop = false;
 
     public EventStoreProcessor( ServiceCallEventStore store, EventHandler handler )
     {
-        this.store = store;
+        this( new StoreEventQueue( store ), handler, DEFAULT_DRAIN_LIMIT );
+    }
+
+    public EventStoreProcessor( EventQueue queue, EventHandler handler, int drainLimit )
+    {
+        this( queue, handler, drainLimit, ThreadMode.PLATFORM );
+    }
+
+    /**
+     * @param queue to take events from.
+     * @param handler of the events.
+     * @param drainLimit max events taken from the queue at a time.
+     * @param threadMode of the thread taking events from the queue.
+     */
+    public EventStoreProcessor( EventQueue queue, EventHandler handler, int drainLimit, ThreadMode threadMode )
+    {
+        this.executorService = Executors.newSingleThreadExecutor( threadMode.newThreadFactory( "event-processor" ) );
+        this.queue = queue;
         this.handler = handler;
+        this.drained = new ServiceCallEvent[drainLimit];
+        this.drainLimit = drainLimit;
         initialiseProcessing();
     }
 
@@ -42,16 +82,72 @@ public class EventStoreProcessor
     {
         while( !stop )
         {
-            this.handler.handle( this.store.take() );
+            wait.begin();
+            this.queue.drain( add, drainLimit );
+            wait.end();
+            for( int i = 0; i < size; i++ )
+            {
+                handle( drained[i] );
+                drained[i] = null;
+            }
+            if( size > 0 && this.queue.isEmpty() )
+            {
+                flush();
+            }
+            size = 0;
         }
     }
 
+    private void handle( ServiceCallEvent event )
+    {
+        try
+        {
+            this.handler.handle( event );
+        }
+        catch( EventServiceLoggerException e )
+        {
+            // Counted and kept by the logger for the next write.
+        }
+        catch( RuntimeException e )
+        {
+            failures.incrementAndGet();
+        }
+    }
+
+    private void flush()
+    {
+        try
+        {
+            this.handler.flush();
+        }
+        catch( EventServiceLoggerException e )
+        {
+            // Counted and kept by the logger for the next write.
+        }
+    }
+
+    private void add( ServiceCallEvent event )
+    {
+        drained[size++] = event;
+    }
+
+    /**
+     * @return events dropped as handling them failed.
+     */
+    @Override
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
     /**
      * Stop processing events from the store.
+     * The events already taken are handled first, waiting up to {@value #STOP_TIMEOUT_MILLIS}ms.
      */
+    @Override
     public void stop()
     {
         this.stop = true;
-        executorService.shutdownNow();
+        wait.stop( executorService, STOP_TIMEOUT_MILLIS );
     }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Selects which of the urls of an event server to connect to.
+ * <br/>
+ * Attempts are made in rounds, each url being tried at most once per round, preferring those with the fewest
+ * consecutive failures and otherwise the next in order. Once every url has failed in a round the caller backs off
+ * before the next round. A url that was connected but lost is tried last in the following round.
+ * <br/>
+ * Not thread safe, used by the single reconnection thread.
+ */
+final class FailoverEndpoints
+{
+    private final List<URI> urls;
+    private final int[] failures;
+    private final boolean[] tried;
+    private int triedCount;
+    private int current;
+
+    FailoverEndpoints( List<URI> urls )
+    {
+        Objects.requireNonNull( urls, "Urls is null." );
+        if( urls.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Urls is empty." );
+        }
+        this.urls = new ArrayList<>( urls );
+        this.failures = new int[urls.size()];
+        this.tried = new boolean[urls.size()];
+    }
+
+    /**
+     * @return the url to attempt next.
+     */
+    URI current()
+    {
+        return urls.get( current );
+    }
+
+    /**
+     * The current url was connected, start afresh.
+     */
+    void connected()
+    {
+        failures[current] = 0;
+        newRound();
+    }
+
+    /**
+     * The connection to the current url was lost, move on to another url if there is one.
+     */
+    void disconnected()
+    {
+        newRound();
+        markTried( current );
+        current = select();
+    }
+
+    /**
+     * The attempt to connect to the current url failed, move on to the next url.
+     *
+     * @return true if every url has failed in this round, after which a new round starts.
+     */
+    boolean failed()
+    {
+        if( failures[current] < Integer.MAX_VALUE )
+        {
+            failures[current]++;
+        }
+        markTried( current );
+        boolean exhausted = triedCount >= urls.size();
+        if( exhausted )
+        {
+            newRound();
+        }
+        current = select();
+        return exhausted;
+    }
+
+    /**
+     * @param index of the url.
+     * @return consecutive failed attempts to connect to the url.
+     */
+    int getFailures( int index )
+    {
+        return failures[index];
+    }
+
+    int size()
+    {
+        return urls.size();
+    }
+
+    private int select()
+    {
+        int selected = -1;
+        for( int offset = 1; offset <= urls.size(); offset++ )
+        {
+            int index = ( current + offset ) % urls.size();
+            if( !tried[index] && ( selected < 0 || failures[index] < failures[selected] ) )
+            {
+                selected = index;
+            }
+        }
+        return selected < 0 ? current : selected;
+    }
+
+    private void markTried( int index )
+    {
+        if( !tried[index] )
+        {
+            tried[index] = true;
+            triedCount++;
+        }
+    }
+
+    private void newRound()
+    {
+        Arrays.fill( tried, false );
+        triedCount = 0;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.LogOutput;
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput;
+
+import java.io.File;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends a record to the gap file for each period during which the connection to an event server was lost,
+ * shared by the {@link GapTracker} of every source.
+ * <br/>
+ * One line is written per gap, columns separated by the delimiter:
+ * disconnected, reconnected ({@code us} since epoch), gap ({@code us}), estimated missed events, source.
+ */
+public final class GapLog
+{
+    private final String delimiter;
+    private final LogOutput output;
+    private final LogBuffer buffer = new LogBuffer( 256 );
+    private boolean closed = false;
+
+    public GapLog( File file, String delimiter )
+    {
+        Objects.requireNonNull( file, "File is null." );
+        Objects.requireNonNull( delimiter, "Delimiter is null." );
+        this.delimiter = delimiter;
+        this.output = new StreamLogOutput( file );
+    }
+
+    /**
+     * @param disconnectedMillis when the connection was lost.
+     * @param reconnectedMillis when the connection was established again.
+     * @param estimatedMissed events estimated to have been missed.
+     * @param source name of the event server.
+     */
+    public synchronized void write( long disconnectedMillis, long reconnectedMillis, long estimatedMissed, String source )
+    {
+        if( closed )
+        {
+            return;
+        }
+        buffer.reset();
+        buffer.append( TimeUnit.MILLISECONDS.toMicros( disconnectedMillis ) ).append( delimiter )
+                .append( TimeUnit.MILLISECONDS.toMicros( reconnectedMillis ) ).append( delimiter )
+                .append( TimeUnit.MILLISECONDS.toMicros( reconnectedMillis - disconnectedMillis ) ).append( delimiter )
+                .append( estimatedMissed ).append( delimiter )
+                .append( source )
+                .appendLineSeparator();
+        output.write( buffer );
+    }
+
+    public synchronized void close()
+    {
+        if( !closed )
+        {
+            closed = true;
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import se.laz.casual.event.client.EventObserver;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Accounts for the periods during which the connection to an event server was lost, as the events
+ * emitted meanwhile are never received.
+ * <br/>
+ * The events missed during a gap are estimated from the rate events were received at during the connection
+ * before the gap. Connections shorter than a second only provide the rate if none is known yet.
+ * <br/>
+ * A gap still open when closed, i.e. stopped whilst disconnected, is accounted up until then.
+ */
+public final class GapTracker implements ConnectionListener
+{
+    static final long MIN_RATE_WINDOW_MILLIS = 1000L;
+
+    private final String source;
+    private final GapLog gapLog;
+    private final LongSupplier currentTimeMillis;
+    private final AtomicLong events = new AtomicLong();
+
+    private long connectedMillis = -1;
+    private long connectedEvents;
+    private long disconnectedMillis = -1;
+    private double eventsPerMilli = -1;
+
+    private long gaps;
+    private long gapMillis;
+    private long estimatedMissed;
+
+    private GapTracker( Builder builder )
+    {
+        this.source = builder.source;
+        this.gapLog = builder.gapLog;
+        this.currentTimeMillis = builder.currentTimeMillis;
+    }
+
+    /**
+     * @param observer to notify of received events.
+     * @return observer counting the received events before notifying the observer.
+     */
+    public EventObserver observe( EventObserver observer )
+    {
+        Objects.requireNonNull( observer, "Observer is null." );
+        return event -> {
+            events.incrementAndGet();
+            observer.notify( event );
+        };
+    }
+
+    @Override
+    public synchronized void connected( URI eventServerUrl )
+    {
+        long now = currentTimeMillis.getAsLong();
+        if( disconnectedMillis >= 0 )
+        {
+            recordGap( now );
+        }
+        connectedMillis = now;
+        connectedEvents = events.get();
+    }
+
+    @Override
+    public synchronized void disconnected( URI eventServerUrl )
+    {
+        long now = currentTimeMillis.getAsLong();
+        if( connectedMillis >= 0 )
+        {
+            long elapsed = now - connectedMillis;
+            if( elapsed > 0 && ( elapsed >= MIN_RATE_WINDOW_MILLIS || eventsPerMilli < 0 ) )
+            {
+                eventsPerMilli = (double) ( events.get() - connectedEvents ) / elapsed;
+            }
+        }
+        connectedMillis = -1;
+        disconnectedMillis = now;
+    }
+
+    /**
+     * Account for a gap still open.
+     */
+    public synchronized void close()
+    {
+        if( disconnectedMillis >= 0 )
+        {
+            recordGap( currentTimeMillis.getAsLong() );
+        }
+    }
+
+    private void recordGap( long reconnectedMillis )
+    {
+        long gap = Math.max( 0, reconnectedMillis - disconnectedMillis );
+        long missed = eventsPerMilli < 0 ? 0 : Math.round( eventsPerMilli * gap );
+        gaps++;
+        gapMillis += gap;
+        estimatedMissed += missed;
+        if( gapLog != null )
+        {
+            gapLog.write( disconnectedMillis, disconnectedMillis + gap, missed, source );
+        }
+        disconnectedMillis = -1;
+    }
+
+    public String getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @return events received.
+     */
+    public long getEvents()
+    {
+        return events.get();
+    }
+
+    public synchronized long getGaps()
+    {
+        return gaps;
+    }
+
+    public synchronized long getGapMillis()
+    {
+        return gapMillis;
+    }
+
+    public synchronized long getEstimatedMissed()
+    {
+        return estimatedMissed;
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+        private String source;
+        private GapLog gapLog;
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+
+        private Builder()
+        {
+        }
+
+        public Builder source( String source )
+        {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * @param gapLog to record gaps to, null to only account for them.
+         * @return this builder.
+         */
+        public Builder gapLog( GapLog gapLog )
+        {
+            this.gapLog = gapLog;
+            return this;
+        }
+
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        public GapTracker build()
+        {
+            Objects.requireNonNull( source, "Source is null." );
+            Objects.requireNonNull( currentTimeMillis, "Clock is null." );
+            return new GapTracker( this );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks where a processing thread waits, e.g. for events on the queue, so that stopping it only interrupts the wait.
+ * <br/>
+ * Interrupting a thread whilst it writes through a {@link java.nio.channels.FileChannel} closes the channel,
+ * so once asked to stop a thread is left to finish the work in hand and is only woken if waiting for more.
+ * An interrupt delivered to the wait is cleared when the thread goes back to work.
+ */
+final class InterruptibleWait
+{
+    private static final long POLL_MILLIS = 10L;
+
+    private final Object lock = new Object();
+    private boolean waiting = false;
+    private boolean interrupted = false;
+
+    /**
+     * Called by the processing thread before it waits.
+     */
+    void begin()
+    {
+        synchronized( lock )
+        {
+            waiting = true;
+        }
+    }
+
+    /**
+     * Called by the processing thread once done waiting, before working on what it waited for.
+     */
+    void end()
+    {
+        synchronized( lock )
+        {
+            waiting = false;
+            if( interrupted )
+            {
+                interrupted = false;
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Wait for the executor's thread, already asked to stop, to finish, interrupting it only whilst waiting.
+     * Should it not finish within the timeout it is interrupted regardless.
+     *
+     * @param executor running the processing thread, shut down by this.
+     * @param timeoutMillis max time to wait.
+     * @return true if finished.
+     */
+    boolean stop( ExecutorService executor, long timeoutMillis )
+    {
+        executor.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+        try
+        {
+            while( !executor.awaitTermination( POLL_MILLIS, TimeUnit.MILLISECONDS ) )
+            {
+                synchronized( lock )
+                {
+                    if( waiting && !interrupted )
+                    {
+                        interrupted = true;
+                        executor.shutdownNow();
+                    }
+                }
+                if( System.nanoTime() - deadline > 0 )
+                {
+                    executor.shutdownNow();
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            return false;
+        }
+    }
+}
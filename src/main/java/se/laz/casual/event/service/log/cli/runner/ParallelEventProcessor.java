@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+import se.laz.casual.event.service.log.cli.log.EventEncoder;
+import se.laz.casual.event.service.log.cli.log.EventHandler;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.ServiceLogger;
+import se.laz.casual.event.service.log.cli.metrics.PipelineMetrics;
+import se.laz.casual.event.service.log.cli.queue.EventQueue;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Read incoming events from the queue, filtering and formatting them on a pool of worker threads.
+ * <br/>
+ * A dispatcher thread drains events from the queue into batches which are handed to the workers.
+ * A single writer thread passes the formatted batches to the {@link ServiceLogger} in the order they were
+ * drained, so the log file is written in arrival order regardless of which worker finishes first.
+ * <br/>
+ * Batches are pooled and reused, the pool size bounds how far the dispatcher can run ahead of the writer.
+ * <br/>
+ * If the logger's encoder is not {@link EventEncoder#isStateless()} the workers only filter,
+ * the accepted events are then encoded by the writer.
+ * <br/>
+ * A batch that fails to be filtered or formatted, is cancelled as the processor stops, or is not formatted within
+ * {@value #FORMAT_TIMEOUT_MILLIS}ms by default, is dropped and counted, see {@link #getFailures()}, so the writer carries on.
+ * A failed write is left to the logger, which keeps the output for the next write, so the writer carries on.
+ */
+public class ParallelEventProcessor implements EventProcessor
+{
+    private static final int BATCHES_PER_WORKER = 4;
+    static final long FORMAT_TIMEOUT_MILLIS = 10_000L;
+
+    private final ExecutorService dispatcherService;
+    private final ExecutorService writerService;
+    private final ExecutorService workerService;
+
+    private final EventQueue queue;
+    private final EventHandler handler;
+    private final ServiceLogger logger;
+    private final int drainLimit;
+    private final long formatTimeoutMillis;
+
+    private final BlockingQueue<EventBatch> free;
+    private final BlockingQueue<EventBatch> inFlight;
+
+    private final InterruptibleWait dispatcherWait = new InterruptibleWait();
+    private final InterruptibleWait writerWait = new InterruptibleWait();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean stop = false;
+    private volatile boolean stopWriter = false;
+
+    public ParallelEventProcessor( EventQueue queue, EventHandler handler, ServiceLogger logger, int workers, int drainLimit )
+    {
+        this( queue, handler, logger, workers, drainLimit, ThreadMode.PLATFORM );
+    }
+
+    /**
+     * @param queue to take events from.
+     * @param handler filtering the events.
+     * @param logger to write the events to.
+     * @param workers number of threads filtering and formatting.
+     * @param drainLimit max events in a batch.
+     * @param threadMode of the dispatcher and writer threads, which block for most of their lifetime.
+     *                   The workers are busy whilst running so are always platform threads.
+     */
+    public ParallelEventProcessor( EventQueue queue, EventHandler handler, ServiceLogger logger, int workers, int drainLimit, ThreadMode threadMode )
+    {
+        this( queue, handler, logger, workers, drainLimit, threadMode, FORMAT_TIMEOUT_MILLIS );
+    }
+
+    /**
+     * @param formatTimeoutMillis how long the writer waits for a batch to be formatted before dropping it.
+     */
+    ParallelEventProcessor( EventQueue queue, EventHandler handler, ServiceLogger logger, int workers, int drainLimit, ThreadMode threadMode, long formatTimeoutMillis )
+    {
+        Objects.requireNonNull( queue, "Queue is null." );
+        Objects.requireNonNull( handler, "Handler is null." );
+        Objects.requireNonNull( logger, "Logger is null." );
+        if( workers < 1 )
+        {
+            throw new IllegalArgumentException( "Workers must be at least 1, was: " + workers );
+        }
+        if( drainLimit < 1 )
+        {
+            throw new IllegalArgumentException( "Drain limit must be at least 1, was: " + drainLimit );
+        }
+        this.queue = queue;
+        this.handler = handler;
+        this.logger = logger;
+        this.drainLimit = drainLimit;
+        this.formatTimeoutMillis = formatTimeoutMillis;
+        this.workerService = Executors.newFixedThreadPool( workers );
+        this.dispatcherService = Executors.newSingleThreadExecutor( threadMode.newThreadFactory( "event-dispatcher" ) );
+        this.writerService = Executors.newSingleThreadExecutor( threadMode.newThreadFactory( "event-writer" ) );
+
+        int batches = workers * BATCHES_PER_WORKER;
+        this.free = new ArrayBlockingQueue<>( batches );
+        this.inFlight = new ArrayBlockingQueue<>( batches );
+        for( int i = 0; i < batches; i++ )
+        {
+            free.add( new EventBatch( drainLimit, handler, logger.getEncoder().isStateless() ? logger.getEncoder() : null, logger.getMetrics() ) );
+        }
+        initialiseProcessing();
+    }
+
+    private void initialiseProcessing()
+    {
+        writerService.submit( this::tryWrite );
+        dispatcherService.submit( this::tryDispatch );
+    }
+
+    private void tryDispatch()
+    {
+        try
+        {
+            while( !stop )
+            {
+                dispatch( free.take() );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch( EventBatch batch ) throws InterruptedException
+    {
+        // Block for the first event, then take whatever else is already available up to the limit.
+        dispatcherWait.begin();
+        int drained = queue.drain( batch.add, drainLimit );
+        dispatcherWait.end();
+        while( drained > 0 && drained < drainLimit && !queue.isEmpty() )
+        {
+            drained += queue.drain( batch.add, drainLimit - drained );
+        }
+        if( drained == 0 )
+        {
+            free.put( batch );
+            return;
+        }
+        batch.formatting = workerService.submit( batch::format );
+        inFlight.put( batch );
+    }
+
+    /**
+     * Once the dispatcher has stopped, the batches already dispatched are still written.
+     */
+    private void tryWrite()
+    {
+        try
+        {
+            while( !stopWriter || !inFlight.isEmpty() )
+            {
+                EventBatch batch = take();
+                if( batch == null )
+                {
+                    continue;
+                }
+                write( batch );
+                if( inFlight.isEmpty() && queue.isEmpty() )
+                {
+                    flush();
+                }
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the next batch, or null if woken by stop.
+     */
+    private EventBatch take()
+    {
+        writerWait.begin();
+        try
+        {
+            return inFlight.take();
+        }
+        catch( InterruptedException e )
+        {
+            return inFlight.poll();
+        }
+        finally
+        {
+            writerWait.end();
+        }
+    }
+
+    private void flush()
+    {
+        try
+        {
+            handler.flush();
+        }
+        catch( EventServiceLoggerException e )
+        {
+            // Counted and kept by the logger for the next write.
+        }
+    }
+
+    private void write( EventBatch batch ) throws InterruptedException
+    {
+        EventBatch next = batch;
+        try
+        {
+            batch.formatting.get( formatTimeoutMillis, TimeUnit.MILLISECONDS );
+            if( batch.encoder == null )
+            {
+                for( int i = 0; i < batch.accepted; i++ )
+                {
+                    logger.logEvent( batch.events[i], handler.getSource() );
+                }
+            }
+            else if( batch.accepted > 0 )
+            {
+                logger.logFormatted( batch.formatted, batch.accepted, batch.minStart, batch.maxStart );
+            }
+        }
+        catch( ExecutionException | CancellationException e )
+        {
+            // Formatting failed or was cancelled on stop, the batch is dropped so that the following batches are still written.
+            failures.incrementAndGet();
+        }
+        catch( TimeoutException e )
+        {
+            // The worker may still be using the batch, so it is left to the worker and replaced.
+            batch.formatting.cancel( true );
+            next = batch.replacement();
+            failures.incrementAndGet();
+        }
+        catch( EventServiceLoggerException e )
+        {
+            // Counted and kept by the logger for the next write.
+        }
+        catch( RuntimeException e )
+        {
+            // Encoding on the writer failed.
+            failures.incrementAndGet();
+        }
+        finally
+        {
+            next.reset();
+            free.put( next );
+        }
+    }
+
+    /**
+     * @return batches dropped as filtering or formatting them failed.
+     */
+    @Override
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Stop processing events from the queue.
+     * <br/>
+     * The dispatcher stops taking events, then the batches already dispatched are formatted and written,
+     * each step waiting up to {@value EventStoreProcessor#STOP_TIMEOUT_MILLIS}ms.
+     * Events left in the queue are not processed.
+     */
+    @Override
+    public void stop()
+    {
+        this.stop = true;
+        dispatcherWait.stop( dispatcherService, EventStoreProcessor.STOP_TIMEOUT_MILLIS );
+        workerService.shutdown();
+        try
+        {
+            if( !workerService.awaitTermination( EventStoreProcessor.STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS ) )
+            {
+                cancelWorkers();
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            cancelWorkers();
+        }
+        stopWriter = true;
+        writerWait.stop( writerService, EventStoreProcessor.STOP_TIMEOUT_MILLIS );
+    }
+
+    /**
+     * Batches not yet formatted are cancelled, so that the writer drops them rather than waiting for them.
+     */
+    private void cancelWorkers()
+    {
+        for( Runnable task : workerService.shutdownNow() )
+        {
+            if( task instanceof Future )
+            {
+                ( (Future<?>) task ).cancel( false );
+            }
+        }
+    }
+
+    /**
+     * Events drained together, along with their formatted output.
+     * Filled by the dispatcher, formatted by a worker and then written by the writer,
+     * the hand over between threads is through blocking queues and futures.
+     */
+    private static final class EventBatch
+    {
+        private final ServiceCallEvent[] events;
+        private final EventHandler handler;
+        private final EventEncoder encoder;
+        private final PipelineMetrics metrics;
+        private final LogBuffer formatted = new LogBuffer( 256 );
+        private final Consumer<ServiceCallEvent> add = this::add;
+
+        private int size;
+        private int accepted;
+        private long minStart = Long.MAX_VALUE;
+        private long maxStart = Long.MIN_VALUE;
+        private Future<?> formatting;
+
+        private EventBatch( int capacity, EventHandler handler, EventEncoder encoder, PipelineMetrics metrics )
+        {
+            this.events = new ServiceCallEvent[capacity];
+            this.handler = handler;
+            this.encoder = encoder;
+            this.metrics = metrics;
+        }
+
+        /**
+         * @return a new batch to take the place of this one in the pool.
+         */
+        private EventBatch replacement()
+        {
+            return new EventBatch( events.length, handler, encoder, metrics );
+        }
+
+        private void add( ServiceCallEvent event )
+        {
+            events[size++] = event;
+        }
+
+        /**
+         * Without an encoder, accepted events are moved to the front of the batch for the writer.
+         */
+        private void format()
+        {
+            for( int i = 0; i < size; i++ )
+            {
+                if( handler.accept( events[i] ) )
+                {
+                    if( encoder != null && metrics != null )
+                    {
+                        long start = System.nanoTime();
+                        encoder.encode( events[i], handler.getSource(), formatted );
+                        metrics.recordFormat( System.nanoTime() - start );
+                    }
+                    else if( encoder != null )
+                    {
+                        encoder.encode( events[i], handler.getSource(), formatted );
+                    }
+                    else
+                    {
+                        events[accepted] = events[i];
+                    }
+                    minStart = Math.min( minStart, events[i].getStart() );
+                    maxStart = Math.max( maxStart, events[i].getStart() );
+                    accepted++;
+                }
+            }
+        }
+
+        private void reset()
+        {
+            for( int i = 0; i < size; i++ )
+            {
+                events[i] = null;
+            }
+            size = 0;
+            accepted = 0;
+            minStart = Long.MAX_VALUE;
+            maxStart = Long.MIN_VALUE;
+            formatting = null;
+            formatted.reset();
+        }
+    }
+}
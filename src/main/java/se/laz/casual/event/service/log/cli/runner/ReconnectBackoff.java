@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Delays between reconnection attempts.
+ * <br/>
+ * Exponential backoff doubles the delay after each failed attempt, from the initial delay up to the max,
+ * with the delay randomised between half and all of that so that many clients do not retry in lockstep.
+ * The first retry after a lost connection is made immediately.
+ * <br/>
+ * Fixed backoff always waits the same delay, including after a lost connection.
+ * <br/>
+ * Not thread safe, used by the single reconnection thread.
+ */
+public final class ReconnectBackoff
+{
+    private final long initialMillis;
+    private final long maxMillis;
+    private final long firstRetryMillis;
+    private final DoubleSupplier random;
+    private int attempts;
+
+    ReconnectBackoff( long initialMillis, long maxMillis, long firstRetryMillis, DoubleSupplier random )
+    {
+        if( initialMillis < 0 || maxMillis < initialMillis )
+        {
+            throw new IllegalArgumentException( "Invalid backoff, initial: " + initialMillis + ", max: " + maxMillis );
+        }
+        this.initialMillis = initialMillis;
+        this.maxMillis = maxMillis;
+        this.firstRetryMillis = firstRetryMillis;
+        this.random = random;
+    }
+
+    public static ReconnectBackoff fixed( long backoffMillis )
+    {
+        return new ReconnectBackoff( backoffMillis, backoffMillis, backoffMillis, null );
+    }
+
+    public static ReconnectBackoff exponential( long initialMillis, long maxMillis )
+    {
+        return new ReconnectBackoff( initialMillis, maxMillis, 0, () -> ThreadLocalRandom.current().nextDouble() );
+    }
+
+    /**
+     * @return delay before retrying after a connection was lost.
+     */
+    public long firstRetryMillis()
+    {
+        return firstRetryMillis;
+    }
+
+    /**
+     * Delay after a failed attempt, each call doubling the delay until reset.
+     *
+     * @return delay before the next attempt.
+     */
+    public long nextDelayMillis()
+    {
+        long delay = initialMillis;
+        for( int i = 0; i < attempts && delay < maxMillis; i++ )
+        {
+            delay = delay > maxMillis / 2 ? maxMillis : delay * 2;
+        }
+        attempts++;
+        if( random == null )
+        {
+            return delay;
+        }
+        long half = delay / 2;
+        return half + (long) ( random.getAsDouble() * ( delay - half ) );
+    }
+
+    /**
+     * Restart from the initial delay, once connected.
+     */
+    public void reset()
+    {
+        attempts = 0;
+    }
+
+    public long getInitialMillis()
+    {
+        return initialMillis;
+    }
+
+    public long getMaxMillis()
+    {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReconnectBackoff{" +
+                "initialMillis=" + initialMillis +
+                ", maxMillis=" + maxMillis +
+                ", firstRetryMillis=" + firstRetryMillis +
+                ", jitter=" + ( random != null ) +
+                '}';
+    }
+}
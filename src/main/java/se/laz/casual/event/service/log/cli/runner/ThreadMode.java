@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner;
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kind of threads running the loops that block for most of their lifetime, i.e. those maintaining
+ * the connection to each event server and those taking events from each queue.
+ */
+public enum ThreadMode
+{
+    /**
+     * A platform thread per loop, as the thread count grows with the number of event servers.
+     */
+    PLATFORM
+    {
+        @Override
+        public boolean isSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public ThreadFactory newThreadFactory( String name )
+        {
+            Objects.requireNonNull( name, "Name is null." );
+            ThreadFactory threads = Executors.defaultThreadFactory();
+            AtomicLong count = new AtomicLong();
+            return runnable -> {
+                Thread thread = threads.newThread( runnable );
+                thread.setName( name + "-" + count.getAndIncrement() );
+                return thread;
+            };
+        }
+    },
+    /**
+     * A virtual thread per loop, so that only a few carrier threads are required regardless of the number
+     * of event servers. Requires Java 21 or later.
+     */
+    VIRTUAL
+    {
+        @Override
+        public boolean isSupported()
+        {
+            return Runtime.version().feature() >= VIRTUAL_JAVA_VERSION && OF_VIRTUAL != null;
+        }
+
+        /**
+         * Virtual threads are created through reflection, so that the tool still builds and runs on Java 17.
+         */
+        @Override
+        public ThreadFactory newThreadFactory( String name )
+        {
+            Objects.requireNonNull( name, "Name is null." );
+            if( !isSupported() )
+            {
+                throw new EventServiceLoggerException( "Virtual threads require Java " + VIRTUAL_JAVA_VERSION + " or later, running: " + Runtime.version() );
+            }
+            try
+            {
+                Object builder = OF_VIRTUAL.invoke( null );
+                builder = BUILDER_NAME.invoke( builder, name + "-", 0L );
+                return (ThreadFactory) BUILDER_FACTORY.invoke( builder );
+            }
+            catch( IllegalAccessException | InvocationTargetException e )
+            {
+                throw new EventServiceLoggerException( "Failed to create virtual thread factory.", e );
+            }
+        }
+    };
+
+    /**
+     * Feature release of Java from which virtual threads are available.
+     */
+    public static final int VIRTUAL_JAVA_VERSION = 21;
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static
+    {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        try
+        {
+            Class<?> builder = Class.forName( "java.lang.Thread$Builder" );
+            ofVirtual = Thread.class.getMethod( "ofVirtual" );
+            builderName = builder.getMethod( "name", String.class, long.class );
+            builderFactory = builder.getMethod( "factory" );
+        }
+        catch( ClassNotFoundException | NoSuchMethodException e )
+        {
+            // Prior to Java 21, only platform threads are available.
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+    }
+
+    /**
+     * @return true if the running JVM provides this kind of thread.
+     */
+    public abstract boolean isSupported();
+
+    /**
+     * @param name prefix of the thread names, each followed by a count of the threads created, e.g. {@code name-0}.
+     * @return factory of threads of this kind.
+     * @throws EventServiceLoggerException if not supported by the running JVM.
+     */
+    public abstract ThreadFactory newThreadFactory( String name );
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.sample;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.filter.FilterExpression;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples events to reduce the volume logged for high frequency services.
+ * <br/>
+ * Sampling is applied per service:
+ * <ul>
+ *     <li>rate - 1 in rate events are kept.
+ *     When by execution, the decision is instead made from a hash of the execution id,
+ *     so all calls within one execution are kept or dropped together.</li>
+ *     <li>max per second - at most this many events are kept per second, further events are dropped.</li>
+ * </ul>
+ * Events matching the bypass expression, for example errors or slow calls, are always kept.
+ * <br/>
+ * Memory is bounded by max services, services beyond that are sampled together as {@value #OTHER_SERVICES}.
+ * <br/>
+ * Thread safe.
+ */
+public final class EventSampler
+{
+    public static final int DEFAULT_MAX_SERVICES = 4096;
+    public static final String OTHER_SERVICES = "<other>";
+
+    private final int rate;
+    private final int maxPerSecond;
+    private final boolean byExecution;
+    private final int maxServices;
+    private final FilterExpression bypass;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentMap<String, ServiceState> services = new ConcurrentHashMap<>();
+    private final Function<String, ServiceState> serviceStateFactory = this::newServiceState;
+
+    private final LongAdder kept = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    private EventSampler( Builder builder )
+    {
+        this.rate = builder.rate;
+        this.maxPerSecond = builder.maxPerSecond;
+        this.byExecution = builder.byExecution;
+        this.maxServices = builder.maxServices;
+        this.bypass = builder.bypass;
+        this.nanoClock = builder.nanoClock;
+    }
+
+    /**
+     * Decide whether the event is kept.
+     *
+     * @param event to sample.
+     * @return true if the event is to be logged.
+     */
+    public boolean sample( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        if( bypass != null && bypass.test( event ) )
+        {
+            bypassed.increment();
+            kept.increment();
+            return true;
+        }
+        ServiceState state = getServiceState( Objects.toString( event.getService(), "" ) );
+        boolean keep = sampleRate( state, event ) && ( state.bucket == null || state.bucket.tryAcquire() );
+        ( keep ? kept : dropped ).increment();
+        return keep;
+    }
+
+    private boolean sampleRate( ServiceState state, ServiceCallEvent event )
+    {
+        if( rate <= 1 )
+        {
+            return true;
+        }
+        if( byExecution )
+        {
+            return Long.remainderUnsigned( mix( Objects.hashCode( event.getExecution() ) ), rate ) == 0;
+        }
+        return state.count.getAndIncrement() % rate == 0;
+    }
+
+    private ServiceState getServiceState( String service )
+    {
+        // Lookup first, computeIfAbsent may lock even when the service is already present.
+        ServiceState state = services.get( service );
+        if( state != null )
+        {
+            return state;
+        }
+        // The check is racy, so the bound may be exceeded by the number of concurrently sampling threads.
+        String key = services.size() < maxServices ? service : OTHER_SERVICES;
+        return services.computeIfAbsent( key, serviceStateFactory );
+    }
+
+    private ServiceState newServiceState( String service )
+    {
+        return new ServiceState( maxPerSecond > 0 ? new TokenBucket( maxPerSecond, nanoClock ) : null );
+    }
+
+    /**
+     * Spread the bits of the hash so that consecutive hashes are not kept or dropped in step with the rate.
+     */
+    private static long mix( long hash )
+    {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public int getRate()
+    {
+        return rate;
+    }
+
+    public int getMaxPerSecond()
+    {
+        return maxPerSecond;
+    }
+
+    public boolean isByExecution()
+    {
+        return byExecution;
+    }
+
+    public int getMaxServices()
+    {
+        return maxServices;
+    }
+
+    /**
+     * @return number of services sampled separately, including {@value #OTHER_SERVICES}.
+     */
+    public int getServices()
+    {
+        return services.size();
+    }
+
+    public FilterExpression getBypass()
+    {
+        return bypass;
+    }
+
+    public long getKept()
+    {
+        return kept.sum();
+    }
+
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    public long getBypassed()
+    {
+        return bypassed.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EventSampler{" +
+                "rate=" + rate +
+                ", maxPerSecond=" + maxPerSecond +
+                ", byExecution=" + byExecution +
+                ", maxServices=" + maxServices +
+                ", bypass=" + bypass +
+                ", kept=" + getKept() +
+                ", dropped=" + getDropped() +
+                ", bypassed=" + getBypassed() +
+                '}';
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    private static final class ServiceState
+    {
+        private final AtomicLong count = new AtomicLong();
+        private final TokenBucket bucket;
+
+        private ServiceState( TokenBucket bucket )
+        {
+            this.bucket = bucket;
+        }
+    }
+
+    public static final class Builder
+    {
+        private int rate = 1;
+        private int maxPerSecond = 0;
+        private boolean byExecution = false;
+        private int maxServices = DEFAULT_MAX_SERVICES;
+        private FilterExpression bypass;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param rate keep 1 in rate events, 1 keeps all events.
+         * @return builder.
+         */
+        public Builder rate( int rate )
+        {
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * @param maxPerSecond max events kept per service per second, 0 for no limit.
+         * @return builder.
+         */
+        public Builder maxPerSecond( int maxPerSecond )
+        {
+            this.maxPerSecond = maxPerSecond;
+            return this;
+        }
+
+        public Builder byExecution( boolean byExecution )
+        {
+            this.byExecution = byExecution;
+            return this;
+        }
+
+        /**
+         * @param maxServices max services sampled separately, further services are sampled together.
+         * @return builder.
+         */
+        public Builder maxServices( int maxServices )
+        {
+            this.maxServices = maxServices;
+            return this;
+        }
+
+        public Builder bypass( FilterExpression bypass )
+        {
+            this.bypass = bypass;
+            return this;
+        }
+
+        public Builder nanoClock( LongSupplier nanoClock )
+        {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public EventSampler build()
+        {
+            Objects.requireNonNull( nanoClock, "Clock is null." );
+            if( rate < 1 )
+            {
+                throw new IllegalArgumentException( "Rate must be at least 1, was: " + rate );
+            }
+            if( maxServices < 1 )
+            {
+                throw new IllegalArgumentException( "Max services must be at least 1, was: " + maxServices );
+            }
+            if( maxPerSecond < 0 )
+            {
+                throw new IllegalArgumentException( "Max per second must not be negative, was: " + maxPerSecond );
+            }
+            return new EventSampler( this );
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.sample;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket allowing up to a rate of events per second, with bursts of up to one second's worth.
+ * <br/>
+ * Thread safe.
+ */
+final class TokenBucket
+{
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long ratePerSecond;
+    private final LongSupplier nanoClock;
+
+    // Tokens scaled by NANOS_PER_SECOND so that refills are exact integer arithmetic.
+    private long scaledTokens;
+    private long lastRefill;
+
+    TokenBucket( long ratePerSecond, LongSupplier nanoClock )
+    {
+        this.ratePerSecond = ratePerSecond;
+        this.nanoClock = nanoClock;
+        this.scaledTokens = ratePerSecond * NANOS_PER_SECOND;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    synchronized boolean tryAcquire()
+    {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefill;
+        if( elapsed > 0 )
+        {
+            long capacity = ratePerSecond * NANOS_PER_SECOND;
+            // Once a full second has elapsed the bucket is full, avoids overflow after long idle periods.
+            scaledTokens = elapsed >= NANOS_PER_SECOND ? capacity : Math.min( capacity, scaledTokens + elapsed * ratePerSecond );
+            lastRefill = now;
+        }
+        if( scaledTokens < NANOS_PER_SECOND )
+        {
+            return false;
+        }
+        scaledTokens -= NANOS_PER_SECOND;
+        return true;
+    }
+}
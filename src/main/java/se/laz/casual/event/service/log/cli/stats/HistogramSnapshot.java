@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Point in time copy of a {@link LatencyHistogram}.
+ * <br/>
+ * Values derived from the buckets, min, max and percentiles, are accurate to the bucket
+ * they fall in, ~3%. The min is reported as the lowest value of its bucket, the max and percentiles
+ * as the highest value of theirs. The mean is exact.
+ */
+public final class HistogramSnapshot
+{
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot( long[] counts, long sum )
+    {
+        this.counts = counts;
+        this.sum = sum;
+        long total = 0;
+        for( long c : counts )
+        {
+            total += c;
+        }
+        this.count = total;
+    }
+
+    /**
+     * Get the values recorded since an earlier snapshot of the same histogram.
+     *
+     * @param earlier snapshot.
+     * @return difference.
+     */
+    public HistogramSnapshot minus( HistogramSnapshot earlier )
+    {
+        Objects.requireNonNull( earlier, "Earlier snapshot is null." );
+        long[] difference = new long[counts.length];
+        for( int i = 0; i < counts.length; i++ )
+        {
+            difference[i] = counts[i] - earlier.counts[i];
+        }
+        return new HistogramSnapshot( difference, sum - earlier.sum );
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getSum()
+    {
+        return sum;
+    }
+
+    public long getMin()
+    {
+        for( int i = 0; i < counts.length; i++ )
+        {
+            if( counts[i] > 0 )
+            {
+                return LatencyHistogram.lowestValueAt( i );
+            }
+        }
+        return 0L;
+    }
+
+    public long getMax()
+    {
+        for( int i = counts.length - 1; i >= 0; i-- )
+        {
+            if( counts[i] > 0 )
+            {
+                return LatencyHistogram.highestValueAt( i );
+            }
+        }
+        return 0L;
+    }
+
+    public long getMean()
+    {
+        return count == 0 ? 0L : sum / count;
+    }
+
+    /**
+     * Get the value at or below which the given percentage of values fall.
+     *
+     * @param percentile between 0 and 100.
+     * @return value, 0 if empty.
+     */
+    public long getValueAtPercentile( double percentile )
+    {
+        if( percentile < 0.0 || percentile > 100.0 )
+        {
+            throw new IllegalArgumentException( "Percentile must be between 0 and 100, was: " + percentile );
+        }
+        if( count == 0 )
+        {
+            return 0L;
+        }
+        long target = Math.max( 1L, (long) Math.ceil( percentile / 100.0 * count ) );
+        long seen = 0;
+        for( int i = 0; i < counts.length; i++ )
+        {
+            seen += counts[i];
+            if( seen >= target )
+            {
+                return LatencyHistogram.highestValueAt( i );
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if( this == o )
+        {
+            return true;
+        }
+        if( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        HistogramSnapshot that = (HistogramSnapshot) o;
+        return sum == that.sum && Arrays.equals( counts, that.counts );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Long.hashCode( sum ) + Arrays.hashCode( counts );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "HistogramSnapshot{" +
+                "count=" + count +
+                ", min=" + getMin() +
+                ", mean=" + getMean() +
+                ", p50=" + getValueAtPercentile( 50 ) +
+                ", p99=" + getValueAtPercentile( 99 ) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
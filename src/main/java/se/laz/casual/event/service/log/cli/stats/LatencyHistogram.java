@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Constant memory histogram of latencies in {@code us}, in the style of an HDR histogram.
+ * <br/>
+ * Buckets are log-linear: values below {@value #SUB_BUCKET_COUNT} have a bucket each, above that every
+ * power of two range is split into {@value #HALF_SUB_BUCKET_COUNT} linear buckets, so any recorded value
+ * is within ~3% of its bucket. Values above {@link #MAX_VALUE} (~12 days) are recorded as the max value.
+ * <br/>
+ * Recording is lock-free and does not allocate. Reading is through a {@link HistogramSnapshot}.
+ */
+public final class LatencyHistogram
+{
+    static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    static final int MAX_EXPONENT = 40;
+    public static final long MAX_VALUE = ( 1L << ( MAX_EXPONENT + 1 ) ) - 1;
+    static final int BUCKET_COUNT = indexOf( MAX_VALUE ) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKET_COUNT );
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Record a value, negative values are recorded as 0.
+     *
+     * @param value in {@code us}.
+     */
+    public void record( long value )
+    {
+        long clamped = Math.min( Math.max( value, 0L ), MAX_VALUE );
+        counts.incrementAndGet( indexOf( clamped ) );
+        sum.add( clamped );
+    }
+
+    /**
+     * Take a snapshot of the values recorded so far.
+     * Recording may continue concurrently, in which case those values may or may not be included.
+     *
+     * @return snapshot.
+     */
+    public HistogramSnapshot snapshot()
+    {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            snapshot[i] = counts.get( i );
+        }
+        return new HistogramSnapshot( snapshot, sum.sum() );
+    }
+
+    static int indexOf( long value )
+    {
+        if( value < SUB_BUCKET_COUNT )
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        // Shift so the value falls in [HALF_SUB_BUCKET_COUNT, SUB_BUCKET_COUNT).
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + ( shift - 1 ) * HALF_SUB_BUCKET_COUNT + (int) ( ( value >>> shift ) - HALF_SUB_BUCKET_COUNT );
+    }
+
+    static long lowestValueAt( int index )
+    {
+        if( index < SUB_BUCKET_COUNT )
+        {
+            return index;
+        }
+        int shift = ( index - SUB_BUCKET_COUNT ) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = ( index - SUB_BUCKET_COUNT ) % HALF_SUB_BUCKET_COUNT + (long) HALF_SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestValueAt( int index )
+    {
+        if( index < SUB_BUCKET_COUNT )
+        {
+            return index;
+        }
+        int shift = ( index - SUB_BUCKET_COUNT ) / HALF_SUB_BUCKET_COUNT + 1;
+        return lowestValueAt( index ) + ( 1L << shift ) - 1;
+    }
+}
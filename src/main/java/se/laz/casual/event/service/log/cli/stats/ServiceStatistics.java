@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for the calls to one service, since creation.
+ * <br/>
+ * Thread safe, recording is lock-free.
+ */
+public final class ServiceStatistics
+{
+    static final String OK = "OK";
+
+    private final String service;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram pending = new LatencyHistogram();
+
+    ServiceStatistics( String service )
+    {
+        this.service = service;
+    }
+
+    void record( ServiceCallEvent event )
+    {
+        record( event.getEnd() - event.getStart(), event.getPending(), event.getCode() );
+    }
+
+    void record( long duration, long pendingTime, String code )
+    {
+        latency.record( duration );
+        pending.record( pendingTime );
+        if( !OK.equals( code ) )
+        {
+            errors.increment();
+        }
+    }
+
+    public String getService()
+    {
+        return service;
+    }
+
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+
+    public LatencyHistogram getPending()
+    {
+        return pending;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Aggregates latency and pending time per service.
+ * <br/>
+ * Memory is bounded by max services, calls to services beyond that are aggregated together
+ * under {@value #OTHER_SERVICES}.
+ * <br/>
+ * Thread safe.
+ */
+public final class StatisticsAggregator implements ServiceCallEventListener
+{
+    public static final int DEFAULT_MAX_SERVICES = 4096;
+    public static final String OTHER_SERVICES = "<other>";
+
+    private final int maxServices;
+    private final ConcurrentMap<String, ServiceStatistics> services = new ConcurrentHashMap<>();
+    private final Function<String, ServiceStatistics> serviceStatisticsFactory = ServiceStatistics::new;
+
+    public StatisticsAggregator()
+    {
+        this( DEFAULT_MAX_SERVICES );
+    }
+
+    public StatisticsAggregator( int maxServices )
+    {
+        if( maxServices < 1 )
+        {
+            throw new IllegalArgumentException( "Max services must be at least 1, was: " + maxServices );
+        }
+        this.maxServices = maxServices;
+    }
+
+    @Override
+    public void onEvent( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        getServiceStatistics( Objects.toString( event.getService(), "" ) ).record( event );
+    }
+
+    /**
+     * Record a call read back from a log, as the event it was logged from would have been.
+     *
+     * @param record of the call.
+     */
+    public void onRecord( EventRecord record )
+    {
+        Objects.requireNonNull( record, "Record is null." );
+        getServiceStatistics( Objects.toString( record.getService(), "" ) )
+                .record( record.getEnd() - record.getStart(), record.getPending(), record.getCode() );
+    }
+
+    private ServiceStatistics getServiceStatistics( String service )
+    {
+        ServiceStatistics statistics = services.get( service );
+        if( statistics != null )
+        {
+            return statistics;
+        }
+        // The check is racy, so the bound may be exceeded by the number of concurrently recording threads.
+        String key = services.size() < maxServices ? service : OTHER_SERVICES;
+        return services.computeIfAbsent( key, serviceStatisticsFactory );
+    }
+
+    /**
+     * @return statistics for all services recorded so far.
+     */
+    public Collection<ServiceStatistics> getServices()
+    {
+        return Collections.unmodifiableCollection( new ArrayList<>( services.values() ) );
+    }
+
+    public int getMaxServices()
+    {
+        return maxServices;
+    }
+}
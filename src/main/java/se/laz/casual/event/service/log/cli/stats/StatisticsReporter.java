@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats;
+
+import se.laz.casual.event.service.log.cli.internal.ScheduledTask;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.LogOutput;
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodically appends a summary of the calls to each service during the last interval to the statistics file.
+ * <br/>
+ * One line is written per service called during the interval, columns separated by the delimiter:
+ * interval end ({@code us} since epoch), service, count, errors,
+ * latency min, mean, p50, p90, p99, max, pending min, mean, p50, p90, p99, max. Times are in {@code us}.
+ * <br/>
+ * A final summary is written on close. Should a write fail, its calls are included in the next summary instead.
+ */
+public final class StatisticsReporter
+{
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0 };
+
+    private final StatisticsAggregator aggregator;
+    private final String delimiter;
+    private final LongSupplier currentTimeMicros;
+    private final LogOutput output;
+    private final LogBuffer buffer = new LogBuffer( 4096 );
+    private final Map<String, Previous> previous = new HashMap<>();
+    private final Map<String, Previous> current = new HashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private final ScheduledTask reportTask;
+
+    private boolean closed = false;
+
+    private StatisticsReporter( Builder builder )
+    {
+        this.aggregator = builder.aggregator;
+        this.delimiter = builder.delimiter;
+        this.currentTimeMicros = builder.currentTimeMicros;
+        this.output = builder.output != null ? builder.output : new StreamLogOutput( builder.file );
+        this.executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "statistics-reporter" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        this.reportTask = new ScheduledTask( "Statistics report", this::report );
+        executor.scheduleAtFixedRate( reportTask, builder.intervalMillis, builder.intervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * @return the periodic report, counting its failures.
+     */
+    public ScheduledTask getReportTask()
+    {
+        return reportTask;
+    }
+
+    /**
+     * Append the summary of calls since the last successful report.
+     */
+    public synchronized void report()
+    {
+        if( closed )
+        {
+            return;
+        }
+        long intervalEnd = currentTimeMicros.getAsLong();
+        buffer.reset();
+        current.clear();
+        for( ServiceStatistics statistics : aggregator.getServices() )
+        {
+            Previous now = new Previous( statistics.getErrors(), statistics.getLatency().snapshot(), statistics.getPending().snapshot() );
+            current.put( statistics.getService(), now );
+            Previous last = previous.get( statistics.getService() );
+            HistogramSnapshot latency = last == null ? now.latency : now.latency.minus( last.latency );
+            if( latency.getCount() == 0 )
+            {
+                continue;
+            }
+            HistogramSnapshot pending = last == null ? now.pending : now.pending.minus( last.pending );
+            long errors = last == null ? now.errors : now.errors - last.errors;
+            appendLine( intervalEnd, statistics.getService(), errors, latency, pending, delimiter, buffer );
+        }
+        if( !buffer.isEmpty() )
+        {
+            output.write( buffer );
+        }
+        // Only once written, so that a failed report is included in the next.
+        previous.putAll( current );
+    }
+
+    /**
+     * Append a summary of all calls recorded, in the format of the statistics file, e.g. to summarise a replayed log.
+     *
+     * @param aggregator of the calls.
+     * @param time of the summary, {@code us} since epoch.
+     * @param delimiter between columns.
+     * @param buffer to append to.
+     */
+    public static void appendTotals( StatisticsAggregator aggregator, long time, String delimiter, LogBuffer buffer )
+    {
+        for( ServiceStatistics statistics : aggregator.getServices() )
+        {
+            HistogramSnapshot latency = statistics.getLatency().snapshot();
+            if( latency.getCount() > 0 )
+            {
+                appendLine( time, statistics.getService(), statistics.getErrors(), latency, statistics.getPending().snapshot(), delimiter, buffer );
+            }
+        }
+    }
+
+    private static void appendLine( long time, String service, long errors, HistogramSnapshot latency, HistogramSnapshot pending, String delimiter, LogBuffer buffer )
+    {
+        buffer.append( time ).append( delimiter )
+                .append( service ).append( delimiter )
+                .append( latency.getCount() ).append( delimiter )
+                .append( errors ).append( delimiter );
+        appendSummary( latency, delimiter, buffer );
+        buffer.append( delimiter );
+        appendSummary( pending, delimiter, buffer );
+        buffer.appendLineSeparator();
+    }
+
+    private static void appendSummary( HistogramSnapshot snapshot, String delimiter, LogBuffer buffer )
+    {
+        buffer.append( snapshot.getMin() ).append( delimiter )
+                .append( snapshot.getMean() ).append( delimiter );
+        for( double percentile : PERCENTILES )
+        {
+            buffer.append( snapshot.getValueAtPercentile( percentile ) ).append( delimiter );
+        }
+        buffer.append( snapshot.getMax() );
+    }
+
+    /**
+     * Stop the periodic reports, writing a final summary, and close the statistics file.
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+        synchronized( this )
+        {
+            if( closed )
+            {
+                return;
+            }
+            try
+            {
+                report();
+            }
+            finally
+            {
+                closed = true;
+                output.close();
+            }
+        }
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    private static final class Previous
+    {
+        private final long errors;
+        private final HistogramSnapshot latency;
+        private final HistogramSnapshot pending;
+
+        private Previous( long errors, HistogramSnapshot latency, HistogramSnapshot pending )
+        {
+            this.errors = errors;
+            this.latency = latency;
+            this.pending = pending;
+        }
+    }
+
+    public static final class Builder
+    {
+        private StatisticsAggregator aggregator;
+        private File file;
+        private String delimiter = "|";
+        private long intervalMillis = 60_000L;
+        private LongSupplier currentTimeMicros = () -> TimeUnit.MILLISECONDS.toMicros( System.currentTimeMillis() );
+        private LogOutput output;
+
+        private Builder()
+        {
+        }
+
+        public Builder aggregator( StatisticsAggregator aggregator )
+        {
+            this.aggregator = aggregator;
+            return this;
+        }
+
+        public Builder file( File file )
+        {
+            this.file = file;
+            return this;
+        }
+
+        public Builder delimiter( String delimiter )
+        {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public Builder intervalMillis( long intervalMillis )
+        {
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        public Builder currentTimeMicros( LongSupplier currentTimeMicros )
+        {
+            this.currentTimeMicros = currentTimeMicros;
+            return this;
+        }
+
+        /**
+         * @param output to write to in place of the file, e.g. to test failed writes.
+         * @return this builder.
+         */
+        Builder output( LogOutput output )
+        {
+            this.output = output;
+            return this;
+        }
+
+        public StatisticsReporter build()
+        {
+            Objects.requireNonNull( aggregator, "Aggregator is null." );
+            if( output == null )
+            {
+                Objects.requireNonNull( file, "File is null." );
+            }
+            Objects.requireNonNull( delimiter, "Delimiter is null." );
+            Objects.requireNonNull( currentTimeMicros, "Clock is null." );
+            if( intervalMillis <= 0 )
+            {
+                throw new IllegalArgumentException( "Interval must be positive, was: " + intervalMillis );
+            }
+            return new StatisticsReporter( this );
+        }
+    }
+}
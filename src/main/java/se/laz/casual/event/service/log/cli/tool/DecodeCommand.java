@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+import se.laz.casual.event.service.log.cli.log.BinaryEventDecoder;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventFormatter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Convert a log file written with the BINARY format back to the text format.
+ */
+@Command( name = "decode", mixinStandardHelpOptions = true,
+        description = "convert a BINARY log file, optionally GZIP compressed, to the TEXT format" )
+public class DecodeCommand implements Callable<Integer>
+{
+    private static final int FLUSH_SIZE = 64 * 1024;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option( names = {"-i", "--input"}, description = "binary log file to decode", required = true )
+    private File input;
+    @Option( names = {"-o", "--output"}, description = "where to write the text log (default: standard output)" )
+    private File output;
+    @Option( names = {"-d", "--delimiter"}, description = "delimiter between columns (default: ${DEFAULT-VALUE})", defaultValue = "|" )
+    private String delimiter;
+
+    //2024-05-15 CK - This is a command line app, it is meant to write to System.out and System.err.
+    @SuppressWarnings( "squid:S106" )
+    @Override
+    public Integer call() throws IOException
+    {
+        try( BufferedInputStream stream = LogFiles.open( input ) )
+        {
+            if( !LogFiles.isBinary( stream ) )
+            {
+                throw new ParameterException( spec.commandLine(), "Not a binary log file: " + input );
+            }
+            long events;
+            if( output == null )
+            {
+                events = decode( stream, System.out );
+                System.out.flush();
+            }
+            else
+            {
+                try( OutputStream out = new FileOutputStream( output ) )
+                {
+                    events = decode( stream, out );
+                }
+            }
+            spec.commandLine().getErr().println( "Decoded " + events + " events." );
+            spec.commandLine().getErr().flush();
+        }
+        return 0;
+    }
+
+    private long decode( BufferedInputStream stream, OutputStream out ) throws IOException
+    {
+        BinaryEventDecoder decoder = new BinaryEventDecoder( stream );
+        ServiceCallEventFormatter formatter = new ServiceCallEventFormatter( delimiter );
+        EventRecord event = new EventRecord();
+        LogBuffer buffer = new LogBuffer( FLUSH_SIZE * 2 );
+        long events = 0;
+        while( decoder.read( event ) )
+        {
+            formatter.appendTo( event, buffer );
+            buffer.appendLineSeparator();
+            events++;
+            if( buffer.size() >= FLUSH_SIZE )
+            {
+                buffer.writeTo( out );
+                buffer.reset();
+            }
+        }
+        buffer.writeTo( out );
+        return events;
+    }
+}
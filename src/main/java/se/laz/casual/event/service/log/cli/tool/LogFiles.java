@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import se.laz.casual.event.service.log.cli.log.BinaryLogFormat;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reading of log files, regardless of the output and format they were written with.
+ */
+final class LogFiles
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    private LogFiles()
+    {
+    }
+
+    /**
+     * Open the file for reading, decompressing if it was written with the GZIP output.
+     *
+     * @param file to read.
+     * @return buffered stream of the uncompressed content, supporting mark.
+     * @throws IOException if the file can not be read.
+     */
+    static BufferedInputStream open( File file ) throws IOException
+    {
+        BufferedInputStream stream = new BufferedInputStream( new FileInputStream( file ), BUFFER_SIZE );
+        try
+        {
+            if( isCompressed( stream ) )
+            {
+                return new BufferedInputStream( new GZIPInputStream( stream, BUFFER_SIZE ), BUFFER_SIZE );
+            }
+            return stream;
+        }
+        catch( IOException e )
+        {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param stream positioned at the start of the file, as opened without decompressing, which is left unchanged.
+     * @return true if written with the GZIP output.
+     * @throws IOException if reading fails.
+     */
+    static boolean isCompressed( BufferedInputStream stream ) throws IOException
+    {
+        byte[] header = peek( stream );
+        return ( header[0] & 0xff ) == GZIP_MAGIC_1 && ( header[1] & 0xff ) == GZIP_MAGIC_2;
+    }
+
+    /**
+     * @param stream positioned at the start of the log, which is left unchanged.
+     * @return true if written in the binary format.
+     * @throws IOException if reading fails.
+     */
+    static boolean isBinary( BufferedInputStream stream ) throws IOException
+    {
+        byte[] header = peek( stream );
+        return BinaryLogFormat.isBinary( header, header.length );
+    }
+
+    private static byte[] peek( BufferedInputStream stream ) throws IOException
+    {
+        stream.mark( HEADER_SIZE );
+        byte[] header = stream.readNBytes( HEADER_SIZE );
+        stream.reset();
+        return header.length >= 2 ? header : new byte[2];
+    }
+}
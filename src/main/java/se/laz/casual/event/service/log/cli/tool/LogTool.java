@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.util.concurrent.Callable;
+
+import static se.laz.casual.event.service.log.cli.internal.StreamEncoder.toPrintWriter;
+
+/**
+ * Offline tools for working with log files written by the event service log.
+ * <br/>
+ * Run from the uber-jar with: {@code java -cp <uber.jar> se.laz.casual.event.service.log.cli.tool.LogTool <command>}.
+ */
+@Command( name = "casual-java-event-service-log-tool", mixinStandardHelpOptions = true,
+        subcommands = {DecodeCommand.class, QueryCommand.class, ReplayCommand.class} )
+public class LogTool implements Callable<Integer>
+{
+    @Spec
+    private CommandSpec spec;
+
+    public static void main( String[] args )
+    {
+        System.exit( newCommandLine( new LogTool() ).execute( args ) );
+    }
+
+    //2024-05-15 CK - This is a command line app, it is meant to write to System.out and System.err.
+    @SuppressWarnings( "squid:S106" )
+    static CommandLine newCommandLine( LogTool instance )
+    {
+        return new CommandLine( instance )
+                .setOut( toPrintWriter( System.out ) )
+                .setErr( toPrintWriter( System.err ) )
+                .setCaseInsensitiveEnumValuesAllowed( true )
+                .setTrimQuotes( true )
+                ;
+    }
+
+    /**
+     * Only called when no subcommand is provided.
+     *
+     * @return never returns normally.
+     */
+    @Override
+    public Integer call()
+    {
+        throw new ParameterException( spec.commandLine(), "Missing required subcommand." );
+    }
+}
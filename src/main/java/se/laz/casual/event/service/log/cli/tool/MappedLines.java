@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the lines of a region of a text log through memory mapping, a window of the file at a time,
+ * so that regions larger than can be mapped at once are supported.
+ */
+final class MappedLines
+{
+    static final int WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final byte NEW_LINE = '\n';
+    private static final int PROBE_SIZE = 64 * 1024;
+
+    private MappedLines()
+    {
+    }
+
+    /**
+     * Receives each line, valid only for the duration of the call.
+     */
+    @FunctionalInterface
+    interface LineConsumer
+    {
+        /**
+         * @param buffer holding the line.
+         * @param start index of the first byte of the line.
+         * @param end index after the last byte of the line, excluding the line separator.
+         * @throws IOException if handling fails.
+         */
+        void accept( ByteBuffer buffer, int start, int end ) throws IOException;
+    }
+
+    /**
+     * Pass each line of the region to the consumer, in order. The region must start at the start of a line,
+     * a last line without a line separator is passed as well.
+     *
+     * @param channel to read.
+     * @param from offset of the region, inclusive.
+     * @param to offset of the region, exclusive.
+     * @param consumer of the lines.
+     * @return number of lines.
+     * @throws IOException if reading fails.
+     */
+    static long forEachLine( FileChannel channel, long from, long to, LineConsumer consumer ) throws IOException
+    {
+        return forEachLine( channel, from, to, WINDOW_SIZE, consumer );
+    }
+
+    static long forEachLine( FileChannel channel, long from, long to, int windowSize, LineConsumer consumer ) throws IOException
+    {
+        long lines = 0;
+        long position = from;
+        while( position < to )
+        {
+            int size = (int) Math.min( windowSize, to - position );
+            MappedByteBuffer window = channel.map( FileChannel.MapMode.READ_ONLY, position, size );
+            boolean last = position + size >= to;
+            int start = 0;
+            for( int i = 0; i < size; i++ )
+            {
+                if( window.get( i ) == NEW_LINE )
+                {
+                    consumer.accept( window, start, trimCarriageReturn( window, start, i ) );
+                    lines++;
+                    start = i + 1;
+                }
+            }
+            if( last && start < size )
+            {
+                consumer.accept( window, start, trimCarriageReturn( window, start, size ) );
+                lines++;
+                start = size;
+            }
+            if( start == 0 && !last )
+            {
+                throw new IOException( "Line longer than " + windowSize + " bytes at offset: " + position );
+            }
+            // The partial line at the end of the window is read again from the start of the next window.
+            position += start;
+        }
+        return lines;
+    }
+
+    /**
+     * Pass each line of a buffer of whole lines to the consumer, in order, a last line without a line separator
+     * is passed as well.
+     *
+     * @param buffer of lines, from its position to its limit, which are left unchanged.
+     * @param consumer of the lines.
+     * @return number of lines.
+     * @throws IOException if handling fails.
+     */
+    static long forEachLine( ByteBuffer buffer, LineConsumer consumer ) throws IOException
+    {
+        long lines = 0;
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for( int i = start; i < limit; i++ )
+        {
+            if( buffer.get( i ) == NEW_LINE )
+            {
+                consumer.accept( buffer, start, trimCarriageReturn( buffer, start, i ) );
+                lines++;
+                start = i + 1;
+            }
+        }
+        if( start < limit )
+        {
+            consumer.accept( buffer, start, trimCarriageReturn( buffer, start, limit ) );
+            lines++;
+        }
+        return lines;
+    }
+
+    private static int trimCarriageReturn( ByteBuffer buffer, int start, int end )
+    {
+        return end > start && buffer.get( end - 1 ) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * @param channel to read.
+     * @param position any offset.
+     * @return offset of the first line starting at or after the position, the size of the file if none.
+     * @throws IOException if reading fails.
+     */
+    static long nextLineStart( FileChannel channel, long position ) throws IOException
+    {
+        if( position <= 0 )
+        {
+            return 0L;
+        }
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate( PROBE_SIZE );
+        // The line starts after the separator preceding the position.
+        long offset = position - 1;
+        while( offset < size )
+        {
+            probe.clear();
+            int read = channel.read( probe, offset );
+            if( read <= 0 )
+            {
+                break;
+            }
+            for( int i = 0; i < read; i++ )
+            {
+                if( probe.get( i ) == NEW_LINE )
+                {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+import se.laz.casual.event.service.log.cli.log.LogIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Print the events of TEXT log files started within a time range, optionally only those of a service.
+ * <br/>
+ * Only the blocks of a log that its index, see {@link LogIndex}, shows may hold such events are read,
+ * through memory mapping. A log without an index is read in full.
+ */
+@Command( name = "query", mixinStandardHelpOptions = true,
+        description = "print the events of TEXT log files started within a time range, reading only the blocks of each log its index shows to match" )
+public class QueryCommand implements Callable<Integer>
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SERVICE_COLUMN = 0;
+    private static final int START_COLUMN = 5;
+    private static final long NOT_A_NUMBER = -1L;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option( names = {"-i", "--input"}, description = "TEXT log file to query, repeat for several files, e.g. rotated files in order", required = true )
+    private List<File> inputs;
+    @Option( names = {"-o", "--output"}, description = "where to write the matching events (default: standard output)" )
+    private File output;
+    @Option( names = {"-d", "--delimiter"}, description = "delimiter between columns of the log (default: ${DEFAULT-VALUE})", defaultValue = "|" )
+    private String delimiter;
+    @Option( names = {"--from"}, description = "earliest start, inclusive, us since epoch or date time, e.g. 2024-04-15T10:02:00 in the default time zone or 2024-04-15T08:02:00Z", converter = TimeConverter.class )
+    private Long from;
+    @Option( names = {"--to"}, description = "latest start, inclusive, as --from", converter = TimeConverter.class )
+    private Long to;
+    @Option( names = {"--service"}, description = "only events of the service" )
+    private String service;
+
+    private byte[] delimiterBytes;
+    private byte[] serviceBytes;
+    private long matched;
+    private long malformed;
+    private long bytesRead;
+    private final byte[] line = new byte[BUFFER_SIZE];
+
+    //2024-05-15 CK - This is a command line app, it is meant to write to System.out and System.err.
+    @SuppressWarnings( "squid:S106" )
+    @Override
+    public Integer call() throws IOException
+    {
+        if( delimiter.isEmpty() )
+        {
+            throw new ParameterException( spec.commandLine(), "Delimiter must not be empty." );
+        }
+        delimiterBytes = delimiter.getBytes( StandardCharsets.UTF_8 );
+        serviceBytes = service == null ? null : service.getBytes( StandardCharsets.UTF_8 );
+        long min = from == null ? Long.MIN_VALUE : from;
+        long max = to == null ? Long.MAX_VALUE : to;
+        for( File input : inputs )
+        {
+            checkText( input );
+        }
+        long total = 0;
+        if( output == null )
+        {
+            OutputStream out = new BufferedOutputStream( System.out, BUFFER_SIZE );
+            for( File input : inputs )
+            {
+                total += query( input, min, max, out );
+            }
+            out.flush();
+        }
+        else
+        {
+            try( OutputStream out = new BufferedOutputStream( new FileOutputStream( output ), BUFFER_SIZE ) )
+            {
+                for( File input : inputs )
+                {
+                    total += query( input, min, max, out );
+                }
+            }
+        }
+        spec.commandLine().getErr().println( "Matched " + matched + " events, read " + bytesRead + " of " + total + " bytes."
+                + ( malformed > 0 ? " Skipped " + malformed + " malformed lines." : "" ) );
+        spec.commandLine().getErr().flush();
+        return 0;
+    }
+
+    private void checkText( File input ) throws IOException
+    {
+        try( BufferedInputStream stream = new BufferedInputStream( new FileInputStream( input ) ) )
+        {
+            if( LogFiles.isCompressed( stream ) || LogFiles.isBinary( stream ) )
+            {
+                throw new ParameterException( spec.commandLine(), "Not an uncompressed TEXT log file: " + input );
+            }
+        }
+    }
+
+    /**
+     * @return size of the log.
+     */
+    private long query( File input, long min, long max, OutputStream out ) throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( input.toPath(), StandardOpenOption.READ ) )
+        {
+            long size = channel.size();
+            for( long[] region : regions( LogIndex.read( LogIndex.indexFileOf( input ) ), min, max, size ) )
+            {
+                bytesRead += region[1] - region[0];
+                MappedLines.forEachLine( channel, region[0], region[1], ( buffer, start, end ) -> {
+                    if( matches( buffer, start, end, min, max ) )
+                    {
+                        write( buffer, start, end, out );
+                        matched++;
+                    }
+                } );
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Adjacent blocks are merged so that they are read as one, the part of the log after the last block is always read.
+     *
+     * @return offsets, from inclusive and to exclusive, of the parts of the log to read.
+     */
+    static List<long[]> regions( List<LogIndex.Entry> entries, long min, long max, long size )
+    {
+        List<long[]> regions = new ArrayList<>();
+        long indexedEnd = 0;
+        for( LogIndex.Entry entry : entries )
+        {
+            long end = Math.min( size, entry.getOffset() + entry.getLength() );
+            if( entry.overlaps( min, max ) && entry.getOffset() < end )
+            {
+                add( regions, entry.getOffset(), end );
+            }
+            indexedEnd = Math.max( indexedEnd, end );
+        }
+        if( indexedEnd < size )
+        {
+            add( regions, indexedEnd, size );
+        }
+        return regions;
+    }
+
+    private static void add( List<long[]> regions, long from, long to )
+    {
+        long[] last = regions.isEmpty() ? null : regions.get( regions.size() - 1 );
+        if( last != null && last[1] == from )
+        {
+            last[1] = to;
+        }
+        else
+        {
+            regions.add( new long[]{ from, to } );
+        }
+    }
+
+    private boolean matches( ByteBuffer buffer, int start, int end, long min, long max )
+    {
+        int column = 0;
+        int columnStart = start;
+        for( int i = start; i <= end; i++ )
+        {
+            if( i == end || isDelimiter( buffer, i, end ) )
+            {
+                if( column == SERVICE_COLUMN && serviceBytes != null && !equals( buffer, columnStart, i, serviceBytes ) )
+                {
+                    return false;
+                }
+                if( column == START_COLUMN )
+                {
+                    long value = parseLong( buffer, columnStart, i );
+                    if( value == NOT_A_NUMBER )
+                    {
+                        malformed++;
+                        return false;
+                    }
+                    return value >= min && value <= max;
+                }
+                column++;
+                i += delimiterBytes.length - 1;
+                columnStart = i + 1;
+            }
+        }
+        // Not an event, e.g. a truncated line.
+        malformed++;
+        return false;
+    }
+
+    private boolean isDelimiter( ByteBuffer buffer, int index, int end )
+    {
+        if( index + delimiterBytes.length > end )
+        {
+            return false;
+        }
+        for( int i = 0; i < delimiterBytes.length; i++ )
+        {
+            if( buffer.get( index + i ) != delimiterBytes[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals( ByteBuffer buffer, int start, int end, byte[] expected )
+    {
+        if( end - start != expected.length )
+        {
+            return false;
+        }
+        for( int i = 0; i < expected.length; i++ )
+        {
+            if( buffer.get( start + i ) != expected[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value, never negative, or {@value #NOT_A_NUMBER} if not a number.
+     */
+    private static long parseLong( ByteBuffer buffer, int start, int end )
+    {
+        if( start == end || end - start > 18 )
+        {
+            return NOT_A_NUMBER;
+        }
+        long value = 0;
+        for( int i = start; i < end; i++ )
+        {
+            int digit = buffer.get( i ) - '0';
+            if( digit < 0 || digit > 9 )
+            {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private void write( ByteBuffer buffer, int start, int end, OutputStream out ) throws IOException
+    {
+        for( int position = start; position < end; position += line.length )
+        {
+            int length = Math.min( line.length, end - position );
+            buffer.get( position, line, 0, length );
+            out.write( line, 0, length );
+        }
+        out.write( '\n' );
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+import se.laz.casual.event.service.log.cli.filter.FilterExpression;
+import se.laz.casual.event.service.log.cli.filter.FilterExpressionConverter;
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException;
+import se.laz.casual.event.service.log.cli.log.EventRecord;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.RecordFilter;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventFormatter;
+import se.laz.casual.event.service.log.cli.log.TextEventDecoder;
+import se.laz.casual.event.service.log.cli.stats.StatisticsAggregator;
+import se.laz.casual.event.service.log.cli.stats.StatisticsReporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Replay TEXT log files, optionally GZIP compressed, through the filters of the event service log,
+ * writing the remaining events in the TEXT format, e.g. with another delimiter, or a summary per service.
+ * <br/>
+ * Logs are divided into chunks of whole lines which are parsed, filtered and formatted in parallel, one chunk per
+ * worker at a time, the output of the chunks being written in order. Uncompressed logs are read through memory mapping,
+ * each worker mapping its own chunk. Compressed logs are decompressed on the calling thread, which is then the limit.
+ */
+@Command( name = "replay", mixinStandardHelpOptions = true,
+        description = "replay TEXT log files, optionally GZIP compressed, through the filters, writing the remaining events with another delimiter or a summary per service" )
+public class ReplayCommand implements Callable<Integer>
+{
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option( names = {"-i", "--input"}, description = "TEXT log file to replay, optionally GZIP compressed, repeat for several files, e.g. rotated files in order", required = true )
+    private List<File> inputs;
+    @Option( names = {"-o", "--output"}, description = "where to write the events or summary (default: standard output)" )
+    private File output;
+    @Option( names = {"--input-delimiter"}, description = "delimiter between columns of the log (default: ${DEFAULT-VALUE})", defaultValue = "|" )
+    private String inputDelimiter;
+    @Option( names = {"-d", "--delimiter"}, description = "delimiter between columns written (default: ${DEFAULT-VALUE})", defaultValue = "|" )
+    private String delimiter;
+    @Option( names = {"--filter-inclusive"}, description = "only services that match the expression are replayed" )
+    private Pattern filterInclusive;
+    @Option( names = {"--filter-exclusive"}, description = "only services that do not match the expression are replayed" )
+    private Pattern filterExclusive;
+    @Option( names = {"--filter"}, description = "only events that match the filter expression are replayed, e.g. \"duration > 50ms && code != OK\"", converter = FilterExpressionConverter.class )
+    private FilterExpression filter;
+    @Option( names = {"--stats"}, description = "write a summary per service of the events replayed, in the format of the statistics file, instead of the events" )
+    private boolean stats;
+    @Option( names = {"--threads"}, description = "threads parsing in parallel, 0 for one per processor (default: ${DEFAULT-VALUE})", defaultValue = "0" )
+    private int threads;
+
+    private RecordFilter recordFilter;
+    private ServiceCallEventFormatter formatter;
+    private StatisticsAggregator aggregator;
+    private final LongAdder read = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAccumulator lastEnd = new LongAccumulator( Math::max, 0L );
+
+    //2024-05-15 CK - This is a command line app, it is meant to write to System.out and System.err.
+    @SuppressWarnings( "squid:S106" )
+    @Override
+    public Integer call() throws IOException
+    {
+        if( inputDelimiter.isEmpty() || delimiter.isEmpty() )
+        {
+            throw new ParameterException( spec.commandLine(), "Delimiter must not be empty." );
+        }
+        if( threads < 0 )
+        {
+            throw new ParameterException( spec.commandLine(), "Threads must not be negative, was: " + threads );
+        }
+        for( File input : inputs )
+        {
+            checkText( input );
+        }
+        recordFilter = RecordFilter.newBuilder()
+                .filterInclusive( filterInclusive )
+                .filterExclusive( filterExclusive )
+                .filter( filter )
+                .build();
+        formatter = new ServiceCallEventFormatter( delimiter );
+        aggregator = stats ? new StatisticsAggregator() : null;
+        int workers = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        ExecutorService executor = Executors.newFixedThreadPool( workers, newThreadFactory() );
+        try
+        {
+            if( output == null )
+            {
+                OutputStream out = new BufferedOutputStream( System.out, BUFFER_SIZE );
+                replay( new Chunks( executor, workers * CHUNKS_PER_THREAD, out ) );
+                out.flush();
+            }
+            else
+            {
+                try( OutputStream out = new BufferedOutputStream( new FileOutputStream( output ), BUFFER_SIZE ) )
+                {
+                    replay( new Chunks( executor, workers * CHUNKS_PER_THREAD, out ) );
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        spec.commandLine().getErr().println( "Replayed " + replayed.sum() + " of " + read.sum() + " events, skipped " + skipped.sum() + " lines not in the TEXT format." );
+        spec.commandLine().getErr().flush();
+        return 0;
+    }
+
+    private static ThreadFactory newThreadFactory()
+    {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread( r, "replay-worker-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+
+    private void checkText( File input ) throws IOException
+    {
+        try( BufferedInputStream stream = LogFiles.open( input ) )
+        {
+            if( LogFiles.isBinary( stream ) )
+            {
+                throw new ParameterException( spec.commandLine(), "Not a TEXT log file, convert with decode first: " + input );
+            }
+        }
+    }
+
+    private void replay( Chunks chunks ) throws IOException
+    {
+        for( File input : inputs )
+        {
+            if( isCompressed( input ) )
+            {
+                replayStream( input, chunks );
+            }
+            else
+            {
+                replayMapped( input, chunks );
+            }
+        }
+        chunks.drain();
+        if( aggregator != null )
+        {
+            LogBuffer buffer = new LogBuffer( BUFFER_SIZE );
+            StatisticsReporter.appendTotals( aggregator, lastEnd.get(), delimiter, buffer );
+            buffer.writeTo( chunks.out );
+        }
+    }
+
+    private static boolean isCompressed( File input ) throws IOException
+    {
+        try( BufferedInputStream stream = new BufferedInputStream( new FileInputStream( input ) ) )
+        {
+            return LogFiles.isCompressed( stream );
+        }
+    }
+
+    /**
+     * Chunks end at the start of a line found from the chunk size on, so every chunk holds whole lines.
+     */
+    private void replayMapped( File input, Chunks chunks ) throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( input.toPath(), StandardOpenOption.READ ) )
+        {
+            long size = channel.size();
+            long position = 0;
+            while( position < size )
+            {
+                long from = position;
+                long to = MappedLines.nextLineStart( channel, Math.min( size, from + CHUNK_SIZE ) );
+                if( to - from > Integer.MAX_VALUE )
+                {
+                    throw new IOException( "Line longer than " + Integer.MAX_VALUE + " bytes at offset: " + from + " in: " + input );
+                }
+                chunks.submit( () -> process( channel.map( FileChannel.MapMode.READ_ONLY, from, to - from ) ) );
+                position = to;
+            }
+            // The channel must remain open until every chunk is mapped.
+            chunks.drain();
+        }
+    }
+
+    /**
+     * Chunks are cut at the last line separator within the chunk size, the partial line following it being carried over
+     * to the next chunk.
+     */
+    private void replayStream( File input, Chunks chunks ) throws IOException
+    {
+        try( BufferedInputStream stream = LogFiles.open( input ) )
+        {
+            byte[] block = new byte[CHUNK_SIZE];
+            int filled = 0;
+            while( true )
+            {
+                filled += stream.readNBytes( block, filled, block.length - filled );
+                boolean last = filled < block.length;
+                int end = last ? filled : lastLineEnd( block, filled );
+                if( end == 0 && !last )
+                {
+                    // A line longer than the block.
+                    block = Arrays.copyOf( block, block.length * 2 );
+                    continue;
+                }
+                if( end > 0 )
+                {
+                    ByteBuffer chunk = ByteBuffer.wrap( Arrays.copyOf( block, end ) );
+                    chunks.submit( () -> process( chunk ) );
+                }
+                if( last )
+                {
+                    break;
+                }
+                System.arraycopy( block, end, block, 0, filled - end );
+                filled -= end;
+            }
+        }
+    }
+
+    private static int lastLineEnd( byte[] block, int length )
+    {
+        for( int i = length - 1; i >= 0; i-- )
+        {
+            if( block[i] == '\n' )
+            {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Run on a worker, so only touches state that is thread safe or local to the chunk.
+     *
+     * @return the formatted events of the chunk, empty if summarising.
+     */
+    private LogBuffer process( ByteBuffer chunk ) throws IOException
+    {
+        TextEventDecoder decoder = new TextEventDecoder( inputDelimiter );
+        EventRecord record = new EventRecord();
+        LogBuffer formatted = new LogBuffer( aggregator == null ? chunk.remaining() + BUFFER_SIZE : 16 );
+        long[] counts = new long[3];
+        long[] end = { 0L };
+        MappedLines.forEachLine( chunk, ( buffer, start, lineEnd ) -> {
+            if( start == lineEnd )
+            {
+                return;
+            }
+            if( !decoder.decode( buffer, start, lineEnd, record ) )
+            {
+                counts[2]++;
+                return;
+            }
+            counts[0]++;
+            if( !recordFilter.test( record ) )
+            {
+                return;
+            }
+            counts[1]++;
+            end[0] = Math.max( end[0], record.getEnd() );
+            if( aggregator == null )
+            {
+                formatter.appendTo( record, formatted );
+                formatted.appendLineSeparator();
+            }
+            else
+            {
+                aggregator.onRecord( record );
+            }
+        } );
+        read.add( counts[0] );
+        replayed.add( counts[1] );
+        skipped.add( counts[2] );
+        lastEnd.accumulate( end[0] );
+        return formatted;
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask
+    {
+        LogBuffer call() throws IOException;
+    }
+
+    /**
+     * Chunks being processed, written in the order submitted. The number in progress is bounded,
+     * so that reading does not get ahead of the workers.
+     */
+    private static final class Chunks
+    {
+        private final ExecutorService executor;
+        private final int maxPending;
+        private final OutputStream out;
+        private final Deque<Future<LogBuffer>> pending = new ArrayDeque<>();
+
+        private Chunks( ExecutorService executor, int maxPending, OutputStream out )
+        {
+            this.executor = executor;
+            this.maxPending = maxPending;
+            this.out = out;
+        }
+
+        private void submit( ChunkTask task ) throws IOException
+        {
+            pending.add( executor.submit( task::call ) );
+            while( pending.size() > maxPending )
+            {
+                writeNext();
+            }
+        }
+
+        private void drain() throws IOException
+        {
+            while( !pending.isEmpty() )
+            {
+                writeNext();
+            }
+        }
+
+        private void writeNext() throws IOException
+        {
+            Future<LogBuffer> next = pending.remove();
+            try
+            {
+                next.get().writeTo( out );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new EventServiceLoggerException( "Interrupted waiting for chunk.", e );
+            }
+            catch( ExecutionException e )
+            {
+                if( e.getCause() instanceof IOException )
+                {
+                    throw (IOException) e.getCause();
+                }
+                throw new EventServiceLoggerException( "Failed to replay chunk.", e.getCause() );
+            }
+        }
+    }
+}
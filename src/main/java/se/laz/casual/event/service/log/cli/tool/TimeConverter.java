@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool;
+
+import picocli.CommandLine;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Converts a point in time into {@code us} since epoch, as the start and end columns of the log.
+ * <br/>
+ * Either {@code us} since epoch, e.g. {@code 1713184496000000}, an instant, e.g. {@code 2024-04-15T10:02:00Z},
+ * or a local date time in the default time zone, e.g. {@code 2024-04-15T10:02:00} or {@code 2024-04-15 10:02}.
+ */
+public class TimeConverter implements CommandLine.ITypeConverter<Long>
+{
+    private final ZoneId zone;
+
+    public TimeConverter()
+    {
+        this( ZoneId.systemDefault() );
+    }
+
+    TimeConverter( ZoneId zone )
+    {
+        this.zone = zone;
+    }
+
+    @Override
+    public Long convert( String value )
+    {
+        String text = value.trim();
+        if( !text.isEmpty() && text.chars().allMatch( Character::isDigit ) )
+        {
+            try
+            {
+                return Long.parseLong( text );
+            }
+            catch( NumberFormatException e )
+            {
+                throw new CommandLine.TypeConversionException( "Time too large: " + value );
+            }
+        }
+        try
+        {
+            Instant instant = text.endsWith( "Z" ) || text.endsWith( "z" )
+                    ? Instant.parse( text.toUpperCase( Locale.ROOT ) )
+                    : LocalDateTime.parse( text.replace( ' ', 'T' ) ).atZone( zone ).toInstant();
+            return ChronoUnit.MICROS.between( Instant.EPOCH, instant );
+        }
+        catch( DateTimeException | ArithmeticException e )
+        {
+            throw new CommandLine.TypeConversionException( "Invalid time: " + value + ", expected e.g. 1713184496000000, 2024-04-15T10:02:00Z or 2024-04-15T10:02:00" );
+        }
+    }
+}
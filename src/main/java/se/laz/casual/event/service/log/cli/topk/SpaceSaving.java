@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Weighted space-saving summary of the heaviest keys, in memory bounded by its capacity regardless of
+ * the number of distinct keys.
+ * <br/>
+ * Whilst there are no more distinct keys than the capacity, totals are exact. Beyond that a new key takes over
+ * the counter of the lightest key, inheriting its total as the error, so a total overestimates the key by
+ * at most its error, and any key heavier than the lightest total is guaranteed to be kept.
+ * <br/>
+ * Counters are kept in an indexed min heap so that an update is {@code O(log capacity)}.
+ * <br/>
+ * Not thread safe.
+ */
+final class SpaceSaving
+{
+    private final int capacity;
+    private final String[] keys;
+    private final long[] totals;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size = 0;
+
+    SpaceSaving( int capacity )
+    {
+        if( capacity < 1 )
+        {
+            throw new IllegalArgumentException( "Capacity must be at least 1, was: " + capacity );
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.totals = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>( capacity * 2 );
+    }
+
+    /**
+     * @param key to add to.
+     * @param weight to add, ignored unless positive.
+     */
+    void add( String key, long weight )
+    {
+        if( weight <= 0 )
+        {
+            return;
+        }
+        Integer position = positions.get( key );
+        if( position != null )
+        {
+            // Totals only grow, so the counter can only move down the heap.
+            totals[position] += weight;
+            siftDown( position );
+        }
+        else if( size < capacity )
+        {
+            keys[size] = key;
+            totals[size] = weight;
+            errors[size] = 0L;
+            positions.put( key, size );
+            siftUp( size++ );
+        }
+        else
+        {
+            positions.remove( keys[0] );
+            errors[0] = totals[0];
+            totals[0] += weight;
+            keys[0] = key;
+            positions.put( key, 0 );
+            siftDown( 0 );
+        }
+    }
+
+    /**
+     * @param consumer passed each counter, in no particular order.
+     */
+    void forEach( CounterConsumer consumer )
+    {
+        for( int i = 0; i < size; i++ )
+        {
+            consumer.accept( keys[i], totals[i], errors[i] );
+        }
+    }
+
+    /**
+     * @param key counted.
+     * @return true if the key has a counter.
+     */
+    boolean contains( String key )
+    {
+        return positions.containsKey( key );
+    }
+
+    /**
+     * @return the lightest total once at capacity, else 0 as every key is counted exactly.
+     */
+    long getMinTotal()
+    {
+        return size < capacity ? 0L : totals[0];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    void clear()
+    {
+        for( int i = 0; i < size; i++ )
+        {
+            keys[i] = null;
+        }
+        positions.clear();
+        size = 0;
+    }
+
+    @FunctionalInterface
+    interface CounterConsumer
+    {
+        /**
+         * @param key counted.
+         * @param total of the key, overestimated by at most the error.
+         * @param error max overestimate.
+         */
+        void accept( String key, long total, long error );
+    }
+
+    private void siftUp( int position )
+    {
+        while( position > 0 )
+        {
+            int parent = ( position - 1 ) >>> 1;
+            if( totals[parent] <= totals[position] )
+            {
+                return;
+            }
+            swap( position, parent );
+            position = parent;
+        }
+    }
+
+    private void siftDown( int position )
+    {
+        while( true )
+        {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if( left < size && totals[left] < totals[smallest] )
+            {
+                smallest = left;
+            }
+            if( right < size && totals[right] < totals[smallest] )
+            {
+                smallest = right;
+            }
+            if( smallest == position )
+            {
+                return;
+            }
+            swap( position, smallest );
+            position = smallest;
+        }
+    }
+
+    private void swap( int a, int b )
+    {
+        String key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long total = totals[a];
+        totals[a] = totals[b];
+        totals[b] = total;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put( keys[a], a );
+        positions.put( keys[b], b );
+    }
+}
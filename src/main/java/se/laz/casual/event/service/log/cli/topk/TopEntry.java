@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk;
+
+import java.util.Objects;
+
+/**
+ * A service ranked by a {@link TopMetric} over a window.
+ */
+public final class TopEntry
+{
+    private final String service;
+    private final long value;
+    private final long error;
+
+    TopEntry( String service, long value, long error )
+    {
+        this.service = service;
+        this.value = value;
+        this.error = error;
+    }
+
+    public String getService()
+    {
+        return service;
+    }
+
+    /**
+     * @return total of the metric for the service over the window, approximate to within the error.
+     */
+    public long getValue()
+    {
+        return value;
+    }
+
+    /**
+     * @return max difference between the value and the exact total, 0 if exact.
+     */
+    public long getError()
+    {
+        return error;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if( this == o )
+        {
+            return true;
+        }
+        if( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        TopEntry that = (TopEntry) o;
+        return value == that.value && error == that.error && Objects.equals( service, that.service );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( service, value, error );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TopEntry{" +
+                "service='" + service + '\'' +
+                ", value=" + value +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+/**
+ * What services are ranked by, each call adding its weight to the service called.
+ */
+public enum TopMetric
+{
+    /**
+     * Number of calls.
+     */
+    CALLS
+    {
+        @Override
+        public long weight( ServiceCallEvent event )
+        {
+            return 1L;
+        }
+    },
+    /**
+     * Total latency of the calls, {@code us}.
+     */
+    DURATION
+    {
+        @Override
+        public long weight( ServiceCallEvent event )
+        {
+            return event.getEnd() - event.getStart();
+        }
+    },
+    /**
+     * Total pending time of the calls, {@code us}.
+     */
+    PENDING
+    {
+        @Override
+        public long weight( ServiceCallEvent event )
+        {
+            return event.getPending();
+        }
+    },
+    /**
+     * Number of calls with a code other than {@code OK}.
+     */
+    ERRORS
+    {
+        @Override
+        public long weight( ServiceCallEvent event )
+        {
+            return "OK".equals( event.getCode() ) ? 0L : 1L;
+        }
+    };
+
+    /**
+     * @param event the call.
+     * @return amount the call adds to the service, 0 or less adds nothing.
+     */
+    public abstract long weight( ServiceCallEvent event );
+}
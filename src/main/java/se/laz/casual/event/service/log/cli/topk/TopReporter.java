@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk;
+
+import se.laz.casual.event.service.log.cli.internal.ScheduledTask;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.LogOutput;
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput;
+
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodically appends the top services over each window, by each metric, to the top file.
+ * <br/>
+ * One line is written per ranked service, columns separated by the delimiter:
+ * time ({@code us} since epoch), window ({@code ms}), metric, rank (1 for the heaviest), service, value, error.
+ * Durations and pending times are in {@code us}.
+ * <br/>
+ * A final report is written on close.
+ */
+public final class TopReporter
+{
+    private final TopServices topServices;
+    private final String delimiter;
+    private final LongSupplier currentTimeMicros;
+    private final LogOutput output;
+    private final LogBuffer buffer = new LogBuffer( 4096 );
+    private final ScheduledThreadPoolExecutor executor;
+    private final ScheduledTask reportTask;
+
+    private boolean closed = false;
+
+    private TopReporter( Builder builder )
+    {
+        this.topServices = builder.topServices;
+        this.delimiter = builder.delimiter;
+        this.currentTimeMicros = builder.currentTimeMicros;
+        this.output = new StreamLogOutput( builder.file );
+        this.executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "top-reporter" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        this.reportTask = new ScheduledTask( "Top report", this::report );
+        executor.scheduleAtFixedRate( reportTask, builder.intervalMillis, builder.intervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * @return the periodic report, counting its failures.
+     */
+    public ScheduledTask getReportTask()
+    {
+        return reportTask;
+    }
+
+    /**
+     * Append the current top services.
+     */
+    public synchronized void report()
+    {
+        if( closed )
+        {
+            return;
+        }
+        long time = currentTimeMicros.getAsLong();
+        buffer.reset();
+        for( long window : topServices.getWindowsMillis() )
+        {
+            for( TopMetric metric : TopMetric.values() )
+            {
+                List<TopEntry> entries = topServices.top( window, metric );
+                for( int i = 0; i < entries.size(); i++ )
+                {
+                    TopEntry entry = entries.get( i );
+                    buffer.append( time ).append( delimiter )
+                            .append( window ).append( delimiter )
+                            .append( metric.name() ).append( delimiter )
+                            .append( i + 1 ).append( delimiter )
+                            .append( entry.getService() ).append( delimiter )
+                            .append( entry.getValue() ).append( delimiter )
+                            .append( entry.getError() )
+                            .appendLineSeparator();
+                }
+            }
+        }
+        if( !buffer.isEmpty() )
+        {
+            output.write( buffer );
+        }
+    }
+
+    /**
+     * Stop the periodic reports, writing a final report, and close the top file.
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+        synchronized( this )
+        {
+            if( closed )
+            {
+                return;
+            }
+            try
+            {
+                report();
+            }
+            finally
+            {
+                closed = true;
+                output.close();
+            }
+        }
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+        private TopServices topServices;
+        private File file;
+        private String delimiter = "|";
+        private long intervalMillis = 60_000L;
+        private LongSupplier currentTimeMicros = () -> TimeUnit.MILLISECONDS.toMicros( System.currentTimeMillis() );
+
+        private Builder()
+        {
+        }
+
+        public Builder topServices( TopServices topServices )
+        {
+            this.topServices = topServices;
+            return this;
+        }
+
+        public Builder file( File file )
+        {
+            this.file = file;
+            return this;
+        }
+
+        public Builder delimiter( String delimiter )
+        {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public Builder intervalMillis( long intervalMillis )
+        {
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        public Builder currentTimeMicros( LongSupplier currentTimeMicros )
+        {
+            this.currentTimeMicros = currentTimeMicros;
+            return this;
+        }
+
+        public TopReporter build()
+        {
+            Objects.requireNonNull( topServices, "Top services is null." );
+            Objects.requireNonNull( file, "File is null." );
+            Objects.requireNonNull( delimiter, "Delimiter is null." );
+            Objects.requireNonNull( currentTimeMicros, "Clock is null." );
+            if( intervalMillis <= 0 )
+            {
+                throw new IllegalArgumentException( "Interval must be positive, was: " + intervalMillis );
+            }
+            return new TopReporter( this );
+        }
+    }
+}
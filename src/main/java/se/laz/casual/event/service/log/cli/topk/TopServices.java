@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Ranks the services called over sliding windows by each {@link TopMetric}, in memory bounded regardless
+ * of the number of distinct services.
+ * <br/>
+ * Time is divided into buckets, each holding a {@link SpaceSaving} summary per metric of
+ * {@value #CAPACITY_PER_ENTRY} times top n counters. A window is the current bucket and those before it,
+ * merged when ranked, so a window slides a bucket at a time. Buckets are a sixth of the shortest window,
+ * but no fewer than required to keep the longest window in {@value #MAX_BUCKETS} buckets.
+ * <br/>
+ * Thread safe, all access is serialised.
+ */
+public final class TopServices implements ServiceCallEventListener
+{
+    public static final int CAPACITY_PER_ENTRY = 4;
+    public static final int BUCKETS_PER_WINDOW = 6;
+    public static final int MAX_BUCKETS = 360;
+
+    private static final TopMetric[] METRICS = TopMetric.values();
+    private static final Comparator<TopEntry> BY_VALUE = Comparator.comparingLong( TopEntry::getValue ).reversed()
+            .thenComparing( TopEntry::getService );
+
+    private final int n;
+    private final List<Long> windowsMillis;
+    private final long bucketMillis;
+    private final Bucket[] buckets;
+    private final LongSupplier currentTimeMillis;
+
+    private TopServices( Builder builder )
+    {
+        this.n = builder.n;
+        this.windowsMillis = Collections.unmodifiableList( new ArrayList<>( builder.windowsMillis ) );
+        long shortest = Collections.min( windowsMillis );
+        long longest = Collections.max( windowsMillis );
+        this.bucketMillis = Math.max( 1L, Math.max( shortest / BUCKETS_PER_WINDOW, ceilDiv( longest, MAX_BUCKETS ) ) );
+        this.buckets = new Bucket[(int) ceilDiv( longest, bucketMillis )];
+        this.currentTimeMillis = builder.currentTimeMillis;
+    }
+
+    private static long ceilDiv( long dividend, long divisor )
+    {
+        return -Math.floorDiv( -dividend, divisor );
+    }
+
+    @Override
+    public synchronized void onEvent( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        long index = currentTimeMillis.getAsLong() / bucketMillis;
+        int slot = (int) ( index % buckets.length );
+        Bucket bucket = buckets[slot];
+        if( bucket == null )
+        {
+            bucket = new Bucket( n * CAPACITY_PER_ENTRY );
+            buckets[slot] = bucket;
+        }
+        if( bucket.index != index )
+        {
+            bucket.reset( index );
+        }
+        String service = Objects.toString( event.getService(), "" );
+        for( TopMetric metric : METRICS )
+        {
+            bucket.summaries[metric.ordinal()].add( service, metric.weight( event ) );
+        }
+    }
+
+    /**
+     * @param windowMillis one of the windows.
+     * @param metric ranked by.
+     * @return up to top n services over the window, heaviest first.
+     */
+    public synchronized List<TopEntry> top( long windowMillis, TopMetric metric )
+    {
+        Objects.requireNonNull( metric, "Metric is null." );
+        if( !windowsMillis.contains( windowMillis ) )
+        {
+            throw new IllegalArgumentException( "Not a window: " + windowMillis + "ms, windows: " + windowsMillis );
+        }
+        List<SpaceSaving> summaries = new ArrayList<>();
+        long current = currentTimeMillis.getAsLong() / bucketMillis;
+        long count = Math.min( buckets.length, ceilDiv( windowMillis, bucketMillis ) );
+        for( long index = current; index > current - count; index-- )
+        {
+            Bucket bucket = buckets[(int) ( index % buckets.length )];
+            if( bucket != null && bucket.index == index )
+            {
+                summaries.add( bucket.summaries[metric.ordinal()] );
+            }
+        }
+        return merge( summaries );
+    }
+
+    /**
+     * A service may be missing from the summary of a bucket, its total in that bucket then being at most
+     * the lightest total of the summary, which is added to the error.
+     */
+    private List<TopEntry> merge( List<SpaceSaving> summaries )
+    {
+        Map<String, long[]> merged = new HashMap<>();
+        for( SpaceSaving summary : summaries )
+        {
+            summary.forEach( ( service, total, error ) -> {
+                long[] entry = merged.computeIfAbsent( service, k -> new long[2] );
+                entry[0] += total;
+                entry[1] += error;
+            } );
+        }
+        List<TopEntry> entries = new ArrayList<>( merged.size() );
+        merged.forEach( ( service, entry ) -> {
+            long error = entry[1];
+            for( SpaceSaving summary : summaries )
+            {
+                if( !summary.contains( service ) )
+                {
+                    error += summary.getMinTotal();
+                }
+            }
+            entries.add( new TopEntry( service, entry[0], error ) );
+        } );
+        entries.sort( BY_VALUE );
+        return entries.size() > n ? new ArrayList<>( entries.subList( 0, n ) ) : entries;
+    }
+
+    /**
+     * @return the windows services are ranked over, in milliseconds.
+     */
+    public List<Long> getWindowsMillis()
+    {
+        return windowsMillis;
+    }
+
+    /**
+     * @return the granularity by which windows slide, in milliseconds.
+     */
+    public long getBucketMillis()
+    {
+        return bucketMillis;
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    private static final class Bucket
+    {
+        private final SpaceSaving[] summaries = new SpaceSaving[METRICS.length];
+        private long index = -1;
+
+        private Bucket( int capacity )
+        {
+            for( int i = 0; i < summaries.length; i++ )
+            {
+                summaries[i] = new SpaceSaving( capacity );
+            }
+        }
+
+        private void reset( long index )
+        {
+            this.index = index;
+            for( SpaceSaving summary : summaries )
+            {
+                summary.clear();
+            }
+        }
+    }
+
+    public static final class Builder
+    {
+        private int n = 10;
+        private List<Long> windowsMillis = List.of( 60_000L, 300_000L, 3_600_000L );
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param n number of services ranked.
+         */
+        public Builder n( int n )
+        {
+            this.n = n;
+            return this;
+        }
+
+        public Builder windowsMillis( List<Long> windowsMillis )
+        {
+            this.windowsMillis = windowsMillis;
+            return this;
+        }
+
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        public TopServices build()
+        {
+            Objects.requireNonNull( windowsMillis, "Windows is null." );
+            Objects.requireNonNull( currentTimeMillis, "Clock is null." );
+            if( n < 1 )
+            {
+                throw new IllegalArgumentException( "N must be at least 1, was: " + n );
+            }
+            if( windowsMillis.isEmpty() || windowsMillis.stream().anyMatch( window -> window == null || window <= 0 ) )
+            {
+                throw new IllegalArgumentException( "Windows must be positive, was: " + windowsMillis );
+            }
+            return new TopServices( this );
+        }
+    }
+}
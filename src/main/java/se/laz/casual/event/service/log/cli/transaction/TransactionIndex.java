@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.transaction;
+
+import se.laz.casual.event.ServiceCallEvent;
+import se.laz.casual.event.service.log.cli.log.ServiceCallEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Accumulates the service calls of each transaction, keyed by transaction id, keeping a summary
+ * of each once it goes idle until removed, e.g. once written.
+ * <br/>
+ * Events carry no marker of a transaction being done, so a transaction is complete once no call within it
+ * has arrived for the idle timeout. Memory is bounded by max transactions, the least recently called
+ * transaction being summarised early when exceeded, and by max transactions summaries, the oldest being
+ * dropped when exceeded. Calls outside of a transaction are ignored.
+ * <br/>
+ * Thread safe, calls within one transaction may be handled by any thread so all access is serialised.
+ */
+public final class TransactionIndex implements ServiceCallEventListener
+{
+    public static final int DEFAULT_MAX_TRANSACTIONS = 100_000;
+
+    private final int maxTransactions;
+    private final long idleTimeoutMillis;
+    private final LongSupplier currentTimeMillis;
+    // Access order, so the eldest entry is the transaction least recently called.
+    private final LinkedHashMap<String, TransactionSummary> transactions = new LinkedHashMap<>( 16, 0.75f, true );
+    private final ArrayDeque<TransactionSummary> summaries = new ArrayDeque<>();
+
+    private long completed = 0;
+    private long evicted = 0;
+    private long dropped = 0;
+
+    private TransactionIndex( Builder builder )
+    {
+        this.maxTransactions = builder.maxTransactions;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.currentTimeMillis = builder.currentTimeMillis;
+    }
+
+    @Override
+    public synchronized void onEvent( ServiceCallEvent event )
+    {
+        Objects.requireNonNull( event, "Event is null." );
+        long now = currentTimeMillis.getAsLong();
+        String transactionId = event.getTransactionId();
+        if( transactionId != null && !transactionId.isEmpty() )
+        {
+            transactions.computeIfAbsent( transactionId, TransactionSummary::new ).record( event, now );
+            if( transactions.size() > maxTransactions )
+            {
+                Iterator<TransactionSummary> eldest = transactions.values().iterator();
+                TransactionSummary summary = eldest.next();
+                eldest.remove();
+                evicted++;
+                complete( summary, TransactionSummary.Completion.EVICTED );
+            }
+        }
+        expire( now );
+    }
+
+    /**
+     * Summarise every transaction no call within which has arrived for the idle timeout.
+     */
+    public synchronized void expire()
+    {
+        expire( currentTimeMillis.getAsLong() );
+    }
+
+    private void expire( long now )
+    {
+        Iterator<TransactionSummary> iterator = transactions.values().iterator();
+        while( iterator.hasNext() )
+        {
+            TransactionSummary summary = iterator.next();
+            if( now - summary.getLastCalledMillis() < idleTimeoutMillis )
+            {
+                return;
+            }
+            iterator.remove();
+            complete( summary, TransactionSummary.Completion.IDLE );
+        }
+    }
+
+    /**
+     * Summarise every transaction regardless of the idle timeout, e.g. when stopping.
+     */
+    public synchronized void completeAll()
+    {
+        Iterator<TransactionSummary> iterator = transactions.values().iterator();
+        while( iterator.hasNext() )
+        {
+            TransactionSummary summary = iterator.next();
+            iterator.remove();
+            complete( summary, TransactionSummary.Completion.EXIT );
+        }
+    }
+
+    private void complete( TransactionSummary summary, TransactionSummary.Completion completion )
+    {
+        completed++;
+        summary.complete( completion );
+        summaries.add( summary );
+        if( summaries.size() > maxTransactions )
+        {
+            summaries.poll();
+            dropped++;
+        }
+    }
+
+    /**
+     * Get the summaries of the transactions completed since last removed, they are kept until removed.
+     *
+     * @return summaries, in order of completion.
+     */
+    public synchronized List<TransactionSummary> getSummaries()
+    {
+        return new ArrayList<>( summaries );
+    }
+
+    /**
+     * Remove summaries, those completed since they were got are kept.
+     *
+     * @param written summaries to remove, as got by {@link #getSummaries()}.
+     */
+    public synchronized void removeSummaries( List<TransactionSummary> written )
+    {
+        Set<TransactionSummary> remove = Collections.newSetFromMap( new IdentityHashMap<>( written.size() ) );
+        remove.addAll( written );
+        summaries.removeIf( remove::contains );
+    }
+
+    /**
+     * @return transactions waiting to go idle.
+     */
+    public synchronized int getOpen()
+    {
+        return transactions.size();
+    }
+
+    /**
+     * @return transactions summarised since creation, including those evicted.
+     */
+    public synchronized long getCompleted()
+    {
+        return completed;
+    }
+
+    /**
+     * @return transactions summarised early since creation, as max transactions was exceeded.
+     */
+    public synchronized long getEvicted()
+    {
+        return evicted;
+    }
+
+    /**
+     * @return summaries dropped since creation, as max transactions summaries were waiting to be removed.
+     */
+    public synchronized long getDropped()
+    {
+        return dropped;
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+        private int maxTransactions = DEFAULT_MAX_TRANSACTIONS;
+        private long idleTimeoutMillis = 10_000L;
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+
+        private Builder()
+        {
+        }
+
+        public Builder maxTransactions( int maxTransactions )
+        {
+            this.maxTransactions = maxTransactions;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis( long idleTimeoutMillis )
+        {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        public TransactionIndex build()
+        {
+            Objects.requireNonNull( currentTimeMillis, "Clock is null." );
+            if( maxTransactions < 1 )
+            {
+                throw new IllegalArgumentException( "Max transactions must be at least 1, was: " + maxTransactions );
+            }
+            if( idleTimeoutMillis <= 0 )
+            {
+                throw new IllegalArgumentException( "Idle timeout must be positive, was: " + idleTimeoutMillis );
+            }
+            return new TransactionIndex( this );
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.transaction;
+
+import se.laz.casual.event.service.log.cli.internal.ScheduledTask;
+import se.laz.casual.event.service.log.cli.log.LogBuffer;
+import se.laz.casual.event.service.log.cli.log.LogOutput;
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput;
+
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Appends a summary record to the transaction file for each transaction of its {@link TransactionIndex}
+ * once the transaction goes idle.
+ * <br/>
+ * Every second the index is expired and the summaries completed since are appended in a single write,
+ * off the threads handling the calls. Should a write fail, its summaries are written by the next.
+ * <br/>
+ * One line is written per transaction, columns separated by the delimiter:
+ * summarised ({@code us} since epoch), transaction id, calls, errors, start of first call, end of last call
+ * ({@code us} since epoch), span, total service time, total pending ({@code us}), completion.
+ * <br/>
+ * The remaining transactions are summarised on close.
+ */
+public final class TransactionLog
+{
+    private static final long EXPIRE_INTERVAL_MILLIS = 1000L;
+
+    private final String delimiter;
+    private final LongSupplier currentTimeMicros;
+    private final LogOutput output;
+    private final LogBuffer buffer = new LogBuffer( 256 );
+    private final TransactionIndex index;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ScheduledTask expireTask;
+
+    private boolean closed = false;
+
+    private TransactionLog( Builder builder )
+    {
+        this.delimiter = builder.delimiter;
+        this.currentTimeMicros = builder.currentTimeMicros;
+        this.index = TransactionIndex.newBuilder()
+                .maxTransactions( builder.maxTransactions )
+                .idleTimeoutMillis( builder.idleTimeoutMillis )
+                .currentTimeMillis( builder.currentTimeMillis )
+                .build();
+        this.output = builder.output != null ? builder.output : new StreamLogOutput( builder.file );
+        this.executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "transaction-expiry" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        this.expireTask = new ScheduledTask( "Transaction expiry", this::expire );
+        executor.scheduleAtFixedRate( expireTask, EXPIRE_INTERVAL_MILLIS, EXPIRE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * @return the periodic expiry, counting its failures.
+     */
+    public ScheduledTask getExpireTask()
+    {
+        return expireTask;
+    }
+
+    /**
+     * @return the index to pass the events to.
+     */
+    public TransactionIndex getIndex()
+    {
+        return index;
+    }
+
+    private void expire()
+    {
+        index.expire();
+        write();
+    }
+
+    /**
+     * Append the summaries of the transactions completed since last written.
+     */
+    public synchronized void write()
+    {
+        if( closed )
+        {
+            return;
+        }
+        List<TransactionSummary> summaries = index.getSummaries();
+        if( summaries.isEmpty() )
+        {
+            return;
+        }
+        long time = currentTimeMicros.getAsLong();
+        buffer.reset();
+        for( TransactionSummary summary : summaries )
+        {
+            buffer.append( time ).append( delimiter )
+                    .append( summary.getTransactionId() ).append( delimiter )
+                    .append( summary.getCalls() ).append( delimiter )
+                    .append( summary.getErrors() ).append( delimiter )
+                    .append( summary.getStart() ).append( delimiter )
+                    .append( summary.getEnd() ).append( delimiter )
+                    .append( summary.getSpan() ).append( delimiter )
+                    .append( summary.getServiceTime() ).append( delimiter )
+                    .append( summary.getPending() ).append( delimiter )
+                    .append( summary.getCompletion().name() )
+                    .appendLineSeparator();
+        }
+        output.write( buffer );
+        // Only once written, so that a failed write is retried by the next.
+        index.removeSummaries( summaries );
+    }
+
+    /**
+     * Stop the periodic expiry, summarising the remaining transactions, and close the transaction file.
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+        synchronized( this )
+        {
+            if( closed )
+            {
+                return;
+            }
+            try
+            {
+                index.completeAll();
+                write();
+            }
+            finally
+            {
+                closed = true;
+                output.close();
+            }
+        }
+    }
+
+    public static Builder newBuilder()
+    {
+        return new Builder();
+    }
+
+    public static final class Builder
+    {
+        private File file;
+        private String delimiter = "|";
+        private int maxTransactions = TransactionIndex.DEFAULT_MAX_TRANSACTIONS;
+        private long idleTimeoutMillis = 10_000L;
+        private LongSupplier currentTimeMillis = System::currentTimeMillis;
+        private LongSupplier currentTimeMicros = () -> TimeUnit.MILLISECONDS.toMicros( System.currentTimeMillis() );
+        private LogOutput output;
+
+        private Builder()
+        {
+        }
+
+        public Builder file( File file )
+        {
+            this.file = file;
+            return this;
+        }
+
+        public Builder delimiter( String delimiter )
+        {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public Builder maxTransactions( int maxTransactions )
+        {
+            this.maxTransactions = maxTransactions;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis( long idleTimeoutMillis )
+        {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param currentTimeMillis clock by which transactions go idle.
+         */
+        public Builder currentTimeMillis( LongSupplier currentTimeMillis )
+        {
+            this.currentTimeMillis = currentTimeMillis;
+            return this;
+        }
+
+        /**
+         * @param currentTimeMicros clock by which summaries are timestamped.
+         */
+        public Builder currentTimeMicros( LongSupplier currentTimeMicros )
+        {
+            this.currentTimeMicros = currentTimeMicros;
+            return this;
+        }
+
+        /**
+         * @param output to write to in place of the file, e.g. to test failed writes.
+         * @return this builder.
+         */
+        Builder output( LogOutput output )
+        {
+            this.output = output;
+            return this;
+        }
+
+        public TransactionLog build()
+        {
+            if( output == null )
+            {
+                Objects.requireNonNull( file, "File is null." );
+            }
+            Objects.requireNonNull( delimiter, "Delimiter is null." );
+            Objects.requireNonNull( currentTimeMicros, "Clock is null." );
+            return new TransactionLog( this );
+        }
+    }
+}
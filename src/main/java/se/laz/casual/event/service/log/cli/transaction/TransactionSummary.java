@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.transaction;
+
+import se.laz.casual.event.ServiceCallEvent;
+
+/**
+ * Totals of the service calls within one transaction, as accumulated by the {@link TransactionIndex}.
+ * <br/>
+ * Not thread safe, guarded by the index.
+ */
+public final class TransactionSummary
+{
+    /**
+     * Why a transaction was summarised.
+     */
+    public enum Completion
+    {
+        /**
+         * No call within the transaction arrived for the idle timeout.
+         */
+        IDLE,
+        /**
+         * Max transactions was exceeded, the summary may be partial.
+         */
+        EVICTED,
+        /**
+         * The tool stopped, the summary may be partial.
+         */
+        EXIT
+    }
+
+    private static final String OK = "OK";
+
+    private final String transactionId;
+    private long calls = 0;
+    private long errors = 0;
+    private long start = Long.MAX_VALUE;
+    private long end = Long.MIN_VALUE;
+    private long serviceTime = 0;
+    private long pending = 0;
+    private long lastCalledMillis;
+    private Completion completion;
+
+    TransactionSummary( String transactionId )
+    {
+        this.transactionId = transactionId;
+    }
+
+    void record( ServiceCallEvent event, long nowMillis )
+    {
+        calls++;
+        if( !OK.equals( event.getCode() ) )
+        {
+            errors++;
+        }
+        start = Math.min( start, event.getStart() );
+        end = Math.max( end, event.getEnd() );
+        serviceTime += event.getEnd() - event.getStart();
+        pending += event.getPending();
+        lastCalledMillis = nowMillis;
+    }
+
+    void complete( Completion completion )
+    {
+        this.completion = completion;
+    }
+
+    long getLastCalledMillis()
+    {
+        return lastCalledMillis;
+    }
+
+    public String getTransactionId()
+    {
+        return transactionId;
+    }
+
+    public long getCalls()
+    {
+        return calls;
+    }
+
+    public long getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * @return start of the first call, {@code us} since epoch.
+     */
+    public long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * @return end of the last call to end, {@code us} since epoch.
+     */
+    public long getEnd()
+    {
+        return end;
+    }
+
+    /**
+     * @return time from the start of the first call until the end of the last, {@code us}.
+     */
+    public long getSpan()
+    {
+        return end - start;
+    }
+
+    /**
+     * @return sum of the latency of every call, {@code us}. Exceeds the span when calls overlap.
+     */
+    public long getServiceTime()
+    {
+        return serviceTime;
+    }
+
+    /**
+     * @return sum of the pending time of every call, {@code us}.
+     */
+    public long getPending()
+    {
+        return pending;
+    }
+
+    /**
+     * @return why summarised, null until then.
+     */
+    public Completion getCompletion()
+    {
+        return completion;
+    }
+}
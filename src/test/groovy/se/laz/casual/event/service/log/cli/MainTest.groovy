@@ -7,6 +7,13 @@
 package se.laz.casual.event.service.log.cli
 
 import picocli.CommandLine
+import se.laz.casual.event.service.log.cli.log.EventFormat
+import se.laz.casual.event.service.log.cli.log.LogOutputType
+import se.laz.casual.event.service.log.cli.queue.EventQueueType
+import se.laz.casual.event.service.log.cli.queue.OverflowPolicy
+import se.laz.casual.event.service.log.cli.queue.WaitStrategy
+import se.laz.casual.event.service.log.cli.runner.ThreadMode
+import spock.lang.Requires
 import spock.lang.Shared
 import spock.lang.Specification
 
@@ -134,4 +141,444 @@ class MainTest extends Specification
         "group"  | [eUrl, "--filter-exclusive=^[a-z]+"]     | Pattern.compile( "^[a-z]+" )
         "quotes" | [eUrl, "--filter-exclusive=\"^[0-9]+\""] | Pattern.compile( "^[0-9]+" )
     }
+
+    def "Call with #desc batching"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getBatchSize(  ) == exBatchSize
+        instance.getFlushIntervalMillis(  ) == exFlushInterval
+
+        where:
+        desc              | args                                                | exBatchSize | exFlushInterval
+        "missing options" | [eUrl]                                              | 1           | 1000
+        "batch size"      | [eUrl, "--batch-size=500"]                          | 500         | 1000
+        "both options"    | [eUrl, "--batch-size=500", "--flush-interval-ms=5"] | 500         | 5
+    }
+
+    def "Call with #desc output"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getLogOutputType(  ) == exOutput
+
+        where:
+        desc             | args                      | exOutput
+        "missing option" | [eUrl]                    | LogOutputType.STREAM
+        "channel"        | [eUrl, "--output=CHANNEL"] | LogOutputType.CHANNEL
+        "lower case"     | [eUrl, "--output=mapped"] | LogOutputType.MAPPED
+    }
+
+    def "Call with #desc queue"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getEventQueueType(  ) == exQueue
+        instance.getQueueCapacity(  ) == exCapacity
+        instance.getWaitStrategy(  ) == exWait
+
+        where:
+        desc              | args                                                                  | exQueue              | exCapacity | exWait
+        "missing options" | [eUrl]                                                                | EventQueueType.STORE | 65536      | WaitStrategy.PARK
+        "ring"            | [eUrl, "--queue=RING", "--queue-capacity=1000"]                       | EventQueueType.RING  | 1000       | WaitStrategy.PARK
+        "ring spin"       | [eUrl, "--queue=ring", "--wait-strategy=busy_spin"]                   | EventQueueType.RING  | 65536      | WaitStrategy.BUSY_SPIN
+    }
+
+    def "Call with #desc overflow"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getOverflowPolicy(  ) == exPolicy
+        instance.getSpillFile(  ) == new File( exSpillFile )
+
+        where:
+        desc              | args                                                                        | exPolicy                   | exSpillFile
+        "missing options" | [eUrl]                                                                      | OverflowPolicy.BLOCK       | "statistics.log.spill"
+        "drop newest"     | [eUrl, "--queue=BOUNDED", "--overflow=drop_newest"]                         | OverflowPolicy.DROP_NEWEST | "statistics.log.spill"
+        "log file"        | [eUrl, "--queue=RING", "--overflow=SPILL", "--file=stats.log"]              | OverflowPolicy.SPILL       | "stats.log.spill"
+        "spill file"      | [eUrl, "--queue=BOUNDED", "--overflow=SPILL", "--spill-file=/tmp/overflow"] | OverflowPolicy.SPILL       | "/tmp/overflow"
+    }
+
+    def "Call with overflow #policy and the unbounded queue, rejected as a usage error."()
+    {
+        given:
+        StringWriter err = new StringWriter(  )
+        commandLine.setErr( new PrintWriter( err ) )
+
+        when:
+        int exitCode = commandLine.execute( eUrl, "--overflow=" + policy )
+
+        then:
+        exitCode == CommandLine.ExitCode.USAGE
+        err.toString(  ).contains( "requires a bounded queue" )
+
+        where:
+        policy << ["DROP_NEWEST", "DROP_OLDEST", "SPILL"]
+    }
+
+    def "Call with overflow DROP_OLDEST and the ring queue, rejected as a usage error."()
+    {
+        given:
+        StringWriter err = new StringWriter(  )
+        commandLine.setErr( new PrintWriter( err ) )
+
+        when:
+        int exitCode = commandLine.execute( eUrl, "--queue=RING", "--overflow=DROP_OLDEST" )
+
+        then:
+        exitCode == CommandLine.ExitCode.USAGE
+        err.toString(  ).contains( "requires a queue supporting multiple consumers" )
+    }
+
+    @Requires( { Runtime.version(  ).feature(  ) < 21 } )
+    def "Call with thread mode VIRTUAL prior to Java 21, rejected as a usage error."()
+    {
+        given:
+        StringWriter err = new StringWriter(  )
+        commandLine.setErr( new PrintWriter( err ) )
+
+        when:
+        int exitCode = commandLine.execute( eUrl, "--thread-mode=VIRTUAL" )
+
+        then:
+        exitCode == CommandLine.ExitCode.USAGE
+        err.toString(  ).contains( "Thread mode VIRTUAL requires Java 21 or later" )
+    }
+
+    def "Call with format BINARY and output MAPPED, rejected as a usage error."()
+    {
+        given:
+        StringWriter err = new StringWriter(  )
+        commandLine.setErr( new PrintWriter( err ) )
+
+        when:
+        int exitCode = commandLine.execute( eUrl, "--format=BINARY", "--output=MAPPED" )
+
+        then:
+        exitCode == CommandLine.ExitCode.USAGE
+        err.toString(  ).contains( "is not supported by output MAPPED" )
+    }
+
+    def "Call with index, format #format and output #output, rejected as a usage error."()
+    {
+        given:
+        StringWriter err = new StringWriter(  )
+        commandLine.setErr( new PrintWriter( err ) )
+
+        when:
+        int exitCode = commandLine.execute( eUrl, "--index", "--format=" + format, "--output=" + output )
+
+        then:
+        exitCode == CommandLine.ExitCode.USAGE
+        err.toString(  ).contains( "Index requires format TEXT and output STREAM or CHANNEL" )
+
+        where:
+        format   | output
+        "BINARY" | "STREAM"
+        "TEXT"   | "GZIP"
+        "TEXT"   | "MAPPED"
+    }
+
+    def "Call with #desc worker threads"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getWorkerThreads(  ) == expected
+
+        where:
+        desc             | args                          | expected
+        "missing option" | [eUrl]                        | 1
+        "parallel"       | [eUrl, "--worker-threads=4"]  | 4
+    }
+
+    def "Call with #desc filter cache size"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getFilterCacheSize(  ) == expected
+
+        where:
+        desc             | args                              | expected
+        "missing option" | [eUrl]                            | 4096
+        "disabled"       | [eUrl, "--filter-cache-size=0"]   | 0
+    }
+
+    def "Call with #desc filter"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getLogFilter(  ).map{ it.getExpression(  ) }.orElse( null ) == expected
+
+        where:
+        desc             | args                                           | expected
+        "missing option" | [eUrl]                                         | null
+        "expression"     | [eUrl, "--filter=duration > 50ms && code != OK"] | "duration > 50ms && code != OK"
+    }
+
+    def "Call with invalid filter throws ParameterException."()
+    {
+        when:
+        commandLine.parseArgs( eUrl, "--filter=duration >" )
+
+        then:
+        thrown CommandLine.ParameterException
+    }
+
+    def "Call with #desc sampling"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getSampleRate(  ) == exRate
+        instance.getSampleMaxPerSecond(  ) == exMax
+        instance.isSampleByExecution(  ) == exByExecution
+        instance.getSampleBypass(  ).map{ it.getExpression(  ) }.orElse( null ) == exBypass
+
+        where:
+        desc              | args                                                                        | exRate | exMax | exByExecution | exBypass
+        "missing options" | [eUrl]                                                                      | 1      | 0     | false         | null
+        "rate"            | [eUrl, "--sample-rate=100", "--sample-by-execution"]                        | 100    | 0     | true          | null
+        "max with bypass" | [eUrl, "--sample-max-per-second=50", "--sample-bypass=code != OK"]          | 1      | 50    | false         | "code != OK"
+    }
+
+    def "Call with #desc statistics"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getStatsFile(  ).orElse( null ) == ( exFile == null ? null : new File( exFile ) )
+        instance.getStatsIntervalMillis(  ) == exInterval
+        instance.isStatsOnly(  ) == exOnly
+
+        where:
+        desc              | args                                                     | exFile              | exInterval | exOnly
+        "missing options" | [eUrl]                                                   | null                | 60000      | false
+        "stats file"      | [eUrl, "--stats-file=/tmp/stats", "--stats-interval=1s"] | "/tmp/stats"        | 1000       | false
+        "stats only"      | [eUrl, "--stats-only", "--file=service.log"]             | "service.log.stats" | 60000      | true
+    }
+
+    def "Call with #desc format"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getEventFormat(  ) == expected
+
+        where:
+        desc             | args                      | expected
+        "missing option" | [eUrl]                    | EventFormat.TEXT
+        "binary"         | [eUrl, "--format=binary"] | EventFormat.BINARY
+    }
+
+    def "Call with #desc rotation"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getRotateSize(  ) == exSize
+        instance.getRotateIntervalMillis(  ) == exInterval
+        instance.getRotateRetain(  ) == exRetain
+
+        where:
+        desc              | args                                               | exSize            | exInterval | exRetain
+        "missing options" | [eUrl]                                             | 0                 | 0          | 0
+        "size"            | [eUrl, "--rotate-size=100M", "--rotate-retain=10"] | 100 * 1024 * 1024 | 0          | 10
+        "interval"        | [eUrl, "--rotate-interval=1h"]                     | 0                 | 3600000    | 0
+    }
+
+    def "Call with invalid #desc throws ParameterException."()
+    {
+        when:
+        commandLine.parseArgs( eUrl, arg )
+
+        then:
+        thrown CommandLine.ParameterException
+
+        where:
+        desc              | arg
+        "rotate size"     | "--rotate-size=1T"
+        "rotate interval" | "--rotate-interval=1w"
+    }
+
+    def "Call with #desc event servers"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getEventSources(  ).collect{ it.getUrl(  ) } == exUrls.collect{ URI.create( it ) }
+        instance.getEventServerUrl(  ) == URI.create( exUrls[0] )
+        instance.isSourceColumn(  ) == exSource
+
+        where:
+        desc     | args                                                                                 | exUrls                                                                       | exSource
+        "single" | [eUrl]                                                                               | ["tcp://event.casual.laz.se:7774"]                                           | false
+        "many"   | [eUrl, "--eventServerUrl=tcp://other.casual.laz.se:7774#domainB", "--source-column"] | ["tcp://event.casual.laz.se:7774", "tcp://other.casual.laz.se:7774#domainB"] | true
+    }
+
+    def "Call with #desc reconnect"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getEventSources(  )[0].getUrls(  ) == exUrls.collect{ URI.create( it ) }
+        instance.getReconnectInitialMillis(  ) == exInitial
+        instance.getReconnectMaxMillis(  ) == exMax
+
+        where:
+        desc              | args                                                                               | exUrls                                                               | exInitial | exMax
+        "missing options" | [eUrl]                                                                             | ["tcp://event.casual.laz.se:7774"]                                   | 100       | 30000
+        "failover"        | ["--eventServerUrl=tcp://node1.casual.laz.se:7774,tcp://node2.casual.laz.se:7774"] | ["tcp://node1.casual.laz.se:7774", "tcp://node2.casual.laz.se:7774"] | 100       | 30000
+        "backoff"         | [eUrl, "--reconnect-initial=10ms", "--reconnect-max=1m"]                           | ["tcp://event.casual.laz.se:7774"]                                   | 10        | 60000
+    }
+
+    def "Call with #desc gap file"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getGapFile(  ).orElse( null ) == ( expected == null ? null : new File( expected ) )
+
+        where:
+        desc             | args                                     | expected
+        "missing option" | [eUrl]                                   | null
+        "gap file"       | [eUrl, "--gap-file=statistics.log.gaps"] | "statistics.log.gaps"
+    }
+
+    def "Call with #desc metrics"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getMetricsPort(  ) == exPort
+        instance.getMetricsHost(  ) == exHost
+
+        where:
+        desc              | args                                                    | exPort | exHost
+        "missing options" | [eUrl]                                                  | 0      | "localhost"
+        "port and host"   | [eUrl, "--metrics-port=9464", "--metrics-host=0.0.0.0"] | 9464   | "0.0.0.0"
+    }
+
+    def "Call with #desc thread mode"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getThreadMode(  ) == expected
+
+        where:
+        desc             | args                            | expected
+        "missing option" | [eUrl]                          | ThreadMode.PLATFORM
+        "virtual"        | [eUrl, "--thread-mode=virtual"] | ThreadMode.VIRTUAL
+    }
+
+    def "Call with #desc call graph"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getGraphFile(  ).orElse( null ) == ( exFile == null ? null : new File( exFile ) )
+        instance.getGraphIntervalMillis(  ) == exInterval
+        instance.getGraphSlowest(  ) == exSlowest
+        instance.getExecutionTimeoutMillis(  ) == exTimeout
+        instance.getMaxExecutions(  ) == exMax
+        instance.getMaxCalls(  ) == exCalls
+
+        where:
+        desc              | args                                                                                                                                             | exFile      | exInterval | exSlowest | exTimeout | exMax  | exCalls
+        "missing options" | [eUrl]                                                                                                                                           | null        | 60000      | 10        | 10000     | 100000 | 1000000
+        "all options"     | [eUrl, "--graph-file=log.graph", "--graph-interval=1s", "--graph-slowest=3", "--execution-timeout=2m", "--max-executions=50", "--max-calls=500"] | "log.graph" | 1000       | 3         | 120000    | 50     | 500
+    }
+
+    def "Call with #desc transaction summaries"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getTridFile(  ).orElse( null ) == ( exFile == null ? null : new File( exFile ) )
+        instance.getTridIdleTimeoutMillis(  ) == exTimeout
+        instance.getMaxTrids(  ) == exMax
+
+        where:
+        desc              | args                                                                        | exFile     | exTimeout | exMax
+        "missing options" | [eUrl]                                                                      | null       | 10000     | 100000
+        "all options"     | [eUrl, "--trid-file=log.trid", "--trid-idle-timeout=1m", "--max-trids=50"] | "log.trid" | 60000     | 50
+    }
+
+    def "Call with #desc top services"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.getTopFile(  ).orElse( null ) == ( exFile == null ? null : new File( exFile ) )
+        instance.getTopN(  ) == exN
+        instance.getTopWindowsMillis(  ) == exWindows
+        instance.getTopIntervalMillis(  ) == exInterval
+
+        where:
+        desc              | args                                                                                     | exFile    | exN | exWindows                   | exInterval
+        "missing options" | [eUrl]                                                                                   | null      | 10  | [60000L, 300000L, 3600000L] | 60000
+        "all options"     | [eUrl, "--top-file=log.top", "--top-n=3", "--top-windows=30s,10m", "--top-interval=10s"] | "log.top" | 3   | [30000L, 600000L]           | 10000
+    }
+
+    def "Call with #desc index"()
+    {
+        when:
+        CommandLine.ParseResult result = commandLine.parseArgs( args as String[] )
+
+        then:
+        result.errors().size() == 0
+        instance.isIndex(  ) == exIndex
+        instance.getIndexEvents(  ) == exEvents
+        instance.getIndexIntervalMillis(  ) == exInterval
+
+        where:
+        desc              | args                                                          | exIndex | exEvents | exInterval
+        "missing options" | [eUrl]                                                        | false   | 1000     | 1000
+        "all options"     | [eUrl, "--index", "--index-events=50", "--index-interval=5s"] | true    | 50       | 5000
+    }
 }
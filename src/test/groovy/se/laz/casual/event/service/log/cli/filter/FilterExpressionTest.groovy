@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.filter
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.log.EventRecord
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.transaction.xa.Xid
+import java.time.Instant
+
+class FilterExpressionTest extends Specification
+{
+    @Shared Instant start = Instant.ofEpochSecond( 1713184496L )
+
+    ServiceCallEvent event = ServiceCallEvent.createBuilder(  )
+            .withService( "some/service" )
+            .withParent( "batch/parent" )
+            .withPID( 1234 )
+            .withExecution( UUID.randomUUID(  ) )
+            .withTransactionId( Mock( Xid ) )
+            .withPending( 2000L )
+            .withStart( start )
+            .withEnd( start.plusMillis( 75 ) )
+            .withCode( ErrorState.TPESVCERR )
+            .withOrder( Order.SEQUENTIAL )
+            .build()
+
+    def "Expression #expression, matches #expected."()
+    {
+        when:
+        FilterExpression instance = FilterExpression.compile( expression )
+
+        then:
+        instance.test( event ) == expected
+        instance.getExpression(  ) == expression
+        instance.toString(  ) == expression
+
+        where:
+        expression                                           | expected
+        "service == some/service"                            | true
+        "service == 'some/service'"                          | true
+        "service != \"some/service\""                        | false
+        "service =~ 'some/.*'"                               | true
+        "service !~ 'some/.*'"                               | false
+        "parent =~ '^batch/.*' && pid == 1234"               | true
+        "pid != 1234"                                        | false
+        "duration > 50ms"                                    | true
+        "duration > 0.1s"                                    | false
+        "duration>=75000"                                    | true
+        "pending >= 2ms && pending < 2001us"                 | true
+        "code != OK"                                         | true
+        "code == TPESVCERR && order == S"                    | true
+        "order == C"                                         | false
+        "duration > 1s || code != OK"                        | true
+        "duration > 1s && code != OK"                        | false
+        "!( duration > 1s ) && !(code == OK)"                | true
+        "( pid == 1 || pid == 1234 ) && service =~ '.*e'"    | true
+        "pid == 1 || pid == 2 && pid == 1234"                | false
+        "SERVICE == some/service"                            | true
+    }
+
+    def "Expression #expression on a record, matches as the event."()
+    {
+        given:
+        EventRecord record = new EventRecord(  )
+                .setService( "some/service" )
+                .setParent( "batch/parent" )
+                .setPid( 1234 )
+                .setExecution( "1f0e" )
+                .setTransactionId( "null:null:0" )
+                .setPending( 2000L )
+                .setStart( 1713184496000000L )
+                .setEnd( 1713184496075000L )
+                .setCode( "TPESVCERR" )
+                .setOrder( 'S' as char )
+
+        expect:
+        FilterExpression.compile( expression ).test( record ) == expected
+
+        where:
+        expression                                           | expected
+        "service =~ 'some/.*' && parent == batch/parent"     | true
+        "pid == 1234 && execution == 1f0e"                   | true
+        "trid == 'null:null:0'"                              | true
+        "duration > 50ms && duration < 0.1s"                 | true
+        "pending >= 2ms && start < 1713184496000001"         | true
+        "end > 1713184496075000"                             | false
+        "code == TPESVCERR && order == S"                    | true
+        "order == C"                                         | false
+    }
+
+    def "Expression #expression on a missing field, matches #expected."()
+    {
+        given:
+        EventRecord record = new EventRecord(  )
+                .setService( "some/service" )
+
+        expect:
+        FilterExpression.compile( expression ).test( record ) == expected
+
+        where:
+        expression                                           | expected
+        "parent == batch/parent"                             | false
+        "parent != batch/parent"                             | true
+        "parent =~ '.*'"                                     | false
+        "parent !~ 'batch/.*'"                               | true
+        "!( parent != batch/parent )"                        | false
+        "!( parent !~ 'batch/.*' )"                          | false
+    }
+
+    def "Invalid expression #expression, throws FilterExpressionException."()
+    {
+        when:
+        FilterExpression.compile( expression )
+
+        then:
+        FilterExpressionException e = thrown()
+        e.getMessage(  ).contains( message )
+
+        where:
+        expression                        | message
+        ""                                | "Unexpected end of expression"
+        "duration > 50ms &&"              | "Unexpected end of expression"
+        "unknown == 1"                    | "Unknown field 'unknown'"
+        "pid > 1ms"                       | "Unit 'ms' can not be applied to pid"
+        "pid == 1.5"                      | "Expected a whole number for pid"
+        "pid == abc"                      | "Expected a number for pid"
+        "service > a"                     | "Operator '>' can not be applied to service"
+        "pid =~ 1"                        | "Operator '=~' can not be applied to pid"
+        "service =~ '('"                  | "Invalid pattern '('"
+        "( pid == 1"                      | "Expected ')'"
+        "service == 'abc"                 | "Unterminated string"
+        "pid ~~ 1"                        | "Expected an operator"
+        "pid == 9223372036854775808"      | "Value '9223372036854775808' is out of range for pid"
+        "duration > 9223372036854775807s" | "Value '9223372036854775807s' is out of range for duration"
+        "service == a b"                  | "Unexpected 'b' at position 13"
+    }
+
+    def "Null expression, throws NullPointerException."()
+    {
+        when:
+        FilterExpression.compile( null )
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "Converter, invalid expression throws TypeConversionException."()
+    {
+        when:
+        new FilterExpressionConverter(  ).convert( "pid >" )
+
+        then:
+        thrown picocli.CommandLine.TypeConversionException
+    }
+}
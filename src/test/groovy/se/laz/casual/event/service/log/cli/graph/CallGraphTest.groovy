@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+class CallGraphTest extends Specification
+{
+    def "Record, aggregated per parent and service with errors counted."()
+    {
+        given:
+        CallGraph instance = new CallGraph(  )
+
+        when:
+        instance.onEvent( event( null, "a", 100L, "OK" ) )
+        instance.onEvent( event( "a", "b", 20L, "OK" ) )
+        instance.onEvent( event( "a", "b", 40L, "TPESVCERR" ) )
+        instance.onEvent( event( "", "b", 10L, "OK" ) )
+        Map<String, CallEdge> edges = instance.getEdges(  ).collectEntries{ [it.getParent(  ) + "->" + it.getService(  ), it] }
+
+        then:
+        edges.keySet(  ) == ["<root>->a", "a->b", "<root>->b"] as Set
+        edges["a->b"].getLatency(  ).snapshot(  ).getCount(  ) == 2
+        edges["a->b"].getLatency(  ).snapshot(  ).getSum(  ) == 60L
+        edges["a->b"].getErrors(  ) == 1
+        edges["<root>->a"].getErrors(  ) == 0
+    }
+
+    def "More edges than max, aggregated as other."()
+    {
+        given:
+        CallGraph instance = new CallGraph( 2 )
+
+        when:
+        [["a", "b"], ["a", "c"], ["b", "c"], ["c", "d"], ["a", "b"]].each{ instance.onEvent( event( it[0], it[1], 1L, "OK" ) ) }
+        Map<String, CallEdge> edges = instance.getEdges(  ).collectEntries{ [it.getParent(  ) + "->" + it.getService(  ), it] }
+
+        then:
+        edges.keySet(  ) == ["a->b", "a->c", "<other>-><other>"] as Set
+        edges["a->b"].getLatency(  ).snapshot(  ).getCount(  ) == 2
+        edges["<other>-><other>"].getLatency(  ).snapshot(  ).getCount(  ) == 2
+    }
+
+    def "Invalid max edges, throws IllegalArgumentException."()
+    {
+        when:
+        new CallGraph( 0 )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    ServiceCallEvent event( String parent, String service, long duration, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getParent(  ) >> parent
+        event.getService(  ) >> service
+        event.getStart(  ) >> 1000L
+        event.getEnd(  ) >> 1000L + duration
+        event.getCode(  ) >> code
+        return event
+    }
+}
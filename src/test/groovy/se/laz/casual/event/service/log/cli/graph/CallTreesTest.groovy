@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class CallTreesTest extends Specification
+{
+    long now = 0
+
+    CallTrees instance = CallTrees.newBuilder(  )
+            .maxExecutions( 2 )
+            .slowest( 2 )
+            .timeoutMillis( 1000 )
+            .currentTimeMillis( { now } as LongSupplier )
+            .build(  )
+
+    def "Calls of an execution, arranged as the tree of which call made which."()
+    {
+        given:
+        instance.onEvent( event( "e1", "b", "a", 20L, 30L ) )
+        instance.onEvent( event( "e1", "c", "b", 22L, 25L ) )
+        instance.onEvent( event( "e1", "b", "a", 40L, 50L ) )
+        instance.onEvent( event( "e1", "c", "b", 45L, 48L ) )
+        instance.onEvent( event( "e1", "a", null, 10L, 60L, "TPESVCERR" ) )
+
+        when:
+        instance.completeAll(  )
+        List<CallTree> trees = instance.getSlowest(  )
+
+        then:
+        trees.size(  ) == 1
+        trees[0].getExecution(  ) == "e1"
+        trees[0].getDuration(  ) == 50L
+        trees[0].getErrors(  ) == 1
+        trees[0].getCalls(  ).collect{ [it.getDepth(  ), it.getEvent(  ).getService(  ), it.getEvent(  ).getStart(  )] } ==
+                [[0, "a", 10L], [1, "b", 20L], [2, "c", 22L], [1, "b", 40L], [2, "c", 45L]]
+    }
+
+    def "Execution without calls for the timeout, completed."()
+    {
+        given:
+        instance.onEvent( event( "e1", "a", null, 0L, 10L ) )
+
+        when:
+        now += 999
+        instance.expire(  )
+
+        then:
+        instance.getOpen(  ) == 1
+
+        when:
+        now += 1
+        instance.expire(  )
+
+        then:
+        instance.getOpen(  ) == 0
+        instance.getCompleted(  ) == 1
+        instance.getSlowest(  )*.getExecution(  ) == ["e1"]
+    }
+
+    def "More executions than max, least recently called completed early."()
+    {
+        given:
+        instance.onEvent( event( "e1", "a", null, 0L, 10L ) )
+        instance.onEvent( event( "e2", "a", null, 0L, 10L ) )
+        instance.onEvent( event( "e1", "b", "a", 1L, 2L ) )
+
+        when:
+        instance.onEvent( event( "e3", "a", null, 0L, 10L ) )
+
+        then:
+        instance.getOpen(  ) == 2
+        instance.getEvicted(  ) == 1
+        instance.getSlowest(  )*.getExecution(  ) == ["e2"]
+    }
+
+    def "More calls than max, least recently called executions completed early."()
+    {
+        given:
+        CallTrees trees = CallTrees.newBuilder(  ).maxCalls( 3 ).timeoutMillis( 1000 ).currentTimeMillis( { now } as LongSupplier ).build(  )
+        trees.onEvent( event( "e1", "a", null, 0L, 10L ) )
+        trees.onEvent( event( "e2", "a", null, 0L, 10L ) )
+        trees.onEvent( event( "e2", "b", "a", 1L, 2L ) )
+
+        when:
+        trees.onEvent( event( "e3", "a", null, 0L, 10L ) )
+
+        then:
+        trees.getOpen(  ) == 2
+        trees.getCalls(  ) == 3
+        trees.getEvicted(  ) == 1
+
+        when:
+        trees.onEvent( event( "e3", "b", "a", 1L, 2L ) )
+        trees.onEvent( event( "e3", "c", "b", 1L, 2L ) )
+        trees.onEvent( event( "e3", "d", "c", 1L, 2L ) )
+
+        then:
+        trees.getOpen(  ) == 1
+        trees.getCalls(  ) == 3
+        trees.getEvicted(  ) == 2
+
+        when:
+        trees.completeAll(  )
+
+        then:
+        trees.getCalls(  ) == 0
+        trees.getSlowest(  ).find{ it.getExecution(  ) == "e3" }.getDropped(  ) == 1
+    }
+
+    def "Slowest kept, slowest first, until removed."()
+    {
+        given:
+        [100L, 300L, 200L].eachWithIndex{ long duration, int i -> instance.onEvent( event( "e" + i, "a", null, 0L, duration ) ) }
+        instance.completeAll(  )
+
+        when:
+        List<CallTree> trees = instance.getSlowest(  )
+
+        then:
+        trees*.getDuration(  ) == [300L, 200L]
+        instance.getSlowest(  ) == trees
+        instance.getCompleted(  ) == 3
+
+        when:
+        instance.onEvent( event( "e3", "a", null, 0L, 250L ) )
+        instance.completeAll(  )
+        instance.removeSlowest( trees )
+
+        then:
+        instance.getSlowest(  )*.getDuration(  ) == [250L]
+    }
+
+    def "Build with invalid #desc, throws IllegalArgumentException."()
+    {
+        when:
+        CallTrees.newBuilder(  ).maxExecutions( max ).maxCalls( calls ).slowest( slowest ).timeoutMillis( timeout ).build(  )
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        desc             | max | calls | slowest | timeout
+        "max executions" | 0   | 10    | 10      | 1000
+        "max calls"      | 10  | 0     | 10      | 1000
+        "slowest"        | 10  | 10    | -1      | 1000
+        "timeout"        | 10  | 10    | 10      | 0
+    }
+
+    ServiceCallEvent event( String execution, String service, String parent, long start, long end, String code = "OK" )
+    {
+        ServiceCallEvent event = Mock()
+        event.getExecution(  ) >> execution
+        event.getService(  ) >> service
+        event.getParent(  ) >> parent
+        event.getStart(  ) >> start
+        event.getEnd(  ) >> end
+        event.getCode(  ) >> code
+        return event
+    }
+}
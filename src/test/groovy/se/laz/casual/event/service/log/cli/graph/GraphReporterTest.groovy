@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.graph
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import se.laz.casual.event.service.log.cli.log.LogBuffer
+import se.laz.casual.event.service.log.cli.log.LogOutput
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.LongSupplier
+
+class GraphReporterTest extends Specification
+{
+    File graphFile
+    CallGraph graph = new CallGraph(  )
+    CallTrees trees = CallTrees.newBuilder(  ).slowest( 1 ).timeoutMillis( 1000 ).currentTimeMillis( { 0L } as LongSupplier ).build(  )
+    long now = 1713184496000000L
+
+    GraphReporter instance
+
+    def setup()
+    {
+        graphFile = Files.createTempFile( "graph", "summary" ).toFile(  )
+        instance = GraphReporter.newBuilder(  )
+                .graph( graph )
+                .trees( trees )
+                .file( graphFile )
+                .intervalMillis( 60000 )
+                .currentTimeMicros( { now } as LongSupplier )
+                .build(  )
+    }
+
+    def cleanup()
+    {
+        instance.close(  )
+    }
+
+    def "Report, one line per edge called during the interval."()
+    {
+        given:
+        graph.onEvent( event( "e1", "a", null, 0L, 10L, "OK" ) )
+        graph.onEvent( event( "e1", "b", "a", 2L, 6L, "TPESVCERR" ) )
+
+        when:
+        instance.report(  )
+
+        then:
+        graphFile.readLines(  ).toSet(  ) == ["1713184496000000|edge|<root>|a|1|0|10|10|10",
+                                              "1713184496000000|edge|a|b|1|1|4|4|4"] as Set
+
+        when:
+        now += 60000000L
+        graph.onEvent( event( "e2", "b", "a", 0L, 8L, "OK" ) )
+        instance.report(  )
+
+        then:
+        graphFile.readLines(  ).size(  ) == 3
+        graphFile.readLines(  )[2] == "1713184556000000|edge|a|b|1|0|8|8|8"
+    }
+
+    def "Close, writes the open executions as trees."()
+    {
+        given:
+        trees.onEvent( event( "e1", "a", null, 100L, 110L, "OK" ) )
+        trees.onEvent( event( "e1", "b", "a", 102L, 106L, "TPESVCERR" ) )
+
+        when:
+        instance.close(  )
+        instance.close(  )
+
+        then:
+        graphFile.readLines(  ) == ["1713184496000000|tree|e1|10|2|1|0",
+                                    "1713184496000000|call|e1|0|<root>|a|0|10|OK",
+                                    "1713184496000000|call|e1|1|a|b|2|4|TPESVCERR"]
+    }
+
+    def "Report fails to write, the edges and trees are included in the next report."()
+    {
+        given:
+        StreamLogOutput file = new StreamLogOutput( graphFile )
+        boolean fail = true
+        LogOutput output = [write: { LogBuffer buffer ->
+            if( fail )
+            {
+                throw new EventServiceLoggerException( "Failed to write to file." )
+            }
+            file.write( buffer )
+        }, close: { file.close(  ) }] as LogOutput
+        GraphReporter failing = GraphReporter.newBuilder(  )
+                .graph( graph )
+                .trees( trees )
+                .output( output )
+                .currentTimeMicros( { now } as LongSupplier )
+                .build(  )
+        graph.onEvent( event( "e1", "a", null, 0L, 10L, "OK" ) )
+        trees.onEvent( event( "e1", "a", null, 0L, 10L, "OK" ) )
+        trees.completeAll(  )
+
+        when:
+        failing.report(  )
+
+        then:
+        thrown EventServiceLoggerException
+
+        when:
+        fail = false
+        graph.onEvent( event( "e2", "a", null, 0L, 10L, "OK" ) )
+        failing.report(  )
+
+        then:
+        graphFile.readLines(  ) == ["1713184496000000|edge|<root>|a|2|0|10|10|10",
+                                    "1713184496000000|tree|e1|10|1|0|0",
+                                    "1713184496000000|call|e1|0|<root>|a|0|10|OK"]
+        trees.getSlowest(  ).isEmpty(  )
+
+        cleanup:
+        failing.close(  )
+    }
+
+    def "Build with invalid #desc, throws #exception."()
+    {
+        when:
+        GraphReporter.newBuilder(  ).graph( _graph ).trees( _trees ).file( file ).intervalMillis( interval ).build(  )
+
+        then:
+        thrown exception
+
+        where:
+        desc            | _graph          | _trees                             | file            | interval || exception
+        "missing graph" | null            | CallTrees.newBuilder(  ).build(  ) | new File( "x" ) | 1000     || NullPointerException
+        "missing trees" | new CallGraph() | null                               | new File( "x" ) | 1000     || NullPointerException
+        "missing file"  | new CallGraph() | CallTrees.newBuilder(  ).build(  ) | null            | 1000     || NullPointerException
+        "interval"      | new CallGraph() | CallTrees.newBuilder(  ).build(  ) | new File( "x" ) | 0        || IllegalArgumentException
+    }
+
+    ServiceCallEvent event( String execution, String service, String parent, long start, long end, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getExecution(  ) >> execution
+        event.getService(  ) >> service
+        event.getParent(  ) >> parent
+        event.getStart(  ) >> start
+        event.getEnd(  ) >> end
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.internal
+
+import picocli.CommandLine
+import spock.lang.Specification
+
+class DurationConverterTest extends Specification
+{
+    DurationConverter instance = new DurationConverter(  )
+
+    def "Convert #value to #expected millis."()
+    {
+        expect:
+        instance.convert( value ) == expected
+
+        where:
+        value   || expected
+        "0"     || 0L
+        "500"   || 500L
+        "500ms" || 500L
+        "30s"   || 30000L
+        "15m"   || 900000L
+        "1H"    || 3600000L
+        "1d"    || 86400000L
+    }
+
+    def "Invalid #value, throws TypeConversionException."()
+    {
+        when:
+        instance.convert( value )
+
+        then:
+        thrown CommandLine.TypeConversionException
+
+        where:
+        value << ["", "s", "-1s", "1w", "abc"]
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.internal
+
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+class ScheduledTaskTest extends Specification
+{
+    def "Run, counted."()
+    {
+        given:
+        int calls = 0
+        ScheduledTask instance = new ScheduledTask( "Task", { calls++ } )
+
+        when:
+        instance.run(  )
+        instance.run(  )
+
+        then:
+        calls == 2
+        instance.getRuns(  ) == 2
+        instance.getFailures(  ) == 0
+        instance.getLastFailure(  ) == null
+        instance.toString(  ) == "Task runs: 2, failures: 0."
+    }
+
+    def "Failure, counted not thrown, last kept."()
+    {
+        given:
+        int calls = 0
+        ScheduledTask instance = new ScheduledTask( "Task", {
+            if( ++calls < 3 )
+            {
+                throw new EventServiceLoggerException( "failed " + calls )
+            }
+        } )
+
+        when:
+        3.times { instance.run(  ) }
+
+        then:
+        noExceptionThrown(  )
+        instance.getRuns(  ) == 3
+        instance.getFailures(  ) == 2
+        instance.getLastFailure(  ).getMessage(  ) == "failed 2"
+        instance.toString(  ) == "Task runs: 3, failures: 2, last: failed 2."
+    }
+
+    def "Failure, periodic schedule continues."()
+    {
+        given:
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1 )
+        ScheduledTask instance = new ScheduledTask( "Task", { throw new EventServiceLoggerException( "failed" ) } )
+
+        when:
+        executor.scheduleAtFixedRate( instance, 0, 1, TimeUnit.MILLISECONDS )
+        long deadline = System.currentTimeMillis(  ) + 5000
+        while( instance.getFailures(  ) < 3 && System.currentTimeMillis(  ) < deadline )
+        {
+            Thread.sleep( 1 )
+        }
+
+        then:
+        instance.getFailures(  ) >= 3
+
+        cleanup:
+        executor.shutdownNow(  )
+    }
+
+    def "Null arguments, throws NullPointerException."()
+    {
+        when:
+        new ScheduledTask( name, task )
+
+        then:
+        thrown NullPointerException
+
+        where:
+        name   | task
+        null   | {} as Runnable
+        "Task" | null
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.internal
+
+import picocli.CommandLine
+import spock.lang.Specification
+
+class SizeConverterTest extends Specification
+{
+    SizeConverter instance = new SizeConverter(  )
+
+    def "Convert #value to #expected bytes."()
+    {
+        expect:
+        instance.convert( value ) == expected
+
+        where:
+        value   || expected
+        "0"     || 0L
+        "512"   || 512L
+        "64K"   || 64L * 1024
+        "64kb"  || 64L * 1024
+        "100M"  || 100L * 1024 * 1024
+        "1G"    || 1024L * 1024 * 1024
+        " 2 MB" || 2L * 1024 * 1024
+    }
+
+    def "Invalid #value, throws TypeConversionException."()
+    {
+        when:
+        instance.convert( value )
+
+        then:
+        thrown CommandLine.TypeConversionException
+
+        where:
+        value << ["", "M", "-1", "1T", "abc", "9999999999G"]
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.Shared
+import spock.lang.Specification
+
+class BinaryEventDecoderTest extends Specification
+{
+    @Shared List<Integer> magic = [0x43, 0x4A, 0x53, 0x4C]
+
+    def "Empty stream, no events."()
+    {
+        given:
+        BinaryEventDecoder instance = new BinaryEventDecoder( new ByteArrayInputStream( new byte[0] ) )
+
+        expect:
+        !instance.read( new EventRecord(  ) )
+    }
+
+    def "Invalid #desc, throws LogFormatException."()
+    {
+        given:
+        BinaryEventDecoder instance = new BinaryEventDecoder( new ByteArrayInputStream( bytes as byte[] ) )
+
+        when:
+        instance.read( new EventRecord(  ) )
+
+        then:
+        thrown LogFormatException
+
+        where:
+        desc               | bytes
+        "text"             | "test1|parent".getBytes(  ) as List
+        "header"           | [0x43, 0x4A, 0x00, 0x4C, 1]
+        "version"          | magic + [99]
+        "record type"      | magic + [1, 9]
+        "dictionary id"    | magic + [1, 1, 2, 1, 0x61]
+        "undefined id"     | magic + [1, 2, 0, 0x53, 0, 0, 0, 1, 1]
+        "truncated record" | magic + [1, 2, 0, 0x53, 0, 0]
+    }
+
+    def "Missing stream, throws NullPointerException."()
+    {
+        when:
+        new BinaryEventDecoder( null )
+
+        then:
+        thrown NullPointerException
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.transaction.xa.Xid
+import java.time.Instant
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+
+class BinaryEventEncoderTest extends Specification
+{
+    @Shared Instant start1 = ZonedDateTime.parse( "2024-04-15T12:34:56.123456Z", DateTimeFormatter.ISO_ZONED_DATE_TIME).toInstant()
+    @Shared Instant end1 = ZonedDateTime.parse( "2024-04-15T12:35:04.123456Z", DateTimeFormatter.ISO_ZONED_DATE_TIME).toInstant()
+
+    ServiceCallEventFormatter formatter = new ServiceCallEventFormatter( "|" )
+
+    def "Encode then decode, same text as the formatter."()
+    {
+        given:
+        BinaryEventEncoder instance = new BinaryEventEncoder(  )
+        List<ServiceCallEvent> events = [
+                createEvent( "test1", "parent", Mock( Xid ), ErrorState.OK, Order.CONCURRENT, 0 ),
+                createEvent( "ünïcode/service", null, xid( 42, [0x01, 0xab, 0x00] as byte[], [0xff] as byte[] ), ErrorState.TPESVCFAIL, Order.SEQUENTIAL, -1000 ),
+                createEvent( "test1", "parent", Mock( Xid ), ErrorState.OK, Order.CONCURRENT, 5000000 )
+        ]
+        LogBuffer buffer = new LogBuffer( 16 )
+
+        when:
+        instance.start( buffer )
+        events.each{ instance.encode( it, buffer ) }
+
+        then:
+        decode( buffer ) == format( events )
+        buffer.size(  ) < format( events ).getBytes( "UTF-8" ).length
+    }
+
+    def "Repeated names are only written to the dictionary once."()
+    {
+        given:
+        BinaryEventEncoder instance = new BinaryEventEncoder(  )
+        ServiceCallEvent event = createEvent( "a/very/long/service/name", "a/very/long/parent/name", Mock( Xid ), ErrorState.OK, Order.CONCURRENT, 0 )
+        LogBuffer first = new LogBuffer( 16 )
+        LogBuffer second = new LogBuffer( 16 )
+
+        when:
+        instance.encode( event, first )
+        instance.encode( event, second )
+
+        then:
+        second.size(  ) < first.size(  ) - "a/very/long/service/name".length(  ) - "a/very/long/parent/name".length(  )
+    }
+
+    def "Dictionary full, new segment is started and still decodes."()
+    {
+        given:
+        BinaryEventEncoder instance = new BinaryEventEncoder( 4 )
+        List<ServiceCallEvent> events = (1..10).collect{ createEvent( "service" + it, "parent" + it % 3, Mock( Xid ), ErrorState.OK, Order.CONCURRENT, it * 10 ) }
+        LogBuffer buffer = new LogBuffer( 16 )
+
+        when:
+        instance.start( buffer )
+        events.each{ instance.encode( it, buffer ) }
+
+        then:
+        decode( buffer ) == format( events )
+    }
+
+    def "Appended to an existing file, restarts the segment."()
+    {
+        given:
+        ServiceCallEvent event = createEvent( "test1", "parent", Mock( Xid ), ErrorState.OK, Order.CONCURRENT, 0 )
+        LogBuffer buffer = new LogBuffer( 16 )
+
+        when:
+        BinaryEventEncoder first = new BinaryEventEncoder(  )
+        first.start( buffer )
+        first.encode( event, buffer )
+        BinaryEventEncoder second = new BinaryEventEncoder(  )
+        second.start( buffer )
+        second.encode( event, buffer )
+
+        then:
+        decode( buffer ) == format( [event, event] )
+    }
+
+    def "Encode with source, decoded as the last column."()
+    {
+        given:
+        BinaryEventEncoder instance = new BinaryEventEncoder(  )
+        ServiceCallEvent event = createEvent( "test1", "parent", Mock( Xid ), ErrorState.OK, Order.CONCURRENT, 0 )
+        LogBuffer buffer = new LogBuffer( 16 )
+        LogBuffer expected = new LogBuffer( 16 )
+
+        when:
+        instance.start( buffer )
+        instance.encode( event, "domainA", buffer )
+        instance.encode( event, buffer )
+        formatter.encode( event, "domainA", expected )
+        formatter.encode( event, expected )
+
+        then:
+        decode( buffer ) == expected.toString(  )
+        decode( buffer ).readLines(  )[0].endsWith( "|domainA" )
+    }
+
+    def "Max dictionary size less than 4, throws IllegalArgumentException."()
+    {
+        when:
+        new BinaryEventEncoder( 3 )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def "Not stateless."()
+    {
+        expect:
+        !new BinaryEventEncoder(  ).isStateless(  )
+    }
+
+    String decode( LogBuffer buffer )
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(  )
+        buffer.writeTo( bytes )
+        BinaryEventDecoder decoder = new BinaryEventDecoder( new ByteArrayInputStream( bytes.toByteArray(  ) ) )
+        EventRecord record = new EventRecord(  )
+        LogBuffer text = new LogBuffer( 16 )
+        while( decoder.read( record ) )
+        {
+            formatter.appendTo( record, text )
+            text.appendLineSeparator(  )
+        }
+        return text.toString(  )
+    }
+
+    String format( List<ServiceCallEvent> events )
+    {
+        LogBuffer text = new LogBuffer( 16 )
+        events.each{ formatter.encode( it, text ) }
+        return text.toString(  )
+    }
+
+    Xid xid( int formatId, byte[] gtrid, byte[] bqual )
+    {
+        return Stub( Xid ) {
+            getFormatId(  ) >> formatId
+            getGlobalTransactionId(  ) >> gtrid
+            getBranchQualifier(  ) >> bqual
+        }
+    }
+
+    ServiceCallEvent createEvent( String service, String parent, Xid trid, ErrorState code, Order order, long offsetMicros )
+    {
+        return ServiceCallEvent.createBuilder(  )
+                .withService( service )
+                .withParent( parent )
+                .withPID( 123 )
+                .withExecution( UUID.randomUUID(  ) )
+                .withTransactionId( trid )
+                .withPending( 5 )
+                .withStart( start1.plusNanos( offsetMicros * 1000 ) )
+                .withEnd( end1.plusNanos( offsetMicros * 1000 ) )
+                .withCode( code )
+                .withOrder( order )
+                .build()
+    }
+}
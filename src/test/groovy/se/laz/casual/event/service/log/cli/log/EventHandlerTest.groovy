@@ -9,6 +9,8 @@ package se.laz.casual.event.service.log.cli.log
 import se.laz.casual.api.flags.ErrorState
 import se.laz.casual.event.Order
 import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.filter.FilterExpression
+import se.laz.casual.event.service.log.cli.sample.EventSampler
 import spock.lang.Specification
 
 import javax.transaction.xa.Xid
@@ -112,6 +114,182 @@ class EventHandlerTest extends Specification
         "internal.fred" | ".*[_]+.*"    | "^internal.*" | 0
     }
 
+    def "Accept applies the filters without logging."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .filterInclusive( Pattern.compile( "^s.*" ) )
+                .filterExclusive( Pattern.compile( ".*[z]+.*" ) )
+                .build()
+
+        when:
+        boolean actual = instance.accept( createEvent( name ) )
+
+        then:
+        actual == expected
+        0 * _logger.logEvent( _ )
+
+        where:
+        name      | expected
+        "service" | true
+        "tervice" | false
+        "szervice"| false
+    }
+
+    def "Filter decisions cached per service name."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .filterInclusive( Pattern.compile( "^s.*" ) )
+                .filterCacheSize( 10 )
+                .build()
+
+        when:
+        ["service", "tervice", "service", "service"].each{ instance.handle( createEvent( it ) ) }
+
+        then:
+        3 * _logger.logEvent( _ )
+        instance.getFilterCache(  ).getMaxSize(  ) == 10
+        instance.getFilterCache(  ).getMisses(  ) == 2
+        instance.getFilterCache(  ).getHits(  ) == 2
+    }
+
+    def "No filters, cache not used."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .build()
+
+        when:
+        instance.handle( event )
+
+        then:
+        1 * _logger.logEvent( event )
+        instance.getFilterCache(  ).getMaxSize(  ) == FilterDecisionCache.DEFAULT_MAX_SIZE
+        instance.getFilterCache(  ).getMisses(  ) == 0
+    }
+
+    def "Filter expression, applied after the service name filters."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .filterInclusive( Pattern.compile( "^s.*" ) )
+                .filter( FilterExpression.compile( expression ) )
+                .build()
+        ServiceCallEvent event = createEvent( name )
+
+        when:
+        instance.handle( event )
+
+        then:
+        expected * _logger.logEvent( event )
+        instance.getFilter(  ).getExpression(  ) == expression
+
+        where:
+        name      | expression                   || expected
+        "service" | "duration > 5s"              || 1
+        "service" | "duration > 10s"             || 0
+        "tervice" | "duration > 5s"              || 0
+        "service" | "code == OK && pid == 123"   || 1
+    }
+
+    def "Sampler, only applied to events passing the filters."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        EventSampler sampler = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .filterInclusive( Pattern.compile( "^s.*" ) )
+                .sampler( sampler )
+                .build()
+
+        when:
+        instance.handle( createEvent( "tervice" ) )
+        instance.handle( createEvent( "service" ) )
+        instance.handle( createEvent( "service" ) )
+
+        then:
+        2 * sampler.sample( _ ) >>> [true, false]
+        1 * _logger.logEvent( _ )
+        instance.getSampler(  ) == sampler
+    }
+
+    def "Listeners notified of filtered events, log events #logEvents."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        ServiceCallEventListener listener = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .filterInclusive( Pattern.compile( "^s.*" ) )
+                .listener( listener )
+                .logEvents( logEvents )
+                .build()
+        ServiceCallEvent included = createEvent( "service" )
+
+        when:
+        instance.handle( createEvent( "tervice" ) )
+        instance.handle( included )
+
+        then:
+        1 * listener.onEvent( included )
+        expected * _logger.logEvent( included )
+        instance.getListeners(  ) == [listener]
+        instance.isLogEvents(  ) == logEvents
+
+        where:
+        logEvents || expected
+        true      || 1
+        false     || 0
+    }
+
+    def "Source set, logged with each event."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .source( "domainA" )
+                .build()
+        ServiceCallEvent event = createEvent( "service" )
+
+        when:
+        instance.handle( event )
+
+        then:
+        1 * _logger.logEvent( event, "domainA" )
+        0 * _logger.logEvent( event )
+        instance.getSource(  ) == "domainA"
+    }
+
+    def "Events handled and accepted, counted."()
+    {
+        given:
+        ServiceLogger _logger = Mock()
+        instance = EventHandler.newBuilder()
+                .serviceLogger( _logger )
+                .filterInclusive( Pattern.compile( "^s.*" ) )
+                .build()
+
+        when:
+        instance.handle( createEvent( "service" ) )
+        instance.handle( createEvent( "tervice" ) )
+        instance.accept( createEvent( "service" ) )
+
+        then:
+        instance.getHandled(  ) == 3
+        instance.getAccepted(  ) == 2
+    }
+
     def "notify null event, throws NullPointerException."()
     {
         when:
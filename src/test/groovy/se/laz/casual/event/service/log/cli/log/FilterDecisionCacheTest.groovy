@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.Specification
+
+import java.util.function.Predicate
+
+class FilterDecisionCacheTest extends Specification
+{
+    def "Invalid #desc, throws #exception."()
+    {
+        when:
+        new FilterDecisionCache( filter, maxSize )
+
+        then:
+        thrown exception
+
+        where:
+        desc             | filter                         | maxSize || exception
+        "missing filter" | null                           | 10      || NullPointerException
+        "max size"       | { true } as Predicate<String>  | -1      || IllegalArgumentException
+    }
+
+    def "Filter evaluated once per key, thereafter cached."()
+    {
+        given:
+        Predicate<String> filter = Mock()
+        FilterDecisionCache instance = new FilterDecisionCache( filter, 10 )
+
+        when:
+        List<Boolean> actual = ["a", "b", "a", "a", "b"].collect{ instance.test( it ) }
+
+        then:
+        1 * filter.test( "a" ) >> true
+        1 * filter.test( "b" ) >> false
+        actual == [true, false, true, true, false]
+        instance.getHits(  ) == 3
+        instance.getMisses(  ) == 2
+        instance.getEvictions(  ) == 0
+        instance.size(  ) == 2
+    }
+
+    def "Full, evicts to remain within max size."()
+    {
+        given:
+        FilterDecisionCache instance = new FilterDecisionCache( { it.startsWith( "s" ) } as Predicate<String>, 3 )
+
+        when:
+        (1..10).each{ instance.test( "service" + it ) }
+
+        then:
+        instance.size(  ) == 3
+        instance.getMisses(  ) == 10
+        instance.getEvictions(  ) == 7
+    }
+
+    def "Max size 0, not cached."()
+    {
+        given:
+        Predicate<String> filter = Mock()
+        FilterDecisionCache instance = new FilterDecisionCache( filter, 0 )
+
+        when:
+        instance.test( "a" )
+        instance.test( "a" )
+
+        then:
+        2 * filter.test( "a" ) >> true
+        instance.size(  ) == 0
+        instance.getHits(  ) == 0
+        instance.getMisses(  ) == 2
+    }
+
+    def "Null key, throws NullPointerException."()
+    {
+        given:
+        FilterDecisionCache instance = new FilterDecisionCache( { true } as Predicate<String>, 10 )
+
+        when:
+        instance.test( null )
+
+        then:
+        thrown NullPointerException
+    }
+}
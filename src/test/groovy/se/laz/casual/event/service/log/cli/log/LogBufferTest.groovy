@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class LogBufferTest extends Specification
+{
+    def "Append #desc, encoded as UTF-8."()
+    {
+        given:
+        LogBuffer instance = new LogBuffer( 1 )
+        ByteArrayOutputStream os = new ByteArrayOutputStream()
+
+        when:
+        instance.append( text )
+        instance.writeTo( os )
+
+        then:
+        os.toByteArray(  ) == text.getBytes( StandardCharsets.UTF_8 )
+        instance.toString(  ) == text
+        instance.size(  ) == os.size(  )
+
+        where:
+        desc              | text
+        "empty"           | ""
+        "ascii"           | "some/service|parent"
+        "two byte chars"  | "tjänst.åäö"
+        "three byte char" | "サービス"
+        "surrogate pair"  | "emoji 😀 service"
+        "long text"       | "x" * 10000
+    }
+
+    def "Reset retains nothing, can be reused."()
+    {
+        given:
+        LogBuffer instance = new LogBuffer( 16 )
+        instance.append( "first" ).appendLineSeparator(  )
+
+        when:
+        instance.reset(  )
+        instance.append( "second" )
+
+        then:
+        instance.toString(  ) == "second"
+        !instance.isEmpty(  )
+    }
+
+    def "Append null text, appends null."()
+    {
+        given:
+        LogBuffer instance = new LogBuffer( 16 )
+
+        when:
+        instance.append( (String) null )
+
+        then:
+        instance.toString(  ) == "null"
+    }
+
+    def "Append long #value."()
+    {
+        given:
+        LogBuffer instance = new LogBuffer( 1 )
+
+        when:
+        instance.append( value )
+
+        then:
+        instance.toString(  ) == String.valueOf( value )
+
+        where:
+        value << [0L, 1L, 9L, 10L, -1L, -10L, 123L, 1713184496123456L, Long.MAX_VALUE, Long.MIN_VALUE]
+    }
+
+    def "Append char #desc."()
+    {
+        given:
+        LogBuffer instance = new LogBuffer( 1 )
+
+        when:
+        instance.append( value as char )
+
+        then:
+        instance.toString(  ) == expected
+
+        where:
+        desc        | value                 || expected
+        "ascii"     | 'S'                   || "S"
+        "two byte"  | 'ä'                   || "ä"
+        "lone high" | ('\uD83D' as char)    || "?"
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class LogIndexTest extends Specification
+{
+    File logFile
+    File indexFile
+    long now = 0
+
+    def setup()
+    {
+        logFile = Files.createTempFile( "index", "log" ).toFile(  )
+        indexFile = LogIndex.indexFileOf( logFile )
+    }
+
+    def cleanup()
+    {
+        indexFile.delete(  )
+        logFile.delete(  )
+    }
+
+    def "Block ends at max events."()
+    {
+        given:
+        LogIndex instance = build( 0, 2 )
+
+        when:
+        instance.record( 20 )
+        instance.record( 10 )
+        instance.written( 100, 2 )
+        instance.record( 30 )
+        instance.written( 150, 1 )
+        instance.close( 150 )
+
+        then:
+        indexFile.readLines(  ) == ["0|100|2|10|20", "100|50|1|30|30"]
+    }
+
+    def "Block ends at interval."()
+    {
+        given:
+        LogIndex instance = build( 0, 1000 )
+
+        when:
+        instance.record( 10 )
+        instance.written( 100, 1 )
+        now = 1000
+        instance.record( 20 )
+        instance.written( 200, 1 )
+        instance.close( 200 )
+
+        then:
+        indexFile.readLines(  ) == ["0|200|2|10|20"]
+    }
+
+    def "Close without new events, no empty block written."()
+    {
+        given:
+        LogIndex instance = build( 0, 1 )
+
+        when:
+        instance.record( 10 )
+        instance.written( 100, 1 )
+        instance.close( 100 )
+        instance.close( 100 )
+
+        then:
+        indexFile.readLines(  ) == ["0|100|1|10|10"]
+    }
+
+    def "Log not indexed, written as block without start range."()
+    {
+        given:
+        LogIndex instance = build( 100, 1 )
+
+        when:
+        instance.record( 10 )
+        instance.written( 150, 1 )
+        instance.close( 150 )
+        List<LogIndex.Entry> entries = LogIndex.read( indexFile )
+
+        then:
+        indexFile.readLines(  ) == ["0|100|||", "100|50|1|10|10"]
+        entries*.getOffset(  ) == [0L, 100L]
+        entries[0].overlaps( 1000, 2000 )
+        !entries[1].overlaps( 1000, 2000 )
+    }
+
+    def "Reopened, continues after the indexed part."()
+    {
+        given:
+        LogIndex first = build( 0, 1 )
+        first.record( 10 )
+        first.written( 100, 1 )
+        first.close( 100 )
+
+        when:
+        LogIndex instance = build( 100, 1 )
+        instance.record( 20 )
+        instance.written( 200, 1 )
+        instance.close( 200 )
+
+        then:
+        indexFile.readLines(  ) == ["0|100|1|10|10", "100|100|1|20|20"]
+    }
+
+    def "Index beyond the end of the log, stale index replaced."()
+    {
+        given:
+        indexFile.text = "0|500|1|10|10" + System.lineSeparator(  )
+
+        when:
+        LogIndex instance = build( 100, 1 )
+        instance.close( 100 )
+
+        then:
+        indexFile.readLines(  ) == ["0|100|||"]
+    }
+
+    def "Read, partly written line ignored."()
+    {
+        given:
+        indexFile.text = "0|100|1|10|10\n100|50|1|2"
+
+        when:
+        List<LogIndex.Entry> entries = LogIndex.read( indexFile )
+
+        then:
+        entries.size(  ) == 1
+        entries[0].getLength(  ) == 100
+    }
+
+    def "Read without index, empty."()
+    {
+        expect:
+        LogIndex.read( new File( logFile.getPath(  ) + ".missing" ) ).isEmpty(  )
+    }
+
+    def "Overlaps #from to #to, #expected."()
+    {
+        given:
+        LogIndex.Entry entry = new LogIndex.Entry( 0, 100, 10, 20 )
+
+        expect:
+        entry.overlaps( from, to ) == expected
+
+        where:
+        from | to || expected
+        0    | 9  || false
+        0    | 10 || true
+        15   | 16 || true
+        20   | 30 || true
+        21   | 30 || false
+    }
+
+    def "Invalid #desc, throws IllegalArgumentException."()
+    {
+        when:
+        LogIndex.newBuilder(  ).logFile( logFile ).maxEvents( maxEvents ).intervalMillis( interval ).build(  )
+
+        then:
+        thrown( IllegalArgumentException )
+
+        where:
+        desc         | maxEvents | interval
+        "max events" | 0         | 1000
+        "interval"   | 1         | 0
+    }
+
+    LogIndex build( long logSize, int maxEvents )
+    {
+        return LogIndex.newBuilder(  )
+                .logFile( logFile )
+                .logSize( logSize )
+                .maxEvents( maxEvents )
+                .intervalMillis( 1000 )
+                .currentTimeMillis( { now } )
+                .build(  )
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.zip.GZIPInputStream
+import java.util.zip.Inflater
+
+class LogOutputTest extends Specification
+{
+    File file
+
+    def setup()
+    {
+        file = Files.createTempFile( "stats", "log" ).toFile(  )
+    }
+
+    def cleanup()
+    {
+        file.delete(  )
+    }
+
+    def "#type output appends to existing content."()
+    {
+        given:
+        file.text = "existing" + System.lineSeparator(  )
+        LogBuffer buffer = new LogBuffer( 16 ).append( "line" ).appendLineSeparator(  )
+
+        when:
+        LogOutput instance = type.open( file )
+        instance.write( buffer )
+        instance.write( buffer )
+        instance.close(  )
+
+        then:
+        file.text == "existing" + System.lineSeparator(  ) + ( "line" + System.lineSeparator(  ) ) * 2
+
+        where:
+        type << LogOutputType.values(  ).findAll{ !it.isCompressed(  ) }
+    }
+
+    def "#type output creates missing file."()
+    {
+        given:
+        file.delete(  )
+        LogBuffer buffer = new LogBuffer( 16 ).append( "line" )
+
+        when:
+        LogOutput instance = type.open( file )
+        instance.write( buffer )
+        instance.close(  )
+
+        then:
+        file.text == "line"
+
+        where:
+        type << LogOutputType.values(  ).findAll{ !it.isCompressed(  ) }
+    }
+
+    def "#type output, write whilst interrupted, written and interrupt kept."()
+    {
+        given:
+        LogBuffer buffer = new LogBuffer( 16 ).append( "line" ).appendLineSeparator(  )
+        LogOutput instance = type.open( file )
+        instance.write( buffer )
+
+        when:
+        Thread.currentThread(  ).interrupt(  )
+        instance.write( buffer )
+        boolean interrupted = Thread.interrupted(  )
+        instance.write( buffer )
+        instance.close(  )
+
+        then:
+        interrupted
+        file.text == ( "line" + System.lineSeparator(  ) ) * 3
+
+        where:
+        type << [LogOutputType.CHANNEL, LogOutputType.MAPPED]
+    }
+
+    def "#type output, write resumed from an offset and the last bytes discarded."()
+    {
+        given:
+        LogBuffer buffer = new LogBuffer( 16 ).append( "line" ).appendLineSeparator(  )
+        LogOutput instance = type.open( file )
+
+        when:
+        instance.write( buffer )
+        instance.write( buffer, 2 )
+        instance.discard( buffer.size(  ) - 2 )
+        instance.write( buffer )
+        instance.close(  )
+
+        then:
+        file.text == ( "line" + System.lineSeparator(  ) ) * 2
+
+        where:
+        type << LogOutputType.values(  ).findAll{ !it.isCompressed(  ) }
+    }
+
+    def "Mapped output, writes spanning several chunks, truncated to the data on close."()
+    {
+        given:
+        LogBuffer buffer = new LogBuffer( 16 ).append( "0123456789" )
+        LogOutput instance = new MappedLogOutput( file, 4 )
+
+        when:
+        instance.write( buffer )
+        instance.write( buffer )
+
+        then:
+        file.length(  ) >= 20
+
+        when:
+        instance.close(  )
+
+        then:
+        file.text == "0123456789" * 2
+    }
+
+    def "Mapped output, padding left by an unclosed output is removed when reopened."()
+    {
+        given:
+        file.bytes = "data".bytes + new byte[60]
+
+        when:
+        LogOutput instance = new MappedLogOutput( file, 64 )
+        instance.write( new LogBuffer( 16 ).append( "more" ) )
+        instance.close(  )
+
+        then:
+        file.text == "datamore"
+    }
+
+    def "Mapped output, invalid chunk size, throws IllegalArgumentException."()
+    {
+        when:
+        new MappedLogOutput( file, 0 )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def "Gzip output, appends members readable as one gzip stream."()
+    {
+        given:
+        file.delete(  )
+        LogBuffer buffer = new LogBuffer( 16 ).append( "line" ).appendLineSeparator(  )
+
+        when:
+        LogOutput first = new GzipLogOutput( file, 1024 )
+        first.write( buffer )
+        first.close(  )
+        LogOutput second = LogOutputType.GZIP.open( file )
+        second.write( buffer )
+        second.close(  )
+
+        then:
+        LogOutputType.GZIP.isCompressed(  )
+        gunzip( file ) == ( "line" + System.lineSeparator(  ) ) * 2
+    }
+
+    def "Gzip output, full blocks compressed as independent members."()
+    {
+        given:
+        file.delete(  )
+        LogBuffer buffer = new LogBuffer( 16 ).append( "0123456789" ).appendLineSeparator(  )
+        int lineLength = buffer.size(  )
+
+        when:
+        LogOutput instance = new GzipLogOutput( file, 64 )
+        100.times{ instance.write( buffer ) }
+        instance.close(  )
+
+        then:
+        gunzip( file ) == ( "0123456789" + System.lineSeparator(  ) ) * 100
+        // Every completed block is a gzip member of its own, starting with the gzip magic.
+        countMembers( file.bytes ) == (int) Math.ceil( 100 / Math.ceil( 64 / lineLength ) )
+    }
+
+    def "Gzip output, flush compresses the partial block as a member of its own."()
+    {
+        given:
+        file.delete(  )
+        LogBuffer buffer = new LogBuffer( 16 ).append( "line" ).appendLineSeparator(  )
+        LogOutput instance = new GzipLogOutput( file, 1024 )
+
+        when:
+        instance.write( buffer )
+        instance.flush(  )
+        instance.flush(  )
+        int count = 0
+        while( file.length(  ) == 0 && count < 100 )
+        {
+            Thread.sleep( 10 )
+            count++
+        }
+
+        then:
+        gunzip( file ) == "line" + System.lineSeparator(  )
+        countMembers( file.bytes ) == 1
+
+        cleanup:
+        instance.close(  )
+    }
+
+    def "Gzip output, invalid block size, throws IllegalArgumentException."()
+    {
+        when:
+        new GzipLogOutput( file, 0 )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    static String gunzip( File file )
+    {
+        return new GZIPInputStream( new FileInputStream( file ) ).withCloseable{ it.text }
+    }
+
+    static int countMembers( byte[] bytes )
+    {
+        int members = 0
+        int offset = 0
+        while( offset < bytes.length )
+        {
+            Inflater inflater = new Inflater( true )
+            // 10 byte header, deflate data, then 8 byte trailer.
+            inflater.setInput( bytes, offset + 10, bytes.length - offset - 10 )
+            byte[] out = new byte[1024]
+            while( !inflater.finished(  ) )
+            {
+                inflater.inflate( out )
+            }
+            offset = bytes.length - inflater.getRemaining(  ) + 8
+            inflater.end(  )
+            members++
+        }
+        return members
+    }
+}
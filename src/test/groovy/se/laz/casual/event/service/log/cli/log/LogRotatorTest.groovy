@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.time.ZoneOffset
+import java.util.concurrent.atomic.AtomicLong
+
+@IgnoreIf( {os.windows} )
+class LogRotatorTest extends Specification
+{
+    File directory
+    File logFile
+    AtomicLong clock = new AtomicLong( 1713184496123L )
+
+    LogRotator instance
+
+    def setup()
+    {
+        directory = Files.createTempDirectory( "rotate" ).toFile(  )
+        logFile = new File( directory, "service.log" )
+    }
+
+    def cleanup()
+    {
+        instance?.close(  )
+    }
+
+    def "Rotate, current file is archived and the prepared next file takes its place."()
+    {
+        given:
+        instance = newRotator( 0 )
+        LogOutput current = LogOutputType.STREAM.open( logFile )
+        current.write( buffer( "first" ) )
+        instance.awaitPrepared(  )
+
+        when:
+        LogOutput next = instance.rotate( current )
+        next.write( buffer( "second" ) )
+        next.close(  )
+        instance.close(  )
+
+        then:
+        next != null
+        new File( directory, "service.log.20240415-123456-123" ).text == "first"
+        logFile.text == "second"
+        !new File( directory, "service.log.next" ).exists(  )
+        instance.getRotations(  ) == 1
+        instance.getFailures(  ) == 0
+    }
+
+    def "Rotate twice in the same millisecond, archive names are unique."()
+    {
+        given:
+        instance = newRotator( 0 )
+        LogOutput current = LogOutputType.STREAM.open( logFile )
+
+        when:
+        instance.awaitPrepared(  )
+        current = instance.rotate( current )
+        instance.awaitPrepared(  )
+        current = instance.rotate( current )
+        current.close(  )
+        instance.close(  )
+
+        then:
+        directory.list(  ).sort(  ) == ["service.log", "service.log.20240415-123456-123", "service.log.20240415-123456-123-1"]
+    }
+
+    def "Retain #retain, only the newest rotated files are kept."()
+    {
+        given:
+        instance = newRotator( retain )
+        LogOutput current = LogOutputType.STREAM.open( logFile )
+        File unrelated = new File( directory, "service.log.old" )
+        unrelated.text = "kept"
+
+        when:
+        5.times{
+            clock.addAndGet( 1000 )
+            instance.awaitPrepared(  )
+            current = instance.rotate( current )
+        }
+        current.close(  )
+        instance.close(  )
+        List<String> archives = directory.list(  ).findAll{ it ==~ /service\.log\.\d{8}-.*/ }.sort(  )
+
+        then:
+        archives == expected
+        unrelated.exists(  )
+
+        where:
+        retain || expected
+        0      || ["service.log.20240415-123457-123", "service.log.20240415-123458-123", "service.log.20240415-123459-123",
+                   "service.log.20240415-123500-123", "service.log.20240415-123501-123"]
+        2      || ["service.log.20240415-123500-123", "service.log.20240415-123501-123"]
+    }
+
+    def "Size exceeded with max size #maxSize and size #size is #expected."()
+    {
+        given:
+        instance = LogRotator.newBuilder(  ).file( logFile ).maxSize( maxSize ).build(  )
+
+        expect:
+        instance.isSizeExceeded( size ) == expected
+
+        where:
+        maxSize | size || expected
+        0       | 100  || false
+        100     | 99   || false
+        100     | 100  || true
+    }
+
+    def "Interval is aligned to the clock."()
+    {
+        given:
+        instance = newRotator( 0 )
+
+        when:
+        clock.set( 3600000L * 24 * 10000 + 15 * 60000 )
+        LogRotator hourly = LogRotator.newBuilder(  ).file( logFile ).intervalMillis( 3600000L )
+                .currentTimeMillis( clock::get ).zone( ZoneOffset.UTC ).build(  )
+
+        then:
+        hourly.millisUntilInterval(  ) == 45 * 60000L
+        instance.millisUntilInterval(  ) == -1
+
+        cleanup:
+        hourly.close(  )
+    }
+
+    def "Stale next file from a previous run is replaced."()
+    {
+        given:
+        File stale = new File( directory, "service.log.next" )
+        stale.text = "stale"
+
+        when:
+        instance = newRotator( 0 )
+        instance.awaitPrepared(  )
+
+        then:
+        stale.length(  ) == 0
+    }
+
+    def "Invalid #desc, throws #exception."()
+    {
+        when:
+        LogRotator.newBuilder(  ).file( file ).maxSize( maxSize ).build(  )
+
+        then:
+        thrown exception
+
+        where:
+        desc       | file                      | maxSize || exception
+        "file"     | null                      | 0       || NullPointerException
+        "max size" | new File( "service.log" ) | -1      || IllegalArgumentException
+    }
+
+    LogRotator newRotator( int retain )
+    {
+        return LogRotator.newBuilder(  )
+                .file( logFile )
+                .outputType( LogOutputType.STREAM )
+                .retain( retain )
+                .currentTimeMillis( clock::get )
+                .zone( ZoneOffset.UTC )
+                .build(  )
+    }
+
+    static LogBuffer buffer( String text )
+    {
+        return new LogBuffer( 16 ).append( text )
+    }
+}
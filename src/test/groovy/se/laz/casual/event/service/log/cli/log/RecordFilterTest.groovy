@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import se.laz.casual.event.service.log.cli.filter.FilterExpression
+import spock.lang.Specification
+
+import java.util.regex.Pattern
+
+class RecordFilterTest extends Specification
+{
+    def "Filter #service with #desc, passes #expected."()
+    {
+        given:
+        RecordFilter instance = RecordFilter.newBuilder(  )
+                .filterInclusive( inclusive == null ? null : Pattern.compile( inclusive ) )
+                .filterExclusive( exclusive == null ? null : Pattern.compile( exclusive ) )
+                .filter( filter == null ? null : FilterExpression.compile( filter ) )
+                .build(  )
+        EventRecord record = new EventRecord(  ).setService( service ).setStart( 1000L ).setEnd( 2000L ).setCode( "OK" )
+
+        expect:
+        instance.test( record ) == expected
+
+        where:
+        desc                  | service    | inclusive | exclusive | filter              || expected
+        "no filters"          | "service1" | null      | null      | null                || true
+        "inclusive match"     | "service1" | "serv.*"  | null      | null                || true
+        "inclusive no match"  | "other"    | "serv.*"  | null      | null                || false
+        "exclusive match"     | "service1" | null      | ".*1"     | null                || false
+        "both"                | "service2" | "serv.*"  | ".*1"     | null                || true
+        "expression match"    | "service1" | null      | null      | "duration >= 1ms"   || true
+        "expression no match" | "service1" | "serv.*"  | null      | "code != OK"        || false
+    }
+
+    def "Record null, throws NullPointerException."()
+    {
+        when:
+        RecordFilter.newBuilder(  ).build(  ).test( null )
+
+        then:
+        thrown NullPointerException
+    }
+}
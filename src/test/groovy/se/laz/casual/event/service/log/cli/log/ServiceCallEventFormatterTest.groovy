@@ -62,4 +62,66 @@ class ServiceCallEventFormatterTest extends Specification
         "test2" | "parent" | 123 | uuid | xid | start1 | end1 | 15 | fail | S | "|" || "test2|parent|123|" + uuidString + "|" + xidString + "|" + startLong1 + "|" + endLong1 + "|15|TPESVCFAIL|S"
     }
 
+    def "Append events to a reused buffer, same output as format."()
+    {
+        given:
+        ServiceCallEvent event = ServiceCallEvent.createBuilder(  )
+            .withService( "test1" )
+            .withParent( "parent" )
+            .withPID( 123 )
+            .withExecution( uuid )
+            .withTransactionId( xid )
+            .withStart( start1 )
+            .withEnd( end1 )
+            .withPending( 5 )
+            .withCode( ok )
+            .withOrder( C )
+            .build()
+        ServiceCallEventFormatter instance = new ServiceCallEventFormatter( "~" )
+        LogBuffer buffer = new LogBuffer( 16 )
+        String expected = ServiceCallEventFormatter.format( event, "~" )
+
+        when:
+        instance.appendTo( event, buffer )
+        buffer.appendLineSeparator(  )
+        instance.appendTo( event, buffer )
+
+        then:
+        buffer.toString(  ) == expected + System.lineSeparator(  ) + expected
+        instance.getDelimiter(  ) == "~"
+    }
+
+    def "Encode with source, appended as the last column."()
+    {
+        given:
+        ServiceCallEvent event = ServiceCallEvent.createBuilder(  )
+            .withService( "test1" )
+            .withParent( "parent" )
+            .withPID( 123 )
+            .withExecution( uuid )
+            .withTransactionId( xid )
+            .withStart( start1 )
+            .withEnd( end1 )
+            .withPending( 5 )
+            .withCode( ok )
+            .withOrder( C )
+            .build()
+        ServiceCallEventFormatter instance = new ServiceCallEventFormatter( "|" )
+        LogBuffer buffer = new LogBuffer( 16 )
+
+        when:
+        instance.encode( event, "domainA", buffer )
+
+        then:
+        buffer.toString(  ) == ServiceCallEventFormatter.format( event, "|" ) + "|domainA" + System.lineSeparator(  )
+    }
+
+    def "Create with null delimiter, throws NullPointerException."()
+    {
+        when:
+        new ServiceCallEventFormatter( null )
+
+        then:
+        thrown NullPointerException
+    }
 }
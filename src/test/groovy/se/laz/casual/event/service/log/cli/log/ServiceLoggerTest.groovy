@@ -10,15 +10,19 @@ import se.laz.casual.api.flags.ErrorState
 import se.laz.casual.api.util.PrettyPrinter
 import se.laz.casual.event.Order
 import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import se.laz.casual.event.service.log.cli.metrics.PipelineMetrics
 import se.laz.casual.event.service.log.cli.runner.TestEventServiceLogParams
 import spock.lang.IgnoreIf
 import spock.lang.Specification
 
 import javax.transaction.xa.Xid
+import java.nio.ByteBuffer
 import java.nio.file.Files
 import java.time.Instant
 import java.time.ZonedDateTime
 import java.time.format.DateTimeFormatter
+import java.util.zip.GZIPInputStream
 
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE
 
@@ -106,6 +110,31 @@ class ServiceLoggerTest extends Specification
         fileContents2 == expected2
     }
 
+    def "Log formatted events, written as is and counted towards the batch."()
+    {
+        given:
+        params.batchSize = 3
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+        LogBuffer formatted = new LogBuffer( 16 )
+        instance.getEncoder(  ).encode( event, formatted )
+        instance.getEncoder(  ).encode( event, formatted )
+
+        when:
+        instance.logFormatted( formatted, 2 )
+        String fileContents = new String( logFile.getBytes(  ) )
+
+        then:
+        fileContents == ""
+
+        when:
+        instance.logEvent( event )
+        String fileContents2 = new String( logFile.getBytes(  ) )
+
+        then:
+        fileContents2 == expected1 * 3
+    }
+
     def "Write event null, throws NullPointerException."()
     {
         when:
@@ -161,6 +190,486 @@ class ServiceLoggerTest extends Specification
         logFileContents == expected2
     }
 
+    def "Batching, events are written once the batch is full."()
+    {
+        given:
+        params.batchSize = 3
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        instance.logEvent( event )
+        String fileContents = new String( logFile.getBytes(  ) )
+
+        then:
+        fileContents == ""
+
+        when:
+        instance.logEvent( event )
+        String fileContents2 = new String( logFile.getBytes(  ) )
+
+        then:
+        fileContents2 == expected1 * 3
+    }
+
+    def "Batching, flush writes a partial batch."()
+    {
+        given:
+        params.batchSize = 100
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        instance.flush()
+        String fileContents = new String( logFile.getBytes(  ) )
+
+        then:
+        fileContents == expected1
+    }
+
+    def "Batching, partial batch is written after the flush interval."()
+    {
+        given:
+        params.batchSize = 100
+        params.flushIntervalMillis = 10
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        int count = 0
+        while( logFile.length(  ) == 0 && count < 100 )
+        {
+            Thread.sleep( 10 )
+            count++
+        }
+        String fileContents = new String( logFile.getBytes(  ) )
+
+        then:
+        fileContents == expected1
+
+        cleanup:
+        instance.close(  )
+    }
+
+    def "Gzip output, partial block is readable after the flush interval."()
+    {
+        given:
+        params.logOutputType = LogOutputType.GZIP
+        params.flushIntervalMillis = 10
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        int count = 0
+        while( logFile.length(  ) == 0 && count < 100 )
+        {
+            Thread.sleep( 10 )
+            count++
+        }
+        String fileContents = new GZIPInputStream( new FileInputStream( logFile ) ).withCloseable{ it.text }
+
+        then:
+        fileContents == expected1
+
+        cleanup:
+        instance.close(  )
+    }
+
+    def "Batching, events of a failed write are kept and written by the next."()
+    {
+        given:
+        params.batchSize = 100
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+        LogOutput file = instance.@fileWriter
+        boolean fail = true
+        instance.@fileWriter = [write: { LogBuffer buffer, int offset ->
+            if( fail )
+            {
+                throw new EventServiceLoggerException( "Failed to write to file." )
+            }
+            file.write( buffer, offset )
+        }, close: { file.close(  ) }] as LogOutput
+
+        when:
+        instance.logEvent( event )
+        instance.flush(  )
+
+        then:
+        thrown EventServiceLoggerException
+        instance.getWriteFailures(  ) == 1
+
+        when:
+        fail = false
+        instance.logEvent( event )
+        instance.flush(  )
+
+        then:
+        new String( logFile.getBytes(  ) ) == expected1 + expected1
+        instance.getWriteFailures(  ) == 1
+        instance.getDropped(  ) == 0
+    }
+
+    def "Batching, final write fails on close, events dropped and file closed."()
+    {
+        given:
+        params.batchSize = 100
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        boolean closed = false
+        instance.@fileWriter = [write: { LogBuffer buffer, int offset -> throw new EventServiceLoggerException( "Failed to write to file." ) },
+                                close: { closed = true }] as LogOutput
+
+        when:
+        instance.logEvent( event )
+        instance.logEvent( event )
+        instance.close(  )
+
+        then:
+        closed
+        instance.getWriteFailures(  ) == 1
+        instance.getDropped(  ) == 2
+    }
+
+    def "Batching, write failed part way, resumed from where it stopped."()
+    {
+        given:
+        params.batchSize = 100
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+        LogOutput file = instance.@fileWriter
+        instance.@fileWriter = failPartWay( file, 10 )
+
+        when:
+        instance.logEvent( event )
+        instance.flush(  )
+
+        then:
+        thrown LogWriteException
+        new String( logFile.getBytes(  ) ) == expected1.substring( 0, 10 )
+
+        when:
+        instance.@fileWriter = file
+        instance.logEvent( event )
+        instance.flush(  )
+
+        then:
+        new String( logFile.getBytes(  ) ) == expected1 + expected1
+        instance.getWriteFailures(  ) == 1
+        instance.getDropped(  ) == 0
+    }
+
+    def "Binary format, write failed part way and dropped, later events decode."()
+    {
+        given:
+        params.eventFormat = EventFormat.BINARY
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).maxRetainedSize( 1 ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+        String expected2 = "test2|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+        LogOutput file = instance.@fileWriter
+
+        when:
+        instance.logEvent( event )
+        instance.@fileWriter = failPartWay( file, 3 )
+        instance.logEvent( createEvent( "test2" ) )
+
+        then:
+        thrown LogWriteException
+        instance.getWriteFailures(  ) == 1
+        instance.getDropped(  ) == 1
+
+        when:
+        instance.@fileWriter = file
+        instance.logEvent( createEvent( "test2" ) )
+        instance.logEvent( event )
+        instance.close(  )
+
+        then:
+        decode( logFile, LogOutputType.STREAM ) == expected1 + expected2 + expected1
+    }
+
+    def "Max retained size below 1, throws IllegalArgumentException."()
+    {
+        when:
+        ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).maxRetainedSize( 0 ).build(  )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    /**
+     * Writes only the given number of bytes of a buffer then fails, as a full disk would.
+     */
+    static LogOutput failPartWay( LogOutput file, int length )
+    {
+        return [write  : { LogBuffer buffer, int offset ->
+                    ByteBuffer part = ByteBuffer.allocate( length )
+                    buffer.copyTo( part, offset, length )
+                    file.write( new LogBuffer( length ).appendBytes( part.array(  ), 0, length ) )
+                    throw new LogWriteException( "Failed to write to file.", offset + length, new IOException( "No space left on device." ) )
+                },
+                discard: { int discarded -> file.discard( discarded ) },
+                close  : { file.close(  ) }] as LogOutput
+    }
+
+    @IgnoreIf( {os.windows} )
+    def "Batching, reload writes buffered events to the rotated file."()
+    {
+        given:
+        params.batchSize = 100
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        File rotatedLogFile = Files.createTempFile( "stats", "logrotated" ).toFile(  )
+        Files.move( logFile.toPath(  ), rotatedLogFile.toPath(  ), ATOMIC_MOVE )
+        instance.reload()
+        instance.logEvent( event )
+        instance.close()
+
+        then:
+        new String( rotatedLogFile.getBytes(  ) ) == expected1
+        new String( logFile.getBytes(  ) ) == expected1
+    }
+
+    @IgnoreIf( {os.windows} )
+    def "Write and rotate using #output output."()
+    {
+        given:
+        params.logOutputType = output
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        File rotatedLogFile = Files.createTempFile( "stats", "logrotated" ).toFile(  )
+        Files.move( logFile.toPath(  ), rotatedLogFile.toPath(  ), ATOMIC_MOVE )
+        instance.logEvent( event )
+        instance.reload()
+        instance.logEvent( event )
+        instance.close()
+
+        then:
+        read( rotatedLogFile, output ) == expected1 * 2
+        read( logFile, output ) == expected1
+
+        where:
+        output << LogOutputType.values(  )
+    }
+
+    @IgnoreIf( {os.windows} )
+    def "Binary format with #output output, decodes to the text format across rotation."()
+    {
+        given:
+        params.eventFormat = EventFormat.BINARY
+        params.logOutputType = output
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        String expected1 = "test1|parent|123|"+ PrettyPrinter.casualStringify( execution1 )+"|null:null:0|1713184496123456|1713184504123456|5|OK|C" + System.lineSeparator(  )
+
+        when:
+        instance.logEvent( event )
+        instance.logEvent( event )
+        File rotatedLogFile = Files.createTempFile( "stats", "logrotated" ).toFile(  )
+        Files.move( logFile.toPath(  ), rotatedLogFile.toPath(  ), ATOMIC_MOVE )
+        instance.reload()
+        instance.logEvent( event )
+        instance.close()
+
+        then:
+        decode( rotatedLogFile, output ) == expected1 * 2
+        decode( logFile, output ) == expected1
+
+        where:
+        output << LogOutputType.values(  ).findAll{ !it.isZeroPadded(  ) }
+    }
+
+    def "Binary format with zero padded output, throws IllegalArgumentException."()
+    {
+        given:
+        params.eventFormat = EventFormat.BINARY
+        params.logOutputType = LogOutputType.MAPPED
+
+        when:
+        ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    static String decode( File file, LogOutputType output )
+    {
+        InputStream stream = output.isCompressed(  ) ? new GZIPInputStream( new FileInputStream( file ) ) : new FileInputStream( file )
+        return stream.withCloseable{
+            BinaryEventDecoder decoder = new BinaryEventDecoder( it )
+            ServiceCallEventFormatter formatter = new ServiceCallEventFormatter( "|" )
+            EventRecord record = new EventRecord(  )
+            LogBuffer text = new LogBuffer( 16 )
+            while( decoder.read( record ) )
+            {
+                formatter.appendTo( record, text )
+                text.appendLineSeparator(  )
+            }
+            return text.toString(  )
+        }
+    }
+
+    @IgnoreIf( {os.windows} )
+    def "Rotate by size, no events lost and only retained files kept."()
+    {
+        given:
+        File directory = Files.createTempDirectory( "rotate" ).toFile(  )
+        params.logFile = new File( directory, "service.log" )
+        params.rotateSize = 1000
+        params.rotateRetain = 100
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+
+        when:
+        100.times{
+            instance.logEvent( event )
+            instance.getRotator(  ).awaitPrepared(  )
+        }
+        instance.close(  )
+        List<File> files = directory.listFiles(  ).toList(  )
+
+        then:
+        instance.getRotator(  ).getRotations(  ) > 1
+        files.every{ it.length(  ) <= 1000 + event.getService(  ).length(  ) + 200 }
+        files.sum{ it.readLines(  ).size(  ) } == 100
+        !files.any{ it.getName(  ).endsWith( ".next" ) }
+    }
+
+    @IgnoreIf( {os.windows} )
+    def "Rotate by interval, files without events are not rotated."()
+    {
+        given:
+        File directory = Files.createTempDirectory( "rotate" ).toFile(  )
+        params.logFile = new File( directory, "service.log" )
+        params.rotateIntervalMillis = 50
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+
+        when:
+        instance.logEvent( event )
+        Thread.sleep( 300 )
+        instance.close(  )
+        List<File> files = directory.listFiles(  ).toList(  )
+
+        then:
+        instance.getRotator(  ).getRotations(  ) == 1
+        files.size(  ) == 2
+        files.sum{ it.readLines(  ).size(  ) } == 1
+    }
+
+    def "Rotate without rotation enabled, continues with the same file."()
+    {
+        when:
+        instance.logEvent( event )
+        instance.rotate(  )
+        instance.logEvent( event )
+
+        then:
+        instance.getRotator(  ) == null
+        logFile.readLines(  ).size(  ) == 2
+    }
+
+    def "With metrics, encoding and writes recorded."()
+    {
+        given:
+        PipelineMetrics metrics = new PipelineMetrics(  )
+        params.batchSize = 2
+        ServiceLogger logger = ServiceLogger.newBuilder(  )
+                .eventServiceLogParams( params )
+                .metrics( metrics )
+                .build(  )
+
+        when:
+        3.times{ logger.logEvent( event ) }
+        logger.flush(  )
+
+        then:
+        logger.getMetrics(  ) == metrics
+        metrics.getWritten(  ) == 3
+        metrics.getWrites(  ) == 2
+
+        cleanup:
+        logger.close(  )
+    }
+
+    def "With index, each block of the log indexed."()
+    {
+        given:
+        params.index = true
+        params.indexEvents = 2
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        long start = event.getStart(  )
+
+        when:
+        3.times{ instance.logEvent( event ) }
+        instance.close(  )
+        List<LogIndex.Entry> entries = LogIndex.read( LogIndex.indexFileOf( logFile ) )
+
+        then:
+        entries*.getOffset(  ) == [0L, ( logFile.length(  ) * 2 ).intdiv( 3 )]
+        entries.sum{ it.getLength(  ) } == logFile.length(  )
+        entries.every{ it.overlaps( start, start ) && !it.overlaps( start + 1, Long.MAX_VALUE ) }
+
+        cleanup:
+        LogIndex.indexFileOf( logFile ).delete(  )
+    }
+
+    @IgnoreIf( {os.windows} )
+    def "Rotate with index, index moved along with the log."()
+    {
+        given:
+        File directory = Files.createTempDirectory( "rotate" ).toFile(  )
+        params.logFile = new File( directory, "service.log" )
+        params.rotateSize = 1000
+        params.rotateRetain = 100
+        params.index = true
+        instance = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+
+        when:
+        50.times{
+            instance.logEvent( event )
+            instance.getRotator(  ).awaitPrepared(  )
+        }
+        instance.close(  )
+        List<File> logs = directory.listFiles(  ).findAll{ !it.getName(  ).endsWith( LogIndex.SUFFIX ) }
+
+        then:
+        instance.getRotator(  ).getRotations(  ) > 1
+        logs.every{ LogIndex.read( LogIndex.indexFileOf( it ) ).sum{ it.getLength(  ) } == it.length(  ) }
+    }
+
+    def "Index with #format and #output, throws IllegalArgumentException."()
+    {
+        given:
+        params.index = true
+        params.eventFormat = format
+        params.logOutputType = output
+
+        when:
+        ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        format             | output
+        EventFormat.BINARY | LogOutputType.STREAM
+        EventFormat.TEXT   | LogOutputType.GZIP
+        EventFormat.TEXT   | LogOutputType.MAPPED
+    }
+
+    static String read( File file, LogOutputType output )
+    {
+        InputStream stream = output.isCompressed(  ) ? new GZIPInputStream( new FileInputStream( file ) ) : new FileInputStream( file )
+        return stream.withCloseable{ new String( it.bytes ) }
+    }
+
     ServiceCallEvent createEvent( String serviceName )
     {
         return ServiceCallEvent.createBuilder(  )
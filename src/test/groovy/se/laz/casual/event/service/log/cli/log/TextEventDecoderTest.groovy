@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.log
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+
+class TextEventDecoderTest extends Specification
+{
+    EventRecord record = new EventRecord(  )
+
+    def "Decode line with delimiter #delimiter, formatted back identically."()
+    {
+        given:
+        String line = ["test1", "parent", "123", "1f0e", "null:null:0", "1713184496123456", "1713184504123456", "5", "OK", "C"].join( delimiter )
+
+        when:
+        boolean decoded = decode( new TextEventDecoder( delimiter ), "xx" + line + "yy", 2, 2 )
+
+        then:
+        decoded
+        record.getService(  ) == "test1"
+        record.getPid(  ) == 123
+        record.getStart(  ) == 1713184496123456L
+        record.getEnd(  ) == 1713184504123456L
+        record.getPending(  ) == 5L
+        record.getOrder(  ) == 'C' as char
+        record.getSource(  ) == null
+        format( record, delimiter ) == line
+
+        where:
+        delimiter << ["|", "~", "::"]
+    }
+
+    def "Decode line with source."()
+    {
+        given:
+        String line = "test1|parent|123|1f0e|null:null:0|1|2|0|TPESVCERR|S|domainA"
+
+        expect:
+        decode( new TextEventDecoder( "|" ), line, 0, 0 )
+        record.getSource(  ) == "domainA"
+        record.getCode(  ) == "TPESVCERR"
+        format( record, "|" ) == line
+    }
+
+    def "Decode #desc, not an event."()
+    {
+        expect:
+        !decode( new TextEventDecoder( "|" ), line, 0, 0 )
+
+        where:
+        desc              | line
+        "empty line"      | ""
+        "too few columns" | "test1|parent|123|1f0e|null:null:0|1|2|0|OK"
+        "too many"        | "test1|parent|123|1f0e|null:null:0|1|2|0|OK|C|a|b"
+        "invalid pid"     | "test1|parent|x|1f0e|null:null:0|1|2|0|OK|C"
+        "invalid start"   | "test1|parent|123|1f0e|null:null:0||2|0|OK|C"
+        "invalid order"   | "test1|parent|123|1f0e|null:null:0|1|2|0|OK|CS"
+    }
+
+    def "Empty delimiter, throws IllegalArgumentException."()
+    {
+        when:
+        new TextEventDecoder( "" )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    boolean decode( TextEventDecoder decoder, String text, int prefix, int suffix )
+    {
+        byte[] bytes = text.getBytes( StandardCharsets.UTF_8 )
+        return decoder.decode( ByteBuffer.wrap( bytes ), prefix, bytes.length - suffix, record )
+    }
+
+    static String format( EventRecord record, String delimiter )
+    {
+        LogBuffer buffer = new LogBuffer( 256 )
+        new ServiceCallEventFormatter( delimiter ).appendTo( record, buffer )
+        return buffer.toString(  )
+    }
+}
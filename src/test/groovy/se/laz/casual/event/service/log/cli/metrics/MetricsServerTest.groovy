@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.metrics
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import spock.lang.Specification
+
+class MetricsServerTest extends Specification
+{
+    PipelineMetrics metrics = new PipelineMetrics(  )
+    MetricsServer instance
+
+    def setup()
+    {
+        instance = MetricsServer.start( new InetSocketAddress( "localhost", 0 ), metrics )
+    }
+
+    def cleanup()
+    {
+        instance.close(  )
+    }
+
+    def "Get metrics, Prometheus text format."()
+    {
+        given:
+        metrics.recordWrite( 1000, 3, 300 )
+
+        when:
+        HttpURLConnection connection = connect( "/metrics", "GET" )
+
+        then:
+        connection.getResponseCode(  ) == 200
+        connection.getContentType(  ) == MetricsServer.CONTENT_TYPE
+        connection.getInputStream(  ).getText( "UTF-8" ).contains( "casual_event_log_written_total 3\n" )
+    }
+
+    def "Request #method #path, status #expected."()
+    {
+        when:
+        HttpURLConnection connection = connect( path, method )
+
+        then:
+        connection.getResponseCode(  ) == expected
+
+        where:
+        method | path       || expected
+        "HEAD" | "/metrics" || 200
+        "POST" | "/metrics" || 405
+        "GET"  | "/"        || 404
+        "GET"  | "/other"   || 404
+    }
+
+    def "Port in use, throws EventServiceLoggerException."()
+    {
+        when:
+        MetricsServer.start( instance.getAddress(  ), metrics )
+
+        then:
+        thrown EventServiceLoggerException
+    }
+
+    HttpURLConnection connect( String path, String method )
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL( "http://localhost:" + instance.getAddress(  ).getPort(  ) + path ).openConnection(  )
+        connection.setRequestMethod( method )
+        return connection
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.metrics
+
+import spock.lang.Specification
+
+class PipelineMetricsTest extends Specification
+{
+    PipelineMetrics instance = new PipelineMetrics(  )
+
+    def "Source counters written per source, labelled by name."()
+    {
+        given:
+        instance.addSource( source( "domainA", 10 ) )
+        instance.addSource( source( "dom\"ain\\B", 20 ) )
+
+        when:
+        String text = write(  )
+
+        then:
+        text.contains( "# TYPE casual_event_log_received_total counter\n" )
+        text.contains( "casual_event_log_received_total{source=\"domainA\"} 10\n" )
+        text.contains( "casual_event_log_received_total{source=\"dom\\\"ain\\\\B\"} 20\n" )
+        text.contains( "# TYPE casual_event_log_queued gauge\n" )
+        text.contains( "casual_event_log_queued{source=\"domainA\"} 1\n" )
+        text.contains( "casual_event_log_handled_total{source=\"domainA\"} 9\n" )
+        text.contains( "casual_event_log_accepted_total{source=\"domainA\"} 8\n" )
+        text.contains( "casual_event_log_reconnects_total{source=\"domainA\"} 2\n" )
+    }
+
+    def "Writes recorded, counted and summarised in seconds."()
+    {
+        when:
+        instance.recordWrite( 2_000_000, 10, 1000 )
+        instance.recordWrite( 4_000_000, 5, 500 )
+        String text = write(  )
+
+        then:
+        instance.getWritten(  ) == 15
+        instance.getWrites(  ) == 2
+        text.contains( "casual_event_log_written_total 15\n" )
+        text.contains( "casual_event_log_writes_total 2\n" )
+        text.contains( "casual_event_log_written_bytes_total 1500\n" )
+        text.contains( "# TYPE casual_event_log_write_seconds summary\n" )
+        text.contains( "casual_event_log_write_seconds_sum 0.006\n" )
+        text.contains( "casual_event_log_write_seconds_count 2\n" )
+        quantile( text, "write_seconds", "0.99" ) >= 0.004
+        quantile( text, "write_seconds", "0.99" ) <= 0.004 * 1.03
+    }
+
+    def "Nothing recorded, quantiles are NaN."()
+    {
+        when:
+        String text = write(  )
+
+        then:
+        text.contains( "casual_event_log_format_seconds{quantile=\"0.5\"} NaN\n" )
+        text.contains( "casual_event_log_format_seconds_count 0\n" )
+    }
+
+    def "Every line is a comment or a sample."()
+    {
+        given:
+        instance.addSource( source( "domainA", 10 ) )
+        instance.recordFormat( 250 )
+
+        when:
+        List<String> lines = write(  ).readLines(  )
+
+        then:
+        lines.every{ it.startsWith( "# HELP casual_event_log_" ) || it.startsWith( "# TYPE casual_event_log_" ) || it ==~ /casual_event_log_\w+(\{[^}]*\})? \S+/ }
+    }
+
+    String write()
+    {
+        StringBuilder builder = new StringBuilder(  )
+        instance.writeTo( builder )
+        return builder.toString(  )
+    }
+
+    double quantile( String text, String name, String quantile )
+    {
+        String prefix = "casual_event_log_" + name + "{quantile=\"" + quantile + "\"} "
+        return Double.parseDouble( text.readLines(  ).find{ it.startsWith( prefix ) }.substring( prefix.length(  ) ) )
+    }
+
+    SourceMetrics source( String name, long received )
+    {
+        return Stub( SourceMetrics ) {
+            getName(  ) >> name
+            getReceived(  ) >> received
+            getQueued(  ) >> 1
+            getHandled(  ) >> received - 1
+            getAccepted(  ) >> received - 2
+            getReconnects(  ) >> 2
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+class ArrayEventQueueTest extends Specification
+{
+    def "Invalid capacity, throws IllegalArgumentException."()
+    {
+        when:
+        new ArrayEventQueue( 0 )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def "Offer until full, drain in order at most max events."()
+    {
+        given:
+        ArrayEventQueue instance = new ArrayEventQueue( 3 )
+        List<ServiceCallEvent> events = (1..4).collect{ Mock( ServiceCallEvent ) }
+        List<ServiceCallEvent> drained = []
+
+        when:
+        List<Boolean> offered = events.collect{ instance.offer( it ) }
+
+        then:
+        offered == [true, true, true, false]
+        instance.size(  ) == 3
+        instance.getCapacity(  ) == 3
+
+        when:
+        int first = instance.drain( { drained.add( it ) }, 2 )
+        int second = instance.drain( { drained.add( it ) }, 2 )
+
+        then:
+        first == 2
+        second == 1
+        drained == events[0..2]
+        instance.isEmpty(  )
+        instance.poll(  ) == null
+    }
+
+    def "Take waits for the producer."()
+    {
+        given:
+        ArrayEventQueue instance = new ArrayEventQueue( 3 )
+        ServiceCallEvent event = Mock()
+
+        when:
+        CompletableFuture<ServiceCallEvent> taken = CompletableFuture.supplyAsync( { instance.take(  ) } )
+        Thread.sleep( 10 )
+        instance.put( event )
+
+        then:
+        taken.get( 1, TimeUnit.SECONDS ) == event
+    }
+
+    def "Interrupted whilst waiting, returns without events."()
+    {
+        given:
+        ArrayEventQueue instance = new ArrayEventQueue( 3 )
+        Thread.currentThread(  ).interrupt(  )
+
+        when:
+        int drained = instance.drain( { throw new IllegalStateException(  ) }, 8 )
+
+        then:
+        drained == 0
+        Thread.interrupted(  )
+    }
+}
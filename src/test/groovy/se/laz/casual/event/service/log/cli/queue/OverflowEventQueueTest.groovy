@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.time.Instant
+
+class OverflowEventQueueTest extends Specification
+{
+    File spill
+
+    def setup()
+    {
+        spill = Files.createTempFile( "stats", "spill" ).toFile(  )
+        spill.delete(  )
+    }
+
+    def cleanup()
+    {
+        spill.delete(  )
+    }
+
+    def "Drop newest, full queue discards incoming events."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 2 ), OverflowPolicy.DROP_NEWEST, null )
+        List<ServiceCallEvent> events = (1..4).collect{ createEvent( "s" + it ) }
+
+        when:
+        events.each{ instance.put( it ) }
+
+        then:
+        drainAll( instance ) == events[0..1]
+        instance.getDropped(  ) == 2
+        instance.getSpilled(  ) == 0
+    }
+
+    def "Drop oldest, full queue discards oldest queued events."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 2 ), OverflowPolicy.DROP_OLDEST, null )
+        List<ServiceCallEvent> events = (1..4).collect{ createEvent( "s" + it ) }
+
+        when:
+        events.each{ instance.put( it ) }
+
+        then:
+        drainAll( instance ) == events[2..3]
+        instance.getDropped(  ) == 2
+    }
+
+    def "Drop oldest with a ring queue, throws IllegalArgumentException."()
+    {
+        when:
+        new OverflowEventQueue( new RingBufferEventQueue( 2, WaitStrategy.PARK ), OverflowPolicy.DROP_OLDEST, null )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def "Spill without file, throws NullPointerException."()
+    {
+        when:
+        new OverflowEventQueue( new ArrayEventQueue( 2 ), OverflowPolicy.SPILL, null )
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "Spill, #desc queue, all events replayed in the order received."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( queue, OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+        List<ServiceCallEvent> events = (1..6).collect{ createEvent( "s" + it ) }
+
+        when:
+        events[0..3].each{ instance.put( it ) }
+
+        then:
+        instance.getSpilled(  ) == 2
+        spill.exists(  )
+        !instance.isEmpty(  )
+
+        when:
+        List<ServiceCallEvent> first = []
+        instance.drain( { first.add( it ) }, 1 )
+        // Whilst spilled events remain, incoming events are spilled too, to retain the order.
+        events[4..5].each{ instance.put( it ) }
+
+        then:
+        instance.getSpilled(  ) == 4
+
+        when:
+        List<ServiceCallEvent> rest = drainAll( instance )
+
+        then:
+        first + rest == events
+        instance.isEmpty(  )
+        !spill.exists(  )
+
+        where:
+        desc      | queue
+        "bounded" | new ArrayEventQueue( 2 )
+        "ring"    | new RingBufferEventQueue( 2, WaitStrategy.PARK )
+    }
+
+    def "Spill, events in the file as soon as spilled."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 1 ), OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+
+        when:
+        (1..3).each{ instance.put( createEvent( "s" + it ) ) }
+
+        then:
+        instance.getSpilled(  ) == 2
+        spill.readLines(  ).size(  ) == 2
+    }
+
+    def "Close, queued and spilled events kept in the file and replayed, in order, when reopened."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 2 ), OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+        List<ServiceCallEvent> events = (1..5).collect{ createEvent( "s" + it ) }
+        events.each{ instance.put( it ) }
+        List<ServiceCallEvent> first = []
+        instance.drain( { first.add( it ) }, 1 )
+
+        when:
+        instance.close(  )
+
+        then:
+        instance.getKept(  ) == 4
+        instance.getDiscarded(  ) == 0
+        spill.exists(  )
+
+        when:
+        OverflowEventQueue reopened = new OverflowEventQueue( new ArrayEventQueue( 2 ), OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+        ServiceCallEvent incoming = createEvent( "s6" )
+        reopened.put( incoming )
+
+        then:
+        reopened.getRecovered(  ) == 4
+        first + drainAll( reopened ) == events + [incoming]
+    }
+
+    def "Close, nothing left, spill file deleted."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 1 ), OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+        instance.put( createEvent( "s1" ) )
+        instance.put( createEvent( "s2" ) )
+        drainAll( instance )
+
+        when:
+        instance.close(  )
+
+        then:
+        instance.getKept(  ) == 0
+        !spill.exists(  )
+    }
+
+    def "Close without spill file, queued events discarded and counted."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 2 ), OverflowPolicy.DROP_NEWEST, null )
+        instance.put( createEvent( "s1" ) )
+        instance.put( createEvent( "s2" ) )
+
+        when:
+        instance.close(  )
+
+        then:
+        instance.getDiscarded(  ) == 2
+        instance.getKept(  ) == 0
+    }
+
+    def "Reopen a spill file left with an incomplete last line, line discarded and the rest replayed."()
+    {
+        given:
+        OverflowEventQueue instance = new OverflowEventQueue( new ArrayEventQueue( 1 ), OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+        List<ServiceCallEvent> events = (1..3).collect{ createEvent( "s" + it ) }
+        events.each{ instance.put( it ) }
+        instance.close(  )
+        spill.append( "{\"service\":\"s4" )
+
+        when:
+        OverflowEventQueue reopened = new OverflowEventQueue( new ArrayEventQueue( 1 ), OverflowPolicy.SPILL, new EventSpillFile( spill ) )
+        reopened.put( createEvent( "s5" ) )
+
+        then:
+        reopened.getRecovered(  ) == 3
+        reopened.getDiscarded(  ) == 1
+        drainAll( reopened ).collect{ it.getService(  ) } == ["s1", "s2", "s3", "s5"]
+    }
+
+    List<ServiceCallEvent> drainAll( EventQueue queue )
+    {
+        List<ServiceCallEvent> drained = []
+        while( !queue.isEmpty(  ) )
+        {
+            queue.drain( { drained.add( it ) }, 10 )
+        }
+        return drained
+    }
+
+    ServiceCallEvent createEvent( String serviceName )
+    {
+        return ServiceCallEvent.createBuilder(  )
+                .withService( serviceName )
+                .withParent( "parent" )
+                .withPID( 123 )
+                .withExecution( UUID.randomUUID(  ) )
+                .withPending( 5L )
+                .withStart( Instant.now(  ) )
+                .withEnd( Instant.now(  ) )
+                .withCode( ErrorState.OK )
+                .withOrder( Order.CONCURRENT )
+                .build()
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+class RingBufferEventQueueTest extends Specification
+{
+    def "Capacity #capacity rounded up to #expected."()
+    {
+        when:
+        RingBufferEventQueue instance = new RingBufferEventQueue( capacity, WaitStrategy.YIELD )
+
+        then:
+        instance.getCapacity(  ) == expected
+        instance.getWaitStrategy(  ) == WaitStrategy.YIELD
+        instance.isEmpty(  )
+
+        where:
+        capacity | expected
+        1        | 1
+        2        | 2
+        3        | 4
+        1000     | 1024
+        1024     | 1024
+    }
+
+    def "Invalid #desc, throws #exception."()
+    {
+        when:
+        new RingBufferEventQueue( capacity, strategy )
+
+        then:
+        thrown exception
+
+        where:
+        desc              | capacity | strategy          || exception
+        "zero capacity"   | 0        | WaitStrategy.PARK || IllegalArgumentException
+        "too large"       | 1 << 31  | WaitStrategy.PARK || IllegalArgumentException
+        "missing waiting" | 4        | null              || NullPointerException
+    }
+
+    def "Offer until full, poll in order, wraps around."()
+    {
+        given:
+        RingBufferEventQueue instance = new RingBufferEventQueue( 4, WaitStrategy.PARK )
+        List<ServiceCallEvent> events = (1..6).collect{ Mock( ServiceCallEvent ) }
+
+        when:
+        List<Boolean> offered = events[0..4].collect{ instance.offer( it ) }
+
+        then:
+        offered == [true, true, true, true, false]
+
+        when:
+        ServiceCallEvent first = instance.poll(  )
+        boolean offeredAfterPoll = instance.offer( events[5] )
+        List<ServiceCallEvent> rest = [instance.poll(  ), instance.poll(  ), instance.poll(  ), instance.poll(  )]
+
+        then:
+        first == events[0]
+        offeredAfterPoll
+        rest == [events[1], events[2], events[3], events[5]]
+        instance.poll(  ) == null
+        instance.isEmpty(  )
+    }
+
+    def "Drain passes at most max events."()
+    {
+        given:
+        RingBufferEventQueue instance = new RingBufferEventQueue( 8, WaitStrategy.PARK )
+        List<ServiceCallEvent> events = (1..5).collect{ Mock( ServiceCallEvent ) }
+        events.each{ instance.put( it ) }
+        List<ServiceCallEvent> drained = []
+
+        when:
+        int first = instance.drain( { drained.add( it ) }, 3 )
+        int second = instance.drain( { drained.add( it ) }, 3 )
+
+        then:
+        first == 3
+        second == 2
+        drained == events
+        instance.isEmpty(  )
+    }
+
+    def "Take with #strategy waits for the producer."()
+    {
+        given:
+        RingBufferEventQueue instance = new RingBufferEventQueue( 8, strategy )
+        ServiceCallEvent event = Mock()
+
+        when:
+        CompletableFuture<ServiceCallEvent> taken = CompletableFuture.supplyAsync( { instance.take(  ) } )
+        Thread.sleep( 10 )
+        instance.put( event )
+
+        then:
+        taken.get( 1, TimeUnit.SECONDS ) == event
+
+        where:
+        strategy << WaitStrategy.values(  )
+    }
+
+    def "Interrupted whilst waiting, returns without events."()
+    {
+        given:
+        RingBufferEventQueue instance = new RingBufferEventQueue( 8, WaitStrategy.PARK )
+        Thread.currentThread(  ).interrupt(  )
+
+        when:
+        int drained = instance.drain( { throw new IllegalStateException(  ) }, 8 )
+        ServiceCallEvent taken = instance.take(  )
+
+        then:
+        drained == 0
+        taken == null
+
+        cleanup:
+        Thread.interrupted(  )
+    }
+
+    def "Single producer and consumer, all events received in order."()
+    {
+        given:
+        RingBufferEventQueue instance = new RingBufferEventQueue( 64, WaitStrategy.YIELD )
+        List<ServiceCallEvent> events = (1..10000).collect{ Mock( ServiceCallEvent ) }
+        List<ServiceCallEvent> received = []
+
+        when:
+        CompletableFuture<Void> producer = CompletableFuture.runAsync( { events.each{ instance.put( it ) } } )
+        while( received.size(  ) < events.size(  ) )
+        {
+            instance.drain( { received.add( it ) }, 16 )
+        }
+        producer.get( 5, TimeUnit.SECONDS )
+
+        then:
+        received == events
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.queue
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.ServiceCallEventStore
+import se.laz.casual.event.ServiceCallEventStoreFactory
+import spock.lang.Specification
+
+class StoreEventQueueTest extends Specification
+{
+    def "Drain, events already in the store passed in order at most max events."()
+    {
+        given:
+        StoreEventQueue instance = new StoreEventQueue( ServiceCallEventStoreFactory.getStore( UUID.randomUUID(  ) ) )
+        List<ServiceCallEvent> events = (1..5).collect{ Mock( ServiceCallEvent ) }
+        List<ServiceCallEvent> drained = []
+
+        when:
+        events.each{ instance.put( it ) }
+        int first = instance.drain( { drained.add( it ) }, 3 )
+        int second = instance.drain( { drained.add( it ) }, 3 )
+
+        then:
+        first == 3
+        second == 2
+        drained == events
+        instance.isEmpty(  )
+        instance.size(  ) == 0
+    }
+
+    def "Store returns no event when interrupted, size unchanged."()
+    {
+        given:
+        ServiceCallEventStore store = Mock()
+        StoreEventQueue instance = new StoreEventQueue( store )
+        instance.put( Mock( ServiceCallEvent ) )
+
+        when:
+        ServiceCallEvent taken = instance.take(  )
+        int drained = instance.drain( { throw new IllegalStateException(  ) }, 8 )
+
+        then:
+        2 * store.take(  ) >> null
+        taken == null
+        drained == 0
+        instance.size(  ) == 1
+        !instance.isEmpty(  )
+    }
+}
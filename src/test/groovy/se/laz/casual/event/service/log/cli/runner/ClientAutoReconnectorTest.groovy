@@ -153,6 +153,48 @@ class ClientAutoReconnectorTest extends Specification
         count >= 1
     }
 
+    def "First url unavailable, fails over to the next url."()
+    {
+        given:
+        CountDownLatch latch = new CountDownLatch( 1 )
+        EventObserver failoverObserver = Mock()
+        failoverObserver.notify( event ) >> { latch.countDown(  ) }
+        URI unavailable = URI.create( "tcp://localhost:1" )
+
+        when:
+        ClientAutoReconnector failover = new ClientAutoReconnector( failoverObserver, [unavailable, eventServerUrl], writer, ReconnectBackoff.exponential( 10, 50 ) )
+        failover.waitForConnection(  )
+        embeddedServer.publishEvent( event )
+        latch.await( 1, TimeUnit.SECONDS )
+
+        then:
+        latch.getCount(  ) == 0
+        sw.toString(  ).contains( "Connected to: " + eventServerUrl )
+
+        cleanup:
+        failover?.stop(  )
+    }
+
+    def "Listener notified of connection, disconnection, not of stop."()
+    {
+        given:
+        ConnectionListener listener = Mock()
+        CountDownLatch reconnected = new CountDownLatch( 2 )
+        listener.connected( eventServerUrl ) >> { reconnected.countDown(  ) }
+
+        when:
+        ClientAutoReconnector listened = new ClientAutoReconnector( observer, [eventServerUrl], writer, ReconnectBackoff.exponential( 10, 50 ), listener )
+        listened.waitForConnection(  )
+        embeddedServer.shutdown(  )
+        embeddedServer.start(  )
+        reconnected.await( 5, TimeUnit.SECONDS )
+        listened.stop(  )
+
+        then:
+        reconnected.getCount(  ) == 0
+        1 * listener.disconnected( eventServerUrl )
+    }
+
     def "Run then stop."()
     {
         when:
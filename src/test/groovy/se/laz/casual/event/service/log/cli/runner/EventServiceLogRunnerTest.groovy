@@ -6,13 +6,32 @@
 
 package se.laz.casual.event.service.log.cli.runner
 
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import se.laz.casual.test.CasualEmbeddedServer
+import spock.lang.Requires
 import spock.lang.Specification
 
+import javax.transaction.xa.Xid
+import java.nio.file.Files
+import java.time.Instant
+
 class EventServiceLogRunnerTest extends Specification
 {
     StringWriter sw = new StringWriter()
     PrintWriter writer = new PrintWriter( sw )
 
+    CasualEmbeddedServer embeddedServer
+    EventServiceLogRunner runner
+
+    def cleanup()
+    {
+        runner?.stop(  )
+        embeddedServer?.shutdown(  )
+    }
+
     def "Set and retrieve params"()
     {
         given:
@@ -39,4 +58,127 @@ class EventServiceLogRunnerTest extends Specification
         null                          | new PrintWriter( new StringWriter() )
         Mock( EventServiceLogParams ) | null
     }
+
+    def "Start, events received are logged, stop closes the log and prints the summary."()
+    {
+        given:
+        embeddedServer = CasualEmbeddedServer.newBuilder()
+                .eventServerEnabled( true )
+                .build(  )
+        embeddedServer.start(  )
+        File logFile = new File( Files.createTempDirectory( "runner" ).toFile(  ), "service.log" )
+        TestEventServiceLogParams params = new TestEventServiceLogParams()
+        params.eventServerUrl = URI.create( "tcp://localhost:" + embeddedServer.getEventServerPort(  ).get() )
+        params.logFile = logFile
+        runner = new EventServiceLogRunner( params, writer )
+
+        when:
+        runner.start(  )
+        runner.waitForConnection(  )
+        embeddedServer.publishEvent( createEvent( "service1" ) )
+        long deadline = System.currentTimeMillis(  ) + 5000
+        while( runner.getSources(  )[0].getHandled(  ) < 1 && System.currentTimeMillis(  ) < deadline )
+        {
+            Thread.sleep( 10 )
+        }
+        runner.stop(  )
+
+        then:
+        runner.getSources(  ).size(  ) == 1
+        runner.getSources(  )[0].getReceived(  ) == 1
+        logFile.text.startsWith( "service1|" )
+        sw.toString(  ).contains( "Received: 1, gaps: 0" )
+    }
+
+    def "Stop once received, events still queued are written before the log is closed."()
+    {
+        given:
+        embeddedServer = CasualEmbeddedServer.newBuilder()
+                .eventServerEnabled( true )
+                .build(  )
+        embeddedServer.start(  )
+        File logFile = new File( Files.createTempDirectory( "runner" ).toFile(  ), "service.log" )
+        TestEventServiceLogParams params = new TestEventServiceLogParams()
+        params.eventServerUrl = URI.create( "tcp://localhost:" + embeddedServer.getEventServerPort(  ).get() )
+        params.logFile = logFile
+        params.batchSize = 100
+        runner = new EventServiceLogRunner( params, writer )
+        int events = 1000
+
+        when:
+        runner.start(  )
+        runner.waitForConnection(  )
+        (1..events).each{ embeddedServer.publishEvent( createEvent( "service" + it ) ) }
+        long deadline = System.currentTimeMillis(  ) + 5000
+        while( runner.getSources(  )[0].getReceived(  ) < events && System.currentTimeMillis(  ) < deadline )
+        {
+            Thread.sleep( 1 )
+        }
+        runner.stop(  )
+
+        then:
+        runner.getSources(  )[0].getReceived(  ) == events
+        logFile.readLines(  ).size(  ) == events
+        !sw.toString(  ).contains( "Queue not drained" )
+    }
+
+    def "Start twice, throws IllegalStateException."()
+    {
+        given:
+        TestEventServiceLogParams params = new TestEventServiceLogParams()
+        params.logFile = new File( Files.createTempDirectory( "runner" ).toFile(  ), "service.log" )
+        runner = new EventServiceLogRunner( params, writer )
+        runner.start(  )
+
+        when:
+        runner.start(  )
+
+        then:
+        thrown IllegalStateException
+    }
+
+    @Requires( { Runtime.version(  ).feature(  ) < 21 } )
+    def "Start with virtual threads prior to Java 21, throws EventServiceLoggerException."()
+    {
+        given:
+        TestEventServiceLogParams params = new TestEventServiceLogParams()
+        params.threadMode = ThreadMode.VIRTUAL
+        runner = new EventServiceLogRunner( params, writer )
+
+        when:
+        runner.start(  )
+
+        then:
+        thrown EventServiceLoggerException
+        runner.getSources(  ).isEmpty(  )
+    }
+
+    def "Stop when not started, does nothing."()
+    {
+        given:
+        runner = new EventServiceLogRunner( new TestEventServiceLogParams(  ), writer )
+
+        when:
+        runner.stop(  )
+
+        then:
+        sw.toString(  ).isEmpty(  )
+        runner.getSources(  ).isEmpty(  )
+    }
+
+    ServiceCallEvent createEvent( String service )
+    {
+        return ServiceCallEvent.createBuilder(  )
+                .withService( service )
+                .withParent( "parent" )
+                .withPID( 123 )
+                .withExecution( UUID.randomUUID(  ) )
+                .withTransactionId( Mock( Xid ) )
+                .withPending( 5L )
+                .withStart( Instant.now(  ) )
+                .withEnd( Instant.now(  ) )
+                .withCode( ErrorState.OK )
+                .withOrder( Order.CONCURRENT )
+                .build()
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import spock.lang.Specification
+
+class EventSourceTest extends Specification
+{
+    def "Source of #url, named #expected."()
+    {
+        when:
+        EventSource instance = EventSource.of( URI.create( url ) )
+
+        then:
+        instance.getUrl(  ) == URI.create( url )
+        instance.getName(  ) == expected
+
+        where:
+        url                                      | expected
+        "tcp://event.casual.laz.se:7774#domainA" | "domainA"
+        "tcp://event.casual.laz.se:7774#"        | "event.casual.laz.se:7774"
+        "tcp://event.casual.laz.se:7774"         | "event.casual.laz.se:7774"
+        "tcp://event.casual.laz.se"              | "event.casual.laz.se"
+    }
+
+    def "Parse #text, urls #expected named #name."()
+    {
+        when:
+        EventSource instance = EventSource.parse( text )
+
+        then:
+        instance.getUrls(  ) == expected.collect{ URI.create( it ) }
+        instance.getUrl(  ) == URI.create( expected[0] )
+        instance.getName(  ) == name
+
+        where:
+        text                                          || expected                                         | name
+        "tcp://node1:7774"                            || ["tcp://node1:7774"]                             | "node1:7774"
+        "tcp://node1:7774,tcp://node2:7774"           || ["tcp://node1:7774", "tcp://node2:7774"]         | "node1:7774"
+        "tcp://node1:7774, tcp://node2:7774#domainA," || ["tcp://node1:7774", "tcp://node2:7774#domainA"] | "domainA"
+    }
+
+    def "Parse invalid #desc, throws IllegalArgumentException."()
+    {
+        when:
+        EventSource.parse( text )
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        desc      | text
+        "syntax"  | "h://>123"
+        "no host" | "f://_23"
+        "empty"   | " , "
+    }
+
+    def "Equal when url and name are equal."()
+    {
+        expect:
+        EventSource.of( URI.create( "tcp://host:7774#a" ) ) == EventSource.of( URI.create( "tcp://host:7774#a" ) )
+        EventSource.of( URI.create( "tcp://host:7774#a" ) ).hashCode(  ) == EventSource.of( URI.create( "tcp://host:7774#a" ) ).hashCode(  )
+        EventSource.of( URI.create( "tcp://host:7774#a" ) ) != EventSource.of( URI.create( "tcp://host:7774#b" ) )
+    }
+
+    def "Missing url, throws NullPointerException."()
+    {
+        when:
+        EventSource.of( null )
+
+        then:
+        thrown NullPointerException
+    }
+}
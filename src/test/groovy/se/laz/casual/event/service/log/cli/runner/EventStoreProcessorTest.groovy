@@ -9,7 +9,12 @@ package se.laz.casual.event.service.log.cli.runner
 import se.laz.casual.event.ServiceCallEvent
 import se.laz.casual.event.ServiceCallEventStore
 import se.laz.casual.event.ServiceCallEventStoreFactory
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
 import se.laz.casual.event.service.log.cli.log.EventHandler
+import se.laz.casual.event.service.log.cli.queue.RingBufferEventQueue
+import se.laz.casual.event.service.log.cli.queue.StoreEventQueue
+import se.laz.casual.event.service.log.cli.queue.WaitStrategy
+import spock.lang.Requires
 import spock.lang.Specification
 
 import java.util.concurrent.CountDownLatch
@@ -65,4 +70,73 @@ class EventStoreProcessorTest extends Specification
         then:
         actual == event
     }
+
+    def "Handling fails, #desc, processing carries on and failures are #failures."()
+    {
+        given:
+        ServiceCallEvent failing = Mock()
+        ServiceCallEvent event = Mock()
+        CountDownLatch latch = new CountDownLatch(1)
+        handler.handle( failing ) >> { throw exception }
+        handler.handle( event ) >> { latch.countDown(  ) }
+
+        when:
+        store.put( failing )
+        store.put( event )
+        latch.await( 1, TimeUnit.SECONDS )
+
+        then:
+        latch.getCount(  ) == 0
+        instance.getFailures(  ) == failures
+
+        where:
+        desc             | exception                                          || failures
+        "write failed"   | new EventServiceLoggerException( "Write failed." ) || 0
+        "handler failed" | new IllegalStateException( "Handler failed." )     || 1
+    }
+
+    def "Ring queue, events are processed in order and the handler flushed once caught up."()
+    {
+        given:
+        instance.stop()
+        RingBufferEventQueue queue = new RingBufferEventQueue( 16, WaitStrategy.PARK )
+        List<ServiceCallEvent> events = (1..5).collect{ Mock( ServiceCallEvent ) }
+        List<ServiceCallEvent> handled = Collections.synchronizedList( [] )
+        CountDownLatch flushed = new CountDownLatch( 1 )
+        handler.handle( _ ) >> { ServiceCallEvent e -> handled.add( e ) }
+        handler.flush() >> { flushed.countDown(  ) }
+        events.each{ queue.put( it ) }
+
+        when:
+        EventStoreProcessor processor = new EventStoreProcessor( queue, handler, 2 )
+        flushed.await( 1, TimeUnit.SECONDS )
+
+        then:
+        flushed.getCount(  ) == 0
+        handled == events
+
+        cleanup:
+        processor?.stop(  )
+    }
+
+    @Requires( { Runtime.version(  ).feature(  ) >= 21 } )
+    def "Virtual thread mode, events are processed."()
+    {
+        given:
+        instance.stop()
+        ServiceCallEvent event = Mock()
+        CountDownLatch latch = new CountDownLatch(1)
+        1* handler.handle( event ) >> { latch.countDown(  ) }
+
+        when:
+        EventStoreProcessor processor = new EventStoreProcessor( new StoreEventQueue( store ), handler, 2, ThreadMode.VIRTUAL )
+        store.put( event )
+        latch.await( 1, TimeUnit.SECONDS )
+
+        then:
+        latch.getCount(  ) == 0
+
+        cleanup:
+        processor?.stop(  )
+    }
 }
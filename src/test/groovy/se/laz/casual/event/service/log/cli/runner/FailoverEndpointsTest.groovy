@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import spock.lang.Specification
+
+class FailoverEndpointsTest extends Specification
+{
+    URI a = URI.create( "tcp://a:7774" )
+    URI b = URI.create( "tcp://b:7774" )
+    URI c = URI.create( "tcp://c:7774" )
+
+    def "Each url tried once per round, exhausted once all have failed."()
+    {
+        given:
+        FailoverEndpoints instance = new FailoverEndpoints( [a, b, c] )
+
+        expect:
+        instance.current(  ) == a
+        !instance.failed(  )
+        instance.current(  ) == b
+        !instance.failed(  )
+        instance.current(  ) == c
+        instance.failed(  )
+        instance.current(  ) == a
+        instance.getFailures( 0 ) == 1
+    }
+
+    def "Disconnected, fails over to the next url, the lost url tried last."()
+    {
+        given:
+        FailoverEndpoints instance = new FailoverEndpoints( [a, b, c] )
+        instance.connected(  )
+
+        when:
+        instance.disconnected(  )
+
+        then:
+        instance.current(  ) == b
+
+        when:
+        boolean first = instance.failed(  )
+        boolean second = instance.failed(  )
+
+        then:
+        !first
+        second
+        instance.current(  ) == a
+    }
+
+    def "New round, prefers the url with the fewest failures."()
+    {
+        given:
+        FailoverEndpoints instance = new FailoverEndpoints( [a, b, c] )
+        3.times{ instance.failed(  ) }
+        instance.failed(  )
+        instance.failed(  )
+
+        when:
+        boolean exhausted = instance.failed(  )
+
+        then:
+        exhausted
+        [0, 1, 2].collect{ instance.getFailures( it ) } == [2, 2, 2]
+
+        when:
+        instance.failed(  )
+        instance.connected(  )
+
+        then:
+        instance.current(  ) == b
+        instance.getFailures( 1 ) == 0
+    }
+
+    def "Single url, every failure exhausts the round, reconnects to the same url."()
+    {
+        given:
+        FailoverEndpoints instance = new FailoverEndpoints( [a] )
+
+        expect:
+        instance.failed(  )
+        instance.current(  ) == a
+
+        when:
+        instance.connected(  )
+        instance.disconnected(  )
+
+        then:
+        instance.current(  ) == a
+        instance.failed(  )
+    }
+
+    def "Invalid urls, throws #exception."()
+    {
+        when:
+        new FailoverEndpoints( urls )
+
+        then:
+        thrown exception
+
+        where:
+        urls || exception
+        null || NullPointerException
+        []   || IllegalArgumentException
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.client.EventObserver
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.LongSupplier
+
+class GapTrackerTest extends Specification
+{
+    URI url = URI.create( "tcp://localhost:7774" )
+    long now = 1713184496000L
+
+    File gapFile
+    GapLog gapLog
+    EventObserver observer = Mock()
+
+    GapTracker instance
+
+    def setup()
+    {
+        gapFile = Files.createTempFile( "service", "gaps" ).toFile(  )
+        gapLog = new GapLog( gapFile, "|" )
+        instance = GapTracker.newBuilder(  )
+                .source( "domainA" )
+                .gapLog( gapLog )
+                .currentTimeMillis( { now } as LongSupplier )
+                .build(  )
+    }
+
+    def cleanup()
+    {
+        gapLog.close(  )
+    }
+
+    def "Reconnected, gap recorded with missed events estimated from the rate before."()
+    {
+        given:
+        EventObserver counting = instance.observe( observer )
+        ServiceCallEvent event = Mock()
+
+        when:
+        instance.connected( url )
+        100.times{ counting.notify( event ) }
+        now += 2000
+        instance.disconnected( url )
+        now += 500
+        instance.connected( url )
+
+        then:
+        100 * observer.notify( event )
+        instance.getEvents(  ) == 100
+        instance.getGaps(  ) == 1
+        instance.getGapMillis(  ) == 500
+        instance.getEstimatedMissed(  ) == 25
+        gapFile.readLines(  ) == ["1713184498000000|1713184498500000|500000|25|domainA"]
+    }
+
+    def "Short connection, rate of the previous connection kept."()
+    {
+        given:
+        EventObserver counting = instance.observe( observer )
+        ServiceCallEvent event = Mock()
+
+        when:
+        instance.connected( url )
+        10.times{ counting.notify( event ) }
+        now += 1000
+        instance.disconnected( url )
+        now += 100
+        instance.connected( url )
+        1000.times{ counting.notify( event ) }
+        now += 10
+        instance.disconnected( url )
+        now += 100
+        instance.connected( url )
+
+        then:
+        instance.getGaps(  ) == 2
+        instance.getEstimatedMissed(  ) == 2
+    }
+
+    def "Initial connection, no gap."()
+    {
+        when:
+        instance.connected( url )
+        instance.close(  )
+
+        then:
+        instance.getGaps(  ) == 0
+        gapFile.readLines(  ).isEmpty(  )
+    }
+
+    def "Closed whilst disconnected, gap recorded until closed."()
+    {
+        given:
+        instance.connected( url )
+        now += 1000
+        instance.disconnected( url )
+        now += 3000
+
+        when:
+        instance.close(  )
+
+        then:
+        instance.getGaps(  ) == 1
+        instance.getGapMillis(  ) == 3000
+        instance.getEstimatedMissed(  ) == 0
+        gapFile.readLines(  ) == ["1713184497000000|1713184500000000|3000000|0|domainA"]
+    }
+
+    def "Without gap log, gaps still accounted."()
+    {
+        given:
+        GapTracker tracker = GapTracker.newBuilder(  )
+                .source( "domainA" )
+                .currentTimeMillis( { now } as LongSupplier )
+                .build(  )
+
+        when:
+        tracker.connected( url )
+        tracker.disconnected( url )
+        now += 10
+        tracker.connected( url )
+
+        then:
+        tracker.getGaps(  ) == 1
+        tracker.getGapMillis(  ) == 10
+    }
+
+    def "Missing source, throws NullPointerException."()
+    {
+        when:
+        GapTracker.newBuilder(  ).build(  )
+
+        then:
+        thrown NullPointerException
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class InterruptibleWaitTest extends Specification
+{
+    InterruptibleWait instance = new InterruptibleWait(  )
+    ExecutorService executor = Executors.newSingleThreadExecutor(  )
+
+    def cleanup()
+    {
+        executor.shutdownNow(  )
+    }
+
+    def "Stop whilst waiting, wait interrupted."()
+    {
+        given:
+        CountDownLatch waiting = new CountDownLatch( 1 )
+        executor.submit( {
+            instance.begin(  )
+            waiting.countDown(  )
+            try
+            {
+                Thread.sleep( 60_000 )
+            }
+            finally
+            {
+                instance.end(  )
+            }
+        } as Runnable )
+        waiting.await( 1, TimeUnit.SECONDS )
+
+        expect:
+        instance.stop( executor, 1000 )
+    }
+
+    def "Stop whilst working, work finished without interrupt."()
+    {
+        given:
+        CountDownLatch working = new CountDownLatch( 1 )
+        boolean interrupted = true
+        executor.submit( {
+            working.countDown(  )
+            long end = System.nanoTime(  ) + TimeUnit.MILLISECONDS.toNanos( 100 )
+            while( System.nanoTime(  ) < end )
+            {
+                Thread.onSpinWait(  )
+            }
+            interrupted = Thread.currentThread(  ).isInterrupted(  )
+        } as Runnable )
+        working.await( 1, TimeUnit.SECONDS )
+
+        when:
+        boolean stopped = instance.stop( executor, 1000 )
+
+        then:
+        stopped
+        !interrupted
+    }
+
+    def "Stop, not finished within timeout, returns false."()
+    {
+        given:
+        CountDownLatch working = new CountDownLatch( 1 )
+        executor.submit( {
+            working.countDown(  )
+            long end = System.nanoTime(  ) + TimeUnit.MILLISECONDS.toNanos( 500 )
+            while( System.nanoTime(  ) < end )
+            {
+                Thread.onSpinWait(  )
+            }
+        } as Runnable )
+        working.await( 1, TimeUnit.SECONDS )
+
+        expect:
+        !instance.stop( executor, 50 )
+    }
+}
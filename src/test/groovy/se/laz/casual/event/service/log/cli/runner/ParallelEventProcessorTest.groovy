@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import se.laz.casual.event.service.log.cli.log.BinaryEventDecoder
+import se.laz.casual.event.service.log.cli.log.EventFormat
+import se.laz.casual.event.service.log.cli.log.EventHandler
+import se.laz.casual.event.service.log.cli.log.EventRecord
+import se.laz.casual.event.service.log.cli.log.LogBuffer
+import se.laz.casual.event.service.log.cli.log.LogOutput
+import se.laz.casual.event.service.log.cli.log.ServiceLogger
+import se.laz.casual.event.service.log.cli.queue.RingBufferEventQueue
+import se.laz.casual.event.service.log.cli.queue.WaitStrategy
+import spock.lang.Specification
+
+import javax.transaction.xa.Xid
+import java.nio.file.Files
+import java.time.Instant
+import java.util.concurrent.CountDownLatch
+import java.util.regex.Pattern
+
+class ParallelEventProcessorTest extends Specification
+{
+    File logFile
+    TestEventServiceLogParams params
+    ServiceLogger logger
+    EventHandler handler
+    RingBufferEventQueue queue = new RingBufferEventQueue( 1024, WaitStrategy.PARK )
+
+    ParallelEventProcessor instance
+
+    def setup()
+    {
+        logFile = Files.createTempFile( "stats", "log" ).toFile(  )
+        params = new TestEventServiceLogParams()
+        params.logFile = logFile
+        params.batchSize = 10000
+        logger = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        handler = EventHandler.newBuilder(  ).serviceLogger( logger )
+                .filterExclusive( Pattern.compile( "^skip.*" ) )
+                .build(  )
+    }
+
+    def cleanup()
+    {
+        instance?.stop(  )
+        logger.close(  )
+    }
+
+    def "Invalid #desc, throws #exception."()
+    {
+        when:
+        instance = new ParallelEventProcessor( queue, handler, logger, workers, drainLimit )
+
+        then:
+        thrown exception
+
+        where:
+        desc          | workers | drainLimit || exception
+        "workers"     | 0       | 16         || IllegalArgumentException
+        "drain limit" | 2       | 0          || IllegalArgumentException
+    }
+
+    def "Events formatted on #workers workers are written in arrival order, filtered events skipped."()
+    {
+        given:
+        List<ServiceCallEvent> events = (1..2000).collect{ createEvent( ( it % 10 == 0 ? "skip" : "service" ) + it ) }
+        List<String> expected = events.findAll{ !it.getService(  ).startsWith( "skip" ) }.collect{ it.getService(  ) }
+
+        when:
+        events.each{ queue.put( it ) }
+        instance = new ParallelEventProcessor( queue, handler, logger, workers, 16 )
+        int count = 0
+        while( logFile.readLines(  ).size(  ) < expected.size(  ) && count < 500 )
+        {
+            Thread.sleep( 10 )
+            count++
+        }
+        List<String> logged = logFile.readLines(  ).collect{ it.split( "\\|" )[0] }
+
+        then:
+        logged == expected
+
+        where:
+        workers << [1, 2, 4]
+    }
+
+    def "Binary format, events filtered on workers are encoded by the writer in arrival order."()
+    {
+        given:
+        logger.close(  )
+        params.eventFormat = EventFormat.BINARY
+        params.batchSize = 1
+        logger = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        handler = EventHandler.newBuilder(  ).serviceLogger( logger )
+                .filterExclusive( Pattern.compile( "^skip.*" ) )
+                .build(  )
+        List<ServiceCallEvent> events = (1..2000).collect{ createEvent( ( it % 10 == 0 ? "skip" : "service" ) + it ) }
+        List<String> expected = events.findAll{ !it.getService(  ).startsWith( "skip" ) }.collect{ it.getService(  ) }
+
+        when:
+        events.each{ queue.put( it ) }
+        instance = new ParallelEventProcessor( queue, handler, logger, 4, 16 )
+        int count = 0
+        while( decodeServices(  ).size(  ) < expected.size(  ) && count < 500 )
+        {
+            Thread.sleep( 10 )
+            count++
+        }
+
+        then:
+        decodeServices(  ) == expected
+    }
+
+    def "Stop, events are no longer processed."()
+    {
+        given:
+        ServiceCallEvent event = createEvent( "service" )
+        instance = new ParallelEventProcessor( queue, handler, logger, 2, 16 )
+
+        when:
+        instance.stop(  )
+        Thread.sleep( 10 )
+        queue.put( event )
+        Thread.sleep( 50 )
+
+        then:
+        queue.poll(  ) == event
+        logFile.length(  ) == 0
+    }
+
+    def "Formatting a batch fails, batch dropped and counted, following batches written."()
+    {
+        given:
+        ServiceCallEvent broken = Stub( ServiceCallEvent ){
+            getService(  ) >> { throw new IllegalStateException( "Broken event." ) }
+        }
+        instance = new ParallelEventProcessor( queue, handler, logger, 2, 16 )
+
+        when:
+        queue.put( broken )
+        waitFor{ instance.getFailures(  ) == 1 }
+        queue.put( createEvent( "service" ) )
+        waitFor{ logFile.readLines(  ).size(  ) == 1 }
+
+        then:
+        instance.getFailures(  ) == 1
+        logFile.readLines(  )[0].startsWith( "service|" )
+    }
+
+    def "Formatting a batch does not finish in time, batch dropped and counted, following batches written."()
+    {
+        given:
+        CountDownLatch release = new CountDownLatch( 1 )
+        ServiceCallEvent stuck = Stub( ServiceCallEvent ){
+            getService(  ) >> { release.await(  ); return "stuck" }
+        }
+        instance = new ParallelEventProcessor( queue, handler, logger, 2, 16, ThreadMode.PLATFORM, 100 )
+
+        when:
+        queue.put( stuck )
+        waitFor{ instance.getFailures(  ) == 1 }
+        queue.put( createEvent( "service" ) )
+        waitFor{ logFile.readLines(  ).size(  ) == 1 }
+        release.countDown(  )
+        queue.put( createEvent( "service" ) )
+        waitFor{ logFile.readLines(  ).size(  ) == 2 }
+
+        then:
+        instance.getFailures(  ) == 1
+        logFile.readLines(  ).every{ it.startsWith( "service|" ) }
+    }
+
+    def "Write fails, writer carries on and the kept output is written with the next batch."()
+    {
+        given:
+        LogOutput file = logger.@fileWriter
+        int writes = 0
+        logger.@fileWriter = [write: { LogBuffer buffer, int offset ->
+            if( writes++ == 0 )
+            {
+                throw new EventServiceLoggerException( "Failed to write to file." )
+            }
+            file.write( buffer, offset )
+        }, close: { file.close(  ) }] as LogOutput
+        instance = new ParallelEventProcessor( queue, handler, logger, 2, 16 )
+
+        when:
+        queue.put( createEvent( "service1" ) )
+        waitFor{ logger.getWriteFailures(  ) == 1 }
+        queue.put( createEvent( "service2" ) )
+        waitFor{ logFile.readLines(  ).size(  ) == 2 }
+
+        then:
+        logFile.readLines(  ).collect{ it.split( "\\|" )[0] } == ["service1", "service2"]
+        instance.getFailures(  ) == 0
+    }
+
+    def "Stop whilst processing, dispatched batches are written and the rest left in the queue."()
+    {
+        given:
+        int total = 1000
+        instance = new ParallelEventProcessor( queue, handler, logger, 4, 16 )
+        (1..total).each{ queue.put( createEvent( "service" + it ) ) }
+
+        when:
+        instance.stop(  )
+        logger.flush(  )
+        int left = 0
+        while( queue.poll(  ) != null )
+        {
+            left++
+        }
+
+        then:
+        logFile.readLines(  ).size(  ) + left == total
+    }
+
+    void waitFor( Closure<Boolean> condition )
+    {
+        int count = 0
+        while( !condition(  ) && count < 500 )
+        {
+            Thread.sleep( 10 )
+            count++
+        }
+    }
+
+    List<String> decodeServices(  )
+    {
+        List<String> services = []
+        logFile.withInputStream{
+            BinaryEventDecoder decoder = new BinaryEventDecoder( it )
+            EventRecord record = new EventRecord(  )
+            while( decoder.read( record ) )
+            {
+                services.add( record.getService(  ) )
+            }
+        }
+        return services
+    }
+
+    ServiceCallEvent createEvent( String serviceName )
+    {
+        return ServiceCallEvent.createBuilder(  )
+                .withService( serviceName )
+                .withParent( "parent" )
+                .withPID( 123 )
+                .withExecution( UUID.randomUUID(  ) )
+                .withTransactionId( Mock( Xid ) )
+                .withPending( 5L )
+                .withStart( Instant.ofEpochSecond( 1713184496L ) )
+                .withEnd( Instant.ofEpochSecond( 1713184504L ) )
+                .withCode( ErrorState.OK )
+                .withOrder( Order.CONCURRENT )
+                .build()
+    }
+}
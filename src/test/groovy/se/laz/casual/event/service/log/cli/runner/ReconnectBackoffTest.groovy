@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import spock.lang.Specification
+
+class ReconnectBackoffTest extends Specification
+{
+    def "Exponential with jitter #jitter, delays #expected."()
+    {
+        given:
+        ReconnectBackoff instance = new ReconnectBackoff( 100, 1000, 0, { jitter } )
+
+        when:
+        List<Long> delays = (1..6).collect{ instance.nextDelayMillis(  ) }
+
+        then:
+        delays == expected
+        instance.firstRetryMillis(  ) == 0
+
+        where:
+        jitter || expected
+        1.0d   || [100L, 200L, 400L, 800L, 1000L, 1000L]
+        0.0d   || [50L, 100L, 200L, 400L, 500L, 500L]
+    }
+
+    def "Exponential, delays are randomised within half and all of the delay."()
+    {
+        given:
+        ReconnectBackoff instance = ReconnectBackoff.exponential( 1000, 1000 )
+
+        when:
+        List<Long> delays = (1..100).collect{ instance.nextDelayMillis(  ) }
+
+        then:
+        delays.every{ it >= 500 && it <= 1000 }
+        delays.unique(  ).size(  ) > 1
+        instance.firstRetryMillis(  ) == 0
+    }
+
+    def "Reset, restarts from the initial delay."()
+    {
+        given:
+        ReconnectBackoff instance = new ReconnectBackoff( 100, 1000, 0, { 1.0d } )
+        3.times{ instance.nextDelayMillis(  ) }
+
+        when:
+        instance.reset(  )
+
+        then:
+        instance.nextDelayMillis(  ) == 100
+    }
+
+    def "Fixed, always the same delay."()
+    {
+        given:
+        ReconnectBackoff instance = ReconnectBackoff.fixed( 30000 )
+
+        expect:
+        (1..5).collect{ instance.nextDelayMillis(  ) } == [30000L] * 5
+        instance.firstRetryMillis(  ) == 30000
+    }
+
+    def "Max reached without overflow."()
+    {
+        given:
+        ReconnectBackoff instance = new ReconnectBackoff( 1, Long.MAX_VALUE, 0, { 1.0d } )
+
+        when:
+        List<Long> delays = (1..100).collect{ instance.nextDelayMillis(  ) }
+
+        then:
+        delays.every{ it > 0 }
+        delays.last(  ) == Long.MAX_VALUE
+    }
+
+    def "Invalid initial #initial max #max, throws IllegalArgumentException."()
+    {
+        when:
+        ReconnectBackoff.exponential( initial, max )
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        initial | max
+        -1      | 100
+        100     | 99
+    }
+}
@@ -6,15 +6,68 @@
 
 package se.laz.casual.event.service.log.cli.runner
 
+import se.laz.casual.event.service.log.cli.filter.FilterExpression
+import se.laz.casual.event.service.log.cli.log.EventFormat
+import se.laz.casual.event.service.log.cli.log.LogOutputType
+import se.laz.casual.event.service.log.cli.queue.EventQueueType
+import se.laz.casual.event.service.log.cli.queue.OverflowPolicy
+import se.laz.casual.event.service.log.cli.queue.WaitStrategy
+
 import java.util.regex.Pattern
 
 class TestEventServiceLogParams implements EventServiceLogParams
 {
     URI eventServerUrl = null
+    List<EventSource> eventSources = null
+    boolean sourceColumn = false
     File logFile = new File( "statistics.log" )
     String logColumnDelimiter = "|"
     Pattern logFilterInclusive = null
     Pattern logFilterExclusive = null
+    FilterExpression logFilter = null
+    int batchSize = 1
+    long flushIntervalMillis = 0
+    LogOutputType logOutputType = LogOutputType.STREAM
+    EventQueueType eventQueueType = EventQueueType.STORE
+    int queueCapacity = 1024
+    WaitStrategy waitStrategy = WaitStrategy.PARK
+    OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK
+    File spillFile = new File( "statistics.log.spill" )
+    int workerThreads = 1
+    int filterCacheSize = 4096
+    int sampleRate = 1
+    int sampleMaxPerSecond = 0
+    boolean sampleByExecution = false
+    FilterExpression sampleBypass = null
+    File statsFile = null
+    long statsIntervalMillis = 60000
+    boolean statsOnly = false
+    EventFormat eventFormat = EventFormat.TEXT
+    long rotateSize = 0
+    long rotateIntervalMillis = 0
+    int rotateRetain = 0
+    long reconnectInitialMillis = 100
+    long reconnectMaxMillis = 30000
+    File gapFile = null
+    int metricsPort = 0
+    String metricsHost = "localhost"
+    ThreadMode threadMode = ThreadMode.PLATFORM
+    File graphFile = null
+    long graphIntervalMillis = 60000
+    int graphSlowest = 10
+    long executionTimeoutMillis = 10000
+    int maxExecutions = 100000
+    int maxCalls = 1000000
+    File tridFile = null
+    long tridIdleTimeoutMillis = 10000
+    int maxTrids = 100000
+    File topFile = null
+    int topN = 10
+    List<Long> topWindowsMillis = [60000L, 300000L, 3600000L]
+    long topIntervalMillis = 60000
+    boolean index = false
+    int indexEvents = 1000
+    long indexIntervalMillis = 1000
 
     TestEventServiceLogParams()
     {
@@ -30,6 +83,12 @@ class TestEventServiceLogParams implements EventServiceLogParams
         this.logFilterExclusive = exclude
     }
 
+    @Override
+    List<EventSource> getEventSources()
+    {
+        return eventSources != null ? eventSources : ( eventServerUrl == null ? [] : [EventSource.of( eventServerUrl )] )
+    }
+
     @Override
     Optional<Pattern> getLogFilterInclusive()
     {
@@ -41,4 +100,46 @@ class TestEventServiceLogParams implements EventServiceLogParams
     {
         return Optional.ofNullable( logFilterExclusive )
     }
+
+    @Override
+    Optional<FilterExpression> getLogFilter()
+    {
+        return Optional.ofNullable( logFilter )
+    }
+
+    @Override
+    Optional<FilterExpression> getSampleBypass()
+    {
+        return Optional.ofNullable( sampleBypass )
+    }
+
+    @Override
+    Optional<File> getStatsFile()
+    {
+        return Optional.ofNullable( statsFile )
+    }
+
+    @Override
+    Optional<File> getGapFile()
+    {
+        return Optional.ofNullable( gapFile )
+    }
+
+    @Override
+    Optional<File> getGraphFile()
+    {
+        return Optional.ofNullable( graphFile )
+    }
+
+    @Override
+    Optional<File> getTridFile()
+    {
+        return Optional.ofNullable( tridFile )
+    }
+
+    @Override
+    Optional<File> getTopFile()
+    {
+        return Optional.ofNullable( topFile )
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.runner
+
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+
+class ThreadModeTest extends Specification
+{
+    def "Platform, always supported, creates named platform threads."()
+    {
+        given:
+        ThreadFactory factory = ThreadMode.PLATFORM.newThreadFactory( "test" )
+
+        when:
+        Thread first = factory.newThread( {} )
+        Thread second = factory.newThread( {} )
+
+        then:
+        ThreadMode.PLATFORM.isSupported(  )
+        !isVirtual( first )
+        first.getName(  ) == "test-0"
+        second.getName(  ) == "test-1"
+    }
+
+    @Requires( { Runtime.version(  ).feature(  ) >= 21 } )
+    def "Virtual on Java 21, creates named virtual threads that run."()
+    {
+        given:
+        CountDownLatch latch = new CountDownLatch( 1 )
+
+        when:
+        Thread thread = ThreadMode.VIRTUAL.newThreadFactory( "test" ).newThread( { latch.countDown(  ) } )
+        thread.start(  )
+
+        then:
+        ThreadMode.VIRTUAL.isSupported(  )
+        isVirtual( thread )
+        thread.getName(  ) == "test-0"
+        latch.await( 1, TimeUnit.SECONDS )
+    }
+
+    @Requires( { Runtime.version(  ).feature(  ) < 21 } )
+    def "Virtual prior to Java 21, not supported, throws EventServiceLoggerException."()
+    {
+        when:
+        ThreadMode.VIRTUAL.newThreadFactory( "test" )
+
+        then:
+        !ThreadMode.VIRTUAL.isSupported(  )
+        thrown EventServiceLoggerException
+    }
+
+    def "Name null, throws NullPointerException."()
+    {
+        when:
+        mode.newThreadFactory( null )
+
+        then:
+        thrown NullPointerException
+
+        where:
+        mode << [ThreadMode.PLATFORM, ThreadMode.VIRTUAL]
+    }
+
+    static boolean isVirtual( Thread thread )
+    {
+        return Thread.metaClass.respondsTo( thread, "isVirtual" ) && thread.isVirtual(  )
+    }
+}
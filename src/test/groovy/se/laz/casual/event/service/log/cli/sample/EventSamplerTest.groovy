@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.sample
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.filter.FilterExpression
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class EventSamplerTest extends Specification
+{
+    long now = 0L
+    LongSupplier clock = { now } as LongSupplier
+
+    def "Invalid #desc, throws #exception."()
+    {
+        when:
+        EventSampler.newBuilder(  ).rate( rate ).maxPerSecond( max ).maxServices( services ).nanoClock( nanoClock ).build(  )
+
+        then:
+        thrown exception
+
+        where:
+        desc             | rate | max | services | nanoClock                           || exception
+        "rate"           | 0    | 0   | 1        | { 0L } as LongSupplier              || IllegalArgumentException
+        "max per second" | 1    | -1  | 1        | { 0L } as LongSupplier              || IllegalArgumentException
+        "max services"   | 1    | 0   | 0        | { 0L } as LongSupplier              || IllegalArgumentException
+        "missing clock"  | 1    | 0   | 1        | null                                || NullPointerException
+    }
+
+    def "Rate #rate, keeps 1 in #rate per service."()
+    {
+        given:
+        EventSampler instance = EventSampler.newBuilder(  ).rate( rate ).build(  )
+
+        when:
+        List<Boolean> a = (1..6).collect{ instance.sample( event( "a", it ) ) }
+        List<Boolean> b = (1..3).collect{ instance.sample( event( "b", it ) ) }
+
+        then:
+        a == expectedA
+        b == expectedB
+        instance.getKept(  ) == expectedA.count( true ) + expectedB.count( true )
+        instance.getDropped(  ) == expectedA.count( false ) + expectedB.count( false )
+
+        where:
+        rate | expectedA                                  | expectedB
+        1    | [true, true, true, true, true, true]       | [true, true, true]
+        3    | [true, false, false, true, false, false]   | [true, false, false]
+    }
+
+    def "By execution, all calls within an execution kept or dropped together."()
+    {
+        given:
+        EventSampler instance = EventSampler.newBuilder(  ).rate( 4 ).byExecution( true ).build(  )
+        List<String> executions = (1..1000).collect{ UUID.randomUUID(  ).toString(  ) }
+
+        when:
+        List<Boolean> first = executions.collect{ instance.sample( event( "a", it ) ) }
+        List<Boolean> second = executions.collect{ instance.sample( event( "b", it ) ) }
+
+        then:
+        first == second
+        first.count( true ) > 150
+        first.count( true ) < 350
+    }
+
+    def "Max per second, limits events kept per service and refills over time."()
+    {
+        given:
+        EventSampler instance = EventSampler.newBuilder(  ).maxPerSecond( 2 ).nanoClock( clock ).build(  )
+
+        when:
+        List<Boolean> burst = (1..3).collect{ instance.sample( event( "a", it ) ) }
+        boolean other = instance.sample( event( "b", 1 ) )
+
+        then:
+        burst == [true, true, false]
+        other
+
+        when:
+        now += 500_000_000L
+        List<Boolean> afterHalfSecond = (1..2).collect{ instance.sample( event( "a", it ) ) }
+
+        then:
+        afterHalfSecond == [true, false]
+
+        when:
+        now += 10_000_000_000L
+        List<Boolean> afterIdle = (1..3).collect{ instance.sample( event( "a", it ) ) }
+
+        then:
+        afterIdle == [true, true, false]
+    }
+
+    def "Max services reached, further services sampled together as other."()
+    {
+        given:
+        EventSampler instance = EventSampler.newBuilder(  ).rate( 2 ).maxServices( 2 ).build(  )
+
+        when:
+        List<Boolean> known = ["a", "b"].collect{ instance.sample( event( it, 1 ) ) }
+        List<Boolean> others = (1..100).collect{ instance.sample( event( "service" + it, 1 ) ) }
+
+        then:
+        known == [true, true]
+        instance.getServices(  ) == 3
+        others.count( true ) == 50
+    }
+
+    def "Bypass, matching events always kept."()
+    {
+        given:
+        EventSampler instance = EventSampler.newBuilder(  )
+                .rate( 1000 )
+                .maxPerSecond( 1 )
+                .nanoClock( clock )
+                .bypass( FilterExpression.compile( "code != OK" ) )
+                .build(  )
+
+        when:
+        List<Boolean> ok = (1..3).collect{ instance.sample( event( "a", it ) ) }
+        List<Boolean> failed = (1..3).collect{ instance.sample( event( "a", it, "TPESVCERR" ) ) }
+
+        then:
+        ok == [true, false, false]
+        failed == [true, true, true]
+        instance.getBypassed(  ) == 3
+        instance.getKept(  ) == 4
+        instance.getDropped(  ) == 2
+    }
+
+    def "Null event, throws NullPointerException."()
+    {
+        when:
+        EventSampler.newBuilder(  ).build(  ).sample( null )
+
+        then:
+        thrown NullPointerException
+    }
+
+    ServiceCallEvent event( String service, Object execution, String code = "OK" )
+    {
+        ServiceCallEvent event = Mock()
+        event.getService(  ) >> service
+        event.getExecution(  ) >> execution.toString(  )
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats
+
+import spock.lang.Specification
+
+class LatencyHistogramTest extends Specification
+{
+    LatencyHistogram instance = new LatencyHistogram()
+
+    def "Value #value, within its bucket of at most 3% width."()
+    {
+        when:
+        int index = LatencyHistogram.indexOf( value )
+        long lowest = LatencyHistogram.lowestValueAt( index )
+        long highest = LatencyHistogram.highestValueAt( index )
+
+        then:
+        index >= 0
+        index < LatencyHistogram.BUCKET_COUNT
+        lowest <= value
+        value <= highest
+        value < 64 ? lowest == highest : ( highest - lowest + 1 ) / lowest <= 0.032
+
+        where:
+        value << [0L, 1L, 63L, 64L, 65L, 127L, 128L, 1000L, 999_999L, 1L << 32, LatencyHistogram.MAX_VALUE]
+    }
+
+    def "Buckets are contiguous."()
+    {
+        expect:
+        (0..<LatencyHistogram.BUCKET_COUNT - 1).every{
+            LatencyHistogram.highestValueAt( it ) + 1 == LatencyHistogram.lowestValueAt( it + 1 )
+        }
+        LatencyHistogram.highestValueAt( LatencyHistogram.BUCKET_COUNT - 1 ) == LatencyHistogram.MAX_VALUE
+    }
+
+    def "Empty, snapshot is all zero."()
+    {
+        when:
+        HistogramSnapshot snapshot = instance.snapshot(  )
+
+        then:
+        snapshot.getCount(  ) == 0
+        snapshot.getMin(  ) == 0
+        snapshot.getMean(  ) == 0
+        snapshot.getValueAtPercentile( 99 ) == 0
+        snapshot.getMax(  ) == 0
+    }
+
+    def "Record, summary values within bucket accuracy."()
+    {
+        given:
+        (1..1000).each{ instance.record( it * 1000L ) }
+
+        when:
+        HistogramSnapshot snapshot = instance.snapshot(  )
+
+        then:
+        snapshot.getCount(  ) == 1000
+        snapshot.getSum(  ) == 500_500_000L
+        snapshot.getMean(  ) == 500_500L
+        within( snapshot.getMin(  ), 1000L )
+        within( snapshot.getValueAtPercentile( 50 ), 500_000L )
+        within( snapshot.getValueAtPercentile( 90 ), 900_000L )
+        within( snapshot.getValueAtPercentile( 99 ), 990_000L )
+        within( snapshot.getMax(  ), 1_000_000L )
+    }
+
+    def "Out of range values are clamped."()
+    {
+        when:
+        instance.record( -5L )
+        instance.record( Long.MAX_VALUE )
+        HistogramSnapshot snapshot = instance.snapshot(  )
+
+        then:
+        snapshot.getMin(  ) == 0
+        snapshot.getMax(  ) == LatencyHistogram.MAX_VALUE
+    }
+
+    def "Minus, only values recorded after the earlier snapshot."()
+    {
+        given:
+        instance.record( 10L )
+        HistogramSnapshot earlier = instance.snapshot(  )
+        instance.record( 20L )
+        instance.record( 30L )
+
+        when:
+        HistogramSnapshot difference = instance.snapshot(  ).minus( earlier )
+
+        then:
+        difference.getCount(  ) == 2
+        difference.getMin(  ) == 20L
+        difference.getMax(  ) == 30L
+        difference.getMean(  ) == 25L
+    }
+
+    def "Invalid percentile #percentile, throws IllegalArgumentException."()
+    {
+        when:
+        instance.snapshot(  ).getValueAtPercentile( percentile )
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        percentile << [-1.0d, 100.1d]
+    }
+
+    def "Concurrent recording, all values counted."()
+    {
+        when:
+        List<Thread> threads = (1..4).collect{ Thread.start{ (1..10000).each{ instance.record( it ) } } }
+        threads*.join(  )
+
+        then:
+        instance.snapshot(  ).getCount(  ) == 40000
+    }
+
+    static boolean within( long actual, long expected )
+    {
+        return Math.abs( actual - expected ) <= expected * 0.032
+    }
+}
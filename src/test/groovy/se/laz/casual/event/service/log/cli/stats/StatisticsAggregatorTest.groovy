@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.log.EventRecord
+import spock.lang.Specification
+
+class StatisticsAggregatorTest extends Specification
+{
+    def "Record, aggregated per service with errors counted."()
+    {
+        given:
+        StatisticsAggregator instance = new StatisticsAggregator(  )
+
+        when:
+        instance.onEvent( event( "a", 100L, 5L, "OK" ) )
+        instance.onEvent( event( "a", 200L, 0L, "TPESVCERR" ) )
+        instance.onEvent( event( "b", 50L, 1L, "OK" ) )
+        Map<String, ServiceStatistics> services = instance.getServices(  ).collectEntries{ [it.getService(  ), it] }
+
+        then:
+        services.keySet(  ) == ["a", "b"] as Set
+        services["a"].getLatency(  ).snapshot(  ).getCount(  ) == 2
+        services["a"].getLatency(  ).snapshot(  ).getSum(  ) == 300L
+        services["a"].getPending(  ).snapshot(  ).getSum(  ) == 5L
+        services["a"].getErrors(  ) == 1
+        services["b"].getErrors(  ) == 0
+    }
+
+    def "Record read back from a log, aggregated as the event."()
+    {
+        given:
+        StatisticsAggregator instance = new StatisticsAggregator(  )
+
+        when:
+        instance.onEvent( event( "a", 100L, 5L, "OK" ) )
+        instance.onRecord( new EventRecord(  ).setService( "a" ).setStart( 1000L ).setEnd( 1200L ).setPending( 0L ).setCode( "TPESVCERR" ) )
+        ServiceStatistics statistics = instance.getServices(  )[0]
+
+        then:
+        statistics.getLatency(  ).snapshot(  ).getCount(  ) == 2
+        statistics.getLatency(  ).snapshot(  ).getSum(  ) == 300L
+        statistics.getErrors(  ) == 1
+    }
+
+    def "More services than max, aggregated as other."()
+    {
+        given:
+        StatisticsAggregator instance = new StatisticsAggregator( 2 )
+
+        when:
+        ["a", "b", "c", "d", "a"].each{ instance.onEvent( event( it, 1L, 0L, "OK" ) ) }
+        Map<String, ServiceStatistics> services = instance.getServices(  ).collectEntries{ [it.getService(  ), it] }
+
+        then:
+        services.keySet(  ) == ["a", "b", StatisticsAggregator.OTHER_SERVICES] as Set
+        services["a"].getLatency(  ).snapshot(  ).getCount(  ) == 2
+        services[StatisticsAggregator.OTHER_SERVICES].getLatency(  ).snapshot(  ).getCount(  ) == 2
+    }
+
+    def "Invalid max services, throws IllegalArgumentException."()
+    {
+        when:
+        new StatisticsAggregator( 0 )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    ServiceCallEvent event( String service, long duration, long pending, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getService(  ) >> service
+        event.getStart(  ) >> 1000L
+        event.getEnd(  ) >> 1000L + duration
+        event.getPending(  ) >> pending
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.stats
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import se.laz.casual.event.service.log.cli.log.LogBuffer
+import se.laz.casual.event.service.log.cli.log.LogOutput
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.LongSupplier
+
+class StatisticsReporterTest extends Specification
+{
+    File statsFile
+    StatisticsAggregator aggregator = new StatisticsAggregator(  )
+    long now = 1713184496000000L
+
+    StatisticsReporter instance
+
+    def setup()
+    {
+        statsFile = Files.createTempFile( "stats", "summary" ).toFile(  )
+        instance = StatisticsReporter.newBuilder(  )
+                .aggregator( aggregator )
+                .file( statsFile )
+                .intervalMillis( 60000 )
+                .currentTimeMicros( { now } as LongSupplier )
+                .build(  )
+    }
+
+    def cleanup()
+    {
+        instance.close(  )
+    }
+
+    def "Report, one line per service called during the interval."()
+    {
+        given:
+        aggregator.onEvent( event( "a", 10L, 1L, "OK" ) )
+        aggregator.onEvent( event( "a", 30L, 3L, "TPESVCERR" ) )
+
+        when:
+        instance.report(  )
+
+        then:
+        statsFile.readLines(  ) == ["1713184496000000|a|2|1|10|20|10|30|30|30|1|2|1|3|3|3"]
+
+        when:
+        now += 60000000L
+        aggregator.onEvent( event( "b", 5L, 0L, "OK" ) )
+        instance.report(  )
+
+        then:
+        statsFile.readLines(  ) == ["1713184496000000|a|2|1|10|20|10|30|30|30|1|2|1|3|3|3",
+                                    "1713184556000000|b|1|0|5|5|5|5|5|5|0|0|0|0|0|0"]
+    }
+
+    def "Report fails to write, the calls are included in the next report."()
+    {
+        given:
+        StreamLogOutput file = new StreamLogOutput( statsFile )
+        boolean fail = true
+        LogOutput output = [write: { LogBuffer buffer ->
+            if( fail )
+            {
+                throw new EventServiceLoggerException( "Failed to write to file." )
+            }
+            file.write( buffer )
+        }, close: { file.close(  ) }] as LogOutput
+        StatisticsReporter failing = StatisticsReporter.newBuilder(  )
+                .aggregator( aggregator )
+                .output( output )
+                .currentTimeMicros( { now } as LongSupplier )
+                .build(  )
+        aggregator.onEvent( event( "a", 10L, 1L, "OK" ) )
+
+        when:
+        failing.report(  )
+
+        then:
+        thrown EventServiceLoggerException
+
+        when:
+        fail = false
+        aggregator.onEvent( event( "a", 30L, 3L, "TPESVCERR" ) )
+        failing.report(  )
+
+        then:
+        statsFile.readLines(  ) == ["1713184496000000|a|2|1|10|20|10|30|30|30|1|2|1|3|3|3"]
+
+        cleanup:
+        failing.close(  )
+    }
+
+    def "Append totals, one line per service called."()
+    {
+        given:
+        aggregator.onEvent( event( "a", 10L, 1L, "OK" ) )
+        aggregator.onEvent( event( "a", 30L, 3L, "TPESVCERR" ) )
+        instance.report(  )
+        LogBuffer buffer = new LogBuffer( 16 )
+
+        when:
+        StatisticsReporter.appendTotals( aggregator, now, "~", buffer )
+
+        then:
+        buffer.toString(  ).readLines(  ) == ["1713184496000000~a~2~1~10~20~10~30~30~30~1~2~1~3~3~3"]
+    }
+
+    def "Close, writes the final interval once."()
+    {
+        given:
+        aggregator.onEvent( event( "a", 10L, 0L, "OK" ) )
+
+        when:
+        instance.close(  )
+        instance.close(  )
+        instance.report(  )
+
+        then:
+        statsFile.readLines(  ).size(  ) == 1
+    }
+
+    def "Build with invalid #desc, throws #exception."()
+    {
+        when:
+        StatisticsReporter.newBuilder(  ).aggregator( _aggregator ).file( file ).intervalMillis( interval ).build(  )
+
+        then:
+        thrown exception
+
+        where:
+        desc                 | _aggregator                | file            | interval || exception
+        "missing aggregator" | null                       | new File( "x" ) | 1000     || NullPointerException
+        "missing file"       | new StatisticsAggregator() | null            | 1000     || NullPointerException
+        "interval"           | new StatisticsAggregator() | new File( "x" ) | 0        || IllegalArgumentException
+    }
+
+    ServiceCallEvent event( String service, long duration, long pending, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getService(  ) >> service
+        event.getStart(  ) >> 1000L
+        event.getEnd(  ) >> 1000L + duration
+        event.getPending(  ) >> pending
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool
+
+import picocli.CommandLine
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.log.EventFormat
+import se.laz.casual.event.service.log.cli.log.LogOutputType
+import se.laz.casual.event.service.log.cli.log.ServiceLogger
+import se.laz.casual.event.service.log.cli.runner.TestEventServiceLogParams
+import spock.lang.Specification
+
+import javax.transaction.xa.Xid
+import java.nio.file.Files
+import java.time.Instant
+
+class DecodeCommandTest extends Specification
+{
+    File binaryFile
+    File textFile
+    File outputFile
+
+    def setup()
+    {
+        binaryFile = Files.createTempFile( "stats", "bin" ).toFile(  )
+        textFile = Files.createTempFile( "stats", "log" ).toFile(  )
+        outputFile = Files.createTempFile( "stats", "out" ).toFile(  )
+    }
+
+    def "Decode #output binary log, same as the text log."()
+    {
+        given:
+        List<ServiceCallEvent> events = (1..100).collect{ createEvent( "service" + it % 7 ) }
+        write( events, binaryFile, EventFormat.BINARY, output )
+        write( events, textFile, EventFormat.TEXT, LogOutputType.STREAM )
+
+        when:
+        int exitCode = LogTool.newCommandLine( new LogTool(  ) )
+                .execute( "decode", "--input=" + binaryFile.getPath(  ), "--output=" + outputFile.getPath(  ) )
+
+        then:
+        exitCode == 0
+        outputFile.text == textFile.text
+
+        where:
+        output << [LogOutputType.STREAM, LogOutputType.GZIP]
+    }
+
+    def "Decode with delimiter."()
+    {
+        given:
+        ServiceCallEvent event = createEvent( "test1" )
+        write( [event], binaryFile, EventFormat.BINARY, LogOutputType.STREAM )
+
+        when:
+        int exitCode = LogTool.newCommandLine( new LogTool(  ) )
+                .execute( "decode", "-i", binaryFile.getPath(  ), "-o", outputFile.getPath(  ), "-d", "~" )
+
+        then:
+        exitCode == 0
+        outputFile.text.startsWith( "test1~parent~123~" )
+    }
+
+    def "Decode text log, fails."()
+    {
+        given:
+        write( [createEvent( "test1" )], textFile, EventFormat.TEXT, LogOutputType.STREAM )
+
+        when:
+        int exitCode = LogTool.newCommandLine( new LogTool(  ) )
+                .execute( "decode", "--input=" + textFile.getPath(  ), "--output=" + outputFile.getPath(  ) )
+
+        then:
+        exitCode != 0
+    }
+
+    def "Missing #desc, fails."()
+    {
+        when:
+        int exitCode = LogTool.newCommandLine( new LogTool(  ) ).execute( args as String[] )
+
+        then:
+        exitCode != 0
+
+        where:
+        desc         | args
+        "subcommand" | []
+        "input"      | ["decode"]
+    }
+
+    def "Decode is a subcommand."()
+    {
+        expect:
+        LogTool.newCommandLine( new LogTool(  ) ).getSubcommands(  ).containsKey( "decode" )
+    }
+
+    static void write( List<ServiceCallEvent> events, File file, EventFormat format, LogOutputType output )
+    {
+        TestEventServiceLogParams params = new TestEventServiceLogParams(  )
+        params.logFile = file
+        params.eventFormat = format
+        params.logOutputType = output
+        ServiceLogger logger = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        events.each{ logger.logEvent( it ) }
+        logger.close(  )
+    }
+
+    ServiceCallEvent createEvent( String service )
+    {
+        Instant start = Instant.now(  )
+        return ServiceCallEvent.createBuilder(  )
+                .withService( service )
+                .withParent( "parent" )
+                .withPID( 123 )
+                .withExecution( UUID.randomUUID(  ) )
+                .withTransactionId( Mock( Xid ) )
+                .withPending( 5 )
+                .withStart( start )
+                .withEnd( start.plusMillis( 3 ) )
+                .withCode( ErrorState.OK )
+                .withOrder( Order.CONCURRENT )
+                .build()
+    }
+}
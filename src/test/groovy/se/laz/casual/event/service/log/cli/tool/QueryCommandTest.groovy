@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.log.EventFormat
+import se.laz.casual.event.service.log.cli.log.LogIndex
+import se.laz.casual.event.service.log.cli.log.LogOutputType
+import se.laz.casual.event.service.log.cli.log.ServiceLogger
+import se.laz.casual.event.service.log.cli.runner.TestEventServiceLogParams
+import spock.lang.Specification
+
+import javax.transaction.xa.Xid
+import java.nio.file.Files
+import java.time.Instant
+
+class QueryCommandTest extends Specification
+{
+    static final Instant START = Instant.parse( "2024-04-15T12:00:00Z" )
+    static final long START_US = 1713182400000000L
+
+    File logFile
+    File outputFile
+    StringWriter err = new StringWriter(  )
+
+    def setup()
+    {
+        logFile = Files.createTempFile( "query", "log" ).toFile(  )
+        outputFile = Files.createTempFile( "query", "out" ).toFile(  )
+    }
+
+    def cleanup()
+    {
+        LogIndex.indexFileOf( logFile ).delete(  )
+        logFile.delete(  )
+        outputFile.delete(  )
+    }
+
+    def "Query time range, only matching blocks read."()
+    {
+        given:
+        write( events( 100 ), logFile, true )
+
+        when:
+        int exitCode = execute( "query", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ),
+                "--from=" + ( START_US + 20_000_000 ), "--to=2024-04-15T12:00:29Z" )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ) == logFile.readLines(  )[20..29]
+        err.toString(  ).startsWith( "Matched 10 events, read " + logFile.length(  ).intdiv( 10 ) + " of " + logFile.length(  ) + " bytes." )
+    }
+
+    def "Query service."()
+    {
+        given:
+        write( events( 100 ), logFile, true )
+
+        when:
+        int exitCode = execute( "query", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ), "--service=service3" )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ) == logFile.readLines(  ).findAll{ it.startsWith( "service3|" ) }
+        outputFile.readLines(  ).size(  ) == 14
+    }
+
+    def "Query without index, whole log read."()
+    {
+        given:
+        write( events( 100 ), logFile, false )
+
+        when:
+        int exitCode = execute( "query", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ),
+                "--from=" + ( START_US + 95_000_000 ) )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ) == logFile.readLines(  )[95..99]
+        err.toString(  ).startsWith( "Matched 5 events, read " + logFile.length(  ) + " of " + logFile.length(  ) + " bytes." )
+    }
+
+    def "Query log written after the index, tail read."()
+    {
+        given:
+        write( events( 10 ), logFile, true )
+        logFile << logFile.readLines(  )[9] + System.lineSeparator(  )
+
+        when:
+        int exitCode = execute( "query", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ),
+                "--from=" + ( START_US + 9_000_000 ) )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ).size(  ) == 2
+    }
+
+    def "Query without a time range, lines without a numeric start skipped and counted."()
+    {
+        given:
+        write( events( 3 ), logFile, false )
+        List<String> lines = logFile.readLines(  )
+        logFile.text = lines[0] + System.lineSeparator(  ) +
+                "service0|parent|123|execution|trid|not-a-time|1|5|OK|C" + System.lineSeparator(  ) +
+                "truncated|line" + System.lineSeparator(  ) +
+                lines[1..2].join( System.lineSeparator(  ) ) + System.lineSeparator(  )
+
+        when:
+        int exitCode = execute( "query", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ) )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ) == lines
+        err.toString(  ).contains( "Matched 3 events" )
+        err.toString(  ).contains( "Skipped 2 malformed lines." )
+    }
+
+    def "Query #desc log, fails."()
+    {
+        given:
+        TestEventServiceLogParams params = new TestEventServiceLogParams(  )
+        params.logFile = logFile
+        params.eventFormat = format
+        params.logOutputType = output
+        ServiceLogger logger = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        logger.logEvent( events( 1 )[0] )
+        logger.close(  )
+
+        when:
+        int exitCode = execute( "query", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ) )
+
+        then:
+        exitCode != 0
+
+        where:
+        desc         | format            | output
+        "binary"     | EventFormat.BINARY | LogOutputType.STREAM
+        "compressed" | EventFormat.TEXT   | LogOutputType.GZIP
+    }
+
+    def "Regions of overlapping blocks merged, tail added."()
+    {
+        given:
+        List<LogIndex.Entry> entries = [new LogIndex.Entry( 0, 10, 0, 9 ),
+                                        new LogIndex.Entry( 10, 10, 10, 19 ),
+                                        new LogIndex.Entry( 20, 10, 20, 29 ),
+                                        new LogIndex.Entry( 30, 10, 5, 6 )]
+
+        when:
+        List<long[]> regions = QueryCommand.regions( entries, 5, 15, 50 )
+
+        then:
+        regions.collect{ it as List } == [[0L, 20L], [30L, 50L]]
+    }
+
+    def "Query is a subcommand."()
+    {
+        expect:
+        LogTool.newCommandLine( new LogTool(  ) ).getSubcommands(  ).containsKey( "query" )
+    }
+
+    int execute( String... args )
+    {
+        return LogTool.newCommandLine( new LogTool(  ) )
+                .setErr( new PrintWriter( err ) )
+                .execute( args )
+    }
+
+    static void write( List<ServiceCallEvent> events, File file, boolean index )
+    {
+        TestEventServiceLogParams params = new TestEventServiceLogParams(  )
+        params.logFile = file
+        params.index = index
+        params.indexEvents = 10
+        params.indexIntervalMillis = 3600000
+        ServiceLogger logger = ServiceLogger.newBuilder(  ).eventServiceLogParams( params ).build(  )
+        events.each{ logger.logEvent( it ) }
+        logger.close(  )
+    }
+
+    List<ServiceCallEvent> events( int count )
+    {
+        return (0..<count).collect{ createEvent( "service" + it % 7, START.plusSeconds( it ) ) }
+    }
+
+    ServiceCallEvent createEvent( String service, Instant start )
+    {
+        return ServiceCallEvent.createBuilder(  )
+                .withService( service )
+                .withParent( "parent" )
+                .withPID( 123 )
+                .withExecution( UUID.randomUUID(  ) )
+                .withTransactionId( Mock( Xid ) )
+                .withPending( 5 )
+                .withStart( start )
+                .withEnd( start.plusMillis( 3 ) )
+                .withCode( ErrorState.OK )
+                .withOrder( Order.CONCURRENT )
+                .build()
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool
+
+import se.laz.casual.api.flags.ErrorState
+import se.laz.casual.event.Order
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.log.EventFormat
+import se.laz.casual.event.service.log.cli.log.LogOutputType
+import spock.lang.Specification
+
+import javax.transaction.xa.Xid
+import java.nio.file.Files
+import java.time.Instant
+
+import static se.laz.casual.event.service.log.cli.tool.DecodeCommandTest.write
+
+class ReplayCommandTest extends Specification
+{
+    static final Instant START = Instant.parse( "2024-04-15T12:00:00Z" )
+
+    File logFile
+    File outputFile
+    StringWriter err = new StringWriter(  )
+
+    def setup()
+    {
+        logFile = Files.createTempFile( "replay", "log" ).toFile(  )
+        outputFile = Files.createTempFile( "replay", "out" ).toFile(  )
+    }
+
+    def cleanup()
+    {
+        logFile.delete(  )
+        outputFile.delete(  )
+    }
+
+    def "Replay #output log with delimiter, same events in order."()
+    {
+        given:
+        write( events( 1000 ), logFile, EventFormat.TEXT, output )
+        File textFile = Files.createTempFile( "replay", "text" ).toFile(  )
+        write( events( 1000 ), textFile, EventFormat.TEXT, LogOutputType.STREAM )
+
+        when:
+        int exitCode = execute( "replay", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ), "-d", "~", "--threads=3" )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ) == textFile.readLines(  ).collect{ it.replace( "|", "~" ) }
+        err.toString(  ).startsWith( "Replayed 1000 of 1000 events, skipped 0 lines" )
+
+        cleanup:
+        textFile.delete(  )
+
+        where:
+        output << [LogOutputType.STREAM, LogOutputType.GZIP]
+    }
+
+    def "Replay with #desc, only matching events."()
+    {
+        given:
+        write( events( 100 ), logFile, EventFormat.TEXT, LogOutputType.STREAM )
+
+        when:
+        int exitCode = execute( ( ["replay", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  )] + args ) as String[] )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ) == logFile.readLines(  ).findAll( expected )
+
+        where:
+        desc                | args                                               | expected
+        "inclusive filter"  | ["--filter-inclusive=service[12]"]                 | { it.startsWith( "service1|" ) || it.startsWith( "service2|" ) }
+        "exclusive filter"  | ["--filter-exclusive=service[12]"]                 | { !it.startsWith( "service1|" ) && !it.startsWith( "service2|" ) }
+        "filter expression" | ["--filter=service =~ 'service[03]' && code == OK"] | { it.startsWith( "service3|" ) }
+    }
+
+    def "Replay several logs, in order, lines not in the TEXT format skipped."()
+    {
+        given:
+        File second = Files.createTempFile( "replay", "second" ).toFile(  )
+        write( events( 10 ), logFile, EventFormat.TEXT, LogOutputType.STREAM )
+        write( events( 5 ), second, EventFormat.TEXT, LogOutputType.GZIP )
+        logFile << "not an event" + System.lineSeparator(  )
+
+        when:
+        int exitCode = execute( "replay", "-i", logFile.getPath(  ), "-i", second.getPath(  ), "-o", outputFile.getPath(  ) )
+
+        then:
+        exitCode == 0
+        outputFile.readLines(  ).size(  ) == 15
+        err.toString(  ).startsWith( "Replayed 15 of 15 events, skipped 1 lines" )
+
+        cleanup:
+        second.delete(  )
+    }
+
+    def "Replay with stats, summary per service."()
+    {
+        given:
+        write( events( 70 ), logFile, EventFormat.TEXT, LogOutputType.STREAM )
+
+        when:
+        int exitCode = execute( "replay", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ), "--stats", "--filter-inclusive=service[01]" )
+        List<List<String>> lines = outputFile.readLines(  ).collect{ it.split( "\\|" ).toList(  ) }
+
+        then:
+        exitCode == 0
+        lines.collect{ it[1] }.toSet(  ) == ["service0", "service1"] as Set
+        lines.every{ it[2] == "10" && it.size(  ) == 16 }
+        lines.find{ it[1] == "service0" }[3] == "10"
+        lines.find{ it[1] == "service1" }[3] == "0"
+    }
+
+    def "Replay binary log, fails."()
+    {
+        given:
+        write( events( 1 ), logFile, EventFormat.BINARY, LogOutputType.STREAM )
+
+        when:
+        int exitCode = execute( "replay", "-i", logFile.getPath(  ), "-o", outputFile.getPath(  ) )
+
+        then:
+        exitCode != 0
+    }
+
+    def "Replay is a subcommand."()
+    {
+        expect:
+        LogTool.newCommandLine( new LogTool(  ) ).getSubcommands(  ).containsKey( "replay" )
+    }
+
+    int execute( String... args )
+    {
+        return LogTool.newCommandLine( new LogTool(  ) )
+                .setErr( new PrintWriter( err ) )
+                .execute( args )
+    }
+
+    List<ServiceCallEvent> events( int count )
+    {
+        return (0..<count).collect{ createEvent( "service" + it % 7, START.plusSeconds( it ), it % 7 == 0 ? ErrorState.TPESVCERR : ErrorState.OK ) }
+    }
+
+    ServiceCallEvent createEvent( String service, Instant start, ErrorState code )
+    {
+        return ServiceCallEvent.createBuilder(  )
+                .withService( service )
+                .withParent( "parent" )
+                .withPID( 123 )
+                .withExecution( new UUID( 0L, start.getEpochSecond(  ) ) )
+                .withTransactionId( Mock( Xid ) )
+                .withPending( 5 )
+                .withStart( start )
+                .withEnd( start.plusMillis( 3 ) )
+                .withCode( code )
+                .withOrder( Order.CONCURRENT )
+                .build()
+    }
+}
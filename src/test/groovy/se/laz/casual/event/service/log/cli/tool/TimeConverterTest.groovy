@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.tool
+
+import picocli.CommandLine
+import spock.lang.Specification
+
+import java.time.ZoneId
+
+class TimeConverterTest extends Specification
+{
+    TimeConverter instance = new TimeConverter( ZoneId.of( "Europe/Stockholm" ) )
+
+    def "Convert #value to #expected us."()
+    {
+        expect:
+        instance.convert( value ) == expected
+
+        where:
+        value                         || expected
+        "1713184496123456"            || 1713184496123456L
+        "2024-04-15T12:34:56.123456Z" || 1713184496123456L
+        "2024-04-15T12:34:56z"        || 1713184496000000L
+        "2024-04-15T14:34:56"         || 1713184496000000L
+        "2024-04-15 14:34"            || 1713184440000000L
+    }
+
+    def "Invalid #value, throws TypeConversionException."()
+    {
+        when:
+        instance.convert( value )
+
+        then:
+        thrown CommandLine.TypeConversionException
+
+        where:
+        value << ["", "abc", "2024-04-15", "99999999999999999999", "2024-13-15T10:00:00"]
+    }
+}
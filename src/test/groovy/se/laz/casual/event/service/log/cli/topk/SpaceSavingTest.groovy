@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk
+
+import spock.lang.Specification
+
+class SpaceSavingTest extends Specification
+{
+    def "Fewer keys than capacity, totals exact."()
+    {
+        given:
+        SpaceSaving instance = new SpaceSaving( 4 )
+
+        when:
+        instance.add( "a", 5 )
+        instance.add( "b", 1 )
+        instance.add( "a", 2 )
+        instance.add( "c", 0 )
+
+        then:
+        counters( instance ) == [a: [7L, 0L], b: [1L, 0L]]
+        instance.getMinTotal(  ) == 0L
+    }
+
+    def "More keys than capacity, lightest replaced inheriting its total as error."()
+    {
+        given:
+        SpaceSaving instance = new SpaceSaving( 2 )
+        instance.add( "a", 10 )
+        instance.add( "b", 3 )
+
+        when:
+        instance.add( "c", 1 )
+
+        then:
+        counters( instance ) == [a: [10L, 0L], c: [4L, 3L]]
+        instance.getMinTotal(  ) == 4L
+        !instance.contains( "b" )
+    }
+
+    def "Heavy keys kept amongst many light keys."()
+    {
+        given:
+        SpaceSaving instance = new SpaceSaving( 16 )
+        Random random = new Random( 42 )
+
+        when:
+        10000.times{
+            instance.add( "light" + random.nextInt( 1000 ), 1 )
+            if( it % 10 == 0 )
+            {
+                instance.add( "heavy", 1 )
+            }
+        }
+
+        then:
+        instance.contains( "heavy" )
+        counters( instance )["heavy"][0] - counters( instance )["heavy"][1] <= 1000L
+        counters( instance )["heavy"][0] >= 1000L
+    }
+
+    def "Clear, no counters."()
+    {
+        given:
+        SpaceSaving instance = new SpaceSaving( 2 )
+        instance.add( "a", 1 )
+
+        when:
+        instance.clear(  )
+
+        then:
+        instance.size(  ) == 0
+        !instance.contains( "a" )
+    }
+
+    Map<String, List<Long>> counters( SpaceSaving instance )
+    {
+        Map<String, List<Long>> counters = [:]
+        instance.forEach( { String key, long total, long error -> counters[key] = [total, error] } as SpaceSaving.CounterConsumer )
+        return counters
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.LongSupplier
+
+class TopReporterTest extends Specification
+{
+    File topFile
+    TopServices topServices = TopServices.newBuilder(  ).n( 1 ).windowsMillis( [60000L] ).currentTimeMillis( { 0L } as LongSupplier ).build(  )
+    long now = 1713184496000000L
+
+    TopReporter instance
+
+    def setup()
+    {
+        topFile = Files.createTempFile( "top", "services" ).toFile(  )
+        instance = TopReporter.newBuilder(  )
+                .topServices( topServices )
+                .file( topFile )
+                .intervalMillis( 60000 )
+                .currentTimeMicros( { now } as LongSupplier )
+                .build(  )
+    }
+
+    def cleanup()
+    {
+        instance.close(  )
+    }
+
+    def "Report, one line per ranked service per window and metric."()
+    {
+        given:
+        topServices.onEvent( event( "a", 10L, 2L, "TPESVCERR" ) )
+
+        when:
+        instance.report(  )
+
+        then:
+        topFile.readLines(  ) == ["1713184496000000|60000|CALLS|1|a|1|0",
+                                  "1713184496000000|60000|DURATION|1|a|10|0",
+                                  "1713184496000000|60000|PENDING|1|a|2|0",
+                                  "1713184496000000|60000|ERRORS|1|a|1|0"]
+    }
+
+    def "Close, writes the final report once."()
+    {
+        given:
+        topServices.onEvent( event( "a", 10L, 0L, "OK" ) )
+
+        when:
+        instance.close(  )
+        instance.close(  )
+        instance.report(  )
+
+        then:
+        topFile.readLines(  ).size(  ) == 2
+    }
+
+    def "Build with invalid #desc, throws #exception."()
+    {
+        when:
+        TopReporter.newBuilder(  ).topServices( _topServices ).file( file ).intervalMillis( interval ).build(  )
+
+        then:
+        thrown exception
+
+        where:
+        desc                   | _topServices                         | file            | interval || exception
+        "missing top services" | null                                 | new File( "x" ) | 1000     || NullPointerException
+        "missing file"         | TopServices.newBuilder(  ).build(  ) | null            | 1000     || NullPointerException
+        "interval"             | TopServices.newBuilder(  ).build(  ) | new File( "x" ) | 0        || IllegalArgumentException
+    }
+
+    ServiceCallEvent event( String service, long duration, long pending, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getService(  ) >> service
+        event.getStart(  ) >> 1000L
+        event.getEnd(  ) >> 1000L + duration
+        event.getPending(  ) >> pending
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.topk
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class TopServicesTest extends Specification
+{
+    long now = 1713184496000L
+
+    TopServices instance = TopServices.newBuilder(  )
+            .n( 2 )
+            .windowsMillis( [60000L, 300000L] )
+            .currentTimeMillis( { now } as LongSupplier )
+            .build(  )
+
+    def "Rank by #metric, heaviest first."()
+    {
+        given:
+        instance.onEvent( event( "a", 10L, 0L, "OK" ) )
+        instance.onEvent( event( "a", 10L, 0L, "OK" ) )
+        instance.onEvent( event( "a", 10L, 0L, "TPESVCERR" ) )
+        instance.onEvent( event( "b", 100L, 7L, "TPESVCERR" ) )
+        instance.onEvent( event( "b", 100L, 0L, "TPESVCERR" ) )
+        instance.onEvent( event( "c", 1L, 1L, "OK" ) )
+
+        expect:
+        instance.top( 60000L, metric ) == expected
+
+        where:
+        metric             | expected
+        TopMetric.CALLS    | [new TopEntry( "a", 3L, 0L ), new TopEntry( "b", 2L, 0L )]
+        TopMetric.DURATION | [new TopEntry( "b", 200L, 0L ), new TopEntry( "a", 30L, 0L )]
+        TopMetric.PENDING  | [new TopEntry( "b", 7L, 0L ), new TopEntry( "c", 1L, 0L )]
+        TopMetric.ERRORS   | [new TopEntry( "b", 2L, 0L ), new TopEntry( "a", 1L, 0L )]
+    }
+
+    def "Calls older than the window, no longer ranked."()
+    {
+        given:
+        instance.onEvent( event( "a", 1L, 0L, "OK" ) )
+        now += 60000L
+        instance.onEvent( event( "b", 1L, 0L, "OK" ) )
+
+        expect:
+        instance.top( 60000L, TopMetric.CALLS )*.getService(  ) == ["b"]
+        instance.top( 300000L, TopMetric.CALLS )*.getService(  ) as Set == ["a", "b"] as Set
+
+        when:
+        now += 300000L
+
+        then:
+        instance.top( 300000L, TopMetric.CALLS ).isEmpty(  )
+    }
+
+    def "Windows slide by a sixth of the shortest window."()
+    {
+        expect:
+        instance.getBucketMillis(  ) == 10000L
+    }
+
+    def "Rank over an unknown window, throws IllegalArgumentException."()
+    {
+        when:
+        instance.top( 1000L, TopMetric.CALLS )
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def "Build with invalid #desc, throws IllegalArgumentException."()
+    {
+        when:
+        TopServices.newBuilder(  ).n( n ).windowsMillis( windows ).build(  )
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        desc      | n | windows
+        "n"       | 0 | [60000L]
+        "windows" | 1 | []
+        "window"  | 1 | [0L]
+    }
+
+    ServiceCallEvent event( String service, long duration, long pending, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getService(  ) >> service
+        event.getStart(  ) >> 1000L
+        event.getEnd(  ) >> 1000L + duration
+        event.getPending(  ) >> pending
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.transaction
+
+import se.laz.casual.event.ServiceCallEvent
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class TransactionIndexTest extends Specification
+{
+    long now = 0
+
+    TransactionIndex instance = TransactionIndex.newBuilder(  )
+            .maxTransactions( 2 )
+            .idleTimeoutMillis( 1000 )
+            .currentTimeMillis( { now } as LongSupplier )
+            .build(  )
+
+    def "Calls within a transaction, accumulated until idle."()
+    {
+        given:
+        instance.onEvent( event( "t1", 10L, 30L, 5L, "OK" ) )
+        instance.onEvent( event( "t1", 20L, 60L, 1L, "TPESVCERR" ) )
+        instance.onEvent( event( "", 0L, 1L, 0L, "OK" ) )
+
+        when:
+        now += 999
+        instance.expire(  )
+
+        then:
+        instance.getSummaries(  ).isEmpty(  )
+        instance.getOpen(  ) == 1
+
+        when:
+        now += 1
+        instance.expire(  )
+        List<TransactionSummary> summaries = instance.getSummaries(  )
+
+        then:
+        summaries.size(  ) == 1
+        with( summaries[0] ) {
+            getTransactionId(  ) == "t1"
+            getCalls(  ) == 2
+            getErrors(  ) == 1
+            getStart(  ) == 10L
+            getEnd(  ) == 60L
+            getSpan(  ) == 50L
+            getServiceTime(  ) == 60L
+            getPending(  ) == 6L
+            getCompletion(  ) == TransactionSummary.Completion.IDLE
+        }
+        instance.getOpen(  ) == 0
+        instance.getCompleted(  ) == 1
+    }
+
+    def "More transactions than max, least recently called summarised early."()
+    {
+        given:
+        instance.onEvent( event( "t1", 0L, 1L, 0L, "OK" ) )
+        instance.onEvent( event( "t2", 0L, 1L, 0L, "OK" ) )
+        instance.onEvent( event( "t1", 0L, 1L, 0L, "OK" ) )
+
+        when:
+        instance.onEvent( event( "t3", 0L, 1L, 0L, "OK" ) )
+
+        then:
+        instance.getSummaries(  )*.getTransactionId(  ) == ["t2"]
+        instance.getSummaries(  )[0].getCompletion(  ) == TransactionSummary.Completion.EVICTED
+        instance.getOpen(  ) == 2
+        instance.getEvicted(  ) == 1
+    }
+
+    def "Complete all, summarised regardless of idle timeout."()
+    {
+        given:
+        instance.onEvent( event( "t1", 0L, 1L, 0L, "OK" ) )
+        instance.onEvent( event( "t2", 0L, 1L, 0L, "OK" ) )
+
+        when:
+        instance.completeAll(  )
+
+        then:
+        instance.getSummaries(  )*.getTransactionId(  ) == ["t1", "t2"]
+        instance.getSummaries(  )*.getCompletion(  ).every{ it == TransactionSummary.Completion.EXIT }
+        instance.getOpen(  ) == 0
+    }
+
+    def "Summaries kept until removed, those completed since kept."()
+    {
+        given:
+        instance.onEvent( event( "t1", 0L, 1L, 0L, "OK" ) )
+        instance.completeAll(  )
+        List<TransactionSummary> written = instance.getSummaries(  )
+        instance.onEvent( event( "t2", 0L, 1L, 0L, "OK" ) )
+        instance.completeAll(  )
+
+        when:
+        instance.removeSummaries( written )
+
+        then:
+        instance.getSummaries(  )*.getTransactionId(  ) == ["t2"]
+    }
+
+    def "More summaries than max waiting to be removed, oldest dropped."()
+    {
+        given:
+        ["t1", "t2", "t3"].each{
+            instance.onEvent( event( it, 0L, 1L, 0L, "OK" ) )
+            instance.completeAll(  )
+        }
+
+        expect:
+        instance.getSummaries(  )*.getTransactionId(  ) == ["t2", "t3"]
+        instance.getDropped(  ) == 1
+        instance.getCompleted(  ) == 3
+    }
+
+    def "Build with invalid #desc, throws #exception."()
+    {
+        when:
+        TransactionIndex.newBuilder(  ).maxTransactions( max ).idleTimeoutMillis( timeout ).currentTimeMillis( clock ).build(  )
+
+        then:
+        thrown exception
+
+        where:
+        desc            | max | timeout | clock                  || exception
+        "missing clock" | 10  | 1000    | null                   || NullPointerException
+        "max"           | 0   | 1000    | { 0L } as LongSupplier || IllegalArgumentException
+        "idle timeout"  | 10  | 0       | { 0L } as LongSupplier || IllegalArgumentException
+    }
+
+    ServiceCallEvent event( String trid, long start, long end, long pending, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getTransactionId(  ) >> trid
+        event.getStart(  ) >> start
+        event.getEnd(  ) >> end
+        event.getPending(  ) >> pending
+        event.getCode(  ) >> code
+        return event
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2024, The casual project. All rights reserved.
+ *
+ * This software is licensed under the MIT license, https://opensource.org/licenses/MIT
+ */
+
+package se.laz.casual.event.service.log.cli.transaction
+
+import se.laz.casual.event.ServiceCallEvent
+import se.laz.casual.event.service.log.cli.internal.EventServiceLoggerException
+import se.laz.casual.event.service.log.cli.log.LogBuffer
+import se.laz.casual.event.service.log.cli.log.LogOutput
+import se.laz.casual.event.service.log.cli.log.StreamLogOutput
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.LongSupplier
+
+class TransactionLogTest extends Specification
+{
+    File tridFile
+    long nowMillis = 0
+    long nowMicros = 1713184496000000L
+
+    TransactionLog instance
+
+    def setup()
+    {
+        tridFile = Files.createTempFile( "trid", "summary" ).toFile(  )
+        instance = TransactionLog.newBuilder(  )
+                .file( tridFile )
+                .idleTimeoutMillis( 1000 )
+                .currentTimeMillis( { nowMillis } as LongSupplier )
+                .currentTimeMicros( { nowMicros } as LongSupplier )
+                .build(  )
+    }
+
+    def cleanup()
+    {
+        instance.close(  )
+    }
+
+    def "Transaction idle, one line written."()
+    {
+        given:
+        instance.getIndex(  ).onEvent( event( "t1", 10L, 30L, 5L, "OK" ) )
+        instance.getIndex(  ).onEvent( event( "t1", 20L, 60L, 1L, "TPESVCERR" ) )
+
+        when:
+        nowMillis += 1000
+        instance.getIndex(  ).expire(  )
+
+        then:
+        tridFile.readLines(  ).isEmpty(  )
+
+        when:
+        instance.write(  )
+
+        then:
+        tridFile.readLines(  ) == ["1713184496000000|t1|2|1|10|60|50|60|6|IDLE"]
+    }
+
+    def "Write fails, the summaries are written by the next."()
+    {
+        given:
+        StreamLogOutput file = new StreamLogOutput( tridFile )
+        boolean fail = true
+        LogOutput output = [write: { LogBuffer buffer ->
+            if( fail )
+            {
+                throw new EventServiceLoggerException( "Failed to write to file." )
+            }
+            file.write( buffer )
+        }, close: { file.close(  ) }] as LogOutput
+        TransactionLog failing = TransactionLog.newBuilder(  )
+                .output( output )
+                .currentTimeMicros( { nowMicros } as LongSupplier )
+                .build(  )
+        failing.getIndex(  ).onEvent( event( "t1", 0L, 10L, 0L, "OK" ) )
+        failing.getIndex(  ).completeAll(  )
+
+        when:
+        failing.write(  )
+
+        then:
+        thrown EventServiceLoggerException
+
+        when:
+        fail = false
+        failing.getIndex(  ).onEvent( event( "t2", 0L, 10L, 0L, "OK" ) )
+        failing.getIndex(  ).completeAll(  )
+        failing.write(  )
+        failing.write(  )
+
+        then:
+        tridFile.readLines(  ) == ["1713184496000000|t1|1|0|0|10|10|10|0|EXIT",
+                                   "1713184496000000|t2|1|0|0|10|10|10|0|EXIT"]
+
+        cleanup:
+        failing.close(  )
+    }
+
+    def "Close, writes the remaining transactions once."()
+    {
+        given:
+        instance.getIndex(  ).onEvent( event( "t1", 0L, 10L, 0L, "OK" ) )
+
+        when:
+        instance.close(  )
+        instance.close(  )
+        instance.getIndex(  ).onEvent( event( "t2", 0L, 10L, 0L, "OK" ) )
+        instance.getIndex(  ).completeAll(  )
+        instance.write(  )
+
+        then:
+        tridFile.readLines(  ) == ["1713184496000000|t1|1|0|0|10|10|10|0|EXIT"]
+    }
+
+    def "Build without file, throws NullPointerException."()
+    {
+        when:
+        TransactionLog.newBuilder(  ).build(  )
+
+        then:
+        thrown NullPointerException
+    }
+
+    ServiceCallEvent event( String trid, long start, long end, long pending, String code )
+    {
+        ServiceCallEvent event = Mock()
+        event.getTransactionId(  ) >> trid
+        event.getStart(  ) >> start
+        event.getEnd(  ) >> end
+        event.getPending(  ) >> pending
+        event.getCode(  ) >> code
+        return event
+    }
+}